@@ -0,0 +1,41 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.SerializableAs;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A small {@link ConfigurationSerializable} standing in for the location-like objects plugins tend to store.
+ */
+@SerializableAs("BenchPoint")
+public class BenchPoint implements ConfigurationSerializable {
+
+    private final String world;
+    private final double x;
+    private final double y;
+    private final double z;
+
+    public BenchPoint(String world, double x, double y, double z) {
+        this.world = world;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+    }
+
+    public static BenchPoint deserialize(Map<String, Object> map) {
+        return new BenchPoint((String) map.get("world"), ((Number) map.get("x")).doubleValue(),
+                ((Number) map.get("y")).doubleValue(), ((Number) map.get("z")).doubleValue());
+    }
+
+    @Override
+    public Map<String, Object> serialize() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("world", world);
+        map.put("x", x);
+        map.put("y", y);
+        map.put("z", z);
+        return map;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two result summaries recorded by {@link BenchmarkRunner}, printing how the score and allocation of every
+ * benchmark in the second changed from the first. A score change smaller than the errors of both scores together is
+ * marked with a {@code ~}, as it cannot be told apart from noise.
+ *
+ * Run with the paths of the baseline and the new results.
+ */
+public class BenchmarkComparison {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: BenchmarkComparison <baseline.json> <results.json>");
+            System.exit(1);
+        }
+        Path baselinePath = Paths.get(args[0]);
+        if (!Files.exists(baselinePath)) {
+            System.err.println("No baseline at " + baselinePath + ", record one with -Djmh.result=baseline");
+            System.exit(1);
+        }
+        Map<String, Config> baseline = read(baselinePath);
+        Map<String, Config> results = read(Paths.get(args[1]));
+
+        System.out.printf("%-110s %14s %14s %8s %8s %s%n", "Benchmark", "Baseline", "Score", "Change", "Alloc", "Unit");
+        for (Map.Entry<String, Config> entry : results.entrySet()) {
+            Config result = entry.getValue();
+            Config base = baseline.get(entry.getKey());
+            String unit = result.getString("unit");
+            double score = result.getDouble("score");
+            if (base == null) {
+                System.out.printf("%-110s %14s %14.3f %8s %8s %s%n", entry.getKey(), "-", score, "new", "-", unit);
+                continue;
+            }
+            double baseScore = base.getDouble("score");
+            String change = change(baseScore, score);
+            if (Math.abs(score - baseScore) < error(base) + error(result)) {
+                change = "~" + change;
+            }
+            System.out.printf("%-110s %14.3f %14.3f %8s %8s %s%n", entry.getKey(), baseScore, score,
+                    change, allocationChange(base, result), unit);
+        }
+        for (String name : baseline.keySet()) {
+            if (!results.containsKey(name)) {
+                System.out.printf("%-110s %s%n", name, "missing");
+            }
+        }
+    }
+
+    /**
+     * Reads a result summary, keyed by the benchmark and its parameters.
+     */
+    private static Map<String, Config> read(Path path) throws IOException {
+        String json = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+        Map<String, Config> results = new LinkedHashMap<>();
+        for (Config result : ConfigFactory.parseString("results = " + json).getConfigList("results")) {
+            String benchmark = result.getString("benchmark");
+            // the class and method, without the package
+            String name = benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1);
+            if (!result.getConfig("params").isEmpty()) {
+                name += new TreeMap<>(result.getConfig("params").root().unwrapped());
+            }
+            results.put(name, result);
+        }
+        return results;
+    }
+
+    /**
+     * Returns the error of a score, which is unknown and so taken as the score itself if it was measured too few times.
+     */
+    private static double error(Config result) {
+        return result.hasPath("error") ? result.getDouble("error") : Math.abs(result.getDouble("score"));
+    }
+
+    private static String change(double before, double after) {
+        return before == 0 ? "-" : String.format("%+.1f%%", (after - before) / before * 100);
+    }
+
+    private static String allocationChange(Config before, Config after) {
+        if (!before.hasPath("alloc") || !after.hasPath("alloc")) {
+            return "-";
+        }
+        return change(before.getDouble("alloc"), after.getDouble("alloc"));
+    }
+}
@@ -0,0 +1,75 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValueFactory;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Runs the benchmarks and records a summary of the results: the score, error and allocation of every benchmark,
+ * without the raw iteration data JMH writes. {@link BenchmarkComparison} compares these summaries.
+ *
+ * Run with the path of the summary followed by any JMH arguments.
+ */
+public class BenchmarkRunner {
+
+    private static final String ALLOCATION = "\u00b7gc.alloc.rate.norm";
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException, IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: BenchmarkRunner <summary.json> [JMH arguments]");
+            System.exit(1);
+        }
+        Path summary = Paths.get(args[0]);
+        CommandLineOptions options = new CommandLineOptions(Arrays.copyOfRange(args, 1, args.length));
+
+        List<String> results = new ArrayList<>();
+        for (RunResult run : new Runner(options).run()) {
+            BenchmarkParams params = run.getParams();
+            Result primary = run.getPrimaryResult();
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("benchmark", params.getBenchmark());
+            Map<String, String> values = new TreeMap<>();
+            for (String key : params.getParamsKeys()) {
+                values.put(key, params.getParam(key));
+            }
+            result.put("params", values);
+            result.put("score", primary.getScore());
+            // left out when there were too few iterations to have an error
+            if (!Double.isNaN(primary.getScoreError())) {
+                result.put("error", primary.getScoreError());
+            }
+            result.put("unit", primary.getScoreUnit());
+            Result allocation = run.getSecondaryResults().get(ALLOCATION);
+            if (allocation != null) {
+                result.put("alloc", allocation.getScore());
+                result.put("allocUnit", allocation.getScoreUnit());
+            }
+            results.add(ConfigValueFactory.fromMap(result).render(ConfigRenderOptions.concise().setJson(true)));
+        }
+
+        if (summary.getParent() != null) {
+            Files.createDirectories(summary.getParent());
+        }
+        // one benchmark per line, so that recorded summaries diff cleanly
+        String json = "[\n    " + String.join(",\n    ", results) + "\n]\n";
+        Files.write(summary, json.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,50 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.hocon.HoconConfiguration;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * The generated configuration every benchmark works on, along with its saved text.
+ *
+ * By default only the key count and depth vary, the other parameters are varied with {@code -p}.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkState {
+
+    @Param({"100", "10000"})
+    public int keys;
+
+    @Param({"2", "5"})
+    public int depth;
+
+    @Param({"5"})
+    public int listLength;
+
+    @Param({"0.25"})
+    public double commentDensity;
+
+    @Param({"false"})
+    public boolean serializables;
+
+    @Param({"false"})
+    public boolean numericLists;
+
+    public HoconConfiguration config;
+    public String saved;
+
+    @Setup
+    public void setUp() {
+        config = new ConfigGenerator()
+                .keys(keys)
+                .depth(depth)
+                .listLength(listLength)
+                .commentDensity(commentDensity)
+                .serializables(serializables)
+                .numericLists(numericLists)
+                .generate();
+        saved = config.saveToString();
+    }
+}
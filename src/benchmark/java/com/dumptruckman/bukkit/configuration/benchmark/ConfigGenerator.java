@@ -0,0 +1,143 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.SerializableSet;
+import com.dumptruckman.bukkit.configuration.hocon.HoconConfiguration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates configurations for the benchmarks. The same settings always generate the same configuration.
+ */
+public class ConfigGenerator {
+
+    static {
+        ConfigurationSerialization.registerClass(BenchPoint.class);
+    }
+
+    private int keys = 1000;
+    private int depth = 3;
+    private int listLength = 5;
+    private double commentDensity = 0.1;
+    private boolean serializables = false;
+    private boolean numericLists = false;
+    private long seed = 42;
+
+    /**
+     * The number of values to generate, not counting the sections holding them.
+     */
+    public ConfigGenerator keys(int keys) {
+        this.keys = keys;
+        return this;
+    }
+
+    /**
+     * How deep sections are nested.
+     */
+    public ConfigGenerator depth(int depth) {
+        this.depth = depth;
+        return this;
+    }
+
+    /**
+     * The length of the generated lists.
+     */
+    public ConfigGenerator listLength(int listLength) {
+        this.listLength = listLength;
+        return this;
+    }
+
+    /**
+     * The share of paths that get comments, from 0 to 1.
+     */
+    public ConfigGenerator commentDensity(double commentDensity) {
+        this.commentDensity = commentDensity;
+        return this;
+    }
+
+    /**
+     * Whether to include {@link BenchPoint}s and {@link SerializableSet}s among the values.
+     */
+    public ConfigGenerator serializables(boolean serializables) {
+        this.serializables = serializables;
+        return this;
+    }
+
+    /**
+     * Whether lists hold only ints and doubles instead of strings and ints.
+     */
+    public ConfigGenerator numericLists(boolean numericLists) {
+        this.numericLists = numericLists;
+        return this;
+    }
+
+    public ConfigGenerator seed(long seed) {
+        this.seed = seed;
+        return this;
+    }
+
+    public HoconConfiguration generate() {
+        Random random = new Random(seed);
+        HoconConfiguration config = new HoconConfiguration();
+        int sections = Math.max(1, (int) Math.sqrt(keys));
+        for (int i = 0; i < keys; i++) {
+            StringBuilder path = new StringBuilder("section").append(i % sections);
+            for (int d = 1; d < depth; d++) {
+                path.append(".nested").append((i / sections) % (d + 1));
+            }
+            ConfigurationSection section = config.getConfigurationSection(path.toString());
+            if (section == null) {
+                section = config.createSection(path.toString());
+                comment(config, random, path.toString());
+            }
+            String key = "key" + i;
+            section.set(key, value(random, i));
+            comment(config, random, path + "." + key);
+        }
+        return config;
+    }
+
+    private void comment(HoconConfiguration config, Random random, String path) {
+        if (random.nextDouble() < commentDensity) {
+            config.setComments(path, "Generated comment for " + path, "with a second line");
+        }
+    }
+
+    private Object value(Random random, int i) {
+        switch (random.nextInt(serializables ? 7 : 5)) {
+            case 0:
+                return random.nextInt();
+            case 1:
+                return random.nextDouble() * 1000;
+            case 2:
+                return random.nextBoolean();
+            case 3:
+                return "Some text with spaces #" + i;
+            case 4:
+                List<Object> list = new ArrayList<>(listLength);
+                for (int j = 0; j < listLength; j++) {
+                    if (j % 2 != 0) {
+                        list.add(random.nextInt(1000));
+                    } else if (numericLists) {
+                        list.add(random.nextDouble() * 1000);
+                    } else {
+                        list.add("item" + j);
+                    }
+                }
+                return list;
+            case 5:
+                return new BenchPoint("world", random.nextDouble() * 1000, random.nextInt(256), random.nextDouble() * 1000);
+            default:
+                Set<Object> set = new HashSet<>();
+                for (int j = 0; j < listLength; j++) {
+                    set.add(random.nextInt(10000));
+                }
+                return new SerializableSet(set);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.hocon.HoconConfiguration;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class LoadSaveBenchmark {
+
+    @Benchmark
+    public HoconConfiguration loadFromString(BenchmarkState state) throws InvalidConfigurationException {
+        HoconConfiguration config = new HoconConfiguration();
+        config.loadFromString(state.saved);
+        return config;
+    }
+
+    @Benchmark
+    public HoconConfiguration loadFromStringCompact(BenchmarkState state) throws InvalidConfigurationException {
+        HoconConfiguration config = new HoconConfiguration();
+        config.options().compactNumericLists(true);
+        config.loadFromString(state.saved);
+        return config;
+    }
+
+    @Benchmark
+    public String saveToString(BenchmarkState state) {
+        return state.config.saveToString();
+    }
+
+    @Benchmark
+    public String roundTrip(BenchmarkState state) throws InvalidConfigurationException {
+        HoconConfiguration config = new HoconConfiguration();
+        config.loadFromString(state.saved);
+        return config.saveToString();
+    }
+}
@@ -0,0 +1,72 @@
+package com.dumptruckman.bukkit.configuration.benchmark;
+
+import com.dumptruckman.bukkit.configuration.hocon.HoconConfiguration;
+import com.dumptruckman.bukkit.configuration.util.CommentTree;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+public class SerializationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Parsed {
+        Map<String, Object> values;
+        Map<String, Object> unwrapped;
+        List<String> paths;
+
+        @Setup
+        public void setUp(BenchmarkState state) {
+            values = state.config.getValues(false);
+            unwrapped = ConfigFactory.parseString(state.saved).resolve().root().unwrapped();
+            paths = new ArrayList<>(state.config.getKeys(true));
+        }
+    }
+
+    @Benchmark
+    public ConfigValue buildHoconConfig(BenchmarkState state, Parsed parsed) {
+        return SerializationHelper.createSerializationHelper(new CommentTree(), state.config.options().pathSeparator())
+                .buildHoconConfig(parsed.values);
+    }
+
+    @Benchmark
+    public Object deserialize(Parsed parsed) {
+        return SerializationHelper.deserialize(parsed.unwrapped);
+    }
+
+    @Benchmark
+    public void getComments(BenchmarkState state, Parsed parsed, Blackhole blackhole) {
+        for (String path : parsed.paths) {
+            blackhole.consume(state.config.getComments(path));
+        }
+    }
+
+    @Benchmark
+    public HoconConfiguration setComments(Parsed parsed) {
+        HoconConfiguration config = new HoconConfiguration();
+        for (String path : parsed.paths) {
+            config.setComments(path, "A comment", "and another");
+        }
+        return config;
+    }
+}
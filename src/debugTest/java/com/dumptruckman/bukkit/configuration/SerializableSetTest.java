@@ -1,6 +1,13 @@
 package com.dumptruckman.bukkit.configuration;
 
 import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.*;
 
@@ -9,4 +16,37 @@ public class SerializableSetTest {
     public void setUp() throws Exception {
     }
 
-}
\ No newline at end of file
+    private static SerializableSet load(Object... contents) {
+        Map<String, Object> serializedForm = Collections.singletonMap("contents", Arrays.asList(contents));
+        return new SerializableSet(serializedForm);
+    }
+
+    @Test
+    public void testIntsSaveSorted() throws Exception {
+        SerializableSet set = load(30, -2, 7, 30);
+        assertEquals(new HashSet<>(Arrays.asList(-2, 7, 30)), set);
+        assertFalse(set.contains(7L));
+        assertEquals(Arrays.asList(-2, 7, 30), set.serialize().get("contents"));
+    }
+
+    @Test
+    public void testAddingOtherElements() throws Exception {
+        SerializableSet set = load(5L, 1L);
+        assertTrue(set.add("text"));
+        assertTrue(set.add(1));
+        assertEquals(new HashSet<>(Arrays.asList(5L, 1L, "text", 1)), set);
+    }
+
+    @Test
+    public void testUuids() throws Exception {
+        String first = "0f14d0ab-9605-4a62-a9e4-5ed26688389b";
+        String second = "ff14d0ab-9605-4a62-a9e4-5ed26688389b";
+        SerializableSet set = load(second, first);
+        assertTrue(set.contains(first));
+        assertEquals(Arrays.asList(first, second), set.serialize().get("contents"));
+
+        SerializableSet mixed = load(first, "F14D0AB-9605-4A62-A9E4-5ED26688389B");
+        List<?> contents = (List<?>) mixed.serialize().get("contents");
+        assertEquals(2, contents.size());
+    }
+}
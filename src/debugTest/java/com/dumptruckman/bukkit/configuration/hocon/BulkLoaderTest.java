@@ -0,0 +1,155 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.Assert.*;
+
+public class BulkLoaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Runnable> held = new ArrayList<>();
+    private final List<Path> paths = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            paths.add(write("config" + i + ".conf", "value = " + i));
+        }
+    }
+
+    private Path write(String name, String contents) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static Throwable failure(CompletableFuture<?> future) throws Exception {
+        try {
+            future.get();
+        } catch (ExecutionException e) {
+            return e.getCause();
+        }
+        throw new AssertionError("Expected " + future + " to fail");
+    }
+
+    @Test
+    public void testFailuresOnlyAffectTheirFile() throws Exception {
+        Path broken = write("broken.conf", "value = {");
+        Path missing = folder.getRoot().toPath().resolve("missing.conf");
+
+        Map<Path, CompletableFuture<HoconConfiguration>> futures = BulkLoader.create()
+                .executor(Runnable::run)
+                .load(Arrays.asList(paths.get(0), broken, missing, paths.get(1)));
+
+        assertEquals(Arrays.asList(paths.get(0), broken, missing, paths.get(1)), new ArrayList<>(futures.keySet()));
+        assertEquals(0, futures.get(paths.get(0)).get().getInt("value"));
+        assertTrue(failure(futures.get(broken)) instanceof InvalidConfigurationException);
+        assertTrue(failure(futures.get(missing)) instanceof NoSuchFileException);
+        assertEquals(1, futures.get(paths.get(1)).get().getInt("value"));
+    }
+
+    @Test
+    public void testMaxOpenFiles() throws Exception {
+        Map<Path, CompletableFuture<HoconConfiguration>> futures = BulkLoader.create()
+                .executor(held::add)
+                .maxOpenFiles(2)
+                .load(paths);
+
+        assertEquals(2, held.size());
+        held.get(0).run();
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(i, futures.get(paths.get(i)).get().getInt("value"));
+        }
+        held.get(1).run();
+    }
+
+    @Test
+    public void testRejectedExecution() throws Exception {
+        Map<Path, CompletableFuture<HoconConfiguration>> futures = BulkLoader.create()
+                .executor(task -> {
+                    throw new RejectedExecutionException();
+                })
+                .load(paths);
+
+        for (CompletableFuture<HoconConfiguration> future : futures.values()) {
+            assertTrue(failure(future) instanceof RejectedExecutionException);
+        }
+    }
+
+    @Test
+    public void testRejectedAfterFirstWorker() throws Exception {
+        Map<Path, CompletableFuture<HoconConfiguration>> futures = BulkLoader.create()
+                .executor(task -> {
+                    if (!held.isEmpty()) {
+                        throw new RejectedExecutionException();
+                    }
+                    held.add(task);
+                })
+                .load(paths);
+
+        assertEquals(1, held.size());
+        held.get(0).run();
+        for (int i = 0; i < paths.size(); i++) {
+            assertEquals(i, futures.get(paths.get(i)).get().getInt("value"));
+        }
+    }
+
+    @Test
+    public void testDefaultsAreCopied() throws Exception {
+        HoconConfiguration template = new HoconConfiguration();
+        template.addDefault("a.default", 1);
+
+        Map<Path, CompletableFuture<HoconConfiguration>> futures = BulkLoader.create()
+                .executor(held::add)
+                .template(template)
+                .load(paths.subList(0, 2));
+        template.addDefault("a.default", 2);
+        held.get(0).run();
+
+        HoconConfiguration first = futures.get(paths.get(0)).get();
+        HoconConfiguration second = futures.get(paths.get(1)).get();
+        first.addDefault("a.default", 3);
+        assertEquals(3, first.getInt("a.default"));
+        assertEquals(1, second.getInt("a.default"));
+        assertEquals(2, template.getInt("a.default"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testDefaultListsAreCopied() throws Exception {
+        HoconConfiguration template = new HoconConfiguration();
+        template.addDefault("a.list", new ArrayList<>(Arrays.asList(1, 2)));
+
+        Map<Path, CompletableFuture<HoconConfiguration>> futures = BulkLoader.create()
+                .executor(held::add)
+                .template(template)
+                .load(paths.subList(0, 2));
+        ((List<Object>) template.getList("a.list")).add(3);
+        held.get(0).run();
+
+        HoconConfiguration first = futures.get(paths.get(0)).get();
+        HoconConfiguration second = futures.get(paths.get(1)).get();
+        ((List<Object>) first.getList("a.list")).add(4);
+        assertEquals(Arrays.asList(1, 2, 4), first.getList("a.list"));
+        assertEquals(Arrays.asList(1, 2), second.getList("a.list"));
+        assertEquals(Arrays.asList(1, 2, 3), template.getList("a.list"));
+    }
+}
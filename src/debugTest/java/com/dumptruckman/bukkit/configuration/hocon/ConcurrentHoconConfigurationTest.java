@@ -0,0 +1,135 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConcurrentHoconConfigurationTest {
+
+    private ConcurrentHoconConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new ConcurrentHoconConfiguration();
+    }
+
+    @Test
+    public void testSnapshotsDoNotChange() throws Exception {
+        config.loadFromString("a {\n    # Nested\n    nested {\n        value=1\n    }\n}\nsomeNumber=123\n");
+        ConcurrentHoconConfiguration.Snapshot before = config.snapshot();
+        ConfigurationSection nested = before.getConfigurationSection("a.nested");
+
+        config.set("a.nested.value", 2);
+        config.setComments("a.nested", "Changed");
+
+        assertEquals(1, before.getInt("a.nested.value"));
+        assertEquals(1, nested.getInt("value"));
+        assertEquals(Collections.singletonList(" Nested"), before.getComments("a.nested"));
+        assertEquals(2, config.getInt("a.nested.value"));
+        assertEquals(Collections.singletonList("Changed"), config.getComments("a.nested"));
+        assertSame(before.get("someNumber"), config.get("someNumber"));
+    }
+
+    @Test
+    public void testSetCommentsKeepsOtherComments() throws Exception {
+        config.loadFromString("# Top\na {\n    # Nested\n    nested {\n        value=1\n    }\n    other=2\n}\n");
+        ConcurrentHoconConfiguration.Snapshot before = config.snapshot();
+
+        config.setComments("a.other", "Other");
+        config.setComments("b.missing");
+        ConcurrentHoconConfiguration.Snapshot added = config.snapshot();
+        config.setComments("a.nested");
+
+        assertEquals(Collections.singletonList(" Top"), config.getComments("a"));
+        assertEquals(Collections.emptyList(), config.getComments("a.nested"));
+        assertEquals(Collections.singletonList("Other"), config.getComments("a.other"));
+        assertEquals(Collections.singletonList(" Nested"), added.getComments("a.nested"));
+        assertEquals(Collections.singletonList(" Nested"), before.getComments("a.nested"));
+        assertEquals(Collections.emptyList(), before.getComments("a.other"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotsAreReadOnly() throws Exception {
+        config.set("a.value", 1);
+        config.snapshot().getConfigurationSection("a").set("value", 2);
+    }
+
+    @Test
+    public void testSnapshotOptionsDoNotChange() throws Exception {
+        config.set("a.b", 1);
+        ConcurrentHoconConfiguration.Snapshot before = config.snapshot();
+
+        config.options().pathSeparator('/');
+
+        assertEquals('.', before.options().pathSeparator());
+        assertEquals(1, before.getInt("a.b"));
+        assertEquals(1, config.getInt("a/b"));
+        assertEquals('/', config.snapshot().options().pathSeparator());
+    }
+
+    @Test
+    public void testOptionsBelongToTheirConfiguration() throws Exception {
+        assertSame(config, config.options().configuration());
+        ConcurrentHoconConfiguration.Snapshot snapshot = config.snapshot();
+        assertSame(snapshot, snapshot.options().configuration());
+
+        config.options().renderCacheDepth(2);
+        assertEquals(0, snapshot.options().renderCacheDepth());
+        assertEquals(2, config.snapshot().options().renderCacheDepth());
+    }
+
+    @Test
+    public void testSectionsWriteThrough() throws Exception {
+        ConfigurationSection section = config.createSection("a");
+        section.set("b.c", 1);
+
+        assertEquals(1, config.getInt("a.b.c"));
+        assertEquals(1, section.getInt("b.c"));
+        assertEquals(Arrays.asList("b", "b.c"), new ArrayList<>(section.getKeys(true)));
+    }
+
+    @Test
+    public void testSetValuesAreCopied() throws Exception {
+        List<Integer> list = new ArrayList<>(Arrays.asList(1, 2));
+        config.set("list", list);
+        list.add(3);
+
+        assertEquals(Arrays.asList(1, 2), config.getList("list"));
+        try {
+            ((List<Object>) config.getList("list")).add(4);
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test
+    public void testUpdatePublishesAtOnce() throws Exception {
+        config.update(c -> {
+            c.set("a", 1);
+            assertEquals(1, c.getInt("a"));
+            c.set("b", 2);
+        });
+
+        assertEquals(1, config.getInt("a"));
+        assertEquals(2, config.getInt("b"));
+    }
+
+    @Test
+    public void testSavesLikeHoconConfiguration() throws Exception {
+        String contents = "a {\n    # Nested\n    nested {\n        value=1\n    }\n}\nsomeNumber=123\n";
+        HoconConfiguration expected = new HoconConfiguration();
+        expected.loadFromString(contents);
+        expected.set("a.other", "text");
+        config.loadFromString(contents);
+        config.set("a.other", "text");
+
+        assertEquals(expected.saveToString(), config.saveToString());
+    }
+}
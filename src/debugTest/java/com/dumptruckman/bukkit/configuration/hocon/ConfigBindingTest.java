@@ -0,0 +1,135 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ConfigBindingTest {
+
+    private static final String CONTENTS = "game {\n"
+            + "    speed = 3\n"
+            + "    name = Arena\n"
+            + "    mode = FAST\n"
+            + "    ratio = 1.5\n"
+            + "    ids = [1, 2, 3]\n"
+            + "}\n";
+
+    public enum Mode { FAST, SLOW }
+
+    @ConfigPath("game")
+    public interface Game {
+        @ConfigPath("speed")
+        int speed();
+
+        @ConfigPath("name")
+        String name();
+
+        @ConfigPath("mode")
+        Mode mode();
+
+        @ConfigPath("ids")
+        List<Integer> ids();
+
+        @ConfigPath("missing")
+        long missing();
+    }
+
+    public static class Settings {
+        @ConfigPath("game.speed")
+        int speed = 7;
+        @ConfigPath("game.ratio")
+        private float ratio;
+        @ConfigPath("game.title")
+        String title = "Untitled";
+        @ConfigPath("game.ids")
+        List<Long> ids;
+    }
+
+    public interface Values {
+        @ConfigPath("game.names")
+        List<Object> names();
+    }
+
+    public interface Unannotated {
+        int speed();
+    }
+
+    @Test
+    public void testBindInterface() throws Exception {
+        HoconConfiguration config = new HoconConfiguration();
+        config.loadFromString(CONTENTS);
+
+        Game game = config.bind(Game.class).get();
+
+        assertEquals(3, game.speed());
+        assertEquals("Arena", game.name());
+        assertEquals(Mode.FAST, game.mode());
+        assertEquals(Arrays.asList(1, 2, 3), game.ids());
+        assertEquals(0, game.missing());
+    }
+
+    @Test
+    public void testBindClass() throws Exception {
+        HoconConfiguration config = new HoconConfiguration();
+        config.loadFromString(CONTENTS);
+
+        Settings settings = config.bind(Settings.class).get();
+
+        assertEquals(3, settings.speed);
+        assertEquals(1.5F, settings.ratio, 0);
+        assertEquals("Untitled", settings.title);
+        assertEquals(Arrays.asList(1L, 2L, 3L), settings.ids);
+    }
+
+    @Test
+    public void testRefreshedOnLoad() throws Exception {
+        HoconConfiguration config = new HoconConfiguration();
+        config.loadFromString(CONTENTS);
+        ConfigBinding<Settings> binding = config.bind(Settings.class);
+        Settings first = binding.get();
+
+        config.loadFromString("game.speed = 5");
+        assertEquals(5, binding.get().speed);
+        assertEquals(3, first.speed);
+
+        config.reloadInPlace("game.speed = 6");
+        assertEquals(6, binding.get().speed);
+
+        config.set("game.speed", 8);
+        assertEquals(6, binding.get().speed);
+        binding.refresh();
+        assertEquals(8, binding.get().speed);
+
+        binding.cancel();
+        config.loadFromString("game.speed = 9");
+        assertTrue(binding.isCancelled());
+        assertEquals(8, binding.get().speed);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testListsAreCopied() throws Exception {
+        HoconConfiguration config = new HoconConfiguration();
+        config.loadFromString("game.names = [a, b]");
+        Values values = config.bind(Values.class).get();
+
+        ((List<Object>) config.getList("game.names")).set(0, "c");
+        assertEquals(Arrays.asList("a", "b"), values.names());
+    }
+
+    @Test
+    public void testDefaults() {
+        HoconConfiguration config = new HoconConfiguration();
+        config.addDefault("game.speed", 4);
+
+        assertEquals(4, config.bind(Settings.class).get().speed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnannotatedAccessor() {
+        new HoconConfiguration().bind(Unannotated.class);
+    }
+}
@@ -0,0 +1,151 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class ConfigWatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<HoconConfiguration> reloaded = new CopyOnWriteArrayList<>();
+    private final List<Exception> failed = new CopyOnWriteArrayList<>();
+    private final CountDownLatch reloadedLatch = new CountDownLatch(1);
+    private final CountDownLatch failedLatch = new CountDownLatch(1);
+    private final ReloadListener listener = new ReloadListener() {
+        @Override
+        public void reloaded(@NotNull HoconConfiguration config) {
+            reloaded.add(config);
+            reloadedLatch.countDown();
+        }
+
+        @Override
+        public void reloadFailed(@NotNull Path path, @NotNull Exception e) {
+            failed.add(e);
+            failedLatch.countDown();
+        }
+    };
+
+    private Path path;
+    private ConfigWatch watch;
+
+    @Before
+    public void setUp() throws Exception {
+        path = folder.newFolder("configs").toPath().resolve("config.conf");
+        write("a = 1");
+    }
+
+    @After
+    public void tearDown() {
+        if (watch != null) {
+            watch.cancel();
+        }
+    }
+
+    private void write(String contents) throws Exception {
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testChangesPushReloadBack() {
+        watch = new ConfigWatch(path, 100, listener, new HoconConfiguration());
+
+        assertEquals(0, watch.getDueAt());
+        watch.changed(1000);
+        assertEquals(1100, watch.getDueAt());
+        watch.changed(1050);
+        assertEquals(1150, watch.getDueAt());
+    }
+
+    @Test
+    public void testUnchangedContentsAreNotReloaded() throws Exception {
+        watch = new ConfigWatch(path, 100, listener, new HoconConfiguration());
+
+        write("a = 1");
+        watch.reload();
+        assertTrue(reloaded.isEmpty());
+        assertEquals(0, watch.getDueAt());
+
+        write("a = 2");
+        watch.reload();
+        watch.reload();
+        assertEquals(1, reloaded.size());
+        assertEquals(2, reloaded.get(0).getInt("a"));
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void testBurstReloadsOnce() throws Exception {
+        watch = new ConfigWatch(path, 300, listener, new HoconConfiguration());
+
+        for (int i = 2; i <= 4; i++) {
+            write("a = " + i);
+            watch.changed(1000 + i * 20);
+        }
+        assertEquals(1380, watch.getDueAt());
+
+        watch.reload();
+        assertEquals(0, watch.getDueAt());
+        assertEquals(1, reloaded.size());
+        assertEquals(4, reloaded.get(0).getInt("a"));
+    }
+
+    @Test
+    public void testDefaultsAreCopied() throws Exception {
+        HoconConfiguration source = new HoconConfiguration();
+        source.addDefault("b", 1);
+        watch = new ConfigWatch(path, 100, listener, source);
+        source.addDefault("b", 2);
+
+        write("a = 2");
+        watch.reload();
+        write("a = 3");
+        watch.reload();
+        reloaded.get(0).addDefault("b", 3);
+
+        assertEquals(3, reloaded.get(0).getInt("b"));
+        assertEquals(1, reloaded.get(1).getInt("b"));
+        assertEquals(2, source.getInt("b"));
+    }
+
+    @Test
+    public void testModifiedFileIsReloaded() throws Exception {
+        HoconConfiguration source = new HoconConfiguration();
+        source.addDefault("b", 1);
+        watch = source.watch(path, 50, listener);
+
+        write("a = 2");
+
+        assertTrue(reloadedLatch.await(10, TimeUnit.SECONDS));
+        assertEquals(2, reloaded.get(0).getInt("a"));
+        assertEquals(1, reloaded.get(0).getInt("b"));
+        assertFalse(watch.isCancelled());
+        assertTrue(failed.isEmpty());
+    }
+
+    @Test
+    public void testDeletedDirectoryCancelsWatch() throws Exception {
+        watch = new HoconConfiguration().watch(path, 50, listener);
+
+        Files.delete(path);
+        Files.delete(path.getParent());
+
+        assertTrue(failedLatch.await(10, TimeUnit.SECONDS));
+        assertTrue(watch.isCancelled());
+        assertTrue(reloaded.isEmpty());
+    }
+}
@@ -0,0 +1,109 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.management.MBeanServer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.*;
+
+public class ConfigurationMetricsTest {
+
+    private static final String CONTENTS = "a = 1\nb {\n    c = [1, 2]\n}\n";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<OperationMetrics> recorded = new CopyOnWriteArrayList<>();
+
+    @Test
+    public void testLoadAndSaveAreRecorded() throws Exception {
+        Path path = folder.getRoot().toPath().resolve("config.conf");
+        Files.write(path, CONTENTS.getBytes(StandardCharsets.UTF_8));
+        HoconConfiguration config = new HoconConfiguration();
+        config.options().metricsListener(recorded::add);
+
+        config.load(path);
+        config.save(path);
+
+        assertEquals(2, recorded.size());
+        OperationMetrics load = recorded.get(0);
+        assertEquals(OperationMetrics.Type.LOAD, load.getType());
+        assertEquals(path, load.getPath());
+        assertEquals(CONTENTS.length(), load.getBytes());
+        // the root, a, b, c and the two list elements
+        assertEquals(6, load.getValueCount());
+        assertTrue(load.getNanos(OperationMetrics.Phase.READ) > 0);
+        assertTrue(load.getNanos(OperationMetrics.Phase.PARSE) > 0);
+        assertTrue(load.getNanos(OperationMetrics.Phase.BUILD) > 0);
+        assertEquals(0, load.getNanos(OperationMetrics.Phase.RENDER));
+        assertTrue(load.getTotalNanos() >= load.getNanos(OperationMetrics.Phase.PARSE));
+
+        OperationMetrics save = recorded.get(1);
+        assertEquals(OperationMetrics.Type.SAVE, save.getType());
+        assertEquals(path, save.getPath());
+        assertEquals(Files.size(path), save.getBytes());
+        assertEquals(6, save.getValueCount());
+        assertTrue(save.getNanos(OperationMetrics.Phase.RENDER) > 0);
+        assertTrue(save.getNanos(OperationMetrics.Phase.WRITE) > 0);
+        assertEquals(0, save.getNanos(OperationMetrics.Phase.PARSE));
+    }
+
+    @Test
+    public void testStringsCountUtf8Bytes() throws Exception {
+        String contents = "a = \"h\u00e9llo \u2603 \ud83d\ude00\"\nb = 1\n";
+        HoconConfiguration config = new HoconConfiguration();
+        config.options().metricsListener(recorded::add);
+
+        config.loadFromString(contents);
+        String saved = config.saveToString();
+        config.reloadInPlace(contents);
+
+        assertEquals(3, recorded.size());
+        assertNull(recorded.get(0).getPath());
+        assertEquals(contents.getBytes(StandardCharsets.UTF_8).length, recorded.get(0).getBytes());
+        assertEquals(saved.getBytes(StandardCharsets.UTF_8).length, recorded.get(1).getBytes());
+        assertEquals(contents.getBytes(StandardCharsets.UTF_8).length, recorded.get(2).getBytes());
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        HoconConfiguration config = new HoconConfiguration();
+        config.options().metricsListener(recorded::add);
+        MetricsListener previous = config.options().metricsListener();
+
+        ConfigurationMetrics metrics = ConfigurationMetrics.register(config, "test");
+        try {
+            assertTrue(server.isRegistered(metrics.getObjectName()));
+            assertSame(metrics, config.options().metricsListener());
+
+            config.loadFromString(CONTENTS);
+            config.saveToString();
+            assertEquals(1L, server.getAttribute(metrics.getObjectName(), "LoadCount"));
+            assertEquals(1L, server.getAttribute(metrics.getObjectName(), "SaveCount"));
+            assertEquals((long) CONTENTS.length(), server.getAttribute(metrics.getObjectName(), "BytesRead"));
+            assertTrue(metrics.getPhaseNanos().get(OperationMetrics.Phase.PARSE.name()) > 0);
+            // still passed on to the listener set before
+            assertEquals(2, recorded.size());
+
+            try {
+                ConfigurationMetrics.register(new HoconConfiguration(), "test");
+                fail("Registered the same name twice");
+            } catch (IllegalArgumentException expected) {
+                // the name is taken
+            }
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(metrics.getObjectName()));
+        assertSame(previous, config.options().metricsListener());
+    }
+}
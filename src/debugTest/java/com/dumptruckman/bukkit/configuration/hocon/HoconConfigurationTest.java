@@ -1,6 +1,8 @@
 package com.dumptruckman.bukkit.configuration.hocon;
 
+import com.dumptruckman.bukkit.configuration.util.NumericList;
 import org.bukkit.Bukkit;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.bukkit.craftbukkit.v1_12_R1.inventory.CraftItemFactory;
@@ -16,6 +18,15 @@ import org.powermock.core.classloader.annotations.PrepareForTest;
 import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
 
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(Bukkit.class)
@@ -50,4 +61,272 @@ public class HoconConfigurationTest {
 
         System.out.println(config.saveToString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testReloadInPlace() throws Exception {
+        config.loadFromString("a {\n  nested {\n    value=Howdy\n  }\n  list=[1, 2]\n}\nsomeNumber=123\n");
+        ConfigurationSection nested = config.getConfigurationSection("a.nested");
+        Object list = config.get("a.list");
+
+        Set<String> changed = config.reloadInPlace("a {\n  nested {\n    value=Hi\n  }\n  list=[1, 2]\n}\n# New!\nother=true\n");
+
+        assertEquals(new HashSet<>(Arrays.asList("a.nested.value", "someNumber", "other")), changed);
+        assertSame(nested, config.getConfigurationSection("a.nested"));
+        assertSame(list, config.get("a.list"));
+        assertEquals("Hi", config.getString("a.nested.value"));
+        assertFalse(config.contains("someNumber"));
+        assertEquals(Collections.singletonList(" New!"), config.getComments("other"));
+    }
+
+    @Test
+    public void testReloadInPlaceComparesNumbersByValue() throws Exception {
+        config.set("long", 5L);
+        config.set("double", 2.0D);
+        config.set("float", 1.5F);
+        config.set("list", Arrays.asList(1L, 2.5F));
+
+        Set<String> changed = config.reloadInPlace("long=5\ndouble=2.0\nfloat=1.5\nlist=[1, 2.5]\n");
+
+        assertEquals(Collections.emptySet(), changed);
+        assertEquals(5L, config.get("long"));
+        assertEquals(new HashSet<>(Arrays.asList("long", "float")), config.reloadInPlace("long=6\nfloat=1.25\n"
+                + "double=2\nlist=[1, 2.5]\n"));
+    }
+
+    @Test
+    public void testReloadInPlaceSplitKey() throws Exception {
+        config.loadFromString("a { b = 1, c = 2 }");
+        ConfigurationSection a = config.getConfigurationSection("a");
+
+        Set<String> changed = config.reloadInPlace("\"a.b\" = 1");
+
+        assertEquals(Collections.singleton("a.c"), changed);
+        assertSame(a, config.getConfigurationSection("a"));
+        assertFalse(config.contains("a.c"));
+        HoconConfiguration loaded = new HoconConfiguration();
+        loaded.loadFromString("\"a.b\" = 1");
+        assertEquals(loaded.saveToString(), config.saveToString());
+
+        assertEquals(Collections.singleton("a.b"), config.reloadInPlace("\"a.b.d\" = 3"));
+        assertEquals(3, config.getInt("a.b.d"));
+    }
+
+    @Test
+    public void testReloadInPlaceSharedSection() throws Exception {
+        config.loadFromString("a { value = 1 }");
+        ConfigurationSection a = config.getConfigurationSection("a");
+        config.set("b", a);
+
+        String contents = "a { value = 1 }\nb { value = 2 }";
+        Set<String> changed = config.reloadInPlace(contents);
+
+        assertEquals(Collections.singleton("b"), changed);
+        assertSame(a, config.getConfigurationSection("a"));
+        assertNotSame(a, config.getConfigurationSection("b"));
+        assertEquals(1, config.getInt("a.value"));
+        assertEquals(2, config.getInt("b.value"));
+        HoconConfiguration loaded = new HoconConfiguration();
+        loaded.loadFromString(contents);
+        assertEquals(loaded.saveToString(), config.saveToString());
+    }
+
+    @Test
+    public void testLazySections() throws Exception {
+        String contents = "a {\n    # Nested\n    nested {\n        value=1\n    }\n}\nsomeNumber=123\n";
+        config.options().lazySections(true);
+        config.loadFromString(contents);
+
+        ConfigurationSection a = config.getConfigurationSection("a");
+        assertNotNull(((HoconSection) a).getDeferred());
+        assertEquals(contents, config.saveToString());
+
+        assertEquals(1, config.getInt("a.nested.value"));
+        assertNull(((HoconSection) a).getDeferred());
+        assertEquals(new HashSet<>(Arrays.asList("a", "a.nested", "a.nested.value", "someNumber")),
+                config.getKeys(true));
+        assertEquals(Collections.singletonList(" Nested"), config.getComments("a.nested"));
+    }
+
+    @Test
+    public void testCompactNumericLists() throws Exception {
+        String contents = "ints=[\n    3,\n    1,\n    2\n]\nmixed=[\n    1,\n    a\n]\n";
+        config.options().compactNumericLists(true);
+        config.loadFromString(contents);
+
+        assertTrue(config.get("ints") instanceof NumericList);
+        assertSame(config.get("ints"), config.getIntegerList("ints"));
+        assertEquals(Arrays.asList(3.0, 1.0, 2.0), config.getDoubleList("ints"));
+        assertFalse(config.get("mixed") instanceof NumericList);
+        assertEquals(contents, config.saveToString());
+    }
+
+    @Test
+    public void testCompactMixedNumericLists() throws Exception {
+        String contents = "coords=[\n    100.5,\n    64.0,\n    -200.5\n]\nids=[\n    1,\n    3000000000\n]\n";
+        config.options().compactNumericLists(true);
+        config.loadFromString(contents);
+
+        assertTrue(config.get("coords") instanceof NumericList);
+        assertEquals(Arrays.asList(100.5, 64.0, -200.5), config.get("coords"));
+        assertTrue(config.get("ids") instanceof NumericList);
+        assertEquals(Arrays.asList(1L, 3000000000L), config.get("ids"));
+        assertEquals(contents, config.saveToString());
+        assertEquals(Collections.emptySet(), config.reloadInPlace(contents));
+    }
+
+    @Test
+    public void testSnapshotSidecar() throws Exception {
+        String contents = "a {\n    # Nested\n    nested {\n        value=1\n    }\n}\nsomeNumber=123\n";
+        Path dir = Files.createTempDirectory("snapshot");
+        Path file = dir.resolve("config.conf");
+        Path sidecar = dir.resolve("config.conf.snapshot");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        config.options().snapshotSidecar(true);
+        config.load(file);
+        assertTrue(Files.exists(sidecar));
+
+        HoconConfiguration fromSnapshot = new HoconConfiguration();
+        fromSnapshot.options().snapshotSidecar(true);
+        fromSnapshot.load(file);
+        assertEquals(contents, fromSnapshot.saveToString());
+        assertEquals(Collections.singletonList(" Nested"), fromSnapshot.getComments("a.nested"));
+
+        byte[] snapshot = Files.readAllBytes(sidecar);
+        snapshot[snapshot.length / 2] ^= 1;
+        Files.write(sidecar, snapshot);
+        HoconConfiguration fromCorrupt = new HoconConfiguration();
+        fromCorrupt.options().snapshotSidecar(true);
+        fromCorrupt.load(file);
+        assertEquals(contents, fromCorrupt.saveToString());
+    }
+
+    @Test
+    public void testJournal() throws Exception {
+        String contents = "a {\n    # Nested\n    nested {\n        value=1\n    }\n}\nsomeNumber=123\n";
+        Path dir = Files.createTempDirectory("journal");
+        Path file = dir.resolve("config.conf");
+        Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+        ConfigJournal journal = config.openJournal(file);
+        config.set("a.nested.value", 2);
+        config.getConfigurationSection("a").set("list", Arrays.asList(1, 2));
+        config.setComments("someNumber", "Changed");
+        config.set("someNumber", null);
+        config.set("someNumber", 5);
+        String expected = config.saveToString();
+        journal.close();
+        assertEquals(contents, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+
+        HoconConfiguration replayed = new HoconConfiguration();
+        ConfigJournal replayedJournal = replayed.openJournal(file);
+        assertEquals(expected, replayed.saveToString());
+
+        // a change cut short by a crash is dropped, the ones before it are kept
+        replayed.set("a.torn", "value");
+        replayedJournal.close();
+        Path journalPath = replayedJournal.getJournalPath();
+        byte[] journalContents = Files.readAllBytes(journalPath);
+        Files.write(journalPath, Arrays.copyOf(journalContents, journalContents.length - 2));
+        HoconConfiguration torn = new HoconConfiguration();
+        torn.openJournal(file).compact();
+        assertEquals(expected, new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        assertEquals(expected, torn.saveToString());
+    }
+
+    @Test
+    public void testSaveWhileJournaling() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("config.conf");
+        ConfigJournal journal = config.openJournal(file);
+        config.set("first", 1);
+        config.save(file);
+        config.set("second", 2);
+        config.save(file.toFile());
+        config.set("third", 3);
+        journal.close();
+
+        HoconConfiguration replayed = new HoconConfiguration();
+        replayed.openJournal(file).close();
+        assertEquals(1, replayed.getInt("first"));
+        assertEquals(2, replayed.getInt("second"));
+        assertEquals(3, replayed.getInt("third"));
+    }
+
+    @Test
+    public void testJournalRemovedSection() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("config.conf");
+        ConfigJournal journal = config.openJournal(file);
+        config.set("a.value", 1);
+        ConfigurationSection a = config.getConfigurationSection("a");
+        config.set("a", null);
+        a.set("x", 1);
+        String expected = config.saveToString();
+        journal.close();
+
+        HoconConfiguration replayed = new HoconConfiguration();
+        replayed.openJournal(file).close();
+        assertNull(replayed.get("a"));
+        assertEquals(expected, replayed.saveToString());
+    }
+
+    @Test
+    public void testJournalSharedSection() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("config.conf");
+        ConfigJournal journal = config.openJournal(file);
+        byte[] compacted = Files.readAllBytes(file);
+        config.set("a.nested.value", 1);
+        config.set("b.moved", config.getConfigurationSection("a.nested"));
+        config.set("list", Arrays.asList("first", config.getConfigurationSection("a")));
+        config.set("c.moved", config.getConfigurationSection("b"));
+        config.getConfigurationSection("a.nested").set("value", 2);
+        config.getConfigurationSection("a.nested").createSection("deeper").set("x", true);
+        String expected = config.saveToString();
+        journal.close();
+
+        // the changes were appended instead of saving the whole file
+        assertArrayEquals(compacted, Files.readAllBytes(file));
+        HoconConfiguration replayed = new HoconConfiguration();
+        replayed.openJournal(file).close();
+        assertEquals(2, replayed.getInt("b.moved.value"));
+        assertTrue(replayed.getBoolean("b.moved.deeper.x"));
+        assertTrue(replayed.getBoolean("c.moved.moved.deeper.x"));
+        assertEquals(expected, replayed.saveToString());
+    }
+
+    @Test
+    public void testJournalReplacedSharedSection() throws Exception {
+        Path file = Files.createTempDirectory("journal").resolve("config.conf");
+        ConfigJournal journal = config.openJournal(file);
+        config.set("a.value", 1);
+        config.set("b", config.getConfigurationSection("a"));
+        config.set("b", "replaced");
+        config.set("a.value", 2);
+        String expected = config.saveToString();
+        journal.close();
+
+        HoconConfiguration replayed = new HoconConfiguration();
+        replayed.openJournal(file).close();
+        assertEquals("replaced", replayed.getString("b"));
+        assertEquals(expected, replayed.saveToString());
+    }
+
+    @Test
+    public void testFlatPathIndex() throws Exception {
+        config.options().flatPathIndex(true);
+        config.loadFromString("a {\n  nested {\n    value=Howdy\n  }\n}\nsomeNumber=123\n");
+        ConfigurationSection nested = config.getConfigurationSection("a.nested");
+        assertEquals("Howdy", config.getString("a.nested.value"));
+
+        nested.set("other.value", 5);
+        assertEquals(5, config.getInt("a.nested.other.value"));
+
+        // replacing a section drops everything below it, and the old section no longer changes the configuration
+        config.createSection("a").set("value", true);
+        assertNull(config.get("a.nested.value"));
+        nested.set("value", "Detached");
+        assertNull(config.get("a.nested.value"));
+        assertTrue(config.getBoolean("a.value"));
+
+        config.options().pathSeparator('/');
+        assertTrue(config.getBoolean("a/value"));
+        assertNull(config.get("a.value"));
+    }
+}
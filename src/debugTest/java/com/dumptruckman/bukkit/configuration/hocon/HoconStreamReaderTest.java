@@ -0,0 +1,108 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.dumptruckman.bukkit.configuration.hocon.HoconStreamReader.Event.*;
+import static org.junit.Assert.*;
+
+public class HoconStreamReaderTest {
+
+    private static final String CONTENTS = "# Players\n"
+            + "players {\n"
+            + "    # The first player\n"
+            + "    alice { coins = 10, inventory = [1, 2.5, \"three\"] }\n"
+            + "    bob.coins = 12345678900\n"
+            + "}\n"
+            + "motd = Hello world\n";
+
+    private static HoconStreamReader reader(String contents) {
+        return HoconStreamReader.create(new StringReader(contents));
+    }
+
+    @Test
+    public void testEvents() throws Exception {
+        HoconStreamReader reader = reader("a.b = 1 // one\nc: [true, null]\n");
+        List<Object> events = new ArrayList<>();
+        HoconStreamReader.Event event;
+        while ((event = reader.next()) != END_DOCUMENT) {
+            events.add(event);
+            if (event == KEY || event == VALUE || event == COMMENT) {
+                events.add(reader.getPath() + "=" + (event == KEY ? reader.getKey()
+                        : event == VALUE ? reader.getValue() : reader.getComment()));
+            }
+        }
+
+        assertEquals(Arrays.asList(START_OBJECT, KEY, "a=a", START_OBJECT, KEY, "a.b=b", VALUE, "a.b=1", END_OBJECT,
+                COMMENT, "a= one", KEY, "c=c", START_LIST, VALUE, "c=true", VALUE, "c=null", END_LIST, END_OBJECT),
+                events);
+        assertEquals(END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    public void testReadSectionMatchesLoad() throws Exception {
+        HoconConfiguration expected = new HoconConfiguration();
+        expected.loadFromString(CONTENTS);
+        HoconStreamReader reader = reader(CONTENTS);
+        reader.next();
+
+        HoconConfiguration section = reader.readSection();
+
+        assertEquals(expected.saveToString(), section.saveToString());
+        assertEquals(12345678900L, section.get("players.bob.coins"));
+        assertEquals(END_DOCUMENT, reader.next());
+    }
+
+    @Test
+    public void testVisitorSkipsAndMaterializes() throws Exception {
+        List<String> seen = new ArrayList<>();
+        reader(CONTENTS).accept(new HoconVisitor() {
+            @Override
+            public Action key(String key, String path) {
+                if (path.equals("players.alice")) {
+                    return Action.MATERIALIZE;
+                }
+                return path.equals("players.bob") ? Action.SKIP : Action.VISIT;
+            }
+
+            @Override
+            public void section(String path, HoconConfiguration section) {
+                seen.add(path + ":" + section.getInt("coins") + section.getList("inventory"));
+                assertEquals(Collections.emptyList(), section.getComments("coins"));
+            }
+
+            @Override
+            public void value(String path, Object value) {
+                seen.add(path + "=" + value);
+            }
+        });
+
+        assertEquals(Arrays.asList("players.alice:10[1, 2.5, three]", "motd=Hello world"), seen);
+    }
+
+    @Test
+    public void testSkipValueStaysOnTrack() throws Exception {
+        HoconStreamReader reader = reader("{\"a\": {\"b\": [[1], {\"c\": 2}]}, \"d\": 3}");
+        reader.next();
+        reader.next();
+        reader.skipValue();
+
+        assertEquals(KEY, reader.next());
+        assertEquals("d", reader.getKey());
+        assertEquals(3, reader.readValue());
+        assertEquals(END_OBJECT, reader.next());
+    }
+
+    @Test(expected = InvalidConfigurationException.class)
+    public void testSubstitutionsAreRejected() throws Exception {
+        HoconStreamReader reader = reader("a = 1\nb = ${a}\n");
+        while (reader.next() != END_DOCUMENT) {
+        }
+    }
+}
@@ -16,6 +16,8 @@ import org.powermock.modules.junit4.PowerMockRunner;
 
 import java.io.File;
 
+import static org.junit.Assert.*;
+
 @RunWith(PowerMockRunner.class)
 @PrepareForTest(Bukkit.class)
 @PowerMockIgnore("javax.management.*")
@@ -52,6 +54,30 @@ public class JsonConfigurationTest {
         System.out.println(jsonConfiguration.getValues(true));
     }
 
+    @Test
+    public void testJsonFastPathMatchesHocon() throws Exception {
+        String[] contents = {validJson1, validJson2,
+                "{\"a\": {\"b\": [1, 2.0, 3e2, 12345678901234567890]}, \"c\": [{\"d\": \"\\u00e9\"}], \"e\": null}",
+                // not strict json, loaded as hocon either way
+                "{\"a\": {\"b\": 1}, \"a\": {\"c\": 2}, \"d.e\": true} // comment"};
+        for (String json : contents) {
+            HoconConfiguration hocon = new HoconConfiguration();
+            hocon.loadFromString(json);
+            jc = new HoconConfiguration();
+            jc.options().jsonFastPath(true);
+            jc.loadFromString(json);
+            assertEquals(hocon.saveToString(), jc.saveToString());
+        }
+
+        File file = new File("./testdata/valid1.json");
+        HoconConfiguration hocon = new HoconConfiguration();
+        hocon.load(file);
+        jc = new HoconConfiguration();
+        jc.options().jsonFastPath(true);
+        jc.load(file);
+        assertEquals(hocon.saveToString(), jc.saveToString());
+    }
+
 //    @Test(expected=InvalidConfigurationException.class)
 //    public void testInvalidJson() throws Exception {
 //        jc.loadFromString(invalidJson1);
@@ -0,0 +1,122 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+public class SaveQueueTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<Runnable> held = new ArrayList<>();
+    private final AtomicInteger writes = new AtomicInteger();
+    private HoconConfiguration config;
+    private Path path;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new HoconConfiguration();
+        config.options().metricsListener(metrics -> {
+            if (metrics.getType() == OperationMetrics.Type.SAVE) {
+                writes.incrementAndGet();
+            }
+        });
+        path = folder.getRoot().toPath().resolve("config.conf");
+    }
+
+    private CompletableFuture<Void> saveAsync(int value) {
+        config.set("value", value);
+        return config.saveAsync(path, held::add);
+    }
+
+    private int saved() throws Exception {
+        HoconConfiguration loaded = new HoconConfiguration();
+        loaded.load(path);
+        return loaded.getInt("value");
+    }
+
+    @Test
+    public void testBurstCollapsesIntoOneWrite() throws Exception {
+        CompletableFuture<Void> first = saveAsync(1);
+        CompletableFuture<Void> second = saveAsync(2);
+        CompletableFuture<Void> third = saveAsync(3);
+        assertEquals(1, held.size());
+        assertFalse(first.isDone());
+
+        held.get(0).run();
+
+        assertTrue(first.isDone() && second.isDone() && third.isDone());
+        assertEquals(1, writes.get());
+        assertEquals(3, saved());
+        assertArrayEquals(new String[] {"config.conf"}, folder.getRoot().list());
+    }
+
+    @Test
+    public void testEarlierAsyncSaveDoesNotOverwriteSave() throws Exception {
+        CompletableFuture<Void> async = saveAsync(1);
+        config.set("value", 2);
+
+        config.save(path);
+
+        assertTrue(async.isDone());
+        assertEquals(2, saved());
+        held.get(0).run();
+        assertEquals(1, writes.get());
+        assertEquals(2, saved());
+    }
+
+    @Test
+    public void testSaveAfterAsyncSave() throws Exception {
+        saveAsync(1);
+        held.get(0).run();
+        config.set("value", 2);
+
+        config.save(new File(path.toString()));
+
+        assertEquals(2, writes.get());
+        assertEquals(2, saved());
+    }
+
+    @Test
+    public void testSaveKeepsPermissions() throws Exception {
+        assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("posix"));
+        Files.createFile(path);
+        Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rw-rw-r--");
+        Files.setPosixFilePermissions(path, permissions);
+
+        config.save(path);
+
+        assertEquals(permissions, Files.getPosixFilePermissions(path));
+        assertArrayEquals(new String[] {"config.conf"}, folder.getRoot().list());
+    }
+
+    @Test
+    public void testNewFileGetsDefaultPermissions() throws Exception {
+        assumeTrue(Files.getFileStore(folder.getRoot().toPath()).supportsFileAttributeView("posix"));
+        Path plain = Files.createFile(folder.getRoot().toPath().resolve("plain.conf"));
+
+        config.save(path);
+        ConfigJournal journal = config.openJournal(folder.getRoot().toPath().resolve("journaled.conf"));
+        journal.close();
+
+        Set<PosixFilePermission> expected = Files.getPosixFilePermissions(plain);
+        assertEquals(expected, Files.getPosixFilePermissions(path));
+        assertEquals(expected, Files.getPosixFilePermissions(journal.getJournalPath()));
+    }
+}
@@ -0,0 +1,163 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+import static org.junit.Assert.*;
+
+public class SharedParseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final SharedParseCache cache = SharedParseCache.getInstance();
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    @Before
+    public void setUp() {
+        cache.capacity(1024).keyMode(SharedParseCache.KeyMode.FILE_STATS).clear();
+        hits = cache.getHitCount();
+        misses = cache.getMissCount();
+        evictions = cache.getEvictionCount();
+    }
+
+    @After
+    public void tearDown() {
+        cache.capacity(0).keyMode(SharedParseCache.KeyMode.FILE_STATS).clear();
+    }
+
+    private Path write(String name, String contents) throws Exception {
+        Path path = folder.getRoot().toPath().resolve(name);
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    private static int load(Path path) throws Exception {
+        HoconConfiguration config = new HoconConfiguration();
+        config.load(path);
+        return config.getInt("value");
+    }
+
+    private void assertCounts(long hits, long misses, long evictions) {
+        assertEquals(hits, cache.getHitCount() - this.hits);
+        assertEquals(misses, cache.getMissCount() - this.misses);
+        assertEquals(evictions, cache.getEvictionCount() - this.evictions);
+    }
+
+    @Test
+    public void testHitsAndMisses() throws Exception {
+        Path path = write("a.conf", "value = 1");
+
+        assertEquals(1, load(path));
+        assertCounts(0, 1, 0);
+        assertEquals(1, load(path));
+        assertCounts(1, 1, 0);
+        assertEquals(9, cache.getWeight());
+    }
+
+    @Test
+    public void testDisabled() throws Exception {
+        Path path = write("a.conf", "value = 1");
+        cache.capacity(0);
+
+        assertEquals(1, load(path));
+        assertEquals(1, load(path));
+        assertCounts(0, 0, 0);
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws Exception {
+        Path a = write("a.conf", "value = 1");
+        Path b = write("b.conf", "value = 2");
+        Path c = write("c.conf", "value = 3");
+        cache.capacity(18);
+
+        load(a);
+        load(b);
+        load(a);
+        load(c);
+        assertCounts(1, 3, 1);
+        assertEquals(18, cache.getWeight());
+
+        load(a);
+        load(c);
+        assertCounts(3, 3, 1);
+        assertEquals(2, load(b));
+        assertCounts(3, 4, 2);
+    }
+
+    @Test
+    public void testTooLargeIsNotCached() throws Exception {
+        Path path = write("a.conf", "value = 1");
+        cache.capacity(8);
+
+        load(path);
+        load(path);
+        assertCounts(0, 2, 0);
+        assertEquals(0, cache.getWeight());
+    }
+
+    @Test
+    public void testChangedFileIsParsedAgain() throws Exception {
+        Path path = write("a.conf", "value = 1");
+        FileTime modified = Files.getLastModifiedTime(path);
+        load(path);
+
+        // same size, newer modification time
+        write("a.conf", "value = 2");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified.toMillis() + 10000));
+        assertEquals(2, load(path));
+        assertCounts(0, 2, 0);
+
+        // different size, same modification time
+        write("a.conf", "value = 30");
+        Files.setLastModifiedTime(path, FileTime.fromMillis(modified.toMillis() + 10000));
+        assertEquals(30, load(path));
+        assertCounts(0, 3, 0);
+        assertEquals(10, cache.getWeight());
+    }
+
+    @Test
+    public void testContentHash() throws Exception {
+        Path a = write("a.conf", "value = 1");
+        Path b = write("b.conf", "value = 1");
+        cache.keyMode(SharedParseCache.KeyMode.CONTENT_HASH);
+
+        load(a);
+        assertEquals(1, load(b));
+        assertCounts(1, 1, 0);
+
+        write("a.conf", "value = 2");
+        assertEquals(2, load(a));
+        assertCounts(1, 2, 0);
+    }
+
+    @Test
+    public void testKeyModeChangeClearsCache() throws Exception {
+        Path path = write("a.conf", "value = 1");
+        load(path);
+
+        cache.keyMode(SharedParseCache.KeyMode.FILE_STATS);
+        assertEquals(9, cache.getWeight());
+        cache.keyMode(SharedParseCache.KeyMode.CONTENT_HASH);
+        assertEquals(0, cache.getWeight());
+
+        load(path);
+        assertCounts(0, 2, 0);
+        cache.keyMode(SharedParseCache.KeyMode.FILE_STATS);
+        assertEquals(0, cache.getWeight());
+        load(path);
+        assertCounts(0, 3, 0);
+    }
+}
@@ -0,0 +1,53 @@
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class SnapshotSidecarTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HoconConfiguration load(Path path) throws Exception {
+        HoconConfiguration config = new HoconConfiguration();
+        config.options().snapshotSidecar(true);
+        config.load(path);
+        return config;
+    }
+
+    private Path write(String contents) throws Exception {
+        Path path = folder.getRoot().toPath().resolve("config.conf");
+        Files.write(path, contents.getBytes(StandardCharsets.UTF_8));
+        return path;
+    }
+
+    @Test
+    public void testLoadsFromSnapshot() throws Exception {
+        Path path = write("# Comment\na {\n    b = 1\n}\n");
+
+        load(path);
+        assertTrue(Files.exists(SnapshotSidecar.sidecarOf(path)));
+        HoconConfiguration config = load(path);
+
+        assertEquals(1, config.getInt("a.b"));
+        assertEquals(1, config.getComments("a").size());
+    }
+
+    @Test
+    public void testNoSnapshotWithSubstitutions() throws Exception {
+        Path path = write("a = 1\nb = ${a}\nc = ${?NO_SUCH_VARIABLE}\n");
+
+        HoconConfiguration config = load(path);
+
+        assertEquals(1, config.getInt("b"));
+        assertFalse(config.contains("c"));
+        assertFalse(Files.exists(SnapshotSidecar.sidecarOf(path)));
+    }
+}
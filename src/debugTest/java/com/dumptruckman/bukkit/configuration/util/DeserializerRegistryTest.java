@@ -0,0 +1,144 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.*;
+
+public class DeserializerRegistryTest {
+
+    public static class WithDeserialize implements ConfigurationSerializable {
+        final Object value;
+
+        WithDeserialize(Object value) {
+            this.value = value;
+        }
+
+        public static WithDeserialize deserialize(Map<String, Object> map) {
+            return new WithDeserialize(map.get("value"));
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            return Collections.singletonMap("value", value);
+        }
+    }
+
+    public static class WithValueOf extends WithDeserialize {
+        WithValueOf(Object value) {
+            super(value);
+        }
+
+        public static WithValueOf valueOf(Map<String, Object> map) {
+            return new WithValueOf(map.get("value"));
+        }
+    }
+
+    public static class WithConstructor extends WithDeserialize {
+        public WithConstructor(Map<String, Object> map) {
+            super(map.get("value"));
+        }
+    }
+
+    public static class Throwing extends WithDeserialize {
+        static final AtomicInteger CALLS = new AtomicInteger();
+
+        Throwing() {
+            super(null);
+        }
+
+        public static Throwing deserialize(Map<String, Object> map) {
+            CALLS.incrementAndGet();
+            throw new IllegalStateException("broken");
+        }
+    }
+
+    public static class Failing extends WithDeserialize {
+        Failing() {
+            super(null);
+        }
+
+        public static Failing deserialize(Map<String, Object> map) {
+            throw new AssertionError("fatal");
+        }
+    }
+
+    @BeforeClass
+    public static void register() {
+        ConfigurationSerialization.registerClass(WithDeserialize.class, "WithDeserialize");
+        ConfigurationSerialization.registerClass(WithValueOf.class, "WithValueOf");
+        ConfigurationSerialization.registerClass(WithConstructor.class, "WithConstructor");
+        ConfigurationSerialization.registerClass(Throwing.class, "Throwing");
+        ConfigurationSerialization.registerClass(Failing.class, "Failing");
+    }
+
+    private static Map<String, Object> serialized(String alias) {
+        Map<String, Object> map = new HashMap<>();
+        map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias);
+        map.put("value", 42);
+        return map;
+    }
+
+    private static void assertDeserialized(Class<?> type, String alias) {
+        Object result = DeserializerRegistry.deserialize(serialized(alias));
+        assertSame(type, result.getClass());
+        assertEquals(42, ((WithDeserialize) result).value);
+    }
+
+    @Test
+    public void testFactories() {
+        assertDeserialized(WithDeserialize.class, "WithDeserialize");
+        assertDeserialized(WithValueOf.class, "WithValueOf");
+        assertDeserialized(WithConstructor.class, "WithConstructor");
+    }
+
+    @Test
+    public void testThrowingFactoryRunsOnceAndIsLogged() {
+        Logger logger = Logger.getLogger(ConfigurationSerialization.class.getName());
+        AtomicInteger logged = new AtomicInteger();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel() == Level.SEVERE && record.getThrown() instanceof IllegalStateException) {
+                    logged.incrementAndGet();
+                }
+            }
+
+            @Override
+            public void flush() { }
+
+            @Override
+            public void close() { }
+        };
+        logger.addHandler(handler);
+        try {
+            Throwing.CALLS.set(0);
+            assertNull(DeserializerRegistry.deserialize(serialized("Throwing")));
+            assertEquals(1, Throwing.CALLS.get());
+            assertEquals(1, logged.get());
+        } finally {
+            logger.removeHandler(handler);
+        }
+    }
+
+    @Test(expected = AssertionError.class)
+    public void testErrorsAreNotSwallowed() {
+        DeserializerRegistry.deserialize(serialized("Failing"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownAlias() {
+        DeserializerRegistry.deserialize(serialized("Unknown"));
+    }
+}
@@ -0,0 +1,185 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.dumptruckman.bukkit.configuration.hocon.HoconConfiguration;
+import com.typesafe.config.ConfigRenderOptions;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class HoconWriterTest {
+
+    private HoconConfiguration config;
+    private CommentTree comments;
+
+    @Before
+    public void setUp() throws Exception {
+        config = new HoconConfiguration();
+        config.set("someNumber", 123);
+        config.set("a.nested.value", "Howdy");
+        config.set("a.list", Arrays.asList(1, 2.5, "x y", true, Arrays.asList("a", "b"), Collections.singletonMap("k", 1)));
+        config.set("10", "ten");
+        config.set("9", "nine");
+        config.set("quoted", "with \"quote\"\n\ttab");
+        config.createSection("empty");
+
+        comments = new CommentTree();
+        comments.set("someNumber", '.', Arrays.asList("Let's test some comments.", "Woo!"));
+        comments.set("a.nested", '.', Collections.singletonList(" So fancy."));
+    }
+
+    private void assertSameAsLibrary(ConfigRenderOptions options) throws Exception {
+        String expected = SerializationHelper.createSerializationHelper(comments, '.')
+                .buildHoconConfig(config.getValues(false)).render(options);
+        StringWriter writer = new StringWriter();
+        HoconWriter.createHoconWriter(writer, options, comments, '.').write(config.getValues(false));
+        assertEquals(expected, writer.toString());
+    }
+
+    @Test
+    public void testHocon() throws Exception {
+        assertSameAsLibrary(ConfigRenderOptions.defaults().setOriginComments(false).setJson(false));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        assertSameAsLibrary(ConfigRenderOptions.defaults().setOriginComments(false));
+    }
+
+    @Test
+    public void testConcise() throws Exception {
+        assertSameAsLibrary(ConfigRenderOptions.concise());
+        assertSameAsLibrary(ConfigRenderOptions.concise().setJson(false).setComments(true));
+    }
+
+    @Test
+    public void testOriginComments() throws Exception {
+        assertSameAsLibrary(ConfigRenderOptions.defaults());
+    }
+
+    private static void assertSameAsUncached(HoconConfiguration config) {
+        int depth = config.options().renderCacheDepth();
+        String cached = config.saveToString();
+        config.options().renderCacheDepth(0);
+        String uncached = config.saveToString();
+        config.options().renderCacheDepth(depth);
+        assertEquals(uncached, cached);
+    }
+
+    @Test
+    public void testRenderCache() throws Exception {
+        config.options().renderCacheDepth(3);
+        config.setComments("a.nested", "Nested");
+        assertSameAsUncached(config);
+        assertSameAsUncached(config);
+
+        config.set("a.nested.value", "Changed");
+        config.set("a.nested.deeper.value", 1);
+        assertSameAsUncached(config);
+        config.loadFromString("a { b { c = 1 } }\nd = 2");
+        assertSameAsUncached(config);
+    }
+
+    @Test
+    public void testRenderCacheSectionElsewhere() throws Exception {
+        config.options().renderCacheDepth(3);
+        assertSameAsUncached(config);
+
+        config.set("b.moved", config.getConfigurationSection("a.nested"));
+        config.set("list", Collections.singletonList(config.getConfigurationSection("a")));
+        assertSameAsUncached(config);
+        assertSameAsUncached(config);
+
+        config.getConfigurationSection("a.nested").set("value", "x");
+        assertSameAsUncached(config);
+        assertEquals("x", config.getString("b.moved.value"));
+        config.getConfigurationSection("a").set("list", "changed");
+        assertSameAsUncached(config);
+    }
+
+    @Test
+    public void testRenderCacheCopyDefaults() throws Exception {
+        config.options().renderCacheDepth(3);
+        config.addDefault("a.nested.fromDefault", 1);
+        config.options().copyDefaults(true);
+        assertSameAsUncached(config);
+
+        config.addDefault("a.nested.another", 2);
+        assertSameAsUncached(config);
+        assertTrue(config.saveToString().contains("another"));
+    }
+
+    public static class Point implements ConfigurationSerializable {
+        private final int x;
+        private final int y;
+
+        Point(int x, int y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public static Point deserialize(Map<String, Object> map) {
+            return new Point((Integer) map.get("x"), (Integer) map.get("y"));
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("x", x);
+            map.put("y", y);
+            return map;
+        }
+    }
+
+    private static String saveWide(boolean lazy, int cacheDepth, ConfigRenderOptions options, int threshold)
+            throws Exception {
+        StringBuilder contents = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            contents.append("# Section ").append(i).append('\n')
+                    .append("s").append(i).append(" {\n")
+                    .append("    # Value\n")
+                    .append("    value = ").append(i).append('\n')
+                    .append("    nested { list = [1, 2, { a = b }], text = \"t ").append(i).append("\" }\n")
+                    .append("    numbers = [").append(i).append(", ").append(i + 1).append("]\n")
+                    .append("}\n")
+                    .append("l").append(i).append(" = [[x, y], { k = ").append(i).append(" }]\n");
+        }
+        HoconConfiguration wide = new HoconConfiguration();
+        wide.options().lazySections(lazy).renderCacheDepth(cacheDepth).renderOptions(options)
+                .parallelSaveThreshold(threshold);
+        wide.loadFromString(contents.toString());
+        wide.set("s3.point", new Point(1, 2));
+        wide.set("points", Arrays.asList(new Point(3, 4), new Point(5, 6)));
+        wide.setComments("s3.point", "A point");
+        wide.saveToString();
+        wide.set("s5.value", "changed");
+        return wide.saveToString();
+    }
+
+    @Test
+    public void testParallelSaveMatchesSequential() throws Exception {
+        ConfigRenderOptions[] renderOptions = {
+                new HoconConfiguration().options().renderOptions(),
+                ConfigRenderOptions.defaults().setOriginComments(false),
+                ConfigRenderOptions.concise()
+        };
+        for (ConfigRenderOptions options : renderOptions) {
+            for (boolean lazy : new boolean[] {false, true}) {
+                for (int cacheDepth : new int[] {0, 2}) {
+                    String sequential = saveWide(lazy, cacheDepth, options, 0);
+                    assertEquals(sequential, saveWide(lazy, cacheDepth, options, 1));
+                    assertTrue(sequential.contains("changed"));
+                    assertTrue(sequential.contains("\"==\""));
+                    assertEquals(options.getComments(), sequential.contains("A point"));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NioFilesTest {
+
+    private static byte[] randomBytes(int size, long seed) {
+        byte[] bytes = new byte[size];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static Path write(byte[] contents) throws Exception {
+        Path file = Files.createTempFile("niofiles", ".conf");
+        file.toFile().deleteOnExit();
+        Files.write(file, contents);
+        return file;
+    }
+
+    private static byte[] contents(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    public void testReadsSeveralChunks() throws Exception {
+        // not a multiple of the chunk size, so the last chunk is short
+        byte[] expected = randomBytes(3 * (1 << 16) + 123, 1);
+        assertTrue(expected.length < NioFiles.REUSE_THRESHOLD);
+
+        ByteBuffer read = NioFiles.read(write(expected));
+
+        assertEquals(0, read.position());
+        assertArrayEquals(expected, contents(read));
+        assertNotSame(read, NioFiles.read(write(expected)));
+    }
+
+    @Test
+    public void testReusesBufferPerThread() throws Exception {
+        byte[] large = randomBytes(NioFiles.REUSE_THRESHOLD + 5, 2);
+        byte[] smaller = randomBytes(NioFiles.REUSE_THRESHOLD, 3);
+
+        ByteBuffer first = NioFiles.read(write(large));
+        assertArrayEquals(large, contents(first));
+        assertTrue(first.hasArray());
+
+        // the shared buffer is larger than the second file, which must still be read exactly
+        ByteBuffer second = NioFiles.read(write(smaller));
+        assertSame(first, second);
+        assertEquals(0, second.position());
+        assertEquals(smaller.length, second.limit());
+        assertArrayEquals(smaller, contents(second));
+
+        // another thread gets a buffer of its own
+        ByteBuffer[] other = new ByteBuffer[1];
+        Thread thread = new Thread(() -> {
+            try {
+                other[0] = NioFiles.read(write(large));
+            } catch (Exception e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.start();
+        thread.join();
+        assertNotSame(second, other[0]);
+        assertArrayEquals(large, contents(other[0]));
+        assertArrayEquals(smaller, contents(second));
+    }
+
+    @Test
+    public void testReadsEmptyFile() throws Exception {
+        assertFalse(NioFiles.read(write(new byte[0])).hasRemaining());
+        assertNull(NioFiles.parse(write(new byte[0])));
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedWhileReading() throws Exception {
+        byte[] shorter = randomBytes(2 * (1 << 16), 4);
+        NioFiles.read(Channels.newChannel(new ByteArrayInputStream(shorter)), shorter.length + 10, "test");
+    }
+
+    @Test(expected = EOFException.class)
+    public void testTruncatedWhileReadingReusedBuffer() throws Exception {
+        byte[] shorter = randomBytes(NioFiles.REUSE_THRESHOLD, 5);
+        NioFiles.read(Channels.newChannel(new ByteArrayInputStream(shorter)), shorter.length + 1, "test");
+    }
+
+    private static String readWithReader(byte[] bytes) throws Exception {
+        StringBuilder result = new StringBuilder();
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[256];
+            int read;
+            while ((read = reader.read(buffer)) >= 0) {
+                result.append(buffer, 0, read);
+            }
+        }
+        return result.toString();
+    }
+
+    @Test
+    public void testReplacesMalformedUtf8LikeInputStreamReader() throws Exception {
+        byte[][] inputs = {
+                "plain = ascii".getBytes(StandardCharsets.UTF_8),
+                "text = \"héllo ☃ 😀\"".getBytes(StandardCharsets.UTF_8),
+                // a lone continuation byte, an overlong encoding and an invalid lead byte
+                {'a', (byte) 0x80, 'b', (byte) 0xC0, (byte) 0xAF, 'c', (byte) 0xFF, 'd'},
+                // a surrogate encoded directly
+                {'a', (byte) 0xED, (byte) 0xA0, (byte) 0x80, 'b'},
+                // a multi-byte char cut short at the end
+                {'a', 'b', (byte) 0xE2, (byte) 0x98},
+                randomBytes(10000, 6)
+        };
+        for (byte[] input : inputs) {
+            String decoded = NioFiles.decodeUtf8(ByteBuffer.wrap(input)).toString();
+            assertEquals(Arrays.toString(input), readWithReader(input), decoded);
+        }
+    }
+}
@@ -0,0 +1,134 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.dumptruckman.bukkit.configuration.hocon.HoconConfiguration;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class SerializerRegistryTest {
+
+    public static class Point implements ConfigurationSerializable {
+        final int x;
+        final double y;
+        final String name;
+
+        Point(int x, double y, String name) {
+            this.x = x;
+            this.y = y;
+            this.name = name;
+        }
+
+        public static Point deserialize(Map<String, Object> map) {
+            return new Point((Integer) map.get("x"), (Double) map.get("y"), (String) map.get("name"));
+        }
+
+        @Override
+        public Map<String, Object> serialize() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("x", x);
+            map.put("y", y);
+            map.put("name", name);
+            return map;
+        }
+    }
+
+    public static class Retyped implements ConfigurationSerializable {
+        @Override
+        public Map<String, Object> serialize() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("value", 1);
+            map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, "Renamed");
+            return map;
+        }
+    }
+
+    @BeforeClass
+    public static void register() {
+        ConfigurationSerialization.registerClass(Point.class, "Point");
+    }
+
+    @After
+    public void tearDown() {
+        SerializerRegistry.unregister(Point.class);
+        SerializerRegistry.setTimingEnabled(false);
+        SerializerRegistry.resetTimings();
+    }
+
+    private static String save() {
+        HoconConfiguration config = new HoconConfiguration();
+        config.set("point", new Point(1, 2.5, "origin"));
+        config.set("points", Arrays.asList(new Point(3, -4.0, "a b"), new Point(5, 6.25, "c")));
+        return config.saveToString();
+    }
+
+    private static Map<String, Object> serialize(ConfigurationSerializable serializable) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        SerializerRegistry.serialize(serializable, map::put);
+        return map;
+    }
+
+    @Test
+    public void testSerializerMatchesSerialize() {
+        String expected = save();
+
+        SerializerRegistry.register(Point.class, (point, out) -> {
+            out.accept("x", point.x);
+            out.accept("y", point.y);
+            out.accept("name", point.name);
+        });
+
+        assertEquals(expected, save());
+        Point point = new Point(1, 2.5, "origin");
+        Map<String, Object> baseline = new LinkedHashMap<>();
+        baseline.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, SerializerRegistry.getAlias(Point.class));
+        baseline.putAll(point.serialize());
+        assertEquals(new ArrayList<>(baseline.entrySet()), new ArrayList<>(serialize(point).entrySet()));
+    }
+
+    @Test
+    public void testTypeKeyReplacesAlias() {
+        Retyped retyped = new Retyped();
+        Map<String, Object> baseline = new LinkedHashMap<>();
+        baseline.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, SerializerRegistry.getAlias(Retyped.class));
+        baseline.putAll(retyped.serialize());
+
+        Map<String, Object> serialized = serialize(retyped);
+        assertEquals(baseline, serialized);
+        assertEquals("Renamed", serialized.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY));
+        assertEquals(new ArrayList<>(baseline.keySet()), new ArrayList<>(serialized.keySet()));
+    }
+
+    @Test
+    public void testTimings() {
+        serialize(new Point(0, 0, "untimed"));
+        assertTrue(SerializerRegistry.getTimings().isEmpty());
+
+        SerializerRegistry.setTimingEnabled(true);
+        save();
+        List<Point> points = Arrays.asList(new Point(1, 1, "a"), new Point(2, 2, "b"));
+        SerializerRegistry.register(Point.class, (point, out) -> out.accept("x", point.x));
+        for (Point point : points) {
+            serialize(point);
+        }
+        serialize(new Retyped());
+
+        Map<Class<?>, SerializerRegistry.Timing> timings = SerializerRegistry.getTimings();
+        assertEquals(2, timings.size());
+        assertEquals(5, timings.get(Point.class).getCount());
+        assertEquals(1, timings.get(Retyped.class).getCount());
+        assertTrue(timings.get(Point.class).getTotalNanos() > 0);
+
+        SerializerRegistry.resetTimings();
+        assertTrue(SerializerRegistry.getTimings().isEmpty());
+    }
+}
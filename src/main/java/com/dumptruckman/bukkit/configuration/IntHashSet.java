@@ -0,0 +1,145 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of {@link Integer}s kept unboxed in an open addressing hash table.
+ */
+public final class IntHashSet extends PrimitiveSet<Integer> {
+
+    private int[] keys;
+
+    public IntHashSet() {
+        this(0);
+    }
+
+    public IntHashSet(final int expectedSize) {
+        super(expectedSize);
+    }
+
+    @Override
+    public boolean accepts(final Object o) {
+        return o instanceof Integer;
+    }
+
+    public boolean contains(final int key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Integer && indexOf((Integer) o) >= 0;
+    }
+
+    public boolean add(final int key) {
+        ensureCapacity();
+        int slot = mix(key) & mask;
+        int free = -1;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+            } else if (free < 0) {
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (free >= 0) {
+            slot = free;
+        }
+        keys[slot] = key;
+        occupy(slot);
+        return true;
+    }
+
+    @Override
+    public boolean add(final Integer key) {
+        return add(key.intValue());
+    }
+
+    public boolean remove(final int key) {
+        final int slot = indexOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof Integer && remove(((Integer) o).intValue());
+    }
+
+    @NotNull
+    @Override
+    public List<Integer> sorted() {
+        final int[] sorted = new int[size];
+        int i = 0;
+        for (int slot = 0; slot < states.length; slot++) {
+            if (states[slot] == FULL) {
+                sorted[i++] = keys[slot];
+            }
+        }
+        Arrays.sort(sorted);
+        return new AbstractList<Integer>() {
+            @Override
+            public Integer get(final int index) {
+                return sorted[index];
+            }
+
+            @Override
+            public int size() {
+                return sorted.length;
+            }
+        };
+    }
+
+    private int indexOf(final int key) {
+        int slot = mix(key) & mask;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    void allocateKeys(final int capacity) {
+        keys = new int[capacity];
+    }
+
+    @NotNull
+    @Override
+    Object keys() {
+        return keys;
+    }
+
+    @Override
+    void rehashFrom(@NotNull final Object oldKeys, @NotNull final byte[] oldStates) {
+        final int[] from = (int[]) oldKeys;
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] == FULL) {
+                int slot = mix(from[i]) & mask;
+                while (states[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = from[i];
+                placeRehashed(slot);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    Integer elementAt(final int slot) {
+        return keys[slot];
+    }
+}
@@ -0,0 +1,145 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A set of {@link Long}s kept unboxed in an open addressing hash table.
+ */
+public final class LongHashSet extends PrimitiveSet<Long> {
+
+    private long[] keys;
+
+    public LongHashSet() {
+        this(0);
+    }
+
+    public LongHashSet(final int expectedSize) {
+        super(expectedSize);
+    }
+
+    @Override
+    public boolean accepts(final Object o) {
+        return o instanceof Long;
+    }
+
+    public boolean contains(final long key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        return o instanceof Long && indexOf((Long) o) >= 0;
+    }
+
+    public boolean add(final long key) {
+        ensureCapacity();
+        int slot = mix(key) & mask;
+        int free = -1;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL) {
+                if (keys[slot] == key) {
+                    return false;
+                }
+            } else if (free < 0) {
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (free >= 0) {
+            slot = free;
+        }
+        keys[slot] = key;
+        occupy(slot);
+        return true;
+    }
+
+    @Override
+    public boolean add(final Long key) {
+        return add(key.longValue());
+    }
+
+    public boolean remove(final long key) {
+        final int slot = indexOf(key);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        return o instanceof Long && remove(((Long) o).longValue());
+    }
+
+    @NotNull
+    @Override
+    public List<Long> sorted() {
+        final long[] sorted = new long[size];
+        int i = 0;
+        for (int slot = 0; slot < states.length; slot++) {
+            if (states[slot] == FULL) {
+                sorted[i++] = keys[slot];
+            }
+        }
+        Arrays.sort(sorted);
+        return new AbstractList<Long>() {
+            @Override
+            public Long get(final int index) {
+                return sorted[index];
+            }
+
+            @Override
+            public int size() {
+                return sorted.length;
+            }
+        };
+    }
+
+    private int indexOf(final long key) {
+        int slot = mix(key) & mask;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    @Override
+    void allocateKeys(final int capacity) {
+        keys = new long[capacity];
+    }
+
+    @NotNull
+    @Override
+    Object keys() {
+        return keys;
+    }
+
+    @Override
+    void rehashFrom(@NotNull final Object oldKeys, @NotNull final byte[] oldStates) {
+        final long[] from = (long[]) oldKeys;
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] == FULL) {
+                int slot = mix(from[i]) & mask;
+                while (states[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = from[i];
+                placeRehashed(slot);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    Long elementAt(final int slot) {
+        return keys[slot];
+    }
+}
@@ -0,0 +1,198 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Base of the compact sets a {@link SerializableSet} can be backed by, which keep their elements unboxed in open
+ * addressing hash tables.
+ *
+ * Each set only holds one kind of element, see {@link #accepts(Object)}. Elements are still handed out boxed, and equal
+ * to the boxed elements they were added as, so the sets behave like a {@link java.util.HashSet} of those elements.
+ *
+ * @param <E> The boxed type of the elements.
+ */
+public abstract class PrimitiveSet<E> extends AbstractSet<E> {
+
+    static final byte FREE = 0;
+    static final byte FULL = 1;
+    static final byte REMOVED = 2;
+
+    private static final int MIN_CAPACITY = 8;
+
+    byte[] states;
+    int mask;
+    int size;
+    private int used;
+    private int modCount;
+
+    PrimitiveSet(final int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    /**
+     * Returns whether the given object can be added to this set.
+     *
+     * @param o The object to check.
+     * @return true if the object is of the kind of element this set holds.
+     */
+    public abstract boolean accepts(Object o);
+
+    /**
+     * Returns the elements of this set in ascending order.
+     *
+     * @return A read only list of the elements, which is not backed by this set.
+     */
+    @NotNull
+    public abstract List<E> sorted();
+
+    /**
+     * Allocates empty tables of the given capacity for the keys.
+     */
+    abstract void allocateKeys(int capacity);
+
+    /**
+     * Puts every key of the given tables into the current ones, which are empty and large enough.
+     */
+    abstract void rehashFrom(@NotNull Object keys, @NotNull byte[] states);
+
+    /**
+     * Returns the current key tables, to be passed to {@link #rehashFrom(Object, byte[])}.
+     */
+    @NotNull
+    abstract Object keys();
+
+    @NotNull
+    abstract E elementAt(int slot);
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(states, FREE);
+        size = 0;
+        used = 0;
+        modCount++;
+    }
+
+    @NotNull
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private int next = advance(0);
+            private int current = -1;
+            private int expectedModCount = modCount;
+
+            private int advance(int slot) {
+                while (slot < states.length && states[slot] != FULL) {
+                    slot++;
+                }
+                return slot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < states.length;
+            }
+
+            @Override
+            public E next() {
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next >= states.length) {
+                    throw new NoSuchElementException();
+                }
+                current = next;
+                next = advance(next + 1);
+                return elementAt(current);
+            }
+
+            @Override
+            public void remove() {
+                if (current < 0) {
+                    throw new IllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new ConcurrentModificationException();
+                }
+                removeAt(current);
+                expectedModCount = modCount;
+                current = -1;
+            }
+        };
+    }
+
+    /**
+     * Makes room for one more key, rehashing if the table is too full of keys and removed slots.
+     */
+    final void ensureCapacity() {
+        if (used + 1 > maxFill(states.length)) {
+            final Object oldKeys = keys();
+            final byte[] oldStates = states;
+            allocate(capacityFor(size + 1));
+            rehashFrom(oldKeys, oldStates);
+            used = size;
+        }
+    }
+
+    /**
+     * Marks a slot found free or removed by a probe as holding a newly added key.
+     */
+    final void occupy(final int slot) {
+        if (states[slot] == FREE) {
+            used++;
+        }
+        states[slot] = FULL;
+        size++;
+        modCount++;
+    }
+
+    final void removeAt(final int slot) {
+        states[slot] = REMOVED;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Puts a key into a freshly allocated table while rehashing. The key must not be in the table yet.
+     */
+    final void placeRehashed(final int slot) {
+        states[slot] = FULL;
+        size++;
+    }
+
+    private void allocate(final int capacity) {
+        states = new byte[capacity];
+        mask = capacity - 1;
+        size = 0;
+        used = 0;
+        allocateKeys(capacity);
+    }
+
+    private static int maxFill(final int capacity) {
+        return capacity - (capacity >>> 2);
+    }
+
+    private static int capacityFor(final int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (maxFill(capacity) < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static int mix(final long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
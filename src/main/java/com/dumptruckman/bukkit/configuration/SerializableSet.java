@@ -7,7 +7,6 @@ import org.jetbrains.annotations.NotNull;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -18,11 +17,18 @@ import java.util.function.Consumer;
 import java.util.function.Predicate;
 import java.util.stream.Stream;
 
+/**
+ * A set that can be stored in a configuration.
+ *
+ * Sets loaded from a configuration that only hold {@link Integer}s, only {@link Long}s or only UUID strings are backed
+ * by an {@link IntHashSet}, {@link LongHashSet} or {@link UuidStringSet}. Adding an element such a set cannot hold
+ * turns it into a regular {@link HashSet} first. Those sets are saved with their elements sorted.
+ */
 @SerializableAs("set")
 public class SerializableSet implements Set, ConfigurationSerializable {
 
     @NotNull
-    private final Set backingSet;
+    private Set backingSet;
 
     public SerializableSet(@NotNull Set backingSet) {
         this.backingSet = backingSet;
@@ -32,19 +38,56 @@ public class SerializableSet implements Set, ConfigurationSerializable {
     public SerializableSet(@NotNull Map<String, Object> serializedForm) {
         Object o = serializedForm.get("contents");
         if (o instanceof List) {
-            backingSet = new HashSet((List) o);
+            backingSet = compactSetOf((List) o);
         } else {
             backingSet = Collections.emptySet();
         }
     }
 
+    /**
+     * Returns the most compact set that can hold all of the given elements.
+     */
     @SuppressWarnings("unchecked")
+    @NotNull
+    private static Set compactSetOf(@NotNull List<?> contents) {
+        PrimitiveSet set = null;
+        if (!contents.isEmpty()) {
+            Object first = contents.get(0);
+            if (first instanceof Integer) {
+                set = new IntHashSet(contents.size());
+            } else if (first instanceof Long) {
+                set = new LongHashSet(contents.size());
+            } else if (first instanceof String) {
+                set = new UuidStringSet(contents.size());
+            }
+        }
+        if (set == null) {
+            return new HashSet(contents);
+        }
+        for (Object element : contents) {
+            if (!set.accepts(element)) {
+                return new HashSet(contents);
+            }
+            set.add(element);
+        }
+        return set;
+    }
+
     @Override
     public Map<String, Object> serialize() {
-        Map<String, Object> serializedForm = new HashMap<>(backingSet.size());
-        List<Object> contents = new ArrayList(backingSet);
-        serializedForm.put("contents", contents);
-        return serializedForm;
+        List<?> contents = backingSet instanceof PrimitiveSet
+                ? ((PrimitiveSet<?>) backingSet).sorted() : new ArrayList<Object>(backingSet);
+        return Collections.singletonMap("contents", contents);
+    }
+
+    /**
+     * Swaps a compact backing set for a regular one if it cannot hold the given element.
+     */
+    @SuppressWarnings("unchecked")
+    private void makeRoomFor(Object o) {
+        if (backingSet instanceof PrimitiveSet && !((PrimitiveSet<?>) backingSet).accepts(o)) {
+            backingSet = new HashSet(backingSet);
+        }
     }
 
     @Override
@@ -83,6 +126,7 @@ public class SerializableSet implements Set, ConfigurationSerializable {
     @SuppressWarnings("unchecked")
     @Override
     public boolean add(Object o) {
+        makeRoomFor(o);
         return backingSet.add(o);
     }
 
@@ -100,6 +144,9 @@ public class SerializableSet implements Set, ConfigurationSerializable {
     @SuppressWarnings("unchecked")
     @Override
     public boolean addAll(@NotNull Collection c) {
+        for (Object o : c) {
+            makeRoomFor(o);
+        }
         return backingSet.addAll(c);
     }
 
@@ -0,0 +1,235 @@
+package com.dumptruckman.bukkit.configuration;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A set of UUID strings, kept as the two longs of each UUID in an open addressing hash table.
+ *
+ * Only strings in the canonical form {@link UUID#toString()} produces are accepted, so the elements handed out are
+ * equal to those added.
+ */
+public final class UuidStringSet extends PrimitiveSet<String> {
+
+    private static final Comparator<UUID> UNSIGNED_ORDER = (a, b) -> {
+        int compare = Long.compareUnsigned(a.getMostSignificantBits(), b.getMostSignificantBits());
+        return compare != 0 ? compare
+                : Long.compareUnsigned(a.getLeastSignificantBits(), b.getLeastSignificantBits());
+    };
+
+    private long[] mostBits;
+    private long[] leastBits;
+
+    public UuidStringSet() {
+        this(0);
+    }
+
+    public UuidStringSet(final int expectedSize) {
+        super(expectedSize);
+    }
+
+    /**
+     * Returns whether the given object is a string in the canonical form {@link UUID#toString()} produces: lower case
+     * hex digits grouped 8-4-4-4-12.
+     *
+     * @param o The object to check.
+     * @return true if the object can be added to this set.
+     */
+    @Override
+    public boolean accepts(final Object o) {
+        if (!(o instanceof String)) {
+            return false;
+        }
+        final String s = (String) o;
+        if (s.length() != 36) {
+            return false;
+        }
+        for (int i = 0; i < 36; i++) {
+            final char c = s.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public boolean contains(@NotNull final UUID uuid) {
+        return indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+    }
+
+    @Override
+    public boolean contains(final Object o) {
+        if (!accepts(o)) {
+            return false;
+        }
+        final String s = (String) o;
+        return indexOf(mostBits(s), leastBits(s)) >= 0;
+    }
+
+    public boolean add(@NotNull final UUID uuid) {
+        return add(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    /**
+     * Adds a UUID string.
+     *
+     * @param s The string to add.
+     * @return true if the set did not hold the string yet.
+     * @throws IllegalArgumentException If the string is not a UUID in canonical form.
+     */
+    @Override
+    public boolean add(final String s) {
+        if (!accepts(s)) {
+            throw new IllegalArgumentException("Not a UUID in canonical form: " + s);
+        }
+        return add(mostBits(s), leastBits(s));
+    }
+
+    public boolean remove(@NotNull final UUID uuid) {
+        return remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+    }
+
+    @Override
+    public boolean remove(final Object o) {
+        if (!accepts(o)) {
+            return false;
+        }
+        final String s = (String) o;
+        return remove(mostBits(s), leastBits(s));
+    }
+
+    @NotNull
+    @Override
+    public List<String> sorted() {
+        final UUID[] sorted = new UUID[size];
+        int i = 0;
+        for (int slot = 0; slot < states.length; slot++) {
+            if (states[slot] == FULL) {
+                sorted[i++] = new UUID(mostBits[slot], leastBits[slot]);
+            }
+        }
+        // unsigned order of the bits is the order of the strings
+        Arrays.sort(sorted, UNSIGNED_ORDER);
+        return new AbstractList<String>() {
+            @Override
+            public String get(final int index) {
+                return sorted[index].toString();
+            }
+
+            @Override
+            public int size() {
+                return sorted.length;
+            }
+        };
+    }
+
+    private boolean add(final long most, final long least) {
+        ensureCapacity();
+        int slot = hash(most, least) & mask;
+        int free = -1;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL) {
+                if (mostBits[slot] == most && leastBits[slot] == least) {
+                    return false;
+                }
+            } else if (free < 0) {
+                free = slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (free >= 0) {
+            slot = free;
+        }
+        mostBits[slot] = most;
+        leastBits[slot] = least;
+        occupy(slot);
+        return true;
+    }
+
+    private boolean remove(final long most, final long least) {
+        final int slot = indexOf(most, least);
+        if (slot < 0) {
+            return false;
+        }
+        removeAt(slot);
+        return true;
+    }
+
+    private int indexOf(final long most, final long least) {
+        int slot = hash(most, least) & mask;
+        while (states[slot] != FREE) {
+            if (states[slot] == FULL && mostBits[slot] == most && leastBits[slot] == least) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static int hash(final long most, final long least) {
+        return mix(most * 31 + least);
+    }
+
+    private static long mostBits(@NotNull final String s) {
+        return hex(s, 0, 18);
+    }
+
+    private static long leastBits(@NotNull final String s) {
+        return hex(s, 19, 36);
+    }
+
+    private static long hex(@NotNull final String s, final int from, final int to) {
+        long value = 0;
+        for (int i = from; i < to; i++) {
+            final char c = s.charAt(i);
+            if (c != '-') {
+                value = (value << 4) | (c <= '9' ? c - '0' : c - 'a' + 10);
+            }
+        }
+        return value;
+    }
+
+    @Override
+    void allocateKeys(final int capacity) {
+        mostBits = new long[capacity];
+        leastBits = new long[capacity];
+    }
+
+    @NotNull
+    @Override
+    Object keys() {
+        return new long[][] {mostBits, leastBits};
+    }
+
+    @Override
+    void rehashFrom(@NotNull final Object oldKeys, @NotNull final byte[] oldStates) {
+        final long[] fromMost = ((long[][]) oldKeys)[0];
+        final long[] fromLeast = ((long[][]) oldKeys)[1];
+        for (int i = 0; i < oldStates.length; i++) {
+            if (oldStates[i] == FULL) {
+                int slot = hash(fromMost[i], fromLeast[i]) & mask;
+                while (states[slot] != FREE) {
+                    slot = (slot + 1) & mask;
+                }
+                mostBits[slot] = fromMost[i];
+                leastBits[slot] = fromLeast[i];
+                placeRehashed(slot);
+            }
+        }
+    }
+
+    @NotNull
+    @Override
+    String elementAt(final int slot) {
+        return new UUID(mostBits[slot], leastBits[slot]).toString();
+    }
+}
@@ -0,0 +1,251 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.typesafe.config.ConfigException;
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Loads many configuration files at once.
+ *
+ * Files are loaded concurrently on the given executor, by at most {@link #maxOpenFiles()} tasks at a time, each taking
+ * the next file from a shared queue until none are left. Every file gets its own future, completed with the loaded
+ * configuration or with the exception that kept it from loading, so one broken file does not affect the others.
+ *
+ * <pre>{@code
+ * Map<Path, CompletableFuture<HoconConfiguration>> players = BulkLoader.create()
+ *         .maxOpenFiles(32)
+ *         .load(dataFolder.toPath(), "players/*.conf");
+ * }</pre>
+ */
+public final class BulkLoader {
+
+    /**
+     * How many files are loaded at the same time unless told otherwise.
+     */
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+    private Executor executor = ForkJoinPool.commonPool();
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    @Nullable
+    private HoconConfiguration template;
+
+    private BulkLoader() { }
+
+    /**
+     * Creates a bulk loader using the common fork join pool.
+     *
+     * @return A new bulk loader.
+     */
+    @NotNull
+    public static BulkLoader create() {
+        return new BulkLoader();
+    }
+
+    /**
+     * Sets the executor files are loaded on.
+     *
+     * @param executor The executor to load files on.
+     * @return This loader for chaining.
+     */
+    @NotNull
+    public BulkLoader executor(@NotNull final Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    /**
+     * Returns the executor files are loaded on. Defaults to {@link ForkJoinPool#commonPool()}.
+     *
+     * @return The executor.
+     */
+    @NotNull
+    public Executor executor() {
+        return executor;
+    }
+
+    /**
+     * Sets how many files may be loaded at the same time.
+     *
+     * @param maxOpenFiles The most files loaded at once, at least 1.
+     * @return This loader for chaining.
+     */
+    @NotNull
+    public BulkLoader maxOpenFiles(final int maxOpenFiles) {
+        if (maxOpenFiles < 1) {
+            throw new IllegalArgumentException("maxOpenFiles must be at least 1");
+        }
+        this.maxOpenFiles = maxOpenFiles;
+        return this;
+    }
+
+    /**
+     * Returns how many files may be loaded at the same time. Defaults to {@link #DEFAULT_MAX_OPEN_FILES}.
+     *
+     * @return The most files loaded at once.
+     */
+    public int maxOpenFiles() {
+        return maxOpenFiles;
+    }
+
+    /**
+     * Sets a configuration whose options and defaults every loaded configuration gets. They are copied when loading
+     * starts, and every loaded configuration gets its own copy of the defaults.
+     *
+     * @param template The configuration to copy from, or null for default options and no defaults.
+     * @return This loader for chaining.
+     */
+    @NotNull
+    public BulkLoader template(@Nullable final HoconConfiguration template) {
+        this.template = template;
+        return this;
+    }
+
+    /**
+     * Returns the configuration whose options and defaults every loaded configuration gets. Defaults to null.
+     *
+     * @return The template, or null if there is none.
+     */
+    @Nullable
+    public HoconConfiguration template() {
+        return template;
+    }
+
+    /**
+     * Starts loading the given files.
+     *
+     * A future fails with an {@link IOException} if its file cannot be read and with an
+     * {@link InvalidConfigurationException} if it is not valid hocon.
+     *
+     * @param paths The files to load. Files given more than once are loaded once.
+     * @return A future per file, in the order given.
+     */
+    @NotNull
+    public Map<Path, CompletableFuture<HoconConfiguration>> load(@NotNull final Collection<? extends Path> paths) {
+        final Map<Path, CompletableFuture<HoconConfiguration>> futures = new LinkedHashMap<>();
+        final Queue<Path> queue = new ConcurrentLinkedQueue<>();
+        for (Path path : paths) {
+            if (!futures.containsKey(path)) {
+                futures.put(path, new CompletableFuture<>());
+                queue.add(path);
+            }
+        }
+
+        final HoconConfigurationOptions options;
+        final Configuration defaults;
+        if (template != null) {
+            options = template.options().copy();
+            defaults = template.getDefaults() != null ? copyOf(template.getDefaults()) : null;
+        } else {
+            options = new HoconConfigurationOptions(new MemoryConfiguration());
+            defaults = null;
+        }
+
+        final Runnable worker = () -> {
+            Path path;
+            while ((path = queue.poll()) != null) {
+                load(path, futures.get(path), options, defaults);
+            }
+        };
+        final int workers = Math.min(maxOpenFiles, queue.size());
+        for (int i = 0; i < workers; i++) {
+            try {
+                executor.execute(worker);
+            } catch (RejectedExecutionException e) {
+                if (i == 0) {
+                    Path path;
+                    while ((path = queue.poll()) != null) {
+                        futures.get(path).completeExceptionally(e);
+                    }
+                }
+                break;
+            }
+        }
+        return Collections.unmodifiableMap(futures);
+    }
+
+    /**
+     * Starts loading the files in a directory, and in the directories nested in it, whose path relative to the
+     * directory matches a glob such as {@code "*.conf"} or {@code "regions/**.conf"}.
+     *
+     * @param directory The directory to search.
+     * @param glob The pattern the relative paths of the files must match, see
+     *             {@link java.nio.file.FileSystem#getPathMatcher(String)}.
+     * @return A future per file, in the order of their paths.
+     * @throws IOException If the directory cannot be searched.
+     * @see #load(Collection)
+     */
+    @NotNull
+    public Map<Path, CompletableFuture<HoconConfiguration>> load(@NotNull final Path directory,
+                                                                 @NotNull final String glob) throws IOException {
+        final PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        final List<Path> paths;
+        try (Stream<Path> files = Files.walk(directory)) {
+            paths = files.filter(Files::isRegularFile)
+                    .filter(file -> matcher.matches(directory.relativize(file)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+        return load(paths);
+    }
+
+    private static void load(@NotNull final Path path, @NotNull final CompletableFuture<HoconConfiguration> future,
+                             @NotNull final HoconConfigurationOptions options,
+                             @Nullable final Configuration defaults) {
+        try {
+            HoconConfiguration config = new HoconConfiguration();
+            options.copyTo(config.options());
+            if (defaults != null) {
+                config.setDefaults(copyOf(defaults));
+            }
+            config.load(path);
+            future.complete(config);
+        } catch (ConfigException e) {
+            future.completeExceptionally(new InvalidConfigurationException(e));
+        } catch (Throwable t) {
+            future.completeExceptionally(t);
+        }
+    }
+
+    /**
+     * Copies the values of a configuration into a new one, which can be changed without affecting the original. Lists
+     * and maps are copied too, other values such as serializable objects are shared.
+     */
+    @NotNull
+    static Configuration copyOf(@NotNull final Configuration configuration) {
+        final MemoryConfiguration copy = new MemoryConfiguration();
+        copy.options().pathSeparator(configuration.options().pathSeparator());
+        for (Map.Entry<String, Object> entry : configuration.getValues(true).entrySet()) {
+            if (!(entry.getValue() instanceof ConfigurationSection)) {
+                copy.set(entry.getKey(), ConcurrentHoconConfiguration.copy(entry.getValue()));
+            } else if (((ConfigurationSection) entry.getValue()).getKeys(false).isEmpty()) {
+                copy.createSection(entry.getKey());
+            }
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,25 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+/**
+ * Controls how comments are captured when a {@link HoconConfiguration} is loaded.
+ */
+public enum CommentMode {
+    /**
+     * Comments are captured while the configuration is loaded.
+     */
+    EAGER,
+    /**
+     * The parsed document is kept and comments are only captured once they are first needed, either by
+     * {@link HoconConfiguration#getComments(String)}, {@link HoconConfiguration#setComments(String, String...)} or a
+     * save. Nothing is spent on comments for a configuration that never needs them.
+     */
+    LAZY,
+    /**
+     * Comments in the loaded document are ignored. Comments set through
+     * {@link HoconConfiguration#setComments(String, String...)} are still saved.
+     */
+    NONE
+}
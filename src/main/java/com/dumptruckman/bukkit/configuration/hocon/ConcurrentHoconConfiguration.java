@@ -0,0 +1,1177 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.CommentTree;
+import com.dumptruckman.bukkit.configuration.util.NumericList;
+import com.typesafe.config.ConfigRenderOptions;
+import org.bukkit.configuration.Configuration;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemoryConfiguration;
+import org.bukkit.configuration.MemorySection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.FileConfigurationOptions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A hocon configuration that can be read from any number of threads while it is being changed.
+ *
+ * Reads never lock. They are served from an immutable {@link Snapshot} of the values, comments and defaults, which is
+ * replaced whenever something changes, so every read sees the configuration as it was at a single point in time. Use
+ * {@link #snapshot()} for several reads that must agree with each other.
+ *
+ * Changes are made one at a time under a lock. They are applied to a private {@link HoconConfiguration}, so loading,
+ * reloading and comments work exactly as they do there, and then published in a new snapshot that copies only the
+ * sections along the changed path and shares everything else with the previous one. Use {@link #update(Consumer)} to
+ * publish several changes at once.
+ *
+ * Sections returned by this configuration read from the latest snapshot and write through to this configuration.
+ * Lists and maps read from it cannot be changed, and lists and maps that are set are copied first. Other values, such
+ * as {@link org.bukkit.configuration.serialization.ConfigurationSerializable}s, are shared as they are and must not be
+ * changed once set. The options and defaults should likewise be set up before the configuration is shared between
+ * threads.
+ *
+ * Saving renders a snapshot without taking the lock, so it never holds up changes.
+ */
+public class ConcurrentHoconConfiguration extends FileConfiguration {
+
+    private final HoconConfiguration live;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final SectionFactory liveSections = (parent, key, node) -> new LiveSection(parent, key);
+    private volatile Snapshot published;
+
+    // the snapshot being built by update(), only touched by the updating thread while it holds the lock
+    @Nullable
+    private Snapshot pending;
+    @Nullable
+    private volatile Thread updating;
+
+    public ConcurrentHoconConfiguration() {
+        live = new HoconConfiguration();
+        options = new ConcurrentHoconConfigurationOptions(this, live.options());
+        published = new Snapshot(Node.EMPTY, new CommentTree(), null, live.options());
+    }
+
+    /**
+     * Returns the current state of this configuration, which never changes.
+     *
+     * Within {@link #update(Consumer)} the updating thread sees the changes it made so far, other threads do not.
+     *
+     * @return The current snapshot.
+     */
+    @NotNull
+    public Snapshot snapshot() {
+        final Snapshot pending = updating == Thread.currentThread() ? this.pending : null;
+        return pending != null ? pending : published;
+    }
+
+    // publishes the current state again with the options that were just set
+    void optionsChanged() {
+        writeLock.lock();
+        try {
+            final Snapshot current = snapshot();
+            publish(current.root, current.comments);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Makes several changes to this configuration and publishes them at once, so other threads see either none or all
+     * of them. Changes made by other threads wait until this returns.
+     *
+     * If the changes throw, those made before are still published.
+     *
+     * @param changes Makes the changes to the configuration it is given.
+     */
+    public void update(@NotNull final Consumer<? super ConcurrentHoconConfiguration> changes) {
+        writeLock.lock();
+        try {
+            if (updating == Thread.currentThread()) {
+                changes.accept(this);
+                return;
+            }
+            pending = published;
+            updating = Thread.currentThread();
+            try {
+                changes.accept(this);
+            } finally {
+                published = pending;
+                pending = null;
+                updating = null;
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Object get(final String path, final Object def) {
+        return get(this, snapshot().root, path, def, liveSections);
+    }
+
+    @Override
+    public Set<String> getKeys(final boolean deep) {
+        return keys(this, snapshot().root, deep);
+    }
+
+    @Override
+    public Map<String, Object> getValues(final boolean deep) {
+        return values(this, snapshot().root, deep, liveSections);
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        writeLock.lock();
+        try {
+            live.set(path, copy(value));
+            republish(path);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        writeLock.lock();
+        try {
+            live.createSection(path);
+            republish(path);
+        } finally {
+            writeLock.unlock();
+        }
+        return liveSection(path);
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path, final Map<?, ?> map) {
+        writeLock.lock();
+        try {
+            live.createSection(path, (Map<?, ?>) copy(map));
+            republish(path);
+        } finally {
+            writeLock.unlock();
+        }
+        return liveSection(path);
+    }
+
+    @Override
+    public Configuration getDefaults() {
+        return snapshot().getDefaults();
+    }
+
+    @Override
+    public void setDefaults(final Configuration defaults) {
+        writeLock.lock();
+        try {
+            live.setDefaults(defaults);
+            final Snapshot current = snapshot();
+            publish(current.root, current.comments);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds a default value. The defaults are copied, so readers of the previous ones are not affected.
+     */
+    @Override
+    public void addDefault(final String path, final Object value) {
+        addDefaults(Collections.singletonMap(path, value));
+    }
+
+    /**
+     * Adds default values. The defaults are copied, so readers of the previous ones are not affected.
+     */
+    @Override
+    public void addDefaults(final Map<String, Object> defaults) {
+        writeLock.lock();
+        try {
+            final MemoryConfiguration copy = new MemoryConfiguration();
+            final Configuration current = live.getDefaults();
+            if (current != null) {
+                for (Map.Entry<String, Object> entry : current.getValues(true).entrySet()) {
+                    if (!(entry.getValue() instanceof ConfigurationSection)) {
+                        copy.set(entry.getKey(), entry.getValue());
+                    }
+                }
+            }
+            for (Map.Entry<String, Object> entry : defaults.entrySet()) {
+                if (!(entry.getValue() instanceof ConfigurationSection)) {
+                    copy.set(entry.getKey(), copy(entry.getValue()));
+                }
+            }
+            setDefaults(copy);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Each snapshot is published with a copy of these options, so changing them does not change snapshots that were
+     * already taken, only the ones taken afterwards. Setting an option publishes a new snapshot under the lock.
+     */
+    @Override
+    public ConcurrentHoconConfigurationOptions options() {
+        return (ConcurrentHoconConfigurationOptions) options;
+    }
+
+    @Override
+    protected String buildHeader() {
+        return live.buildHeader();
+    }
+
+    /**
+     * Sets the comments for a given path.
+     *
+     * @param path The config path to comment.
+     * @param comments The comments for the path, one string per line. Put no comments to remove comments for a path.
+     */
+    public void setComments(@NotNull final String path, final String... comments) {
+        writeLock.lock();
+        try {
+            live.setComments(path, comments);
+            final Snapshot current = snapshot();
+            publish(current.root, current.comments.with(path, options().pathSeparator(), Arrays.asList(comments)));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Gets the comments for a given path.
+     *
+     * @param path The config path to retrieve the comments of.
+     * @return The comments for the given path, or an empty list if no comments.
+     */
+    @NotNull
+    public List<String> getComments(@NotNull final String path) {
+        return snapshot().getComments(path);
+    }
+
+    @Override
+    public void loadFromString(@NotNull final String contents) throws InvalidConfigurationException {
+        writeLock.lock();
+        try {
+            live.loadFromString(contents);
+            publishAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads this configuration from the given path using UTF-8.
+     *
+     * @param path The path to load the configuration from.
+     * @throws IOException If the file cannot be read.
+     * @throws InvalidConfigurationException If the contents are not a valid configuration.
+     * @see HoconConfiguration#load(Path)
+     */
+    public void load(@NotNull final Path path) throws IOException, InvalidConfigurationException {
+        writeLock.lock();
+        try {
+            live.load(path);
+            publishAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void load(@NotNull final File file) throws IOException, InvalidConfigurationException {
+        writeLock.lock();
+        try {
+            live.load(file);
+            publishAll();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads new contents into this configuration, changing only what differs from what it holds now. Only the
+     * sections along the changed paths are copied into the new snapshot.
+     *
+     * @param contents The new contents.
+     * @return The paths that were added, removed or changed, or whose comments changed.
+     * @throws InvalidConfigurationException If the contents are not a valid configuration.
+     * @see HoconConfiguration#reloadInPlace(String)
+     */
+    @NotNull
+    public Set<String> reloadInPlace(@NotNull final String contents) throws InvalidConfigurationException {
+        writeLock.lock();
+        try {
+            return republish(live.reloadInPlace(contents));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Loads new contents from a file into this configuration, changing only what differs from what it holds now.
+     *
+     * @param path The file to load, read as UTF-8.
+     * @return The paths that were added, removed or changed, or whose comments changed.
+     * @throws IOException If the file cannot be read.
+     * @throws InvalidConfigurationException If the contents are not a valid configuration.
+     * @see HoconConfiguration#reloadInPlace(Path)
+     */
+    @NotNull
+    public Set<String> reloadInPlace(@NotNull final Path path) throws IOException, InvalidConfigurationException {
+        writeLock.lock();
+        try {
+            return republish(live.reloadInPlace(path));
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @NotNull
+    @Override
+    public String saveToString() {
+        return snapshot().saveToString();
+    }
+
+    /**
+     * Saves the current snapshot of this configuration to the given writer.
+     *
+     * @param writer The writer to save the configuration to.
+     * @throws IOException If the writer fails.
+     * @see Snapshot#save(Writer)
+     */
+    public void save(@NotNull final Writer writer) throws IOException {
+        snapshot().save(writer);
+    }
+
+    /**
+     * Saves the current snapshot of this configuration to the given path using UTF-8, creating any missing parent
+     * directories.
+     *
+     * @param path The path to save the configuration to.
+     * @throws IOException If the file cannot be written.
+     * @see HoconConfiguration#save(Path)
+     */
+    public void save(@NotNull final Path path) throws IOException {
+        final Snapshot snapshot = snapshot();
+        SaveQueue.save(path, out -> {
+            MetricsRecorder metrics = MetricsRecorder.start(snapshot.values.metricsListener(),
+                    OperationMetrics.Type.SAVE, path);
+            try (Writer writer = HoconConfiguration.newWriter(metrics != null ? metrics.track(out) : out)) {
+                snapshot.save(writer, metrics);
+            }
+            if (metrics != null) {
+                metrics.finish();
+            }
+        });
+    }
+
+    @Override
+    public void save(@NotNull final File file) throws IOException {
+        save(file.toPath());
+    }
+
+    /**
+     * Saves the current snapshot of this configuration to the given path in the background.
+     *
+     * @param path The path to save the configuration to.
+     * @return A future completed once the file holds this state or a later one.
+     * @see #saveAsync(Path, Executor)
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync(@NotNull final Path path) {
+        return saveAsync(path, SaveQueue.defaultExecutor());
+    }
+
+    /**
+     * Saves the current snapshot of this configuration to the given path in the background. Unlike
+     * {@link HoconConfiguration#saveAsync(Path, Executor)} nothing needs to be copied first, as snapshots never change.
+     *
+     * @param path The path to save the configuration to.
+     * @param executor Runs the save.
+     * @return A future completed once the file holds this state or a later one, or completed exceptionally if the
+     *         save fails.
+     * @see HoconConfiguration#saveAsync(Path, Executor)
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync(@NotNull final Path path, @NotNull final Executor executor) {
+        final Snapshot snapshot = snapshot();
+        return SaveQueue.submit(path, out -> {
+            MetricsRecorder metrics = MetricsRecorder.start(snapshot.values.metricsListener(),
+                    OperationMetrics.Type.SAVE, path);
+            try (Writer writer = HoconConfiguration.newWriter(metrics != null ? metrics.track(out) : out)) {
+                snapshot.save(writer, metrics);
+            }
+            if (metrics != null) {
+                metrics.finish();
+            }
+        }, executor);
+    }
+
+    @NotNull
+    private Snapshot publish(@NotNull final Node root, @NotNull final CommentTree comments) {
+        final Snapshot snapshot = new Snapshot(root, comments, live.getDefaults(), live.options());
+        if (updating == Thread.currentThread()) {
+            pending = snapshot;
+        } else {
+            published = snapshot;
+        }
+        return snapshot;
+    }
+
+    /**
+     * Publishes the whole private configuration.
+     */
+    private void publishAll() {
+        publish(nodeOf(live), live.comments().copy());
+    }
+
+    /**
+     * Publishes what the private configuration holds at a path, copying the sections leading to it.
+     */
+    private void republish(@NotNull final String path) {
+        final Snapshot current = snapshot();
+        final Object value = live.get(path, null);
+        publish(current.root.with(path, 0, options().pathSeparator(), value != null ? view(value) : null),
+                current.comments);
+    }
+
+    @NotNull
+    private Set<String> republish(@NotNull final Set<String> changed) {
+        if (!changed.isEmpty()) {
+            final Snapshot current = snapshot();
+            final char separator = options().pathSeparator();
+            Node root = current.root;
+            for (String path : changed) {
+                final Object value = live.get(path, null);
+                root = root.with(path, 0, separator, value != null ? view(value) : null);
+            }
+            publish(root, live.comments().copy());
+        }
+        return changed;
+    }
+
+    @NotNull
+    private ConfigurationSection liveSection(@NotNull final String path) {
+        final char separator = options().pathSeparator();
+        ConfigurationSection section = this;
+        int start = 0;
+        int end;
+        while ((end = path.indexOf(separator, start)) >= 0) {
+            section = new LiveSection(section, path.substring(start, end));
+            start = end + 1;
+        }
+        return new LiveSection(section, path.substring(start));
+    }
+
+    /**
+     * Copies lists and maps about to be set, so they cannot be changed from the outside.
+     */
+    @Nullable
+    static Object copy(@Nullable final Object value) {
+        if (value instanceof NumericList) {
+            return value;
+        } else if (value instanceof List) {
+            final List<Object> copy = new ArrayList<>(((List<?>) value).size());
+            for (Object element : (List<?>) value) {
+                copy.add(copy(element));
+            }
+            return copy;
+        } else if (value instanceof Map) {
+            final Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) value).entrySet()) {
+                copy.put(entry.getKey(), copy(entry.getValue()));
+            }
+            return copy;
+        }
+        return value;
+    }
+
+    /**
+     * Returns a value of the private configuration as it is kept in a snapshot: sections as nodes and lists and maps
+     * as read only views, which are only copied if they hold other lists, maps or sections.
+     */
+    @Nullable
+    private static Object view(@Nullable final Object value) {
+        if (value instanceof ConfigurationSection) {
+            return nodeOf((ConfigurationSection) value);
+        } else if (value instanceof NumericList) {
+            return value;
+        } else if (value instanceof List) {
+            final List<?> list = (List<?>) value;
+            if (!holdsContainers(list)) {
+                return Collections.unmodifiableList(list);
+            }
+            final List<Object> copy = new ArrayList<>(list.size());
+            for (Object element : list) {
+                copy.add(view(element));
+            }
+            return Collections.unmodifiableList(copy);
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            if (!holdsContainers(map.values())) {
+                return Collections.unmodifiableMap(map);
+            }
+            final Map<Object, Object> copy = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), view(entry.getValue()));
+            }
+            return Collections.unmodifiableMap(copy);
+        }
+        return value;
+    }
+
+    private static boolean holdsContainers(@NotNull final Iterable<?> values) {
+        for (Object value : values) {
+            if (value instanceof List || value instanceof Map || value instanceof ConfigurationSection) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Takes a snapshot of the values set directly in a section, leaving out defaults.
+     */
+    @NotNull
+    private static Node nodeOf(@NotNull final ConfigurationSection section) {
+        final Map<String, Object> values = new LinkedHashMap<>();
+        for (String key : section.getKeys(false)) {
+            final Object value = section.get(key, null);
+            if (value != null) {
+                values.put(key, view(value));
+            }
+        }
+        return values.isEmpty() ? Node.EMPTY : new Node(values);
+    }
+
+    // -- Reading from nodes, shared by the configuration, snapshots and their sections
+
+    @Nullable
+    private static Object get(@NotNull final ConfigurationSection section, @Nullable final Node node,
+                              final String path, final Object def, @NotNull final SectionFactory sections) {
+        if (path == null) {
+            throw new IllegalArgumentException("Path cannot be null");
+        }
+        if (path.isEmpty()) {
+            return section;
+        }
+        if (node == null) {
+            return def;
+        }
+        final char separator = section.getRoot().options().pathSeparator();
+        final Object value = node.find(path, separator);
+        if (value == null) {
+            return def;
+        } else if (!(value instanceof Node)) {
+            return value;
+        }
+
+        ConfigurationSection result = section;
+        Node parent = node;
+        int start = 0;
+        int end;
+        do {
+            end = path.indexOf(separator, start);
+            final String key = end >= 0 ? path.substring(start, end) : path.substring(start);
+            parent = (Node) parent.values.get(key);
+            result = sections.create(result, key, parent);
+            start = end + 1;
+        } while (end >= 0);
+        return result;
+    }
+
+    @NotNull
+    private static Set<String> keys(@NotNull final ConfigurationSection section, @Nullable final Node node,
+                                     final boolean deep) {
+        final Set<String> result = new LinkedHashSet<>();
+        if (section.getRoot().options().copyDefaults()) {
+            final ConfigurationSection defaults = section.getDefaultSection();
+            if (defaults != null) {
+                result.addAll(defaults.getKeys(deep));
+            }
+        }
+        if (node != null) {
+            node.collectKeys(result, null, section.getRoot().options().pathSeparator(), deep);
+        }
+        return result;
+    }
+
+    @NotNull
+    private static Map<String, Object> values(@NotNull final ConfigurationSection section, @Nullable final Node node,
+                                              final boolean deep, @NotNull final SectionFactory sections) {
+        final Map<String, Object> result = new LinkedHashMap<>();
+        if (section.getRoot().options().copyDefaults()) {
+            final ConfigurationSection defaults = section.getDefaultSection();
+            if (defaults != null) {
+                result.putAll(defaults.getValues(deep));
+            }
+        }
+        if (node != null) {
+            collectValues(result, section, node, null, section.getRoot().options().pathSeparator(), deep, sections);
+        }
+        return result;
+    }
+
+    private static void collectValues(@NotNull final Map<String, Object> out,
+                                      @NotNull final ConfigurationSection section, @NotNull final Node node,
+                                      @Nullable final String prefix, final char separator, final boolean deep,
+                                      @NotNull final SectionFactory sections) {
+        for (Map.Entry<String, Object> entry : node.values.entrySet()) {
+            final String path = prefix == null ? entry.getKey() : prefix + separator + entry.getKey();
+            final Object value = entry.getValue();
+            if (value instanceof Node) {
+                final ConfigurationSection child = sections.create(section, entry.getKey(), (Node) value);
+                out.put(path, child);
+                if (deep) {
+                    collectValues(out, child, (Node) value, path, separator, true, sections);
+                }
+            } else {
+                out.put(path, value);
+            }
+        }
+    }
+
+    @NotNull
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Snapshots cannot be changed");
+    }
+
+    /**
+     * Creates the section objects handed out for the nodes of a snapshot.
+     */
+    @FunctionalInterface
+    private interface SectionFactory {
+        @NotNull
+        ConfigurationSection create(@NotNull ConfigurationSection parent, @NotNull String key, @NotNull Node node);
+    }
+
+    private static final SectionFactory SNAPSHOT_SECTIONS = SnapshotSection::new;
+
+    /**
+     * The values of a section in a snapshot, with nested sections as nodes. Never changed once created, so unchanged
+     * nodes are shared between snapshots.
+     */
+    static final class Node {
+
+        static final Node EMPTY = new Node(Collections.emptyMap());
+
+        final Map<String, Object> values;
+
+        Node(@NotNull final Map<String, Object> values) {
+            this.values = values;
+        }
+
+        @Nullable
+        Object find(@NotNull final String path, final char separator) {
+            Node node = this;
+            int start = 0;
+            int end;
+            while ((end = path.indexOf(separator, start)) >= 0) {
+                final Object child = node.values.get(path.substring(start, end));
+                if (!(child instanceof Node)) {
+                    return null;
+                }
+                node = (Node) child;
+                start = end + 1;
+            }
+            return node.values.get(path.substring(start));
+        }
+
+        @Nullable
+        Node nodeAt(@NotNull final String path, final char separator) {
+            if (path.isEmpty()) {
+                return this;
+            }
+            final Object node = find(path, separator);
+            return node instanceof Node ? (Node) node : null;
+        }
+
+        /**
+         * Returns a copy of this node with the value at a path replaced, creating or replacing the sections leading
+         * to it like {@link MemorySection#set(String, Object)} does.
+         *
+         * @param value The new value, or null to remove it.
+         */
+        @NotNull
+        Node with(@NotNull final String path, final int start, final char separator, @Nullable final Object value) {
+            final int end = path.indexOf(separator, start);
+            final Map<String, Object> values = new LinkedHashMap<>(this.values);
+            if (end < 0) {
+                final String key = path.substring(start);
+                if (value == null) {
+                    if (values.remove(key) == null) {
+                        return this;
+                    }
+                } else {
+                    values.put(key, value);
+                }
+            } else {
+                final String key = path.substring(start, end);
+                Object child = values.get(key);
+                if (!(child instanceof Node)) {
+                    if (value == null) {
+                        return this;
+                    }
+                    child = EMPTY;
+                }
+                values.put(key, ((Node) child).with(path, end + 1, separator, value));
+            }
+            return new Node(values);
+        }
+
+        void collectKeys(@NotNull final Set<String> out, @Nullable final String prefix, final char separator,
+                         final boolean deep) {
+            for (Map.Entry<String, Object> entry : values.entrySet()) {
+                final String path = prefix == null ? entry.getKey() : prefix + separator + entry.getKey();
+                out.add(path);
+                if (deep && entry.getValue() instanceof Node) {
+                    ((Node) entry.getValue()).collectKeys(out, path, separator, true);
+                }
+            }
+        }
+    }
+
+    /**
+     * The state of a {@link ConcurrentHoconConfiguration} at one point in time.
+     *
+     * A snapshot never changes and can be read from any thread. Setting values, creating sections or changing the
+     * defaults of it or of its sections throws {@link UnsupportedOperationException}.
+     */
+    public static final class Snapshot extends MemoryConfiguration {
+
+        private final Node root;
+        private final CommentTree comments;
+        private final HoconConfigurationOptions values;
+
+        Snapshot(@NotNull final Node root, @NotNull final CommentTree comments, @Nullable final Configuration defaults,
+                 @NotNull final HoconConfigurationOptions values) {
+            super(defaults);
+            this.root = root;
+            this.comments = comments;
+            this.values = values.copy();
+            this.options = new Options(this, this.values);
+        }
+
+        @Override
+        public Object get(final String path, final Object def) {
+            return ConcurrentHoconConfiguration.get(this, root, path, def, SNAPSHOT_SECTIONS);
+        }
+
+        @Override
+        public Set<String> getKeys(final boolean deep) {
+            return keys(this, root, deep);
+        }
+
+        @Override
+        public Map<String, Object> getValues(final boolean deep) {
+            return values(this, root, deep, SNAPSHOT_SECTIONS);
+        }
+
+        @Override
+        public void set(final String path, final Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path) {
+            throw readOnly();
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path, final Map<?, ?> map) {
+            throw readOnly();
+        }
+
+        @Override
+        public void addDefault(final String path, final Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public void addDefaults(final Map<String, Object> defaults) {
+            throw readOnly();
+        }
+
+        @Override
+        public void addDefaults(final Configuration defaults) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDefaults(final Configuration defaults) {
+            throw readOnly();
+        }
+
+        /**
+         * {@inheritDoc}
+         *
+         * These are a copy of the options of the configuration when this snapshot was taken. Changing them only changes
+         * how this snapshot is read and saved.
+         */
+        @Override
+        public Options options() {
+            return (Options) options;
+        }
+
+        /**
+         * Gets the comments for a given path.
+         *
+         * @param path The config path to retrieve the comments of.
+         * @return The comments for the given path, or an empty list if no comments.
+         */
+        @NotNull
+        public List<String> getComments(@NotNull final String path) {
+            return comments.get(path, values.pathSeparator());
+        }
+
+        /**
+         * Renders this snapshot as hocon.
+         *
+         * @return The rendered configuration.
+         */
+        @NotNull
+        public String saveToString() {
+            StringWriter writer = new StringWriter();
+            try {
+                save(writer);
+            } catch (IOException e) {
+                throw new IllegalStateException(e); // StringWriter does not throw
+            }
+            return writer.toString();
+        }
+
+        /**
+         * Saves this snapshot to the given writer, which is flushed but not closed.
+         *
+         * @param writer The writer to save the snapshot to.
+         * @throws IOException If the writer fails.
+         */
+        public void save(@NotNull final Writer writer) throws IOException {
+            MetricsRecorder metrics = MetricsRecorder.start(values.metricsListener(), OperationMetrics.Type.SAVE, null);
+            // buffered so the many small writes of rendering are timed as a few large ones
+            save(metrics != null ? new BufferedWriter(metrics.track(writer)) : writer, metrics);
+            if (metrics != null) {
+                metrics.finish();
+            }
+        }
+
+        void save(@NotNull final Writer writer, @Nullable final MetricsRecorder metrics) throws IOException {
+            HoconConfiguration.write(writer, getValues(false), null, comments, values, null, metrics);
+        }
+
+        /**
+         * Options class for {@link Snapshot}, holding a copy of the options of the configuration when the snapshot was
+         * taken.
+         *
+         * The options of {@link FileConfigurationOptions} can be set and only change how this snapshot is read and
+         * saved. The other options can only be read.
+         */
+        public static final class Options extends FileConfigurationOptions {
+
+            private final HoconConfigurationOptions values;
+
+            Options(@NotNull final Snapshot snapshot, @NotNull final HoconConfigurationOptions values) {
+                super(snapshot);
+                this.values = values;
+                super.copyDefaults(values.copyDefaults());
+                super.pathSeparator(values.pathSeparator());
+                super.header(values.header());
+                super.copyHeader(values.copyHeader());
+            }
+
+            @Override
+            public Snapshot configuration() {
+                return (Snapshot) super.configuration();
+            }
+
+            @Override
+            public Options copyDefaults(final boolean value) {
+                super.copyDefaults(value);
+                values.copyDefaults(value);
+                return this;
+            }
+
+            @Override
+            public Options pathSeparator(final char value) {
+                super.pathSeparator(value);
+                values.pathSeparator(value);
+                return this;
+            }
+
+            @Override
+            public Options header(final String value) {
+                super.header(value);
+                values.header(value);
+                return this;
+            }
+
+            @Override
+            public Options copyHeader(final boolean value) {
+                super.copyHeader(value);
+                values.copyHeader(value);
+                return this;
+            }
+
+            /**
+             * Returns the render options.
+             * See {@link HoconConfigurationOptions#renderOptions()}.
+             *
+             * @return the render options.
+             */
+            public ConfigRenderOptions renderOptions() {
+                return values.renderOptions();
+            }
+
+            /**
+             * Returns how comments are captured when loading.
+             * See {@link HoconConfigurationOptions#commentMode()}.
+             *
+             * @return how comments are captured when loading.
+             */
+            @NotNull
+            public CommentMode commentMode() {
+                return values.commentMode();
+            }
+
+            /**
+             * Returns how deep sections may be nested to have their rendered text kept between saves.
+             * See {@link HoconConfigurationOptions#renderCacheDepth()}.
+             *
+             * @return how deep sections may be nested to have their rendered text kept between saves.
+             */
+            public int renderCacheDepth() {
+                return values.renderCacheDepth();
+            }
+
+            /**
+             * Returns whether sections are built lazily on first use.
+             * See {@link HoconConfigurationOptions#lazySections()}.
+             *
+             * @return whether sections are built lazily on first use.
+             */
+            public boolean lazySections() {
+                return values.lazySections();
+            }
+
+            /**
+             * Returns whether loaded numeric lists are kept in primitive arrays.
+             * See {@link HoconConfigurationOptions#compactNumericLists()}.
+             *
+             * @return whether loaded numeric lists are kept in primitive arrays.
+             */
+            public boolean compactNumericLists() {
+                return values.compactNumericLists();
+            }
+
+            /**
+             * Returns how wide a section must be to be rendered in parallel.
+             * See {@link HoconConfigurationOptions#parallelSaveThreshold()}.
+             *
+             * @return how wide a section must be to be rendered in parallel.
+             */
+            public int parallelSaveThreshold() {
+                return values.parallelSaveThreshold();
+            }
+
+            /**
+             * Returns the pool sections are rendered in parallel on.
+             * See {@link HoconConfigurationOptions#parallelSavePool()}.
+             *
+             * @return the pool sections are rendered in parallel on.
+             */
+            @Nullable
+            public ForkJoinPool parallelSavePool() {
+                return values.parallelSavePool();
+            }
+
+            /**
+             * Returns whether files are loaded from a binary snapshot sidecar.
+             * See {@link HoconConfigurationOptions#snapshotSidecar()}.
+             *
+             * @return whether files are loaded from a binary snapshot sidecar.
+             */
+            public boolean snapshotSidecar() {
+                return values.snapshotSidecar();
+            }
+
+            /**
+             * Returns whether strict json is loaded straight into sections.
+             * See {@link HoconConfigurationOptions#jsonFastPath()}.
+             *
+             * @return whether strict json is loaded straight into sections.
+             */
+            public boolean jsonFastPath() {
+                return values.jsonFastPath();
+            }
+
+            /**
+             * Returns whether nested reads go through a flat path index.
+             * See {@link HoconConfigurationOptions#flatPathIndex()}.
+             *
+             * @return whether nested reads go through a flat path index.
+             */
+            public boolean flatPathIndex() {
+                return values.flatPathIndex();
+            }
+
+            /**
+             * Returns how often journaled changes are forced to disk.
+             * See {@link HoconConfigurationOptions#journalSyncInterval()}.
+             *
+             * @return how often journaled changes are forced to disk.
+             */
+            public long journalSyncInterval() {
+                return values.journalSyncInterval();
+            }
+
+            /**
+             * Returns how large the journal may grow before it is compacted.
+             * See {@link HoconConfigurationOptions#journalCompactionThreshold()}.
+             *
+             * @return how large the journal may grow before it is compacted.
+             */
+            public long journalCompactionThreshold() {
+                return values.journalCompactionThreshold();
+            }
+
+            /**
+             * Returns the listener that receives load and save metrics.
+             * See {@link HoconConfigurationOptions#metricsListener()}.
+             *
+             * @return the listener that receives load and save metrics.
+             */
+            @Nullable
+            public MetricsListener metricsListener() {
+                return values.metricsListener();
+            }
+        }
+    }
+
+    /**
+     * A section of a snapshot.
+     */
+    private static final class SnapshotSection extends MemorySection {
+
+        private final Node node;
+
+        SnapshotSection(@NotNull final ConfigurationSection parent, @NotNull final String key,
+                        @NotNull final Node node) {
+            super(parent, key);
+            this.node = node;
+        }
+
+        @Override
+        public Object get(final String path, final Object def) {
+            return ConcurrentHoconConfiguration.get(this, node, path, def, SNAPSHOT_SECTIONS);
+        }
+
+        @Override
+        public Set<String> getKeys(final boolean deep) {
+            return keys(this, node, deep);
+        }
+
+        @Override
+        public Map<String, Object> getValues(final boolean deep) {
+            return values(this, node, deep, SNAPSHOT_SECTIONS);
+        }
+
+        @Override
+        public void set(final String path, final Object value) {
+            throw readOnly();
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path) {
+            throw readOnly();
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path, final Map<?, ?> map) {
+            throw readOnly();
+        }
+    }
+
+    /**
+     * A section of this configuration by path, reading from the latest snapshot and writing through to the
+     * configuration. It keeps pointing at its path if the section there is removed or replaced.
+     */
+    private final class LiveSection extends MemorySection {
+
+        LiveSection(@NotNull final ConfigurationSection parent, @NotNull final String key) {
+            super(parent, key);
+        }
+
+        @Nullable
+        private Node node() {
+            return snapshot().root.nodeAt(getCurrentPath(), options().pathSeparator());
+        }
+
+        @Override
+        public Object get(final String path, final Object def) {
+            if (path == null) {
+                throw new IllegalArgumentException("Path cannot be null");
+            }
+            return path.isEmpty() ? this : ConcurrentHoconConfiguration.this.get(createPath(this, path), def);
+        }
+
+        @Override
+        public Set<String> getKeys(final boolean deep) {
+            return keys(this, node(), deep);
+        }
+
+        @Override
+        public Map<String, Object> getValues(final boolean deep) {
+            return values(this, node(), deep, liveSections);
+        }
+
+        @Override
+        public void set(final String path, final Object value) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("Cannot set to an empty path");
+            }
+            ConcurrentHoconConfiguration.this.set(createPath(this, path), value);
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("Cannot create section at empty path");
+            }
+            return ConcurrentHoconConfiguration.this.createSection(createPath(this, path));
+        }
+
+        @Override
+        public ConfigurationSection createSection(final String path, final Map<?, ?> map) {
+            if (path == null || path.isEmpty()) {
+                throw new IllegalArgumentException("Cannot create section at empty path");
+            }
+            return ConcurrentHoconConfiguration.this.createSection(createPath(this, path), map);
+        }
+    }
+}
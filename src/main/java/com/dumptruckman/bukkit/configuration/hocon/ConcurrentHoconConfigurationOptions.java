@@ -0,0 +1,384 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.typesafe.config.ConfigRenderOptions;
+import org.bukkit.configuration.file.FileConfigurationOptions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Options class for {@link ConcurrentHoconConfiguration}, holding the same options as
+ * {@link HoconConfigurationOptions}.
+ *
+ * Setting an option publishes a new snapshot of the configuration under its lock, so snapshots taken afterwards use
+ * it and those taken before do not.
+ */
+public class ConcurrentHoconConfigurationOptions extends FileConfigurationOptions {
+
+    private final HoconConfigurationOptions values;
+
+    ConcurrentHoconConfigurationOptions(@NotNull final ConcurrentHoconConfiguration configuration,
+                                        @NotNull final HoconConfigurationOptions values) {
+        super(configuration);
+        this.values = values;
+        super.copyDefaults(values.copyDefaults());
+        super.pathSeparator(values.pathSeparator());
+        super.header(values.header());
+        super.copyHeader(values.copyHeader());
+    }
+
+    @Override
+    public ConcurrentHoconConfiguration configuration() {
+        return (ConcurrentHoconConfiguration) super.configuration();
+    }
+
+    /**
+     * Returns the options of the private configuration changes are applied to, which these options are kept in.
+     */
+    @NotNull
+    HoconConfigurationOptions values() {
+        return values;
+    }
+
+    @Override
+    public ConcurrentHoconConfigurationOptions copyDefaults(final boolean value) {
+        super.copyDefaults(value);
+        values.copyDefaults(value);
+        changed();
+        return this;
+    }
+
+    @Override
+    public ConcurrentHoconConfigurationOptions pathSeparator(final char value) {
+        super.pathSeparator(value);
+        values.pathSeparator(value);
+        changed();
+        return this;
+    }
+
+    @Override
+    public ConcurrentHoconConfigurationOptions header(final String value) {
+        super.header(value);
+        values.header(value);
+        changed();
+        return this;
+    }
+
+    @Override
+    public ConcurrentHoconConfigurationOptions copyHeader(final boolean value) {
+        super.copyHeader(value);
+        values.copyHeader(value);
+        changed();
+        return this;
+    }
+
+    /**
+     * Sets the render options.
+     * See {@link HoconConfigurationOptions#renderOptions(ConfigRenderOptions)}.
+     *
+     * @param renderOptions the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions renderOptions(ConfigRenderOptions renderOptions) {
+        values.renderOptions(renderOptions);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns the render options.
+     * See {@link HoconConfigurationOptions#renderOptions()}.
+     *
+     * @return the render options.
+     */
+    public ConfigRenderOptions renderOptions() {
+        return values.renderOptions();
+    }
+
+    /**
+     * Sets how comments are captured when loading.
+     * See {@link HoconConfigurationOptions#commentMode(CommentMode)}.
+     *
+     * @param commentMode the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions commentMode(@NotNull CommentMode commentMode) {
+        values.commentMode(commentMode);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns how comments are captured when loading.
+     * See {@link HoconConfigurationOptions#commentMode()}.
+     *
+     * @return how comments are captured when loading.
+     */
+    @NotNull
+    public CommentMode commentMode() {
+        return values.commentMode();
+    }
+
+    /**
+     * Sets how deep sections may be nested to have their rendered text kept between saves.
+     * See {@link HoconConfigurationOptions#renderCacheDepth(int)}.
+     *
+     * @param renderCacheDepth the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions renderCacheDepth(int renderCacheDepth) {
+        values.renderCacheDepth(renderCacheDepth);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns how deep sections may be nested to have their rendered text kept between saves.
+     * See {@link HoconConfigurationOptions#renderCacheDepth()}.
+     *
+     * @return how deep sections may be nested to have their rendered text kept between saves.
+     */
+    public int renderCacheDepth() {
+        return values.renderCacheDepth();
+    }
+
+    /**
+     * Sets whether sections are built lazily on first use.
+     * See {@link HoconConfigurationOptions#lazySections(boolean)}.
+     *
+     * @param lazySections the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions lazySections(boolean lazySections) {
+        values.lazySections(lazySections);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns whether sections are built lazily on first use.
+     * See {@link HoconConfigurationOptions#lazySections()}.
+     *
+     * @return whether sections are built lazily on first use.
+     */
+    public boolean lazySections() {
+        return values.lazySections();
+    }
+
+    /**
+     * Sets whether loaded numeric lists are kept in primitive arrays.
+     * See {@link HoconConfigurationOptions#compactNumericLists(boolean)}.
+     *
+     * @param compactNumericLists the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions compactNumericLists(boolean compactNumericLists) {
+        values.compactNumericLists(compactNumericLists);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns whether loaded numeric lists are kept in primitive arrays.
+     * See {@link HoconConfigurationOptions#compactNumericLists()}.
+     *
+     * @return whether loaded numeric lists are kept in primitive arrays.
+     */
+    public boolean compactNumericLists() {
+        return values.compactNumericLists();
+    }
+
+    /**
+     * Sets how wide a section must be to be rendered in parallel.
+     * See {@link HoconConfigurationOptions#parallelSaveThreshold(int)}.
+     *
+     * @param parallelSaveThreshold the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions parallelSaveThreshold(int parallelSaveThreshold) {
+        values.parallelSaveThreshold(parallelSaveThreshold);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns how wide a section must be to be rendered in parallel.
+     * See {@link HoconConfigurationOptions#parallelSaveThreshold()}.
+     *
+     * @return how wide a section must be to be rendered in parallel.
+     */
+    public int parallelSaveThreshold() {
+        return values.parallelSaveThreshold();
+    }
+
+    /**
+     * Sets the pool sections are rendered in parallel on.
+     * See {@link HoconConfigurationOptions#parallelSavePool(ForkJoinPool)}.
+     *
+     * @param parallelSavePool the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions parallelSavePool(@Nullable ForkJoinPool parallelSavePool) {
+        values.parallelSavePool(parallelSavePool);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns the pool sections are rendered in parallel on.
+     * See {@link HoconConfigurationOptions#parallelSavePool()}.
+     *
+     * @return the pool sections are rendered in parallel on.
+     */
+    @Nullable
+    public ForkJoinPool parallelSavePool() {
+        return values.parallelSavePool();
+    }
+
+    /**
+     * Sets whether files are loaded from a binary snapshot sidecar.
+     * See {@link HoconConfigurationOptions#snapshotSidecar(boolean)}.
+     *
+     * @param snapshotSidecar the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions snapshotSidecar(boolean snapshotSidecar) {
+        values.snapshotSidecar(snapshotSidecar);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns whether files are loaded from a binary snapshot sidecar.
+     * See {@link HoconConfigurationOptions#snapshotSidecar()}.
+     *
+     * @return whether files are loaded from a binary snapshot sidecar.
+     */
+    public boolean snapshotSidecar() {
+        return values.snapshotSidecar();
+    }
+
+    /**
+     * Sets whether strict json is loaded straight into sections.
+     * See {@link HoconConfigurationOptions#jsonFastPath(boolean)}.
+     *
+     * @param jsonFastPath the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions jsonFastPath(boolean jsonFastPath) {
+        values.jsonFastPath(jsonFastPath);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns whether strict json is loaded straight into sections.
+     * See {@link HoconConfigurationOptions#jsonFastPath()}.
+     *
+     * @return whether strict json is loaded straight into sections.
+     */
+    public boolean jsonFastPath() {
+        return values.jsonFastPath();
+    }
+
+    /**
+     * Sets whether nested reads go through a flat path index.
+     * See {@link HoconConfigurationOptions#flatPathIndex(boolean)}.
+     *
+     * @param flatPathIndex the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions flatPathIndex(boolean flatPathIndex) {
+        values.flatPathIndex(flatPathIndex);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns whether nested reads go through a flat path index.
+     * See {@link HoconConfigurationOptions#flatPathIndex()}.
+     *
+     * @return whether nested reads go through a flat path index.
+     */
+    public boolean flatPathIndex() {
+        return values.flatPathIndex();
+    }
+
+    /**
+     * Sets how often journaled changes are forced to disk.
+     * See {@link HoconConfigurationOptions#journalSyncInterval(long)}.
+     *
+     * @param journalSyncInterval the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions journalSyncInterval(long journalSyncInterval) {
+        values.journalSyncInterval(journalSyncInterval);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns how often journaled changes are forced to disk.
+     * See {@link HoconConfigurationOptions#journalSyncInterval()}.
+     *
+     * @return how often journaled changes are forced to disk.
+     */
+    public long journalSyncInterval() {
+        return values.journalSyncInterval();
+    }
+
+    /**
+     * Sets how large the journal may grow before it is compacted.
+     * See {@link HoconConfigurationOptions#journalCompactionThreshold(long)}.
+     *
+     * @param journalCompactionThreshold the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions journalCompactionThreshold(long journalCompactionThreshold) {
+        values.journalCompactionThreshold(journalCompactionThreshold);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns how large the journal may grow before it is compacted.
+     * See {@link HoconConfigurationOptions#journalCompactionThreshold()}.
+     *
+     * @return how large the journal may grow before it is compacted.
+     */
+    public long journalCompactionThreshold() {
+        return values.journalCompactionThreshold();
+    }
+
+    /**
+     * Sets the listener that receives load and save metrics.
+     * See {@link HoconConfigurationOptions#metricsListener(MetricsListener)}.
+     *
+     * @param metricsListener the new value.
+     * @return This options for chaining.
+     */
+    public ConcurrentHoconConfigurationOptions metricsListener(@Nullable MetricsListener metricsListener) {
+        values.metricsListener(metricsListener);
+        changed();
+        return this;
+    }
+
+    /**
+     * Returns the listener that receives load and save metrics.
+     * See {@link HoconConfigurationOptions#metricsListener()}.
+     *
+     * @return the listener that receives load and save metrics.
+     */
+    @Nullable
+    public MetricsListener metricsListener() {
+        return values.metricsListener();
+    }
+
+    private void changed() {
+        configuration().optionsChanged();
+    }
+}
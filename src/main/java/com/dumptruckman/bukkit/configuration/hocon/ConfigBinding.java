@@ -0,0 +1,414 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Typed values of a configuration, created by {@link HoconConfiguration#bind(Class)}.
+ *
+ * The bound type is either a class with a constructor without parameters whose fields annotated with
+ * {@link ConfigPath} are set, or an interface whose methods are all annotated accessors without parameters. Every
+ * value is read and converted once, into a new instance that {@link #get()} returns until the configuration is loaded
+ * again, so reading a bound field is a plain field load. Instances are never changed once built: a reload builds a new
+ * one and swaps it in whole, so code holding on to an instance always sees the values of a single load. Lists are
+ * copied, but other values are the ones the configuration holds, so a bound {@link ConfigurationSection} is the live
+ * section and shows later changes to it.
+ *
+ * Members may be primitives or their wrappers, strings, enums, lists of strings, booleans or numbers, other lists, or
+ * any type the stored value is an instance of, such as {@link ConfigurationSection} or a serialized object. Values
+ * are converted the way the typed getters of the configuration convert them, using its defaults. Fields of paths
+ * without a value of the right type keep the value the constructor gave them, accessors return zero, false or null.
+ */
+public final class ConfigBinding<T> {
+
+    private static final Logger LOG = Logger.getLogger(HoconConfiguration.class.getName());
+    private static final Object MISSING = new Object();
+
+    private final HoconConfiguration config;
+    private final Class<T> type;
+    private final String prefix;
+    private final Member[] members;
+    /**
+     * Creates the instances of a bound class, or null if the bound type is an interface.
+     */
+    @Nullable
+    private final MethodHandle constructor;
+
+    private volatile T current;
+    private volatile boolean cancelled;
+
+    private ConfigBinding(@NotNull final HoconConfiguration config, @NotNull final Class<T> type,
+                          @NotNull final Member[] members, @Nullable final MethodHandle constructor) {
+        this.config = config;
+        this.type = type;
+        final ConfigPath path = type.getAnnotation(ConfigPath.class);
+        this.prefix = path != null ? path.value() : "";
+        this.members = members;
+        this.constructor = constructor;
+    }
+
+    @NotNull
+    static <T> ConfigBinding<T> create(@NotNull final HoconConfiguration config, @NotNull final Class<T> type) {
+        final ConfigBinding<T> binding;
+        if (type.isInterface()) {
+            binding = new ConfigBinding<>(config, type, accessors(type), null);
+        } else {
+            binding = new ConfigBinding<>(config, type, fields(type), constructor(type));
+        }
+        binding.refresh();
+        return binding;
+    }
+
+    /**
+     * Returns the instance holding the values of the configuration as of the last load.
+     *
+     * @return The current instance.
+     */
+    @NotNull
+    public T get() {
+        return current;
+    }
+
+    /**
+     * Returns the bound type.
+     *
+     * @return The bound type.
+     */
+    @NotNull
+    public Class<T> getType() {
+        return type;
+    }
+
+    /**
+     * Reads every value from the configuration again into a new instance. Loading the configuration does this by
+     * itself, this is only needed to see values changed with {@code set}.
+     *
+     * @throws IllegalStateException If the instance cannot be created.
+     */
+    public void refresh() {
+        final char separator = config.options().pathSeparator();
+        final Object[] values = new Object[members.length];
+        for (int i = 0; i < members.length; i++) {
+            final String path = prefix.isEmpty() ? members[i].path : prefix + separator + members[i].path;
+            values[i] = members[i].read(config, path);
+        }
+        current = constructor != null ? instantiate(values) : proxy(values);
+    }
+
+    /**
+     * Stops refreshing the values when the configuration is loaded. {@link #get()} keeps returning the last instance.
+     */
+    public void cancel() {
+        cancelled = true;
+        config.unbind(this);
+    }
+
+    /**
+     * Returns whether this binding was cancelled.
+     *
+     * @return True if {@link #cancel()} was called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    @NotNull
+    private T instantiate(@NotNull final Object[] values) {
+        try {
+            final T instance = type.cast((Object) constructor.invokeExact());
+            for (int i = 0; i < members.length; i++) {
+                if (values[i] != MISSING) {
+                    members[i].setter.invokeExact((Object) instance, values[i]);
+                }
+            }
+            return instance;
+        } catch (Throwable e) {
+            throw new IllegalStateException("Could not create " + type.getName(), e);
+        }
+    }
+
+    @NotNull
+    private T proxy(@NotNull final Object[] values) {
+        final Map<Method, Object> byMethod = new LinkedHashMap<>(members.length * 2);
+        for (int i = 0; i < members.length; i++) {
+            byMethod.put(members[i].accessor, values[i] != MISSING ? values[i] : members[i].missing);
+        }
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type},
+                new Values(type, byMethod)));
+    }
+
+    /**
+     * Answers the accessors of a bound interface from the values read for one instance.
+     */
+    private static final class Values implements InvocationHandler {
+
+        private final Class<?> type;
+        private final Map<Method, Object> values;
+
+        Values(@NotNull final Class<?> type, @NotNull final Map<Method, Object> values) {
+            this.type = type;
+            this.values = values;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) {
+            final Object value = values.get(method);
+            if (value != null || values.containsKey(method)) {
+                return value;
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    final Map<String, Object> byName = new LinkedHashMap<>();
+                    for (Map.Entry<Method, Object> entry : values.entrySet()) {
+                        byName.put(entry.getKey().getName(), entry.getValue());
+                    }
+                    return type.getSimpleName() + byName;
+                default:
+                    throw new UnsupportedOperationException(method.toString());
+            }
+        }
+    }
+
+    // Finding the members
+
+    @NotNull
+    private static Member[] accessors(@NotNull final Class<?> type) {
+        final List<Member> members = new ArrayList<>();
+        for (Method method : type.getMethods()) {
+            if (Modifier.isStatic(method.getModifiers())) {
+                continue;
+            }
+            final ConfigPath path = method.getAnnotation(ConfigPath.class);
+            if (path == null || method.isDefault() || method.getParameterCount() != 0
+                    || method.getReturnType() == void.class) {
+                throw new IllegalArgumentException("Cannot bind " + method
+                        + ", every method must be an accessor annotated with @ConfigPath");
+            }
+            final Member member = new Member(method, path.value(), method.getReturnType(),
+                    method.getGenericReturnType());
+            member.accessor = method;
+            members.add(member);
+        }
+        return members.toArray(new Member[0]);
+    }
+
+    @NotNull
+    private static Member[] fields(@NotNull final Class<?> type) {
+        final List<Member> members = new ArrayList<>();
+        final MethodHandles.Lookup lookup = MethodHandles.lookup();
+        for (Class<?> declaring = type; declaring != Object.class; declaring = declaring.getSuperclass()) {
+            for (Field field : declaring.getDeclaredFields()) {
+                final ConfigPath path = field.getAnnotation(ConfigPath.class);
+                if (path == null) {
+                    continue;
+                }
+                if (Modifier.isStatic(field.getModifiers()) || Modifier.isFinal(field.getModifiers())) {
+                    throw new IllegalArgumentException("Cannot bind " + field + ", it is static or final");
+                }
+                final Member member = new Member(field, path.value(), field.getType(), field.getGenericType());
+                try {
+                    field.setAccessible(true);
+                    member.setter = lookup.unreflectSetter(field)
+                            .asType(MethodType.methodType(void.class, Object.class, Object.class));
+                } catch (IllegalAccessException | RuntimeException e) {
+                    throw new IllegalArgumentException("Cannot bind " + field, e);
+                }
+                members.add(member);
+            }
+        }
+        return members.toArray(new Member[0]);
+    }
+
+    @NotNull
+    private static MethodHandle constructor(@NotNull final Class<?> type) {
+        if (Modifier.isAbstract(type.getModifiers())) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName() + ", it is abstract");
+        }
+        try {
+            final Constructor<?> constructor = type.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup().unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Cannot bind " + type.getName()
+                    + ", it needs a constructor without parameters", e);
+        }
+    }
+
+    // Reading the values
+
+    private enum Kind {
+        INT, LONG, DOUBLE, FLOAT, SHORT, BYTE, BOOLEAN, STRING, ENUM,
+        INTEGER_LIST, LONG_LIST, DOUBLE_LIST, FLOAT_LIST, SHORT_LIST, BYTE_LIST, BOOLEAN_LIST, STRING_LIST, LIST,
+        INSTANCE
+    }
+
+    /**
+     * A bound field or accessor and how its value is read.
+     */
+    private static final class Member {
+
+        private final String path;
+        private final Class<?> type;
+        private final Kind kind;
+        /**
+         * What an accessor returns if the path has no value of its type.
+         */
+        @Nullable
+        private final Object missing;
+        @Nullable
+        private MethodHandle setter;
+        @Nullable
+        private Method accessor;
+
+        Member(@NotNull final Object source, @NotNull final String path, @NotNull final Class<?> type,
+               @NotNull final Type genericType) {
+            if (type == char.class) {
+                throw new IllegalArgumentException("Cannot bind " + source + ", char is not supported");
+            }
+            this.path = path;
+            this.type = type;
+            this.kind = kindOf(type, genericType);
+            this.missing = type.isPrimitive() ? Array.get(Array.newInstance(type, 1), 0) : null;
+        }
+
+        @Nullable
+        Object read(@NotNull final HoconConfiguration config, @NotNull final String path) {
+            final Object value = config.get(path);
+            if (value == null) {
+                return MISSING;
+            }
+            switch (kind) {
+                case INT:
+                    return value instanceof Number ? (Object) ((Number) value).intValue() : MISSING;
+                case LONG:
+                    return value instanceof Number ? (Object) ((Number) value).longValue() : MISSING;
+                case DOUBLE:
+                    return value instanceof Number ? (Object) ((Number) value).doubleValue() : MISSING;
+                case FLOAT:
+                    return value instanceof Number ? (Object) ((Number) value).floatValue() : MISSING;
+                case SHORT:
+                    return value instanceof Number ? (Object) ((Number) value).shortValue() : MISSING;
+                case BYTE:
+                    return value instanceof Number ? (Object) ((Number) value).byteValue() : MISSING;
+                case BOOLEAN:
+                    return value instanceof Boolean ? value : MISSING;
+                case STRING:
+                    return value instanceof ConfigurationSection ? MISSING : value.toString();
+                case ENUM:
+                    return enumValue(value.toString(), path);
+                case INTEGER_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getIntegerList(path)) : MISSING;
+                case LONG_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getLongList(path)) : MISSING;
+                case DOUBLE_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getDoubleList(path)) : MISSING;
+                case FLOAT_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getFloatList(path)) : MISSING;
+                case SHORT_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getShortList(path)) : MISSING;
+                case BYTE_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getByteList(path)) : MISSING;
+                case BOOLEAN_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getBooleanList(path)) : MISSING;
+                case STRING_LIST:
+                    return value instanceof List ? Collections.unmodifiableList(config.getStringList(path)) : MISSING;
+                case LIST:
+                    return value instanceof List
+                            ? Collections.unmodifiableList(new ArrayList<>((List<?>) value)) : MISSING;
+                default:
+                    return type.isInstance(value) ? value : MISSING;
+            }
+        }
+
+        @NotNull
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private Object enumValue(@NotNull final String name, @NotNull final String path) {
+            try {
+                return Enum.valueOf((Class<? extends Enum>) type, name);
+            } catch (IllegalArgumentException e) {
+                LOG.log(Level.WARNING, "Ignoring " + name + " at " + path + ", it is not a " + type.getSimpleName());
+                return MISSING;
+            }
+        }
+
+        @NotNull
+        private static Kind kindOf(@NotNull final Class<?> type, @NotNull final Type genericType) {
+            if (type == int.class || type == Integer.class) {
+                return Kind.INT;
+            } else if (type == long.class || type == Long.class) {
+                return Kind.LONG;
+            } else if (type == double.class || type == Double.class) {
+                return Kind.DOUBLE;
+            } else if (type == float.class || type == Float.class) {
+                return Kind.FLOAT;
+            } else if (type == short.class || type == Short.class) {
+                return Kind.SHORT;
+            } else if (type == byte.class || type == Byte.class) {
+                return Kind.BYTE;
+            } else if (type == boolean.class || type == Boolean.class) {
+                return Kind.BOOLEAN;
+            } else if (type == String.class) {
+                return Kind.STRING;
+            } else if (type.isEnum()) {
+                return Kind.ENUM;
+            } else if (type == List.class) {
+                return listKind(genericType);
+            }
+            return Kind.INSTANCE;
+        }
+
+        @NotNull
+        private static Kind listKind(@NotNull final Type genericType) {
+            if (!(genericType instanceof ParameterizedType)) {
+                return Kind.LIST;
+            }
+            final Type element = ((ParameterizedType) genericType).getActualTypeArguments()[0];
+            if (element == Integer.class) {
+                return Kind.INTEGER_LIST;
+            } else if (element == Long.class) {
+                return Kind.LONG_LIST;
+            } else if (element == Double.class) {
+                return Kind.DOUBLE_LIST;
+            } else if (element == Float.class) {
+                return Kind.FLOAT_LIST;
+            } else if (element == Short.class) {
+                return Kind.SHORT_LIST;
+            } else if (element == Byte.class) {
+                return Kind.BYTE_LIST;
+            } else if (element == Boolean.class) {
+                return Kind.BOOLEAN_LIST;
+            } else if (element == String.class) {
+                return Kind.STRING_LIST;
+            }
+            return Kind.LIST;
+        }
+    }
+}
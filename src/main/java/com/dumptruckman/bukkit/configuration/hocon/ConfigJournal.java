@@ -0,0 +1,500 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.CommentTree;
+import com.dumptruckman.bukkit.configuration.util.HoconWriter;
+import com.dumptruckman.bukkit.configuration.util.NioFiles;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Keeps a {@link HoconConfiguration} durable by appending every change to a journal next to its file instead of
+ * saving the whole file each time. Opened with {@link HoconConfiguration#openJournal(Path)}.
+ *
+ * Every value set, section created, value removed and comment changed through the configuration or its sections is
+ * appended to a file of the same name ending in {@code .journal}, along with values reported through
+ * {@link HoconConfiguration#markChanged(String)}. Appends are written to the file right away and forced to disk
+ * together at most every {@link HoconConfigurationOptions#journalSyncInterval()} milliseconds, or on each change if
+ * that is 0. Once the journal grows past {@link HoconConfigurationOptions#journalCompactionThreshold()} bytes it is
+ * compacted: the whole configuration is saved to its file and the journal starts over.
+ *
+ * The journal starts with the hash of the file it applies to, and every change in it carries its own checksum.
+ * Opening a journal loads the file and replays the changes after it, up to the first one that was cut short or
+ * damaged, such as one being appended during a crash. A journal whose hash does not match the file, because the
+ * process died while compacting, is already part of the file and is dropped. The file itself is only ever replaced by
+ * moving a fully written copy over it.
+ *
+ * Changes are journaled under the path of the section they are made in. A section that is also held somewhere else,
+ * set at a second path or in a list, is journaled by appending the whole value set there again each time the section or
+ * anything in it changes, so sharing a large section makes each change to it append as much. Changes to a section that
+ * was removed and is not held anywhere else are not journaled.
+ *
+ * Loading or reloading the configuration while a journal is open is not journaled; call {@link #compact()} after it.
+ * Saving the configuration to its file, with {@link HoconConfiguration#save(Path)} or
+ * {@link HoconConfiguration#saveAsync(Path)}, compacts the journal, as the journal would not match the saved file.
+ * Comments on paths that hold no value are dropped by compacting, just as they are by saving.
+ * If a change cannot be appended, the method making it throws an {@link UncheckedIOException} after making the change
+ * in memory.
+ */
+public final class ConfigJournal implements Closeable {
+
+    private static final Logger LOG = Logger.getLogger(HoconConfiguration.class.getName());
+
+    static final String SUFFIX = ".journal";
+
+    static final int MAGIC = 0x48434A4E;
+    static final int VERSION = 1;
+
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 4 + 2 + HASH_LENGTH + 4;
+    private static final int RECORD_HEADER_LENGTH = 4 + 4;
+
+    private static final byte SET = 1;
+    private static final byte REMOVE = 2;
+    private static final byte SECTION = 3;
+    private static final byte COMMENTS = 4;
+
+    private static final ConfigRenderOptions VALUE_RENDER_OPTIONS = ConfigRenderOptions.concise();
+    private static final String VALUE_KEY = "v";
+
+    private final HoconConfiguration config;
+    private final Path path;
+    private final Path journalPath;
+    @Nullable
+    private FileChannel channel;
+    private boolean syncScheduled;
+
+    private ConfigJournal(@NotNull final HoconConfiguration config, @NotNull final Path path) {
+        this.config = config;
+        this.path = path;
+        this.journalPath = path.resolveSibling(path.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Loads a configuration from a file and the journal next to it, and opens the journal for appending.
+     */
+    @NotNull
+    static ConfigJournal open(@NotNull final HoconConfiguration config, @NotNull final Path path)
+            throws IOException, InvalidConfigurationException {
+        final ConfigJournal journal = new ConfigJournal(config, path);
+        final ByteBuffer base;
+        try {
+            base = NioFiles.read(path);
+        } catch (NoSuchFileException e) {
+            journal.openChannel(journal.replay(NioFiles.sha256(ByteBuffer.allocate(0))));
+            return journal;
+        }
+        final byte[] hash = NioFiles.sha256(base);
+        try {
+            final Config hoconConfig = NioFiles.parse(base, path.toString());
+            if (hoconConfig != null) {
+                config.load(hoconConfig, MetricsRecorder.start(config.options().metricsListener(),
+                        OperationMetrics.Type.LOAD, path));
+            }
+        } catch (ConfigException e) {
+            throw new InvalidConfigurationException(e);
+        }
+        journal.openChannel(journal.replay(hash));
+        return journal;
+    }
+
+    /**
+     * Returns the file the journal applies to.
+     *
+     * @return The configuration file.
+     */
+    @NotNull
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns the file changes are appended to.
+     *
+     * @return The journal file.
+     */
+    @NotNull
+    public Path getJournalPath() {
+        return journalPath;
+    }
+
+    /**
+     * Returns how large the journal currently is.
+     *
+     * @return The size of the journal in bytes.
+     * @throws IOException If the journal is closed or its size cannot be read.
+     */
+    public synchronized long size() throws IOException {
+        return openedChannel().size();
+    }
+
+    /**
+     * Forces every change appended so far to disk.
+     *
+     * @throws IOException If the journal is closed or cannot be forced to disk.
+     */
+    public synchronized void flush() throws IOException {
+        openedChannel().force(false);
+    }
+
+    /**
+     * Saves the whole configuration to its file and starts the journal over.
+     *
+     * The configuration is rendered and written next to the file, forced to disk and moved over it, queued with other
+     * saves of the file, then a new empty journal for the new file is moved over the old one the same way.
+     *
+     * @throws IOException If the file or the journal cannot be written.
+     */
+    public synchronized void compact() throws IOException {
+        openedChannel();
+        final byte[] contents = config.saveToString().getBytes(StandardCharsets.UTF_8);
+        SaveQueue.save(path, out -> out.write(contents));
+        startOver(NioFiles.sha256(ByteBuffer.wrap(contents)));
+    }
+
+    /**
+     * Forces the journal to disk and stops journaling changes to the configuration. Closing a closed journal does
+     * nothing.
+     *
+     * @throws IOException If the journal cannot be forced to disk.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        config.detachJournal(this);
+        try {
+            channel.force(false);
+        } finally {
+            channel.close();
+            channel = null;
+        }
+    }
+
+    void recordSet(@NotNull final String path, @Nullable final Object value) {
+        if (value == null) {
+            append(REMOVE, path, null);
+        } else {
+            append(SET, path, render(value));
+        }
+    }
+
+    void recordSection(@NotNull final String path) {
+        append(SECTION, path, null);
+    }
+
+    void recordComments(@NotNull final String path, @NotNull final List<String> comments) {
+        append(COMMENTS, path, comments);
+    }
+
+    @NotNull
+    private String render(@NotNull final Object value) {
+        final StringWriter out = new StringWriter();
+        try {
+            HoconWriter.createHoconWriter(out, VALUE_RENDER_OPTIONS, new CommentTree(),
+                    config.options().pathSeparator()).write(Collections.singletonMap(VALUE_KEY, value));
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        return out.toString();
+    }
+
+    private void append(final byte type, @NotNull final String path, @Nullable final Object data) {
+        final long size;
+        try {
+            synchronized (this) {
+                final FileChannel channel = openedChannel();
+                final ByteBuffer record = ByteBuffer.wrap(encode(type, path, data));
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+                size = channel.size();
+                sync(channel);
+            }
+            if (size > config.options().journalCompactionThreshold()) {
+                compact();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot journal change of " + path + " to " + journalPath, e);
+        }
+    }
+
+    private void sync(@NotNull final FileChannel channel) throws IOException {
+        final long interval = config.options().journalSyncInterval();
+        if (interval <= 0) {
+            channel.force(false);
+        } else if (!syncScheduled) {
+            syncScheduled = true;
+            Syncer.INSTANCE.schedule(this::scheduledSync, interval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void scheduledSync() {
+        syncScheduled = false;
+        if (channel != null) {
+            try {
+                channel.force(false);
+            } catch (IOException e) {
+                LOG.log(Level.WARNING, "Cannot force " + journalPath + " to disk", e);
+            }
+        }
+    }
+
+    @NotNull
+    private FileChannel openedChannel() throws IOException {
+        if (channel == null) {
+            throw new IOException("Journal " + journalPath + " is closed");
+        }
+        return channel;
+    }
+
+    private void openChannel(final long end) throws IOException {
+        channel = FileChannel.open(journalPath, StandardOpenOption.WRITE);
+        channel.truncate(end);
+        channel.position(end);
+    }
+
+    /**
+     * Replaces the journal with an empty one for the file with the given hash.
+     */
+    private void startOver(@NotNull final byte[] hash) throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+        header.putInt(MAGIC).putInt(VERSION).putChar(config.options().pathSeparator()).put(hash);
+        final CRC32 crc = new CRC32();
+        crc.update(header.array(), 0, header.position());
+        header.putInt((int) crc.getValue());
+        replace(journalPath, header.array());
+        openChannel(HEADER_LENGTH);
+    }
+
+    /**
+     * Applies the changes in the journal to the configuration, starting the journal over if it does not belong to the
+     * file with the given hash.
+     *
+     * @return Where the last complete change ends.
+     */
+    private long replay(@NotNull final byte[] hash) throws IOException, InvalidConfigurationException {
+        final byte[] contents;
+        try {
+            contents = Files.readAllBytes(journalPath);
+        } catch (NoSuchFileException e) {
+            startOver(hash);
+            return HEADER_LENGTH;
+        }
+
+        final ByteBuffer in = ByteBuffer.wrap(contents);
+        final CRC32 crc = new CRC32();
+        if (contents.length < HEADER_LENGTH || in.getInt() != MAGIC || in.getInt() != VERSION) {
+            LOG.warning("Starting over unreadable journal " + journalPath);
+            startOver(hash);
+            return HEADER_LENGTH;
+        }
+        final char separator = in.getChar();
+        final byte[] journalHash = new byte[HASH_LENGTH];
+        in.get(journalHash);
+        crc.update(contents, 0, in.position());
+        if ((int) crc.getValue() != in.getInt() || !Arrays.equals(hash, journalHash)) {
+            // written for another version of the file, which it was compacted into
+            startOver(hash);
+            return HEADER_LENGTH;
+        }
+
+        final boolean paused = config.pauseJournal();
+        try {
+            while (in.remaining() >= RECORD_HEADER_LENGTH) {
+                final int start = in.position();
+                final int length = in.getInt();
+                final int checksum = in.getInt();
+                if (length < 0 || length > in.remaining()) {
+                    in.position(start);
+                    break;
+                }
+                crc.reset();
+                crc.update(contents, in.position(), length);
+                if ((int) crc.getValue() != checksum) {
+                    in.position(start);
+                    break;
+                }
+                final ByteBuffer record = ByteBuffer.wrap(contents, in.position(), length).slice();
+                in.position(in.position() + length);
+                apply(record, separator);
+            }
+        } finally {
+            config.resumeJournal(paused);
+        }
+        if (in.hasRemaining()) {
+            LOG.warning("Dropping " + in.remaining() + " bytes of incomplete changes from " + journalPath);
+        }
+        return in.position();
+    }
+
+    private void apply(@NotNull final ByteBuffer record, final char separator) throws InvalidConfigurationException {
+        final byte type = record.get();
+        String path = readString(record);
+        final char currentSeparator = config.options().pathSeparator();
+        if (separator != currentSeparator) {
+            path = path.replace(separator, currentSeparator);
+        }
+        switch (type) {
+            case SET:
+                set(path, readString(record));
+                break;
+            case REMOVE:
+                config.set(path, null);
+                break;
+            case SECTION:
+                config.createSection(path);
+                break;
+            case COMMENTS:
+                final int count = record.getInt();
+                final List<String> comments = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    comments.add(readString(record));
+                }
+                config.setComments(path, comments.toArray(new String[0]));
+                break;
+            default:
+                throw new InvalidConfigurationException("Unknown change " + type + " in " + journalPath);
+        }
+    }
+
+    /**
+     * Sets a value the same way loading it from a file would.
+     */
+    private void set(@NotNull final String path, @NotNull final String rendered) throws InvalidConfigurationException {
+        final ConfigValue value;
+        try {
+            value = ConfigFactory.parseString(rendered).root().get(VALUE_KEY);
+        } catch (ConfigException e) {
+            throw new InvalidConfigurationException(e);
+        }
+        if (value == null) {
+            config.set(path, null);
+        } else if (value.valueType() == ConfigValueType.OBJECT
+                && !((ConfigObject) value).containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+            final ConfigurationSection section = config.createSection(path);
+            config.loadSection((ConfigObject) value, section, false, config.options().pathSeparator());
+        } else {
+            config.set(path, SerializationHelper.deserializeHocon(value, config.options().compactNumericLists()));
+        }
+    }
+
+    @NotNull
+    private static byte[] encode(final byte type, @NotNull final String path, @Nullable final Object data)
+            throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0); // length and checksum, filled in below
+        out.writeInt(0);
+        out.writeByte(type);
+        writeString(out, path);
+        if (data instanceof String) {
+            writeString(out, (String) data);
+        } else if (data instanceof List) {
+            final List<?> comments = (List<?>) data;
+            out.writeInt(comments.size());
+            for (Object comment : comments) {
+                writeString(out, (String) comment);
+            }
+        }
+
+        final byte[] record = bytes.toByteArray();
+        final int length = record.length - RECORD_HEADER_LENGTH;
+        final CRC32 crc = new CRC32();
+        crc.update(record, RECORD_HEADER_LENGTH, length);
+        ByteBuffer.wrap(record).putInt(length).putInt((int) crc.getValue());
+        return record;
+    }
+
+    private static void writeString(@NotNull final DataOutputStream out, @NotNull final String string)
+            throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @NotNull
+    private static String readString(@NotNull final ByteBuffer in) {
+        final int length = in.getInt();
+        final String string = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return string;
+    }
+
+    /**
+     * Writes a file next to the target, forces it to disk and moves it into place, so the target never holds a
+     * partial write.
+     */
+    private static void replace(@NotNull final Path path, @NotNull final byte[] contents) throws IOException {
+        final Path temp = SaveQueue.createTempFile(path);
+        try {
+            try (FileChannel out = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                final ByteBuffer buffer = ByteBuffer.wrap(contents);
+                while (buffer.hasRemaining()) {
+                    out.write(buffer);
+                }
+                out.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static final class Syncer {
+
+        static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "HoconConfiguration-journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,142 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.NioFiles;
+import com.typesafe.config.Config;
+import org.bukkit.configuration.Configuration;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A file being watched for changes, created by {@link HoconConfiguration#watch(Path, ReloadListener)}.
+ *
+ * All watches share a single watcher thread. Changes to the file are debounced, so the burst of writes an editor
+ * makes when saving leads to a single reload once the file has been quiet for a moment, and nothing is reloaded if
+ * the contents hash the same as what was last loaded. If the directory of the file is deleted and does not come back
+ * at once, the watch is cancelled and {@link ReloadListener#reloadFailed(Path, Exception)} called.
+ *
+ * Reloaded configurations use the options and defaults the watched configuration had when the watch was created, and
+ * each gets its own copy of the defaults.
+ */
+public final class ConfigWatch {
+
+    private final Path path;
+    private final long debounceMillis;
+    private final ReloadListener listener;
+    private final HoconConfigurationOptions options;
+    @Nullable
+    private final Configuration defaults;
+
+    @Nullable
+    private byte[] lastHash;
+    private long dueAt;
+    private volatile boolean cancelled;
+
+    ConfigWatch(@NotNull final Path path, final long debounceMillis, @NotNull final ReloadListener listener,
+                @NotNull final HoconConfiguration source) {
+        this.path = path;
+        this.debounceMillis = debounceMillis;
+        this.listener = listener;
+        this.options = source.options().copy();
+        this.defaults = source.getDefaults() != null ? BulkLoader.copyOf(source.getDefaults()) : null;
+        try {
+            this.lastHash = NioFiles.sha256(NioFiles.read(path));
+        } catch (IOException ignore) {
+            // the first version of the file to show up is loaded
+        }
+    }
+
+    /**
+     * Returns the watched file.
+     *
+     * @return The watched file.
+     */
+    @NotNull
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Stops watching the file. A reload already in progress still notifies the listener.
+     */
+    public void cancel() {
+        cancelled = true;
+        ConfigWatcher.get().unregister(this);
+    }
+
+    /**
+     * Returns whether this watch was cancelled.
+     *
+     * @return True if {@link #cancel()} was called.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Stops this watch after its directory could no longer be watched and tells the listener. Called on the watcher
+     * thread.
+     */
+    void lost(@NotNull final IOException e) {
+        cancelled = true;
+        listener.reloadFailed(path, new IOException("Stopped watching " + path
+                + " as its directory can no longer be watched", e));
+    }
+
+    /**
+     * Pushes the reload back to a moment after the latest change. Called on the watcher thread.
+     */
+    void changed(final long now) {
+        dueAt = now + debounceMillis;
+    }
+
+    /**
+     * Returns when the reload is due, or 0 if there is nothing to reload. Called on the watcher thread.
+     */
+    long getDueAt() {
+        return dueAt;
+    }
+
+    /**
+     * Loads the file into a new configuration and hands it to the listener if the contents changed. Called on the
+     * watcher thread.
+     */
+    void reload() {
+        dueAt = 0;
+        if (cancelled) {
+            return;
+        }
+        HoconConfiguration config;
+        try {
+            ByteBuffer bytes = NioFiles.read(path);
+            byte[] hash = NioFiles.sha256(bytes);
+            if (Arrays.equals(hash, lastHash)) {
+                return;
+            }
+            lastHash = hash;
+            config = new HoconConfiguration();
+            options.copyTo(config.options());
+            if (defaults != null) {
+                config.setDefaults(BulkLoader.copyOf(defaults));
+            }
+            Config hoconConfig = NioFiles.parse(bytes, path.toString());
+            if (hoconConfig != null) {
+                config.load(hoconConfig, null);
+            }
+        } catch (NoSuchFileException e) {
+            return; // most likely in the middle of being replaced, the new file will be noticed
+        } catch (IOException | RuntimeException e) {
+            listener.reloadFailed(path, e);
+            return;
+        }
+        listener.reloaded(config);
+    }
+}
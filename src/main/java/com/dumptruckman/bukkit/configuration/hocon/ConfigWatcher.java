@@ -0,0 +1,187 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The single thread watching the files of every {@link ConfigWatch}.
+ *
+ * Directories are registered with the default {@link WatchService} once, no matter how many watched files they hold.
+ * Events for a watched file schedule its reload, and reloads run on this thread once they are due.
+ */
+final class ConfigWatcher implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(HoconConfiguration.class.getName());
+
+    private static ConfigWatcher instance;
+
+    private final WatchService service;
+    private final Map<Path, WatchKey> keys = new HashMap<>();
+    private final Map<WatchKey, List<ConfigWatch>> watches = new HashMap<>();
+
+    private ConfigWatcher(@NotNull final WatchService service) {
+        this.service = service;
+    }
+
+    @NotNull
+    static synchronized ConfigWatcher get() {
+        if (instance == null) {
+            try {
+                instance = new ConfigWatcher(FileSystems.getDefault().newWatchService());
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot watch files", e);
+            }
+            Thread thread = new Thread(instance, "HoconConfiguration-watcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+        return instance;
+    }
+
+    synchronized void register(@NotNull final ConfigWatch watch) throws IOException {
+        Path directory = watch.getPath().getParent();
+        WatchKey key = keys.get(directory);
+        if (key == null) {
+            key = directory.register(service, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+            keys.put(directory, key);
+        }
+        watches.computeIfAbsent(key, k -> new ArrayList<>()).add(watch);
+    }
+
+    synchronized void unregister(@NotNull final ConfigWatch watch) {
+        Path directory = watch.getPath().getParent();
+        WatchKey key = keys.get(directory);
+        List<ConfigWatch> list = key != null ? watches.get(key) : null;
+        if (list != null && list.remove(watch) && list.isEmpty()) {
+            watches.remove(key);
+            keys.remove(directory);
+            key.cancel();
+        }
+    }
+
+    @Override
+    public void run() {
+        List<ConfigWatch> due = new ArrayList<>();
+        Map<ConfigWatch, IOException> lost = new LinkedHashMap<>();
+        while (true) {
+            try {
+                long next = nextDueAt();
+                WatchKey key;
+                if (next == 0) {
+                    key = service.take();
+                } else {
+                    long wait = next - System.currentTimeMillis();
+                    key = wait > 0 ? service.poll(wait, TimeUnit.MILLISECONDS) : service.poll();
+                }
+                while (key != null) {
+                    handle(key, lost);
+                    key = service.poll();
+                }
+                collectDue(due);
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            for (Map.Entry<ConfigWatch, IOException> entry : lost.entrySet()) {
+                try {
+                    entry.getKey().lost(entry.getValue());
+                } catch (RuntimeException e) {
+                    LOG.log(Level.SEVERE, "Exception while stopping the watch of " + entry.getKey().getPath(), e);
+                }
+            }
+            lost.clear();
+            for (ConfigWatch watch : due) {
+                try {
+                    watch.reload();
+                } catch (RuntimeException e) {
+                    LOG.log(Level.SEVERE, "Exception while reloading " + watch.getPath(), e);
+                }
+            }
+            due.clear();
+        }
+    }
+
+    private synchronized void handle(@NotNull final WatchKey key, @NotNull final Map<ConfigWatch, IOException> lost) {
+        long now = System.currentTimeMillis();
+        List<ConfigWatch> list = watches.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (list == null) {
+                continue;
+            }
+            for (ConfigWatch watch : list) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW
+                        || watch.getPath().getFileName().equals(event.context())) {
+                    watch.changed(now);
+                }
+            }
+        }
+        if (!key.reset()) {
+            reregister(key, lost);
+        }
+    }
+
+    /**
+     * Registers the watches of a key that is no longer valid again, as happens when their directory was deleted. The
+     * files are reloaded if they changed meanwhile. Watches whose directory cannot be watched anymore are put in lost.
+     */
+    private void reregister(@NotNull final WatchKey key, @NotNull final Map<ConfigWatch, IOException> lost) {
+        keys.remove((Path) key.watchable(), key);
+        List<ConfigWatch> list = watches.remove(key);
+        if (list == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (ConfigWatch watch : list) {
+            try {
+                register(watch);
+                watch.changed(now);
+            } catch (IOException e) {
+                lost.put(watch, e);
+            }
+        }
+    }
+
+    private synchronized long nextDueAt() {
+        long next = 0;
+        for (List<ConfigWatch> list : watches.values()) {
+            for (ConfigWatch watch : list) {
+                long dueAt = watch.getDueAt();
+                if (dueAt != 0 && (next == 0 || dueAt < next)) {
+                    next = dueAt;
+                }
+            }
+        }
+        return next;
+    }
+
+    private synchronized void collectDue(@NotNull final List<ConfigWatch> due) {
+        long now = System.currentTimeMillis();
+        for (List<ConfigWatch> list : watches.values()) {
+            for (ConfigWatch watch : list) {
+                long dueAt = watch.getDueAt();
+                if (dueAt != 0 && dueAt <= now) {
+                    due.add(watch);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Adds up the metrics of a {@link HoconConfiguration} and publishes them as a {@link HoconConfigurationMXBean}.
+ */
+public final class ConfigurationMetrics implements HoconConfigurationMXBean, MetricsListener {
+
+    private static final String DOMAIN = "com.dumptruckman.bukkit.configuration";
+
+    /**
+     * Starts collecting the metrics of a configuration and registers them with the platform MBean server under
+     * {@code com.dumptruckman.bukkit.configuration:type=HoconConfiguration,name=<name>}.
+     *
+     * The metrics listener already set on the configuration keeps receiving metrics.
+     *
+     * @param config The configuration to collect metrics for.
+     * @param name The name to register the metrics under, unique among registered configurations.
+     * @return The registered metrics.
+     * @throws IllegalArgumentException If the name is invalid or already taken.
+     */
+    @NotNull
+    public static ConfigurationMetrics register(@NotNull final HoconConfiguration config, @NotNull final String name) {
+        ObjectName objectName;
+        try {
+            objectName = new ObjectName(DOMAIN + ":type=HoconConfiguration,name=" + ObjectName.quote(name));
+        } catch (MalformedObjectNameException e) {
+            throw new IllegalArgumentException("Invalid name " + name, e);
+        }
+        ConfigurationMetrics metrics = new ConfigurationMetrics(config, objectName, config.options().metricsListener());
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(metrics, objectName);
+        } catch (InstanceAlreadyExistsException e) {
+            throw new IllegalArgumentException("Metrics are already registered as " + name, e);
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+        config.options().metricsListener(metrics);
+        return metrics;
+    }
+
+    private final HoconConfiguration config;
+    private final ObjectName objectName;
+    @Nullable
+    private final MetricsListener next;
+
+    private final AtomicLong loadCount = new AtomicLong();
+    private final AtomicLong saveCount = new AtomicLong();
+    private final AtomicLong totalLoadNanos = new AtomicLong();
+    private final AtomicLong totalSaveNanos = new AtomicLong();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private final AtomicLong allocatedBytes = new AtomicLong();
+    private final AtomicLongArray phaseNanos = new AtomicLongArray(OperationMetrics.Phase.values().length);
+    private volatile OperationMetrics lastLoad;
+    private volatile OperationMetrics lastSave;
+
+    private ConfigurationMetrics(@NotNull final HoconConfiguration config, @NotNull final ObjectName objectName,
+                                 @Nullable final MetricsListener next) {
+        this.config = config;
+        this.objectName = objectName;
+        this.next = next;
+    }
+
+    /**
+     * Removes the metrics from the MBean server and stops collecting them, putting back the listener that was set
+     * before.
+     */
+    public void unregister() {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (InstanceNotFoundException ignore) {
+            // already gone
+        } catch (JMException e) {
+            throw new IllegalStateException(e);
+        }
+        if (config.options().metricsListener() == this) {
+            config.options().metricsListener(next);
+        }
+    }
+
+    /**
+     * Returns the name the metrics are registered under.
+     *
+     * @return The object name.
+     */
+    @NotNull
+    public ObjectName getObjectName() {
+        return objectName;
+    }
+
+    @Override
+    public void recorded(@NotNull final OperationMetrics metrics) {
+        if (metrics.getType() == OperationMetrics.Type.LOAD) {
+            loadCount.incrementAndGet();
+            totalLoadNanos.addAndGet(metrics.getTotalNanos());
+            bytesRead.addAndGet(metrics.getBytes());
+            lastLoad = metrics;
+        } else {
+            saveCount.incrementAndGet();
+            totalSaveNanos.addAndGet(metrics.getTotalNanos());
+            bytesWritten.addAndGet(metrics.getBytes());
+            lastSave = metrics;
+        }
+        if (metrics.getAllocatedBytes() < 0) {
+            allocatedBytes.set(-1);
+        } else if (allocatedBytes.get() >= 0) {
+            allocatedBytes.addAndGet(metrics.getAllocatedBytes());
+        }
+        for (OperationMetrics.Phase phase : OperationMetrics.Phase.values()) {
+            phaseNanos.addAndGet(phase.ordinal(), metrics.getNanos(phase));
+        }
+        if (next != null) {
+            next.recorded(metrics);
+        }
+    }
+
+    @Override
+    public long getLoadCount() {
+        return loadCount.get();
+    }
+
+    @Override
+    public long getSaveCount() {
+        return saveCount.get();
+    }
+
+    @Override
+    public long getTotalLoadNanos() {
+        return totalLoadNanos.get();
+    }
+
+    @Override
+    public long getTotalSaveNanos() {
+        return totalSaveNanos.get();
+    }
+
+    @Override
+    public long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    @Override
+    public long getAllocatedBytes() {
+        return allocatedBytes.get();
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanos() {
+        Map<String, Long> result = new LinkedHashMap<>();
+        for (OperationMetrics.Phase phase : OperationMetrics.Phase.values()) {
+            result.put(phase.name(), phaseNanos.get(phase.ordinal()));
+        }
+        return result;
+    }
+
+    @Override
+    public String getLastLoad() {
+        OperationMetrics metrics = lastLoad;
+        return metrics != null ? metrics.toString() : "";
+    }
+
+    @Override
+    public String getLastSave() {
+        OperationMetrics metrics = lastSave;
+        return metrics != null ? metrics.toString() : "";
+    }
+
+    @Override
+    public void reset() {
+        loadCount.set(0);
+        saveCount.set(0);
+        totalLoadNanos.set(0);
+        totalSaveNanos.set(0);
+        bytesRead.set(0);
+        bytesWritten.set(0);
+        allocatedBytes.set(0);
+        for (int i = 0; i < phaseNanos.length(); i++) {
+            phaseNanos.set(i, 0);
+        }
+        lastLoad = null;
+        lastSave = null;
+    }
+}
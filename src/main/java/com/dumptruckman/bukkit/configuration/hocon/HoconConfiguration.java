@@ -4,26 +4,47 @@
 package com.dumptruckman.bukkit.configuration.hocon;
 
 import com.dumptruckman.bukkit.configuration.SerializableSet;
+import com.dumptruckman.bukkit.configuration.util.CommentTree;
+import com.dumptruckman.bukkit.configuration.util.FragmentCache;
+import com.dumptruckman.bukkit.configuration.util.HoconWriter;
+import com.dumptruckman.bukkit.configuration.util.NioFiles;
+import com.dumptruckman.bukkit.configuration.util.NumericList;
 import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
 import com.typesafe.config.Config;
+import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigFactory;
 import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigRenderOptions;
 import com.typesafe.config.ConfigValue;
 import com.typesafe.config.ConfigValueType;
 import org.bukkit.configuration.Configuration;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.MemorySection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.serialization.ConfigurationSerialization;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -36,24 +57,194 @@ public class HoconConfiguration extends FileConfiguration {
 
     protected static final String COMMENT_PREFIX = "# ";
     protected static final String BLANK_CONFIG = "{}\n";
+    protected static final long DEFAULT_WATCH_DEBOUNCE_MILLIS = 250;
 
     private static final Logger LOG = Logger.getLogger(HoconConfiguration.class.getName());
 
-    private Map<String, List<String>> allComments = new HashMap<>();
+    private final CommentTree allComments = new CommentTree();
+    private final List<ConfigObject> pendingComments = new ArrayList<>();
+
+    private final FragmentCache renderCache = new SectionRenderCache();
+    private Object renderStamp = new Object();
+    private ConfigRenderOptions stampedRenderOptions;
+    private char stampedPathSeparator;
+
+    @Nullable
+    private Map<String, Object> pathIndex;
+    private char indexSeparator;
+
+    @Nullable
+    private ConfigJournal journal;
+    private boolean journalPaused;
+    // values set at these paths hold sections, which may also be held elsewhere and change from there
+    private final Map<String, Object> journalSharedValues = new HashMap<>();
+
+    private final List<ConfigBinding<?>> bindings = new CopyOnWriteArrayList<>();
 
     @NotNull
     @Override
     public String saveToString() {
-        ConfigValue hoconConfig = SerializationHelper
-                .createSerializationHelper(allComments, options.pathSeparator())
-                .buildHoconConfig(getValues(false));
-        String dump = hoconConfig.render(options().renderOptions());
+        StringWriter writer = new StringWriter();
+        try {
+            save(writer);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringWriter does not throw
+        }
+        return writer.toString();
+    }
 
-        if (dump.equals(BLANK_CONFIG)) {
-            dump = "";
+    /**
+     * Saves this configuration to the given writer.
+     *
+     * The hocon is rendered incrementally straight from the section tree according to
+     * {@link HoconConfigurationOptions#renderOptions()}, so no copy of the whole configuration is ever held in memory.
+     * The writer is flushed but not closed.
+     *
+     * @param writer The writer to save the configuration to.
+     * @throws IOException If the writer fails.
+     */
+    public void save(@NotNull final Writer writer) throws IOException {
+        MetricsRecorder metrics = MetricsRecorder.start(options().metricsListener(), OperationMetrics.Type.SAVE, null);
+        // buffered so the many small writes of rendering are timed as a few large ones
+        save(metrics != null ? new BufferedWriter(metrics.track(writer)) : writer, metrics);
+        if (metrics != null) {
+            metrics.finish();
         }
+    }
 
-        return dump;
+    private void save(@NotNull final Writer writer, @Nullable final MetricsRecorder metrics) throws IOException {
+        CommentTree comments = comments();
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.COMMENTS);
+        }
+        FragmentCache cache = options().renderCacheDepth() > 0 ? renderCache : null;
+        write(writer, getValues(false), this, comments, options(), cache, metrics);
+    }
+
+    /**
+     * Writes the given values, which are those of the given owner unless that is null. Sections are only written from
+     * the cache if the owner is given.
+     */
+    static void write(@NotNull final Writer writer, @NotNull final Map<?, ?> values,
+                      @Nullable final ConfigurationSection owner, @NotNull final CommentTree comments,
+                      @NotNull final HoconConfigurationOptions options, @Nullable final FragmentCache cache,
+                      @Nullable final MetricsRecorder metrics) throws IOException {
+        if (values.isEmpty() && options.renderOptions().getFormatted()) {
+            return; // would be BLANK_CONFIG
+        }
+        HoconWriter hoconWriter = HoconWriter.createHoconWriter(writer, options.renderOptions(), comments,
+                options.pathSeparator(), cache);
+        if (options.parallelSaveThreshold() > 0) {
+            hoconWriter.parallel(options.parallelSavePool(), options.parallelSaveThreshold());
+        }
+        if (owner != null) {
+            hoconWriter.write(values, owner);
+        } else {
+            hoconWriter.write(values);
+        }
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.RENDER);
+            metrics.addValues(hoconWriter.getValueCount());
+        }
+    }
+
+    @NotNull
+    static Writer newWriter(@NotNull final OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Saves this configuration to the given path using UTF-8, creating any missing parent directories.
+     *
+     * The save is queued with the saves made by {@link #saveAsync(Path, Executor)}, so one of those requested earlier
+     * never overwrites it, and like them it is written next to the target first and then moved in place. This waits
+     * until the file is written.
+     *
+     * Saving to the file of the open journal compacts the journal instead, see {@link ConfigJournal#compact()}.
+     *
+     * @param path The path to save the configuration to.
+     * @throws IOException If the file cannot be written.
+     */
+    public void save(@NotNull final Path path) throws IOException {
+        final ConfigJournal journal = journalOf(path);
+        if (journal != null) {
+            journal.compact();
+            return;
+        }
+        SaveQueue.save(path, out -> {
+            MetricsRecorder metrics = MetricsRecorder.start(options().metricsListener(), OperationMetrics.Type.SAVE,
+                    path);
+            try (Writer writer = newWriter(metrics != null ? metrics.track(out) : out)) {
+                save(writer, metrics);
+            }
+            if (metrics != null) {
+                metrics.finish();
+            }
+        });
+    }
+
+    @Override
+    public void save(@NotNull final File file) throws IOException {
+        save(file.toPath());
+    }
+
+    /**
+     * Saves this configuration to the given path in the background.
+     *
+     * @param path The path to save the configuration to.
+     * @return A future completed once the file holds this state or a later one.
+     * @see #saveAsync(Path, Executor)
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync(@NotNull final Path path) {
+        return saveAsync(path, SaveQueue.defaultExecutor());
+    }
+
+    /**
+     * Saves this configuration to the given path in the background.
+     *
+     * A snapshot of the values and comments is taken right away on the calling thread, which is cheap compared to a
+     * full save: {@link org.bukkit.configuration.serialization.ConfigurationSerializable}s are serialized and
+     * sections, maps and lists are copied, but nothing is rendered. Rendering and writing happen on the executor, and
+     * the configuration can be changed freely as soon as this returns.
+     *
+     * Saves of the same file never run at the same time. Saves requested while one is already waiting collapse into
+     * a single write of the latest snapshot. The file is written next to the target first and then moved in place, so
+     * it never holds a partial save.
+     *
+     * Saving to the file of the open journal compacts the journal on the calling thread instead, as the journal has to
+     * start over at the moment the saved state is taken. See {@link ConfigJournal#compact()}.
+     *
+     * @param path The path to save the configuration to.
+     * @param executor Runs the save.
+     * @return A future completed once the file holds this state or a later one, or completed exceptionally if the
+     *         save fails.
+     */
+    @NotNull
+    public CompletableFuture<Void> saveAsync(@NotNull final Path path, @NotNull final Executor executor) {
+        final ConfigJournal journal = journalOf(path);
+        if (journal != null) {
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            try {
+                journal.compact();
+                future.complete(null);
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+            return future;
+        }
+        final Map<?, ?> values = (Map<?, ?>) SerializationHelper.snapshot(getValues(false));
+        final CommentTree comments = comments().copy();
+        final HoconConfigurationOptions options = options().copy();
+        return SaveQueue.submit(path, out -> {
+            MetricsRecorder metrics = MetricsRecorder.start(options.metricsListener(), OperationMetrics.Type.SAVE, path);
+            try (Writer writer = newWriter(metrics != null ? metrics.track(out) : out)) {
+                write(writer, values, null, comments, options, null, metrics);
+            }
+            if (metrics != null) {
+                metrics.finish();
+            }
+        }, executor);
     }
 
     @Override
@@ -62,45 +253,895 @@ public class HoconConfiguration extends FileConfiguration {
             return;
         }
 
+        MetricsRecorder metrics = MetricsRecorder.start(options().metricsListener(), OperationMetrics.Type.LOAD, null);
+        if (metrics != null) {
+            metrics.addChars(contents);
+        }
+        if (jsonFastPath() && JsonLoader.startsLikeJson(contents)) {
+            final char[] chars = contents.toCharArray();
+            if (JsonLoader.load(this, chars, 0, chars.length, metrics)) {
+                return;
+            }
+        }
         Config hoconConfig = ConfigFactory.parseString(contents);
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.PARSE);
+        }
+        load(hoconConfig, metrics);
+    }
+
+    /**
+     * Loads this configuration from the given path using UTF-8.
+     *
+     * Unlike {@link #load(java.io.Reader)} the file is never held as a single string: it is read through a
+     * {@link java.nio.channels.FileChannel} into a buffer reused for large files and parsed straight from the decoded
+     * chars. If the {@link SharedParseCache} is enabled and already holds the file, it is not read or parsed at all.
+     * With {@link HoconConfigurationOptions#snapshotSidecar()} enabled, the file is loaded from its snapshot instead
+     * when that still matches it. Otherwise, with {@link HoconConfigurationOptions#jsonFastPath()} enabled, files that
+     * are strict json are built straight from the decoded chars.
+     *
+     * @param path The path to load the configuration from.
+     * @throws IOException If the file cannot be read.
+     * @throws InvalidConfigurationException If the contents are not a valid configuration.
+     */
+    public void load(@NotNull final Path path) throws IOException, InvalidConfigurationException {
+        MetricsRecorder metrics = MetricsRecorder.start(options().metricsListener(), OperationMetrics.Type.LOAD, path);
+        final Config hoconConfig;
+        if (options().snapshotSidecar()) {
+            hoconConfig = SnapshotSidecar.parse(path, metrics);
+        } else if (jsonFastPath() && SharedParseCache.getInstance().capacity() == 0) {
+            ByteBuffer bytes = NioFiles.read(path);
+            if (metrics != null) {
+                metrics.addBytes(bytes.remaining());
+                metrics.mark(OperationMetrics.Phase.READ);
+            }
+            CharBuffer chars = NioFiles.decodeUtf8(bytes);
+            if (JsonLoader.load(this, chars.array(), chars.arrayOffset() + chars.position(),
+                    chars.arrayOffset() + chars.limit(), metrics)) {
+                return;
+            }
+            hoconConfig = NioFiles.parse(chars, path.toString());
+            if (metrics != null) {
+                metrics.mark(OperationMetrics.Phase.PARSE);
+            }
+        } else {
+            hoconConfig = SharedParseCache.getInstance().parse(path, metrics);
+        }
+        if (hoconConfig != null) {
+            load(hoconConfig, metrics);
+        } else if (metrics != null) {
+            metrics.finish();
+        }
+    }
+
+    @Override
+    public void load(@NotNull final File file) throws IOException, InvalidConfigurationException {
+        try {
+            load(file.toPath());
+        } catch (NoSuchFileException e) {
+            FileNotFoundException notFound = new FileNotFoundException(file.getPath());
+            notFound.initCause(e);
+            throw notFound;
+        }
+    }
+
+    /**
+     * Returns whether strict json may be loaded by the {@link JsonLoader}, which has no parsed objects to defer
+     * sections to.
+     */
+    private boolean jsonFastPath() {
+        return options().jsonFastPath() && !options().lazySections();
+    }
+
+    void load(@NotNull Config hoconConfig, @Nullable final MetricsRecorder metrics) {
         hoconConfig = hoconConfig.resolve();
-        Map<String, Object> unwrapped = hoconConfig.root().unwrapped();
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.RESOLVE);
+        }
 
-        convertMapsToSections(unwrapped, this);
-        loadComments(hoconConfig.root(), "");
+        pathIndex(); // built now so that it is kept up while loading
+        final boolean paused = pauseJournal();
+        try {
+            loadSection(hoconConfig.root(), this);
+        } finally {
+            resumeJournal(paused);
+        }
+        renderStamp = new Object(); // loaded comments may belong to sections that were already rendered
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.BUILD);
+            metrics.addValues(hoconConfig.root());
+            metrics.finish();
+        }
+        refreshBindings();
     }
 
-    private void loadComments(@NotNull ConfigValue value, @NotNull String currentPath) {
-        List<String> comments = value.origin().comments();
-        if (!comments.isEmpty()) {
-            allComments.put(currentPath, comments);
+    /**
+     * Loads new contents into this configuration, changing only what differs from what it holds now.
+     *
+     * The contents are parsed in full before anything is touched, so invalid contents leave the configuration as it
+     * was. Keys that are missing from the new contents are removed, new keys are added and values are only replaced
+     * if they differ. Sections that still exist are kept and updated in place, so references to them held elsewhere
+     * stay valid, and untouched values keep their identity. Comments are replaced by those of the new contents unless
+     * {@link HoconConfigurationOptions#commentMode()} is {@link CommentMode#NONE}.
+     *
+     * Keys containing the path separator are compared by path; defaults are not looked at.
+     *
+     * @param contents The new contents.
+     * @return The paths that were added, removed or changed, or whose comments changed. A removed or added section is
+     *         listed by its own path only, not the paths within it.
+     * @throws InvalidConfigurationException If the contents are not a valid configuration.
+     */
+    @NotNull
+    public Set<String> reloadInPlace(@NotNull final String contents) throws InvalidConfigurationException {
+        MetricsRecorder metrics = MetricsRecorder.start(options().metricsListener(), OperationMetrics.Type.LOAD, null);
+        try {
+            Config hoconConfig = ConfigFactory.parseString(contents);
+            if (metrics != null) {
+                metrics.addChars(contents);
+                metrics.mark(OperationMetrics.Phase.PARSE);
+            }
+            return reloadInPlace(hoconConfig, metrics);
+        } catch (ConfigException e) {
+            throw new InvalidConfigurationException(e);
         }
-        if (value.valueType() == ConfigValueType.OBJECT) {
-            ConfigObject config = (ConfigObject) value;
-            for (Entry<String, ConfigValue> entry : config.entrySet()) {
-                String key = entry.getKey();
-                loadComments(entry.getValue(), currentPath.isEmpty() ? key : currentPath + options().pathSeparator() + key);
+    }
+
+    /**
+     * Loads new contents from a file into this configuration, changing only what differs from what it holds now.
+     *
+     * @param path The file to load, read as UTF-8.
+     * @return The paths that were added, removed or changed, or whose comments changed.
+     * @throws IOException If the file cannot be read.
+     * @throws InvalidConfigurationException If the contents are not a valid configuration.
+     * @see #reloadInPlace(String)
+     */
+    @NotNull
+    public Set<String> reloadInPlace(@NotNull final Path path) throws IOException, InvalidConfigurationException {
+        MetricsRecorder metrics = MetricsRecorder.start(options().metricsListener(), OperationMetrics.Type.LOAD, path);
+        try {
+            ByteBuffer bytes = NioFiles.read(path);
+            if (metrics != null) {
+                metrics.addBytes(bytes.remaining());
+                metrics.mark(OperationMetrics.Phase.READ);
+            }
+            Config hoconConfig = NioFiles.parse(bytes, path.toString());
+            if (metrics != null) {
+                metrics.mark(OperationMetrics.Phase.PARSE);
             }
+            return reloadInPlace(hoconConfig != null ? hoconConfig : ConfigFactory.empty(), metrics);
+        } catch (ConfigException e) {
+            throw new InvalidConfigurationException(e);
         }
     }
 
-    private void convertMapsToSections(@NotNull Map<?, ?> input, @NotNull final ConfigurationSection section) {
-        final Object result = SerializationHelper.deserialize(input);
-        if (result instanceof Map) {
-            input = (Map<?, ?>) result;
-            for (Map.Entry<?, ?> entry : input.entrySet()) {
-                String key = entry.getKey().toString();
-                Object value = entry.getValue();
+    @NotNull
+    private Set<String> reloadInPlace(@NotNull final Config hoconConfig, @Nullable final MetricsRecorder metrics) {
+        final boolean paused = pauseJournal();
+        try {
+            return reloadInPlace(hoconConfig.resolve().root(), metrics);
+        } finally {
+            resumeJournal(paused);
+        }
+    }
+
+    @NotNull
+    private Set<String> reloadInPlace(@NotNull final ConfigObject root, @Nullable final MetricsRecorder metrics) {
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.RESOLVE);
+        }
+        final char separator = options().pathSeparator();
+        final Set<String> changed = new LinkedHashSet<>();
+        pathIndex();
+
+        if (root.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+            // nothing to line up with, start over like a fresh load would
+            for (String key : new ArrayList<>(map.keySet())) {
+                set(key, null);
+                changed.add(key);
+            }
+            set("", SerializationHelper.deserializeHocon(root));
+        } else {
+            reloadSection(root, this, map, "", separator, changed);
+        }
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.BUILD);
+        }
 
-                if (value instanceof Map) {
-                    convertMapsToSections((Map<?, ?>) value, section.createSection(key));
+        if (options().commentMode() != CommentMode.NONE) {
+            CommentTree comments = withComments(CommentTree.fromHocon(root, separator), root);
+            List<String> commentChanges = new ArrayList<>();
+            CommentTree.collectChanges(comments(), comments, "", separator, commentChanges);
+            allComments.clear();
+            if (comments != null) {
+                allComments.merge(comments);
+            }
+            for (String path : commentChanges) {
+                changed(path);
+            }
+            changed.addAll(commentChanges);
+        }
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.COMMENTS);
+            metrics.addValues(root);
+            metrics.finish();
+        }
+        if (!changed.isEmpty()) {
+            refreshBindings();
+        }
+        return changed;
+    }
+
+    private void reloadSection(@NotNull final ConfigObject source, @NotNull final ConfigurationSection section,
+                               @NotNull final Map<String, Object> values, @NotNull final String prefix,
+                               final char separator, @NotNull final Set<String> changed) {
+        final ConfigObject object = nestSplitKeys(source, separator);
+        final Set<String> seen = new HashSet<>();
+        for (String key : object.keySet()) {
+            final ConfigValue value = object.get(key);
+            final String path = prefix.isEmpty() ? key : prefix + separator + key;
+            seen.add(key);
+            final Object existing = values.get(key);
+
+            if (value.valueType() == ConfigValueType.OBJECT
+                    && !((ConfigObject) value).containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                // a section set here from elsewhere is replaced, as loading would build a section of its own
+                if (isChild(section, key, existing)) {
+                    HoconSection child = (HoconSection) existing;
+                    if (value.equals(child.getDeferred())) {
+                        continue;
+                    }
+                    reloadSection((ConfigObject) value, child, child.values(), path, separator, changed);
                 } else {
-                    section.set(key, value);
+                    loadSection((ConfigObject) value, section.createSection(key), false, separator);
+                    changed.add(path);
                 }
+            } else if (!SerializationHelper.isSame(existing, value)) {
+                section.set(key, SerializationHelper.deserializeHocon(value, options().compactNumericLists()));
+                changed.add(path);
+            }
+        }
+        if (!seen.containsAll(values.keySet())) {
+            for (String key : new ArrayList<>(values.keySet())) {
+                if (!seen.contains(key)) {
+                    section.set(key, null);
+                    changed.add(prefix.isEmpty() ? key : prefix + separator + key);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the given object with every key holding the separator, such as a quoted {@code "a.b"}, replaced by the
+     * objects it stands for, so that it is reloaded like the sections loading creates for it. Values of such keys take
+     * the place of those already in the object.
+     */
+    @NotNull
+    private static ConfigObject nestSplitKeys(@NotNull final ConfigObject source, final char separator) {
+        ConfigObject result = source;
+        for (String key : source.keySet()) {
+            if (key.indexOf(separator) >= 0) {
+                result = withPath(result.withoutKey(key), key, source.get(key), separator);
             }
+        }
+        return result;
+    }
+
+    @NotNull
+    private static ConfigObject withPath(@NotNull final ConfigObject object, @NotNull final String path,
+                                         @NotNull final ConfigValue value, final char separator) {
+        final int split = path.indexOf(separator);
+        if (split < 0) {
+            return object.withValue(path, value);
+        }
+        final String key = path.substring(0, split);
+        final ConfigValue existing = object.get(key);
+        final ConfigObject child = existing instanceof ConfigObject ? (ConfigObject) existing
+                : ConfigFactory.empty().root();
+        return object.withValue(key, withPath(child, path.substring(split + 1), value, separator));
+    }
+
+    /**
+     * Watches the given file and loads it again whenever it changes.
+     *
+     * @param path The file to watch.
+     * @param listener Receives the reloaded configurations.
+     * @return The watch, which can be cancelled.
+     * @throws IOException If the directory of the file cannot be watched.
+     * @see #watch(Path, long, ReloadListener)
+     */
+    @NotNull
+    public ConfigWatch watch(@NotNull final Path path, @NotNull final ReloadListener listener) throws IOException {
+        return watch(path, DEFAULT_WATCH_DEBOUNCE_MILLIS, listener);
+    }
+
+    /**
+     * Watches the given file and loads it again whenever it changes.
+     *
+     * Changes are noticed through a {@link java.nio.file.WatchService} on a single thread shared by all watches. A
+     * reload happens once the file has not changed for the debounce time and only if its contents differ from what
+     * was last seen. The file is loaded on the watcher thread into a new configuration with the same options and
+     * defaults as this one, which is passed to the listener. This configuration itself is left untouched. If the
+     * directory of the file stops existing, the watch is cancelled and the listener told it failed.
+     *
+     * @param path The file to watch.
+     * @param debounceMillis How long the file must be left alone before it is reloaded, in milliseconds.
+     * @param listener Receives the reloaded configurations.
+     * @return The watch, which can be cancelled.
+     * @throws IOException If the directory of the file cannot be watched.
+     */
+    @NotNull
+    public ConfigWatch watch(@NotNull final Path path, final long debounceMillis,
+                             @NotNull final ReloadListener listener) throws IOException {
+        ConfigWatch watch = new ConfigWatch(path.toAbsolutePath().normalize(), debounceMillis, listener, this);
+        ConfigWatcher.get().register(watch);
+        return watch;
+    }
+
+    /**
+     * Binds the given type to the values of this configuration.
+     *
+     * The values are read once now and again each time this configuration is loaded or reloaded, into a new instance
+     * of the type that replaces the previous one at once. Reading the instance does not touch the configuration, so
+     * values read often are best bound once and read from {@link ConfigBinding#get()}. Changes made with
+     * {@link #set(String, Object)} are only seen after {@link ConfigBinding#refresh()}.
+     *
+     * See {@link ConfigBinding} for the types that can be bound.
+     *
+     * @param type The annotated class or interface to bind.
+     * @param <T> The bound type.
+     * @return The binding, which can be cancelled.
+     * @throws IllegalArgumentException If the type cannot be bound.
+     */
+    @NotNull
+    public <T> ConfigBinding<T> bind(@NotNull final Class<T> type) {
+        final ConfigBinding<T> binding = ConfigBinding.create(this, type);
+        bindings.add(binding);
+        return binding;
+    }
+
+    void unbind(@NotNull final ConfigBinding<?> binding) {
+        bindings.remove(binding);
+    }
+
+    /**
+     * Reads the values of all bindings again after a load. A binding that fails keeps its previous instance.
+     */
+    void refreshBindings() {
+        for (ConfigBinding<?> binding : bindings) {
+            try {
+                binding.refresh();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Could not refresh the binding of " + binding.getType().getName(), e);
+            }
+        }
+    }
+
+    /**
+     * Loads this configuration from the given file and the journal next to it, and keeps journaling every change made
+     * to it from then on until the journal is closed.
+     *
+     * See {@link ConfigJournal} for how changes are journaled. Loads and reloads made while the journal is open are not
+     * journaled.
+     *
+     * @param path The file to load and journal changes to.
+     * @return The opened journal.
+     * @throws IOException If the file or the journal cannot be read or written.
+     * @throws InvalidConfigurationException If the file or a change in the journal is not valid.
+     * @throws IllegalStateException If a journal is already open for this configuration.
+     */
+    @NotNull
+    public ConfigJournal openJournal(@NotNull final Path path) throws IOException, InvalidConfigurationException {
+        if (journal != null) {
+            throw new IllegalStateException("A journal is already open for " + journal.getPath());
+        }
+        final ConfigJournal opened = ConfigJournal.open(this, path);
+        journal = opened;
+        journalSharedValues.clear();
+        return opened;
+    }
+
+    /**
+     * Returns the journal open for this configuration.
+     *
+     * @return The journal, or null if none is open.
+     */
+    @Nullable
+    public ConfigJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Returns the open journal if it applies to the given file, so saving to the file has to go through it.
+     */
+    @Nullable
+    private ConfigJournal journalOf(@NotNull final Path path) {
+        final ConfigJournal journal = this.journal;
+        if (journal != null && journal.getPath().toAbsolutePath().normalize()
+                .equals(path.toAbsolutePath().normalize())) {
+            return journal;
+        }
+        return null;
+    }
+
+    void detachJournal(@NotNull final ConfigJournal journal) {
+        if (this.journal == journal) {
+            this.journal = null;
+        }
+    }
+
+    /**
+     * Stops journaling changes until {@link #resumeJournal(boolean)} is called.
+     *
+     * @return Whether journaling was already paused, to pass on to {@link #resumeJournal(boolean)}.
+     */
+    boolean pauseJournal() {
+        final boolean paused = journalPaused;
+        journalPaused = true;
+        return paused;
+    }
+
+    void resumeJournal(final boolean paused) {
+        journalPaused = paused;
+    }
+
+    /**
+     * Journals a value set directly in the given section.
+     */
+    void journalSet(@NotNull final ConfigurationSection section, @NotNull final String key,
+                    @Nullable final Object value) {
+        if (journal != null && !journalPaused) {
+            if (isAttached(section)) {
+                final String path = MemorySection.createPath(section, key);
+                journal.recordSet(path, value);
+                if (HoconSection.holdsSection(value)) {
+                    // the value as it is held, to tell later whether it is still there
+                    journalSharedValues.put(path, valuesOf(section).get(key));
+                }
+            }
+            journalHolders(section, new HashSet<>());
+        }
+    }
+
+    /**
+     * Journals a section created directly in the given section.
+     */
+    void journalSection(@NotNull final ConfigurationSection section, @NotNull final String key) {
+        if (journal != null && !journalPaused) {
+            if (isAttached(section)) {
+                journal.recordSection(MemorySection.createPath(section, key));
+            }
+            journalHolders(section, new HashSet<>());
+        }
+    }
+
+    /**
+     * Journals again every value that holds the given changed section or one of the sections it is nested in, other
+     * than as a child of its parent, such as a section set at a second path or in a list. Such values are journaled
+     * whole under the path they were set at, which in turn changes the section holding that path.
+     *
+     * @param journaled The paths journaled again for this change so far, so that each is journaled only once.
+     */
+    private void journalHolders(@NotNull final ConfigurationSection section, @NotNull final Set<String> journaled) {
+        if (journalSharedValues.isEmpty()) {
+            return;
+        }
+        final Set<ConfigurationSection> changed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ConfigurationSection current = section; current != null; current = current.getParent()) {
+            changed.add(current);
+        }
+        final List<String> holders = new ArrayList<>();
+        final Iterator<Map.Entry<String, Object>> entries = journalSharedValues.entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, Object> entry = entries.next();
+            if (journaled.contains(entry.getKey())) {
+                continue;
+            }
+            if (get(entry.getKey(), null) != entry.getValue()) {
+                entries.remove(); // replaced or removed since
+            } else if (holdsAny(entry.getValue(), changed)) {
+                holders.add(entry.getKey());
+            }
+        }
+        final char separator = options().pathSeparator();
+        for (String path : holders) {
+            journaled.add(path);
+            journal.recordSet(path, journalSharedValues.get(path));
+            final int split = path.lastIndexOf(separator);
+            final ConfigurationSection holder = split < 0 ? this : getConfigurationSection(path.substring(0, split));
+            if (holder != null) {
+                journalHolders(holder, journaled);
+            }
+        }
+    }
+
+    /**
+     * Returns whether the value is one of the given sections or a list or map holding one.
+     */
+    private static boolean holdsAny(@Nullable final Object value, @NotNull final Set<ConfigurationSection> sections) {
+        if (value instanceof ConfigurationSection) {
+            return sections.contains(value);
+        }
+        if (value instanceof Collection && !(value instanceof NumericList)) {
+            for (Object element : (Collection<?>) value) {
+                if (holdsAny(element, sections)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof Map) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                if (holdsAny(element, sections)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the live map of values held directly by the given section of this configuration.
+     */
+    @NotNull
+    private Map<String, Object> valuesOf(@NotNull final ConfigurationSection section) {
+        return section == this ? map : ((HoconSection) section).builtValues();
+    }
+
+    /**
+     * Returns whether the given section is still held by its parent under its own name, and so on up to this
+     * configuration. Changes to a section that was removed do not change the configuration, so they are not journaled.
+     */
+    private boolean isAttached(@NotNull final ConfigurationSection section) {
+        ConfigurationSection current = section;
+        while (current != this) {
+            final ConfigurationSection parent = current.getParent();
+            final Map<String, Object> values = parent == this ? map
+                    : parent instanceof HoconSection ? ((HoconSection) parent).builtValues() : null;
+            if (values == null || values.get(current.getName()) != current) {
+                return false;
+            }
+            current = parent;
+        }
+        return true;
+    }
+
+    @Override
+    public Set<String> getKeys(final boolean deep) {
+        if (deep) {
+            HoconSection.materializeAll(map);
+        }
+        return super.getKeys(deep);
+    }
+
+    @Override
+    public Map<String, Object> getValues(final boolean deep) {
+        if (deep) {
+            HoconSection.materializeAll(map);
+        }
+        return super.getValues(deep);
+    }
+
+    @Override
+    public List<Integer> getIntegerList(final String path) {
+        final Object list = get(path);
+        return list instanceof NumericList ? ((NumericList<?>) list).asIntegerList() : super.getIntegerList(path);
+    }
+
+    @Override
+    public List<Long> getLongList(final String path) {
+        final Object list = get(path);
+        return list instanceof NumericList ? ((NumericList<?>) list).asLongList() : super.getLongList(path);
+    }
+
+    @Override
+    public List<Double> getDoubleList(final String path) {
+        final Object list = get(path);
+        return list instanceof NumericList ? ((NumericList<?>) list).asDoubleList() : super.getDoubleList(path);
+    }
+
+    @Override
+    public Object get(final String path, final Object def) {
+        final Map<String, Object> index = pathIndex();
+        if (index != null && path != null) {
+            final Object value = index.get(path);
+            if (value != null) {
+                return value;
+            }
+        }
+        return super.get(path, def);
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        final boolean direct = path.indexOf(options().pathSeparator()) < 0;
+        final Object previous = direct ? map.get(path) : null;
+        super.set(path, value);
+        if (direct) {
+            indexSet(this, path, previous, value);
+            journalSet(this, path, value);
+        }
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        if (path.isEmpty() || path.indexOf(options().pathSeparator()) >= 0) {
+            return super.createSection(path);
+        }
+        ConfigurationSection section = new HoconSection(this, path);
+        indexSet(this, path, map.put(path, section), section);
+        journalSection(this, path);
+        return section;
+    }
+
+    /**
+     * Returns the index of {@link HoconConfigurationOptions#flatPathIndex()}, building it if it is enabled but was not
+     * built yet or was built for another path separator.
+     *
+     * Loading calls this first, so the index is built as the values are set instead of after. Like the sections it
+     * indexes, the index is not safe to use from several threads at once.
+     */
+    @Nullable
+    Map<String, Object> pathIndex() {
+        final Map<String, Object> index = pathIndex;
+        if (!options().flatPathIndex()) {
+            if (index != null) {
+                pathIndex = null;
+            }
+            return null;
+        }
+        final char separator = options().pathSeparator();
+        if (index != null && indexSeparator == separator) {
+            return index;
+        }
+
+        final Map<String, Object> built = new HashMap<>();
+        index(built, "", this, map, separator);
+        indexSeparator = separator;
+        pathIndex = built;
+        return built;
+    }
+
+    private static void index(@NotNull final Map<String, Object> index, @NotNull final String prefix,
+                              @NotNull final ConfigurationSection section, @NotNull final Map<String, Object> values,
+                              final char separator) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            final String key = entry.getKey();
+            if (key.indexOf(separator) >= 0) {
+                continue; // its path leads somewhere else
+            }
+            final String path = prefix + key;
+            index.put(path, entry.getValue());
+            if (isChild(section, key, entry.getValue())) {
+                final HoconSection child = (HoconSection) entry.getValue();
+                index(index, path + separator, child, child.builtValues(), separator);
+            }
+        }
+    }
+
+    /**
+     * Updates the index of {@link HoconConfigurationOptions#flatPathIndex()} after a key directly in the given section
+     * was set. Nothing is indexed for sections that are no longer part of this configuration.
+     */
+    void indexSet(@NotNull final ConfigurationSection section, @NotNull final String key,
+                  @Nullable final Object previous, @Nullable final Object value) {
+        final Map<String, Object> index = pathIndex;
+        if (index == null) {
+            return;
+        }
+        final char separator = options().pathSeparator();
+        if (!options().flatPathIndex() || separator != indexSeparator) {
+            pathIndex = null; // rebuilt when next read
+            return;
+        }
+        final String path = indexedPath(section, key, separator);
+        if (path == null) {
+            return;
+        }
+        if (previous != value && isChild(section, key, previous)) {
+            unindex(index, path + separator, (HoconSection) previous, separator);
+        }
+        if (value != null) {
+            index.put(path, value);
+        } else {
+            index.remove(path);
+        }
+    }
+
+    private static void unindex(@NotNull final Map<String, Object> index, @NotNull final String prefix,
+                                @NotNull final HoconSection section, final char separator) {
+        for (Map.Entry<String, Object> entry : section.builtValues().entrySet()) {
+            final String key = entry.getKey();
+            if (key.indexOf(separator) < 0) {
+                index.remove(prefix + key);
+                if (isChild(section, key, entry.getValue())) {
+                    unindex(index, prefix + key + separator, (HoconSection) entry.getValue(), separator);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the path of a key in the given section, or null if the section is not part of this configuration or the
+     * path would lead elsewhere because a key on the way contains the path separator.
+     */
+    @Nullable
+    private String indexedPath(@NotNull final ConfigurationSection section, @NotNull final String key,
+                               final char separator) {
+        if (key.indexOf(separator) >= 0) {
+            return null;
+        }
+        String path = key;
+        for (ConfigurationSection child = section; child != this; ) {
+            final ConfigurationSection parent = child.getParent();
+            final String name = child.getName();
+            if (name.indexOf(separator) >= 0) {
+                return null;
+            }
+            if (parent == this) {
+                if (map.get(name) != child) {
+                    return null;
+                }
+            } else if (!(parent instanceof HoconSection) || ((HoconSection) parent).builtValues().get(name) != child) {
+                return null;
+            }
+            path = name + separator + path;
+            child = parent;
+        }
+        return path;
+    }
+
+    /**
+     * Returns whether the value is a section created at the given key of the given section, as opposed to a section set
+     * there as a value, which may be held elsewhere as well.
+     */
+    private static boolean isChild(@NotNull final ConfigurationSection section, @NotNull final String key,
+                                   @Nullable final Object value) {
+        return value instanceof HoconSection && ((HoconSection) value).getParent() == section
+                && key.equals(((HoconSection) value).getName());
+    }
+
+    /**
+     * Marks the section holding the given path as changed.
+     *
+     * Only needed when {@link HoconConfigurationOptions#renderCacheDepth()} is enabled and a value stored in the
+     * configuration, such as a list, was modified in place instead of through {@link #set(String, Object)}, or when a
+     * {@link ConfigJournal} is open, which then journals the value at the path again.
+     *
+     * @param path The path of the value that was modified.
+     */
+    public void markChanged(@NotNull final String path) {
+        changed(path);
+        if (journal != null && !journalPaused) {
+            journal.recordSet(path, get(path, null));
+            final int split = path.lastIndexOf(options().pathSeparator());
+            final ConfigurationSection holder = split < 0 ? this : getConfigurationSection(path.substring(0, split));
+            if (holder != null) {
+                journalHolders(holder, new HashSet<>(Collections.singleton(path)));
+            }
+        }
+    }
+
+    private void changed(@NotNull final String path) {
+        final char separator = options().pathSeparator();
+        ConfigurationSection section = this;
+        int start = 0;
+        int end;
+        while ((end = path.indexOf(separator, start)) >= 0) {
+            Object child = section.get(path.substring(start, end), null);
+            if (!(child instanceof HoconSection)) {
+                break;
+            }
+            section = (ConfigurationSection) child;
+            start = end + 1;
+        }
+        if (section instanceof HoconSection) {
+            ((HoconSection) section).changed();
+        }
+    }
+
+    /**
+     * Builds the section tree straight from the parsed hocon tree in a single pass.
+     *
+     * Objects become sections, except for objects carrying the {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}
+     * which are deserialized in place. Depending on {@link HoconConfigurationOptions#commentMode()} comments are
+     * captured along the way, set aside for later or skipped.
+     */
+    private void loadSection(@NotNull final ConfigObject root, @NotNull final ConfigurationSection section) {
+        final CommentMode commentMode = options().commentMode();
+        final char separator = options().pathSeparator();
+        CommentTree comments;
+        if (root.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+            comments = commentMode == CommentMode.EAGER ? CommentTree.fromHocon(root, separator) : null;
+            section.set("", SerializationHelper.deserializeHocon(root));
         } else {
-            section.set("", result);
+            comments = loadSection(root, section, commentMode == CommentMode.EAGER, separator);
+            if (commentMode == CommentMode.EAGER) {
+                comments = withComments(comments, root);
+            }
+        }
+
+        if (comments != null) {
+            comments().merge(comments);
+        } else if (commentMode == CommentMode.LAZY) {
+            pendingComments.add(root);
+        }
+    }
+
+    /**
+     * Returns the comments found in the given object when capturing them, built up from the children so that nothing
+     * is allocated for objects without comments.
+     */
+    @Nullable
+    CommentTree loadSection(@NotNull final ConfigObject source, @NotNull final ConfigurationSection section,
+                            final boolean captureComments, final char separator) {
+        final boolean lazy = options().lazySections();
+        CommentTree comments = null;
+        for (String key : source.keySet()) {
+            ConfigValue value = source.get(key);
+            CommentTree childComments = null;
+
+            if (value.valueType() == ConfigValueType.OBJECT) {
+                ConfigObject object = (ConfigObject) value;
+                if (object.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                    if (captureComments) {
+                        childComments = CommentTree.fromHocon(object, separator);
+                    }
+                    section.set(key, SerializationHelper.deserializeHocon(object));
+                } else if (lazy && key.indexOf(separator) < 0) {
+                    ConfigurationSection child = section.createSection(key);
+                    if (child instanceof HoconSection) {
+                        if (captureComments) {
+                            childComments = CommentTree.fromHocon(object, separator);
+                        }
+                        ((HoconSection) child).defer(object);
+                    } else {
+                        childComments = loadSection(object, child, captureComments, separator);
+                    }
+                } else {
+                    childComments = loadSection(object, section.createSection(key), captureComments, separator);
+                }
+            } else {
+                section.set(key, SerializationHelper.deserializeHocon(value, options().compactNumericLists()));
+            }
+
+            if (captureComments) {
+                childComments = withComments(childComments, value);
+                if (childComments != null) {
+                    if (comments == null) {
+                        comments = new CommentTree();
+                    }
+                    comments.putChild(key, separator, childComments);
+                }
+            }
+        }
+        return comments;
+    }
+
+    @Nullable
+    private static CommentTree withComments(@Nullable CommentTree node, @NotNull final ConfigValue value) {
+        List<String> comments = value.origin().comments();
+        if (!comments.isEmpty()) {
+            if (node == null) {
+                node = new CommentTree();
+            }
+            node.setComments(comments);
+        }
+        return node;
+    }
+
+    /**
+     * Returns the comment tree, first extracting the comments of anything loaded with {@link CommentMode#LAZY}.
+     */
+    @NotNull
+    CommentTree comments() {
+        if (!pendingComments.isEmpty()) {
+            for (ConfigObject root : pendingComments) {
+                CommentTree comments = CommentTree.fromHocon(root, options().pathSeparator());
+                if (comments != null) {
+                    allComments.merge(comments);
+                }
+            }
+            pendingComments.clear();
         }
+        return allComments;
     }
 
     @Override
@@ -193,10 +1234,10 @@ public class HoconConfiguration extends FileConfiguration {
      * @param comments The comments for the path, one string per line. Put no comments to remove comments for a path.
      */
     public void setComments(@NotNull final String path, final String... comments) {
-        if (comments.length == 0) {
-            allComments.remove(path);
-        } else {
-            allComments.put(path, Arrays.asList(comments));
+        comments().set(path, options().pathSeparator(), Arrays.asList(comments));
+        changed(path);
+        if (journal != null && !journalPaused) {
+            journal.recordComments(path, Arrays.asList(comments));
         }
     }
 
@@ -208,6 +1249,53 @@ public class HoconConfiguration extends FileConfiguration {
      */
     @NotNull
     public List<String> getComments(@NotNull final String path) {
-        return allComments.getOrDefault(path, Collections.emptyList());
+        return comments().get(path, options().pathSeparator());
+    }
+
+    /**
+     * Keeps the rendered text of sections in the sections themselves, valid as long as the section is unchanged and
+     * the configuration is rendered the same way.
+     */
+    private class SectionRenderCache implements FragmentCache {
+
+        /**
+         * Sections are not cached while defaults are copied, as their values then include defaults, which can change
+         * without the section noticing.
+         */
+        @Override
+        public boolean isCacheable(@NotNull final ConfigurationSection section) {
+            return section instanceof HoconSection && section.getRoot() == HoconConfiguration.this
+                    && ((HoconSection) section).getDepth() <= options().renderCacheDepth()
+                    && !options().copyDefaults();
+        }
+
+        @Nullable
+        @Override
+        public String getRendered(@NotNull final ConfigurationSection section, final int indent) {
+            return ((HoconSection) section).getRendered(currentRenderStamp(), indent);
+        }
+
+        /**
+         * Text is not kept for sections holding a section that lives elsewhere, as changes made through that section
+         * only mark its own parents as changed. Which sections a section holds cannot change without marking it, so
+         * this is only checked when the text is stored.
+         */
+        @Override
+        public void putRendered(@NotNull final ConfigurationSection section, final int indent,
+                                @NotNull final String rendered) {
+            if (((HoconSection) section).holdsOnlyChildren()) {
+                ((HoconSection) section).setRendered(currentRenderStamp(), indent, rendered);
+            }
+        }
+
+        @NotNull
+        private synchronized Object currentRenderStamp() {
+            if (options().renderOptions() != stampedRenderOptions || options().pathSeparator() != stampedPathSeparator) {
+                stampedRenderOptions = options().renderOptions();
+                stampedPathSeparator = options().pathSeparator();
+                renderStamp = new Object();
+            }
+            return renderStamp;
+        }
     }
 }
@@ -0,0 +1,42 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import java.util.Map;
+
+/**
+ * The load and save metrics of a {@link HoconConfiguration} as seen through JMX.
+ *
+ * @see ConfigurationMetrics#register(HoconConfiguration, String)
+ */
+public interface HoconConfigurationMXBean {
+
+    long getLoadCount();
+
+    long getSaveCount();
+
+    long getTotalLoadNanos();
+
+    long getTotalSaveNanos();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    /**
+     * Returns the bytes allocated by all loads and saves, or -1 if the JVM cannot tell.
+     */
+    long getAllocatedBytes();
+
+    /**
+     * Returns the total time spent in each phase, in nanoseconds, keyed by phase name.
+     */
+    Map<String, Long> getPhaseNanos();
+
+    String getLastLoad();
+
+    String getLastSave();
+
+    void reset();
+}
@@ -4,8 +4,12 @@
 package com.dumptruckman.bukkit.configuration.hocon;
 
 import com.typesafe.config.ConfigRenderOptions;
+import org.bukkit.configuration.MemoryConfiguration;
 import org.bukkit.configuration.file.FileConfigurationOptions;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Mandatory configuration options class for HoconConfiguration.
@@ -16,9 +20,25 @@ public class HoconConfigurationOptions extends FileConfigurationOptions {
         super(configuration);
     }
 
+    HoconConfigurationOptions(@NotNull final MemoryConfiguration configuration) {
+        super(configuration);
+    }
+
     private ConfigRenderOptions renderOptions = ConfigRenderOptions.defaults()
             .setOriginComments(false)
             .setJson(false);
+    private CommentMode commentMode = CommentMode.EAGER;
+    private int renderCacheDepth = 0;
+    private boolean lazySections = false;
+    private boolean compactNumericLists = false;
+    private int parallelSaveThreshold = 0;
+    private ForkJoinPool parallelSavePool = null;
+    private boolean snapshotSidecar = false;
+    private boolean jsonFastPath = false;
+    private boolean flatPathIndex = false;
+    private long journalSyncInterval = 200;
+    private long journalCompactionThreshold = 4 * 1024 * 1024;
+    private MetricsListener metricsListener = null;
 
     @Override
     public HoconConfiguration configuration() {
@@ -68,4 +88,340 @@ public class HoconConfigurationOptions extends FileConfigurationOptions {
     public ConfigRenderOptions renderOptions() {
         return renderOptions;
     }
+
+    /**
+     * Sets how comments are captured when loading the configuration.
+     *
+     * @param commentMode the new comment mode.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions commentMode(@NotNull CommentMode commentMode) {
+        this.commentMode = commentMode;
+        return this;
+    }
+
+    /**
+     * Returns how comments are captured when loading the configuration. Defaults to {@link CommentMode#EAGER}.
+     *
+     * @return how comments are captured when loading the configuration.
+     */
+    @NotNull
+    public CommentMode commentMode() {
+        return commentMode;
+    }
+
+    /**
+     * Sets how deep sections may be nested to have their rendered text kept between saves.
+     *
+     * With a depth of 1 the text of each top level section is kept and only the sections changed through
+     * {@link HoconConfiguration#set(String, Object)}, {@link HoconConfiguration#createSection(String)} or
+     * {@link HoconConfiguration#setComments(String, String...)} since the last save are rendered again. Higher depths
+     * also keep the text of nested sections. Values modified in place, such as a list taken from the configuration and
+     * added to, are not noticed and must be reported with {@link HoconConfiguration#markChanged(String)}. Nothing is
+     * kept while {@link #copyDefaults()} is enabled, since the defaults written along may change at any time. Sections
+     * set at a second path or held in a list are always rendered again there.
+     *
+     * @param renderCacheDepth the deepest nesting level to keep rendered text for, or 0 to keep none.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions renderCacheDepth(int renderCacheDepth) {
+        this.renderCacheDepth = renderCacheDepth;
+        return this;
+    }
+
+    /**
+     * Returns how deep sections may be nested to have their rendered text kept between saves. Defaults to 0, which
+     * keeps nothing.
+     *
+     * @return the deepest nesting level to keep rendered text for.
+     */
+    public int renderCacheDepth() {
+        return renderCacheDepth;
+    }
+
+    /**
+     * Sets whether nested sections are only built from the loaded file once they are used.
+     *
+     * When enabled, loading builds just the top level of the configuration. Every other section keeps the parsed
+     * object it was loaded from and builds its own values, deserializing any serialized objects among them, the first
+     * time it is read from or written to. A section that is never used is saved straight from the parsed object.
+     *
+     * @param lazySections true to build sections when they are first used.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions lazySections(boolean lazySections) {
+        this.lazySections = lazySections;
+        return this;
+    }
+
+    /**
+     * Returns whether nested sections are only built from the loaded file once they are used. Defaults to false.
+     *
+     * @return true if sections are built when they are first used.
+     */
+    public boolean lazySections() {
+        return lazySections;
+    }
+
+    /**
+     * Sets whether lists of numbers are kept in primitive arrays when loading the configuration.
+     *
+     * When enabled, every loaded list holding only numbers is stored as an immutable
+     * {@link com.dumptruckman.bukkit.configuration.util.NumericList} of doubles if any of them is a double, of longs if
+     * any of them is a long and of ints otherwise, and
+     * {@link HoconConfiguration#getIntegerList(String)}, {@link HoconConfiguration#getLongList(String)} and
+     * {@link HoconConfiguration#getDoubleList(String)} return read only views of it instead of copies. Lists inside
+     * serialized objects are not affected.
+     *
+     * @param compactNumericLists true to keep lists of numbers in primitive arrays.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions compactNumericLists(boolean compactNumericLists) {
+        this.compactNumericLists = compactNumericLists;
+        return this;
+    }
+
+    /**
+     * Returns whether lists of numbers are kept in primitive arrays when loading the configuration. Defaults to false.
+     *
+     * @return true if lists of numbers are kept in primitive arrays.
+     */
+    public boolean compactNumericLists() {
+        return compactNumericLists;
+    }
+
+    /**
+     * Sets how many sections, maps and lists a section must directly hold to have them rendered in parallel on save.
+     *
+     * Rendering a section that holds at least this many of them splits them across
+     * {@link #parallelSavePool()}, which helps configurations with many large sections, such as one per world, use
+     * more than one core. The saved text is the same either way. {@link
+     * org.bukkit.configuration.serialization.ConfigurationSerializable#serialize()} may then be called from several
+     * threads at once, on different objects.
+     *
+     * @param parallelSaveThreshold the least number of sections, maps and lists to render in parallel, or 0 to render
+     *                              everything on the saving thread.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions parallelSaveThreshold(int parallelSaveThreshold) {
+        this.parallelSaveThreshold = parallelSaveThreshold;
+        return this;
+    }
+
+    /**
+     * Returns how many sections, maps and lists a section must directly hold to have them rendered in parallel on
+     * save. Defaults to 0, which renders everything on the saving thread.
+     *
+     * @return the least number of sections, maps and lists to render in parallel.
+     */
+    public int parallelSaveThreshold() {
+        return parallelSaveThreshold;
+    }
+
+    /**
+     * Sets the pool sections are rendered in parallel on, see {@link #parallelSaveThreshold(int)}.
+     *
+     * @param parallelSavePool the pool to render on, or null to use {@link ForkJoinPool#commonPool()}.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions parallelSavePool(@Nullable ForkJoinPool parallelSavePool) {
+        this.parallelSavePool = parallelSavePool;
+        return this;
+    }
+
+    /**
+     * Returns the pool sections are rendered in parallel on. Defaults to {@link ForkJoinPool#commonPool()}.
+     *
+     * @return the pool to render on.
+     */
+    @NotNull
+    public ForkJoinPool parallelSavePool() {
+        return parallelSavePool != null ? parallelSavePool : ForkJoinPool.commonPool();
+    }
+
+    /**
+     * Sets whether a binary snapshot of each file is kept next to it to load from instead of parsing the file.
+     *
+     * When enabled, {@link HoconConfiguration#load(java.nio.file.Path)} and
+     * {@link HoconConfiguration#load(java.io.File)} write the parsed tree of the file, with its comments, to a file of
+     * the same name ending in {@code .snapshot}. Later loads still read the file, but build the configuration from the
+     * snapshot without parsing it as long as the size, last modified time and content hash of the file are those the
+     * snapshot was taken from. Otherwise, or if the snapshot is damaged, the file is parsed as usual and the snapshot
+     * replaced. Files with substitutions are always parsed, as they may resolve to other values each time. Files loaded
+     * this way bypass the {@link SharedParseCache}.
+     *
+     * @param snapshotSidecar true to keep a snapshot next to each loaded file.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions snapshotSidecar(boolean snapshotSidecar) {
+        this.snapshotSidecar = snapshotSidecar;
+        return this;
+    }
+
+    /**
+     * Returns whether a binary snapshot of each file is kept next to it to load from. Defaults to false.
+     *
+     * @return true if a snapshot is kept next to each loaded file.
+     */
+    public boolean snapshotSidecar() {
+        return snapshotSidecar;
+    }
+
+    /**
+     * Sets whether contents that are strict json are loaded by a json parser instead of as hocon.
+     *
+     * When enabled, {@link HoconConfiguration#loadFromString(String)},
+     * {@link HoconConfiguration#load(java.nio.file.Path)} and {@link HoconConfiguration#load(java.io.File)} first check
+     * whether the contents are a strict json object, and if so build the sections straight from the text without a
+     * parsed tree, sharing key strings between loads. The configuration ends up the same as when the contents are
+     * loaded as hocon, except that keys are kept in the order of the file. Contents that are not strict json, hold the
+     * same key twice in an object or have keys containing the path separator outside of serialized objects and lists
+     * are loaded as hocon. So is everything while {@link #lazySections()} or {@link #snapshotSidecar()} is enabled, and
+     * files while the {@link SharedParseCache} is, so key order depends on those settings when this is enabled.
+     *
+     * @param jsonFastPath true to load strict json with the json parser.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions jsonFastPath(boolean jsonFastPath) {
+        this.jsonFastPath = jsonFastPath;
+        return this;
+    }
+
+    /**
+     * Returns whether contents that are strict json are loaded by a json parser instead of as hocon. Defaults to false.
+     *
+     * @return true if strict json is loaded with the json parser.
+     */
+    public boolean jsonFastPath() {
+        return jsonFastPath;
+    }
+
+    /**
+     * Sets whether a flat index from full paths to values is kept, so that reading a nested path from the configuration
+     * is a single lookup instead of a walk through every section on the way.
+     *
+     * The index is built while the configuration is loaded and kept up to date by every change made through
+     * {@code set} and {@code createSection}, on the configuration or any of its sections, dropping everything below a
+     * section that is replaced or removed. It is rebuilt when the path separator is changed. Paths it does not hold,
+     * such as those inside sections not yet built with {@link #lazySections()} or inside sections set as values, are
+     * looked up the usual way. Only reads made directly on the configuration use the index. It costs a map entry and
+     * a path string per value. Like the rest of the configuration, the index is not thread safe.
+     *
+     * @param flatPathIndex true to keep an index of every path.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions flatPathIndex(boolean flatPathIndex) {
+        this.flatPathIndex = flatPathIndex;
+        return this;
+    }
+
+    /**
+     * Returns whether a flat index from full paths to values is kept. Defaults to false.
+     *
+     * @return true if an index of every path is kept.
+     */
+    public boolean flatPathIndex() {
+        return flatPathIndex;
+    }
+
+    /**
+     * Sets how long changes appended to a {@link ConfigJournal} may wait before they are forced to disk.
+     *
+     * Changes made within this time are forced to disk together, so a crash may lose the changes of at most this long
+     * ago. The journal file itself stays readable either way.
+     *
+     * @param journalSyncInterval the most milliseconds to wait, or 0 to force every change to disk as it is made.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions journalSyncInterval(long journalSyncInterval) {
+        this.journalSyncInterval = journalSyncInterval;
+        return this;
+    }
+
+    /**
+     * Returns how long changes appended to a {@link ConfigJournal} may wait before they are forced to disk. Defaults
+     * to 200 milliseconds.
+     *
+     * @return the most milliseconds to wait, or 0 if every change is forced to disk as it is made.
+     */
+    public long journalSyncInterval() {
+        return journalSyncInterval;
+    }
+
+    /**
+     * Sets how large a {@link ConfigJournal} may grow before it is compacted into a full save of the configuration.
+     *
+     * @param journalCompactionThreshold the most bytes the journal may hold.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions journalCompactionThreshold(long journalCompactionThreshold) {
+        this.journalCompactionThreshold = journalCompactionThreshold;
+        return this;
+    }
+
+    /**
+     * Returns how large a {@link ConfigJournal} may grow before it is compacted into a full save of the configuration.
+     * Defaults to 4 MiB.
+     *
+     * @return the most bytes the journal may hold.
+     */
+    public long journalCompactionThreshold() {
+        return journalCompactionThreshold;
+    }
+
+    /**
+     * Sets the listener that receives the metrics of every load and save of the configuration.
+     *
+     * Without a listener no metrics are collected at all.
+     *
+     * @param metricsListener the new metrics listener, or null to collect no metrics.
+     * @return This options for chaining.
+     */
+    public HoconConfigurationOptions metricsListener(@Nullable MetricsListener metricsListener) {
+        this.metricsListener = metricsListener;
+        return this;
+    }
+
+    /**
+     * Returns the listener that receives the metrics of every load and save of the configuration. Defaults to null.
+     *
+     * @return the metrics listener, or null if no metrics are collected.
+     */
+    @Nullable
+    public MetricsListener metricsListener() {
+        return metricsListener;
+    }
+
+    /**
+     * Copies every option into new options that belong to no configuration, for work that only reads them.
+     */
+    @NotNull
+    HoconConfigurationOptions copy() {
+        final HoconConfigurationOptions copy = new HoconConfigurationOptions(new MemoryConfiguration());
+        copyTo(copy);
+        return copy;
+    }
+
+    /**
+     * Copies every option into the options of another configuration.
+     */
+    void copyTo(@NotNull final HoconConfigurationOptions other) {
+        other.copyDefaults(copyDefaults())
+                .pathSeparator(pathSeparator())
+                .header(header())
+                .copyHeader(copyHeader())
+                .renderOptions(renderOptions)
+                .commentMode(commentMode)
+                .renderCacheDepth(renderCacheDepth)
+                .lazySections(lazySections)
+                .compactNumericLists(compactNumericLists)
+                .parallelSaveThreshold(parallelSaveThreshold)
+                .parallelSavePool(parallelSavePool)
+                .snapshotSidecar(snapshotSidecar)
+                .jsonFastPath(jsonFastPath)
+                .flatPathIndex(flatPathIndex)
+                .journalSyncInterval(journalSyncInterval)
+                .journalCompactionThreshold(journalCompactionThreshold)
+                .metricsListener(metricsListener);
+    }
 }
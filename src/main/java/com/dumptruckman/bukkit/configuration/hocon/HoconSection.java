@@ -0,0 +1,265 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.DeferredSection;
+import com.dumptruckman.bukkit.configuration.util.NumericList;
+import com.typesafe.config.ConfigObject;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.MemorySection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The section type used for every section of a {@link HoconConfiguration}.
+ *
+ * Behaves exactly like a {@link MemorySection}, but keeps track of whether its contents changed so the configuration
+ * can reuse what it rendered for the section on the last save. With {@link HoconConfigurationOptions#lazySections()}
+ * a section may also hold on to the parsed object it was loaded from and only build its values once it is used.
+ */
+class HoconSection extends MemorySection implements DeferredSection {
+
+    private final int depth;
+
+    @Nullable
+    private String rendered;
+    @Nullable
+    private Object renderedStamp;
+    private int renderedIndent;
+    @Nullable
+    private ConfigObject deferred;
+    private boolean materializing;
+
+    HoconSection(@NotNull final ConfigurationSection parent, @NotNull final String path) {
+        super(parent, path);
+        this.depth = parent instanceof HoconSection ? ((HoconSection) parent).depth + 1 : 1;
+    }
+
+    /**
+     * Returns how deep this section is nested, top level sections being at depth 1.
+     */
+    int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Returns the live map of values held directly by this section, without any defaults.
+     */
+    @NotNull
+    Map<String, Object> values() {
+        materialize();
+        return map;
+    }
+
+    /**
+     * Returns the live map of values held directly by this section, without building them if they were deferred.
+     */
+    @NotNull
+    Map<String, Object> builtValues() {
+        return map;
+    }
+
+    /**
+     * Leaves the values of this section to be built from the given object once the section is first used.
+     */
+    void defer(@NotNull final ConfigObject source) {
+        this.deferred = source;
+    }
+
+    @Nullable
+    @Override
+    public ConfigObject getDeferred() {
+        return deferred;
+    }
+
+    /**
+     * Builds the values of this section if they were deferred. Nested sections are deferred in turn.
+     */
+    void materialize() {
+        final ConfigObject source = deferred;
+        if (source == null) {
+            return;
+        }
+        deferred = null;
+        final HoconConfiguration root = (HoconConfiguration) getRoot();
+        final boolean paused = root.pauseJournal();
+        materializing = true;
+        try {
+            root.loadSection(source, this, false, root.options().pathSeparator());
+        } finally {
+            materializing = false;
+            root.resumeJournal(paused);
+        }
+    }
+
+    /**
+     * Builds every deferred section among the given values and everything nested in them.
+     */
+    static void materializeAll(@NotNull final Map<String, Object> values) {
+        for (Object value : values.values()) {
+            if (value instanceof HoconSection) {
+                HoconSection section = (HoconSection) value;
+                section.materialize();
+                materializeAll(section.map);
+            }
+        }
+    }
+
+    @Override
+    public Set<String> getKeys(final boolean deep) {
+        materialize();
+        if (deep) {
+            materializeAll(map);
+        }
+        return super.getKeys(deep);
+    }
+
+    @Override
+    public Map<String, Object> getValues(final boolean deep) {
+        materialize();
+        if (deep) {
+            materializeAll(map);
+        }
+        return super.getValues(deep);
+    }
+
+    @Override
+    public Object get(final String path, final Object def) {
+        materialize();
+        return super.get(path, def);
+    }
+
+    @Override
+    public List<Integer> getIntegerList(final String path) {
+        final Object list = get(path);
+        return list instanceof NumericList ? ((NumericList<?>) list).asIntegerList() : super.getIntegerList(path);
+    }
+
+    @Override
+    public List<Long> getLongList(final String path) {
+        final Object list = get(path);
+        return list instanceof NumericList ? ((NumericList<?>) list).asLongList() : super.getLongList(path);
+    }
+
+    @Override
+    public List<Double> getDoubleList(final String path) {
+        final Object list = get(path);
+        return list instanceof NumericList ? ((NumericList<?>) list).asDoubleList() : super.getDoubleList(path);
+    }
+
+    @Override
+    public void set(final String path, final Object value) {
+        materialize();
+        final HoconConfiguration root = (HoconConfiguration) getRoot();
+        final boolean direct = path.indexOf(root.options().pathSeparator()) < 0;
+        final Object previous = direct ? map.get(path) : null;
+        super.set(path, value);
+        if (direct) {
+            root.indexSet(this, path, previous, value);
+        }
+        if (!materializing) {
+            changed();
+            if (direct) {
+                root.journalSet(this, path, value);
+            }
+        }
+    }
+
+    @Override
+    public ConfigurationSection createSection(final String path) {
+        materialize();
+        if (path.isEmpty() || path.indexOf(getRoot().options().pathSeparator()) >= 0) {
+            return super.createSection(path);
+        }
+        final HoconConfiguration root = (HoconConfiguration) getRoot();
+        ConfigurationSection section = new HoconSection(this, path);
+        root.indexSet(this, path, map.put(path, section), section);
+        if (!materializing) {
+            changed();
+            root.journalSection(this, path);
+        }
+        return section;
+    }
+
+    /**
+     * Drops what was rendered for this section and all the sections it is nested in.
+     */
+    void changed() {
+        for (ConfigurationSection section = this; section instanceof HoconSection; section = section.getParent()) {
+            ((HoconSection) section).rendered = null;
+        }
+    }
+
+    /**
+     * Returns whether every section held anywhere in this section, as a value or inside a list or map, is a child
+     * created under its own name. A section held elsewhere as well can change without this section noticing, so the
+     * rendered text of this section must not be kept then. Values that were not built yet hold no sections.
+     */
+    boolean holdsOnlyChildren() {
+        return holdsOnlyChildren(this, map);
+    }
+
+    /**
+     * Returns whether every section held anywhere in the given values of the given section is a child created under
+     * its own name, see {@link #holdsOnlyChildren()}.
+     */
+    static boolean holdsOnlyChildren(@NotNull final ConfigurationSection owner,
+                                     @NotNull final Map<String, Object> values) {
+        for (Map.Entry<String, Object> entry : values.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof HoconSection && ((HoconSection) value).getParent() == owner
+                    && entry.getKey().equals(((HoconSection) value).getName())) {
+                if (!((HoconSection) value).holdsOnlyChildren()) {
+                    return false;
+                }
+            } else if (holdsSection(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns whether the value is a section or a list or map holding one.
+     */
+    static boolean holdsSection(@Nullable final Object value) {
+        if (value instanceof ConfigurationSection) {
+            return true;
+        }
+        if (value instanceof Collection && !(value instanceof NumericList)) {
+            for (Object element : (Collection<?>) value) {
+                if (holdsSection(element)) {
+                    return true;
+                }
+            }
+        } else if (value instanceof Map) {
+            for (Object element : ((Map<?, ?>) value).values()) {
+                if (holdsSection(element)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the text rendered for this section on a previous save, if it is still valid for the given stamp and was
+     * rendered at the given indent.
+     */
+    @Nullable
+    String getRendered(@NotNull final Object stamp, final int indent) {
+        return stamp == renderedStamp && indent == renderedIndent ? rendered : null;
+    }
+
+    void setRendered(@NotNull final Object stamp, final int indent, @NotNull final String rendered) {
+        this.renderedStamp = stamp;
+        this.renderedIndent = indent;
+        this.rendered = rendered;
+    }
+}
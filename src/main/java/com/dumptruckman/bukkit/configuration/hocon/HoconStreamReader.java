@@ -0,0 +1,1131 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.InvalidConfigurationException;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reads a hocon or json document piece by piece instead of parsing it as a whole, for documents too large to hold in
+ * memory at once.
+ *
+ * Each call to {@link #next()} reads just far enough to return the next {@link Event}, so memory use is bounded by how
+ * deeply the document is nested rather than by its size. Values can be skipped without building them with
+ * {@link #skipValue()}, or built whole with {@link #readValue()} and {@link #readSection()}, which turns an object into
+ * a {@link HoconConfiguration} holding it and its comments. {@link #accept(HoconVisitor)} streams the rest of the
+ * document to a visitor instead.
+ *
+ * <pre>{@code
+ * try (HoconStreamReader reader = HoconStreamReader.open(exportFile)) {
+ *     reader.accept(new HoconVisitor() {
+ *         public Action key(String key, String path) {
+ *             return path.startsWith("players.") ? Action.MATERIALIZE : Action.VISIT;
+ *         }
+ *
+ *         public void section(String path, HoconConfiguration player) {
+ *             importPlayer(player);
+ *         }
+ *     });
+ * }
+ * }</pre>
+ *
+ * All of json is read, and the parts of hocon that can be read in a single pass: comments, unquoted strings and keys,
+ * triple quoted strings, {@code =} and omitted separators, omitted commas and root braces, dotted keys and
+ * concatenated strings. Values are built as {@link HoconConfiguration#load(Path)} would build them. Since nothing that
+ * was read is kept, keys given more than once are streamed each time instead of being merged, and substitutions,
+ * includes, {@code +=} and concatenated objects or lists are rejected. Objects built by {@link #readValue()} and
+ * {@link #readSection()} do merge keys given more than once.
+ *
+ * Instances are not safe for use by multiple threads.
+ */
+public final class HoconStreamReader implements Closeable {
+
+    /**
+     * What was read by a call to {@link #next()}.
+     */
+    public enum Event {
+        /**
+         * An object started. Objects of dotted keys such as {@code a.b = 1} are started and ended as well.
+         */
+        START_OBJECT,
+        /**
+         * An object ended.
+         */
+        END_OBJECT,
+        /**
+         * A list started.
+         */
+        START_LIST,
+        /**
+         * A list ended.
+         */
+        END_LIST,
+        /**
+         * A key of an object was read, see {@link #getKey()}. Its value follows.
+         */
+        KEY,
+        /**
+         * A string, number, boolean or null was read, see {@link #getValue()}.
+         */
+        VALUE,
+        /**
+         * A comment was read, see {@link #getComment()}.
+         */
+        COMMENT,
+        /**
+         * The document ended. Every further call to {@link #next()} returns this again.
+         */
+        END_DOCUMENT
+    }
+
+    private static final int EOF = -1;
+    private static final int BUFFER_SIZE = 8192;
+    private static final boolean[] FORBIDDEN = new boolean[128];
+
+    static {
+        for (char c : "$\"{}[]:=,+#`^?!@*&\\".toCharArray()) {
+            FORBIDDEN[c] = true;
+        }
+    }
+
+    private final Reader in;
+    private final String description;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private char pathSeparator = '.';
+
+    @Nullable
+    private Frame top;
+    private final StringBuilder path = new StringBuilder();
+    @Nullable
+    private String pathString;
+    private int depth;
+    private boolean started;
+    private boolean sawNewline;
+    private int newlines;
+    private boolean blankLine;
+    @Nullable
+    private ArrayDeque<Comment> leadingComments;
+    @Nullable
+    private List<String> carriedComments;
+    private final ArrayDeque<String> pendingKeys = new ArrayDeque<>();
+    private boolean pendingStart;
+    private final Set<Object> replacing = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    @Nullable
+    private Event event;
+    @Nullable
+    private String key;
+    @Nullable
+    private Object value;
+    @Nullable
+    private String comment;
+
+    private HoconStreamReader(@NotNull final Reader in, @NotNull final String description) {
+        this.in = in;
+        this.description = description;
+    }
+
+    /**
+     * Creates a reader for the document read from the given reader.
+     *
+     * @param in The reader to read from. It is read in chunks, so it need not be buffered.
+     * @return A new stream reader.
+     */
+    @NotNull
+    public static HoconStreamReader create(@NotNull final Reader in) {
+        return new HoconStreamReader(in, "reader");
+    }
+
+    /**
+     * Creates a reader for the document in the given file, read as UTF-8.
+     *
+     * @param path The file to read.
+     * @return A new stream reader, which must be closed.
+     * @throws IOException If the file cannot be opened.
+     */
+    @NotNull
+    public static HoconStreamReader open(@NotNull final Path path) throws IOException {
+        return new HoconStreamReader(new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8),
+                path.toString());
+    }
+
+    /**
+     * Sets the char paths and the sections built by {@link #readSection()} are separated by.
+     *
+     * @param pathSeparator The path separator.
+     * @return This reader for chaining.
+     */
+    @NotNull
+    public HoconStreamReader pathSeparator(final char pathSeparator) {
+        this.pathSeparator = pathSeparator;
+        return this;
+    }
+
+    /**
+     * Returns the char paths and the sections built by {@link #readSection()} are separated by. Defaults to
+     * {@code '.'}.
+     *
+     * @return The path separator.
+     */
+    public char pathSeparator() {
+        return pathSeparator;
+    }
+
+    /**
+     * Reads the next piece of the document.
+     *
+     * @return What was read.
+     * @throws IOException If the document cannot be read.
+     * @throws InvalidConfigurationException If the document is not valid or uses hocon that cannot be streamed.
+     */
+    @NotNull
+    public Event next() throws IOException, InvalidConfigurationException {
+        if (event == Event.END_DOCUMENT) {
+            return Event.END_DOCUMENT;
+        }
+        if (pendingStart) {
+            pendingStart = false;
+            return startContainer(false, false, true);
+        }
+        if (!pendingKeys.isEmpty()) {
+            return key(pendingKeys.poll());
+        }
+        if (started && leadingComments != null && !leadingComments.isEmpty()) {
+            return leadingComment();
+        }
+
+        final Frame frame = top;
+        if (frame == null) {
+            if (started) {
+                if (skipSpace()) {
+                    return Event.COMMENT;
+                }
+                if (peek(0) != EOF) {
+                    throw error("Expecting the end of the document");
+                }
+                return event = Event.END_DOCUMENT;
+            }
+            if (leadingComments == null) {
+                // comments before the root belong in it unless it has braces
+                leadingComments = new ArrayDeque<>();
+                while (skipSpace()) {
+                    leadingComments.add(new Comment(comment, blankLine));
+                }
+            }
+            final int c = peek(0);
+            final boolean braced = c == '[' || c == '{';
+            if (braced && !leadingComments.isEmpty()) {
+                return leadingComment();
+            }
+            started = true;
+            if (braced) {
+                read();
+            }
+            return startContainer(c == '[', braced, false);
+        }
+        if (frame.expectingValue) {
+            if (skipSpace()) {
+                return Event.COMMENT;
+            }
+            return startValue();
+        }
+        if (frame.synthetic && frame.afterValue) {
+            return endContainer();
+        }
+
+        while (true) {
+            if (skipSpace()) {
+                return Event.COMMENT;
+            }
+            final int c = peek(0);
+            if (c == ',') {
+                if (!frame.afterValue) {
+                    throw error("Unexpected ','");
+                }
+                read();
+                frame.afterValue = false;
+                continue;
+            }
+            if (c == (frame.list ? ']' : '}')) {
+                if (!frame.braced) {
+                    throw error("Unexpected '" + (char) c + "'");
+                }
+                read();
+                return endContainer();
+            }
+            if (c == EOF) {
+                if (frame.braced) {
+                    throw error("Expecting '" + (frame.list ? ']' : '}') + "' before the end of the document");
+                }
+                return endContainer();
+            }
+            if (frame.afterValue && !sawNewline) {
+                throw error("Expecting ',' or a new line between " + (frame.list ? "values" : "fields"));
+            }
+            frame.afterValue = false;
+            return frame.list ? startValue() : readKey();
+        }
+    }
+
+    /**
+     * Returns what the last call to {@link #next()} read.
+     *
+     * @return The last event, or null if nothing was read yet.
+     */
+    @Nullable
+    public Event getEvent() {
+        return event;
+    }
+
+    /**
+     * Returns the key of the last {@link Event#KEY}.
+     *
+     * @return The last key read, or null if none was read yet.
+     */
+    @Nullable
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Returns the value of the last {@link Event#VALUE}: a String, Integer, Long, Double, Boolean or null.
+     *
+     * @return The last value read.
+     */
+    @Nullable
+    public Object getValue() {
+        return value;
+    }
+
+    /**
+     * Returns the text of the last {@link Event#COMMENT} following the {@code #} or {@code //}.
+     *
+     * @return The last comment read, or null if none was read yet.
+     */
+    @Nullable
+    public String getComment() {
+        return comment;
+    }
+
+    /**
+     * Returns the path of what was read last, see {@link HoconVisitor} for how paths are formed.
+     *
+     * @return The current path.
+     */
+    @NotNull
+    public String getPath() {
+        if (pathString == null) {
+            pathString = path.toString();
+        }
+        return pathString;
+    }
+
+    /**
+     * Returns how many objects and lists are open.
+     *
+     * @return The current depth, 1 within the root.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Skips the value that the last event started without building it: the value of a key, or the rest of an object
+     * or list.
+     *
+     * @throws IOException If the document cannot be read.
+     * @throws InvalidConfigurationException If the document is not valid.
+     */
+    public void skipValue() throws IOException, InvalidConfigurationException {
+        final Event start = startOfValue();
+        if (start == Event.START_OBJECT || start == Event.START_LIST) {
+            final int end = depth - 1;
+            while (depth > end) {
+                next();
+            }
+        }
+    }
+
+    /**
+     * Builds the value that the last event started: the value of a key, the rest of an object or list, or the value
+     * just read. Objects become maps, unless they hold a serialized object, which is deserialized.
+     *
+     * @return The value.
+     * @throws IOException If the document cannot be read.
+     * @throws InvalidConfigurationException If the document is not valid.
+     */
+    @Nullable
+    public Object readValue() throws IOException, InvalidConfigurationException {
+        return build(startOfValue(), null);
+    }
+
+    /**
+     * Builds the object that the last event started, the value of a key or the rest of an object, as a configuration.
+     *
+     * The comments within the object are kept on the configuration; keys given more than once are merged.
+     *
+     * @return A new configuration holding the object.
+     * @throws IOException If the document cannot be read.
+     * @throws InvalidConfigurationException If the document is not valid, or the value is not an object or holds a
+     *                                       serialized object.
+     */
+    @NotNull
+    public HoconConfiguration readSection() throws IOException, InvalidConfigurationException {
+        if (startOfValue() != Event.START_OBJECT) {
+            throw error("Expecting an object");
+        }
+        final Map<String, List<String>> comments = new LinkedHashMap<>();
+        final Object object = build(Event.START_OBJECT, comments);
+        if (!(object instanceof Map)) {
+            throw error("Expecting a section but found a serialized object");
+        }
+        return toSection((Map<?, ?>) object, comments);
+    }
+
+    /**
+     * Streams the rest of the document to the given visitor.
+     *
+     * @param visitor The visitor to stream to.
+     * @throws IOException If the document cannot be read.
+     * @throws InvalidConfigurationException If the document is not valid or uses hocon that cannot be streamed.
+     */
+    public void accept(@NotNull final HoconVisitor visitor) throws IOException, InvalidConfigurationException {
+        while (true) {
+            switch (next()) {
+                case START_OBJECT:
+                    visitor.startObject(getPath());
+                    break;
+                case END_OBJECT:
+                    visitor.endObject(getPath());
+                    break;
+                case START_LIST:
+                    visitor.startList(getPath());
+                    break;
+                case END_LIST:
+                    visitor.endList(getPath());
+                    break;
+                case KEY:
+                    final String path = getPath();
+                    switch (visitor.key(key, path)) {
+                        case SKIP:
+                            skipValue();
+                            break;
+                        case MATERIALIZE:
+                            final Map<String, List<String>> comments = new LinkedHashMap<>();
+                            final Object built = build(startOfValue(), comments);
+                            if (built instanceof Map) {
+                                visitor.section(path, toSection((Map<?, ?>) built, comments));
+                            } else {
+                                visitor.value(path, built);
+                            }
+                            break;
+                        default:
+                            break;
+                    }
+                    break;
+                case VALUE:
+                    visitor.value(getPath(), value);
+                    break;
+                case COMMENT:
+                    visitor.comment(comment);
+                    break;
+                case END_DOCUMENT:
+                    return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    // Building values
+
+    @NotNull
+    private HoconConfiguration toSection(@NotNull final Map<?, ?> object,
+                                         @NotNull final Map<String, List<String>> comments) {
+        final HoconConfiguration section = new HoconConfiguration();
+        section.options().pathSeparator(pathSeparator);
+        fill(section, object);
+        for (Map.Entry<String, List<String>> entry : comments.entrySet()) {
+            section.setComments(entry.getKey(), entry.getValue().toArray(new String[0]));
+        }
+        return section;
+    }
+
+    private static void fill(@NotNull final ConfigurationSection section, @NotNull final Map<?, ?> object) {
+        for (Map.Entry<?, ?> entry : object.entrySet()) {
+            final String key = entry.getKey().toString();
+            if (entry.getValue() instanceof Map) {
+                fill(section.createSection(key), (Map<?, ?>) entry.getValue());
+            } else {
+                section.set(key, entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Returns the event a value starts with, reading it first if the last event was a key.
+     */
+    @NotNull
+    private Event startOfValue() throws IOException, InvalidConfigurationException {
+        if (event == Event.KEY) {
+            Event next;
+            while ((next = next()) == Event.COMMENT) {
+                // comments between a key and its value belong to neither
+            }
+            return next;
+        }
+        if (event == Event.START_OBJECT || event == Event.START_LIST || event == Event.VALUE) {
+            return event;
+        }
+        throw new IllegalStateException("No value starts with " + event);
+    }
+
+    @Nullable
+    private Object build(@NotNull final Event start, @Nullable final Map<String, List<String>> comments)
+            throws IOException, InvalidConfigurationException {
+        try {
+            return readValue(start, "", comments);
+        } finally {
+            replacing.clear();
+        }
+    }
+
+    @Nullable
+    private Object readValue(@NotNull final Event start, @NotNull final String prefix,
+                             @Nullable final Map<String, List<String>> comments)
+            throws IOException, InvalidConfigurationException {
+        switch (start) {
+            case VALUE:
+                return value;
+            case START_LIST:
+                final List<Object> list = new ArrayList<>();
+                Event next;
+                while ((next = next()) != Event.END_LIST) {
+                    if (next != Event.COMMENT) {
+                        list.add(readValue(next, prefix, null));
+                    }
+                }
+                return list;
+            case START_OBJECT:
+                final Map<String, Object> object = new LinkedHashMap<>();
+                List<String> keyComments = carriedComments;
+                carriedComments = null;
+                while ((next = next()) != Event.END_OBJECT) {
+                    if (next == Event.COMMENT) {
+                        if (comments != null) {
+                            // a blank line cuts comments off from what follows, like typesafe config does
+                            if (keyComments == null || blankLine) {
+                                keyComments = new ArrayList<>();
+                            }
+                            keyComments.add(comment);
+                        }
+                        continue;
+                    }
+                    final String key = this.key;
+                    final String path = prefix.isEmpty() ? key : prefix + pathSeparator + key;
+                    List<String> given = blankLine ? null : keyComments;
+                    keyComments = null;
+                    if (pendingStart) {
+                        // the comments of a dotted key belong to its last key
+                        carriedComments = given;
+                        given = null;
+                    }
+                    final Object existing = object.get(key);
+                    final boolean existingEmpty = existing instanceof Map && ((Map<?, ?>) existing).isEmpty();
+                    final Object built = readValue(startOfValue(), path, comments);
+                    final boolean builtEmpty = built instanceof Map && ((Map<?, ?>) built).isEmpty();
+                    if (merge(object, key, built) && comments != null) {
+                        // merged objects keep the comments of both, leaving out empty objects like typesafe config
+                        List<String> merged = builtEmpty && !existingEmpty ? null : given;
+                        if (!existingEmpty) {
+                            merged = mergeComments(merged, comments.get(path));
+                        }
+                        putComments(comments, path, merged);
+                    } else if (comments != null) {
+                        putComments(comments, path, given);
+                    }
+                }
+                if (object.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
+                    return SerializationHelper.deserialize(object);
+                }
+                return object;
+            default:
+                throw new IllegalStateException("No value starts with " + start);
+        }
+    }
+
+    private static void putComments(@NotNull final Map<String, List<String>> comments, @NotNull final String path,
+                                    @Nullable final List<String> pathComments) {
+        if (pathComments != null) {
+            comments.put(path, pathComments);
+        } else {
+            comments.remove(path);
+        }
+    }
+
+    @Nullable
+    private static List<String> mergeComments(@Nullable final List<String> later,
+                                              @Nullable final List<String> earlier) {
+        if (later == null || earlier == null || later.equals(earlier)) {
+            return later != null ? later : earlier;
+        }
+        final List<String> both = new ArrayList<>(later);
+        both.addAll(earlier);
+        return both;
+    }
+
+    /**
+     * Puts a value into an object the way hocon merges keys given more than once: objects are merged, anything else
+     * replaces what was there. An object that replaced something else is not merged with what came before that.
+     *
+     * @return true if the value was merged into an object that was already there.
+     */
+    @SuppressWarnings("unchecked")
+    private boolean merge(@NotNull final Map<String, Object> object, @NotNull final String key,
+                          @Nullable final Object value) {
+        final boolean present = object.containsKey(key);
+        final Object existing = object.get(key);
+        if (existing instanceof Map && value instanceof Map && !replacing.contains(value)) {
+            for (Map.Entry<String, Object> entry : ((Map<String, Object>) value).entrySet()) {
+                merge((Map<String, Object>) existing, entry.getKey(), entry.getValue());
+            }
+            return true;
+        }
+        if (present && value instanceof Map && !(existing instanceof Map)) {
+            replacing.add(value);
+        }
+        object.remove(key); // keep the order in which the value was last given
+        object.put(key, value);
+        return false;
+    }
+
+    // Parsing
+
+    private static final class Comment {
+        final String text;
+        final boolean blankLine;
+
+        Comment(@NotNull final String text, final boolean blankLine) {
+            this.text = text;
+            this.blankLine = blankLine;
+        }
+    }
+
+    private static final class Frame {
+        @Nullable
+        final Frame parent;
+        final int pathStart;
+        final boolean keyed;
+        final boolean list;
+        final boolean braced;
+        final boolean synthetic;
+        boolean hasKey;
+        boolean expectingValue;
+        boolean afterValue;
+
+        Frame(@Nullable final Frame parent, final int pathStart, final boolean list, final boolean braced,
+              final boolean synthetic) {
+            this.parent = parent;
+            this.pathStart = pathStart;
+            this.keyed = parent != null && (parent.keyed || parent.hasKey);
+            this.list = list;
+            this.braced = braced;
+            this.synthetic = synthetic;
+        }
+    }
+
+    @NotNull
+    private Event startContainer(final boolean list, final boolean braced, final boolean synthetic) {
+        top = new Frame(top, path.length(), list, braced, synthetic);
+        depth++;
+        return event = list ? Event.START_LIST : Event.START_OBJECT;
+    }
+
+    @NotNull
+    private Event endContainer() {
+        final Frame frame = top;
+        top = frame.parent;
+        depth--;
+        path.setLength(frame.pathStart);
+        pathString = null;
+        valueDone();
+        return event = frame.list ? Event.END_LIST : Event.END_OBJECT;
+    }
+
+    private void valueDone() {
+        final Frame frame = top;
+        if (frame != null) {
+            frame.expectingValue = false;
+            frame.afterValue = true;
+            sawNewline = false;
+        }
+    }
+
+    @NotNull
+    private Event key(@NotNull final String key) {
+        this.key = key;
+        final Frame frame = top;
+        path.setLength(frame.pathStart);
+        if (frame.keyed) {
+            path.append(pathSeparator);
+        }
+        path.append(key);
+        pathString = null;
+        frame.hasKey = true;
+        frame.expectingValue = pendingKeys.isEmpty();
+        pendingStart = !pendingKeys.isEmpty();
+        return event = Event.KEY;
+    }
+
+    @NotNull
+    private Event readKey() throws IOException, InvalidConfigurationException {
+        final List<String> path = new ArrayList<>(1);
+        final StringBuilder segment = new StringBuilder();
+        boolean quoted = false;
+        boolean any = false;
+        while (true) {
+            int c = peek(0);
+            if (c == '"') {
+                if (peek(1) == '"' && peek(2) == '"') {
+                    throw error("Triple quoted keys are not supported");
+                }
+                readQuoted(segment);
+                quoted = true;
+            } else if (isUnquotedStart(c)) {
+                final StringBuilder text = new StringBuilder();
+                readUnquoted(text);
+                for (int i = 0; i < text.length(); i++) {
+                    final char ch = text.charAt(i);
+                    if (ch == '.') {
+                        if (segment.length() == 0 && !quoted) {
+                            throw error("Invalid key '" + text + "'");
+                        }
+                        path.add(segment.toString());
+                        segment.setLength(0);
+                        quoted = false;
+                    } else {
+                        segment.append(ch);
+                    }
+                }
+            } else {
+                break;
+            }
+            any = true;
+            final StringBuilder whitespace = new StringBuilder();
+            while (isSpace(c = peek(0)) && c != '\n') {
+                whitespace.append((char) read());
+            }
+            if (c == '"' || isUnquotedStart(c)) {
+                segment.append(whitespace);
+            }
+        }
+        if (!any) {
+            throw error("Expecting a key but found " + describe(peek(0)));
+        }
+        if (segment.length() == 0 && !quoted) {
+            throw error("Invalid key ending in '.'");
+        }
+        path.add(segment.toString());
+
+        final int c = peek(0);
+        if (c == '=' || c == ':') {
+            read();
+        } else if (c == '+' && peek(1) == '=') {
+            throw error("'+=' is not supported by the stream reader");
+        } else if (c != '{') {
+            if (path.size() == 1 && path.get(0).startsWith("include ")) {
+                throw error("Includes are not supported by the stream reader");
+            }
+            throw error("Expecting ':', '=' or '{' after key '" + path.get(path.size() - 1) + "' but found "
+                    + describe(c));
+        }
+        pendingKeys.addAll(path.subList(1, path.size()));
+        return key(path.get(0));
+    }
+
+    @NotNull
+    private Event startValue() throws IOException, InvalidConfigurationException {
+        final int c = peek(0);
+        if (c == '{' || c == '[') {
+            read();
+            return startContainer(c == '[', true, false);
+        }
+        final StringBuilder text = new StringBuilder();
+        int tokens = 0;
+        boolean quoted = false;
+        while (true) {
+            int next = peek(0);
+            if (next == '"') {
+                if (peek(1) == '"' && peek(2) == '"') {
+                    readTripleQuoted(text);
+                } else {
+                    readQuoted(text);
+                }
+                quoted = true;
+            } else if (next == '$' && peek(1) == '{') {
+                throw error("Substitutions are not supported by the stream reader");
+            } else if (isUnquotedStart(next)) {
+                readUnquoted(text);
+            } else {
+                break;
+            }
+            tokens++;
+            final int length = text.length();
+            while (isSpace(next = peek(0)) && next != '\n') {
+                text.append((char) read());
+            }
+            if (next == '{' || next == '[') {
+                throw error("Concatenating objects or lists is not supported by the stream reader");
+            }
+            if (next != '"' && !isUnquotedStart(next) && !(next == '$' && peek(1) == '{')) {
+                text.setLength(length);
+                break;
+            }
+        }
+        if (tokens == 0) {
+            throw error("Expecting a value but found " + describe(c));
+        }
+        value = tokens == 1 && !quoted ? interpret(text.toString()) : text.toString();
+        valueDone();
+        return event = Event.VALUE;
+    }
+
+    /**
+     * Turns a single unquoted token into the value typesafe config would parse it as.
+     */
+    @Nullable
+    static Object interpret(@NotNull final String text) {
+        switch (text) {
+            case "true":
+                return Boolean.TRUE;
+            case "false":
+                return Boolean.FALSE;
+            case "null":
+                return null;
+            default:
+                break;
+        }
+        if (!isNumber(text)) {
+            return text;
+        }
+        if (text.indexOf('.') < 0 && text.indexOf('e') < 0 && text.indexOf('E') < 0) {
+            try {
+                return narrow(Long.parseLong(text));
+            } catch (NumberFormatException e) {
+                return text; // too large for a long, typesafe config keeps the text
+            }
+        }
+        final double number = Double.parseDouble(text);
+        if (number == (long) number) {
+            return narrow((long) number);
+        }
+        return number;
+    }
+
+    /**
+     * Returns whether the text is a json number: {@code -?[0-9]+(\.[0-9]+)?([eE][+-]?[0-9]+)?}.
+     */
+    private static boolean isNumber(@NotNull final String text) {
+        final int length = text.length();
+        int i = 0;
+        if (i < length && text.charAt(i) == '-') {
+            i++;
+        }
+        int digits = i;
+        while (i < length && isDigit(text.charAt(i))) {
+            i++;
+        }
+        if (i == digits) {
+            return false;
+        }
+        if (i < length && text.charAt(i) == '.') {
+            digits = ++i;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == digits) {
+                return false;
+            }
+        }
+        if (i < length && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i++;
+            if (i < length && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+                i++;
+            }
+            digits = i;
+            while (i < length && isDigit(text.charAt(i))) {
+                i++;
+            }
+            if (i == digits) {
+                return false;
+            }
+        }
+        return i == length;
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    @NotNull
+    static Number narrow(final long number) {
+        if (number == (int) number) {
+            return (int) number;
+        }
+        return number;
+    }
+
+    @NotNull
+    private Event leadingComment() {
+        final Comment leading = leadingComments.poll();
+        comment = leading.text;
+        blankLine = leading.blankLine;
+        return event = Event.COMMENT;
+    }
+
+    /**
+     * Skips whitespace up to the next comment or token, noting whether a blank line came before it.
+     *
+     * @return true if a comment was read and should be returned.
+     */
+    private boolean skipSpace() throws IOException {
+        while (true) {
+            final int c = peek(0);
+            if (c == '\n') {
+                read();
+                sawNewline = true;
+            } else if (isSpace(c)) {
+                read();
+            } else if (c == '#' || (c == '/' && peek(1) == '/')) {
+                blankLine = newlines >= 2;
+                read();
+                if (c == '/') {
+                    read();
+                }
+                final StringBuilder text = new StringBuilder();
+                int next;
+                while ((next = peek(0)) != '\n' && next != EOF) {
+                    text.append((char) read());
+                }
+                if (text.length() > 0 && text.charAt(text.length() - 1) == '\r') {
+                    text.setLength(text.length() - 1);
+                }
+                comment = text.toString();
+                event = Event.COMMENT;
+                return true;
+            } else {
+                blankLine = newlines >= 2;
+                return false;
+            }
+        }
+    }
+
+    private void readUnquoted(@NotNull final StringBuilder text) throws IOException {
+        int c;
+        while ((c = peek(0)) != EOF && !isSpace(c)) {
+            // take the run of plain chars that is already buffered in one go
+            int end = position;
+            while (end < limit && isPlain(buffer[end])) {
+                end++;
+            }
+            if (end > position) {
+                text.append(buffer, position, end - position);
+                position = end;
+                newlines = 0;
+                continue;
+            }
+            if (c == '/' && peek(1) == '/') {
+                break;
+            }
+            if (isForbidden(c)) {
+                // exponents of numbers such as 1e+5
+                final int last = text.length() - 1;
+                if (c != '+' || last < 0 || (text.charAt(last) != 'e' && text.charAt(last) != 'E')) {
+                    break;
+                }
+            }
+            text.append((char) read());
+        }
+    }
+
+    private void readQuoted(@NotNull final StringBuilder text) throws IOException, InvalidConfigurationException {
+        read();
+        while (true) {
+            int end = position;
+            while (end < limit && buffer[end] != '"' && buffer[end] != '\\' && buffer[end] >= ' ') {
+                end++;
+            }
+            if (end > position) {
+                text.append(buffer, position, end - position);
+                position = end;
+                newlines = 0;
+            }
+            final int c = read();
+            switch (c) {
+                case '"':
+                    return;
+                case EOF:
+                case '\n':
+                    throw error("Unterminated quoted string");
+                case '\\':
+                    final int escaped = read();
+                    switch (escaped) {
+                        case '"':
+                        case '\\':
+                        case '/':
+                            text.append((char) escaped);
+                            break;
+                        case 'b':
+                            text.append('\b');
+                            break;
+                        case 'f':
+                            text.append('\f');
+                            break;
+                        case 'n':
+                            text.append('\n');
+                            break;
+                        case 'r':
+                            text.append('\r');
+                            break;
+                        case 't':
+                            text.append('\t');
+                            break;
+                        case 'u':
+                            int code = 0;
+                            for (int i = 0; i < 4; i++) {
+                                final int digit = Character.digit(read(), 16);
+                                if (digit < 0) {
+                                    throw error("Invalid unicode escape");
+                                }
+                                code = code * 16 + digit;
+                            }
+                            text.append((char) code);
+                            break;
+                        default:
+                            throw error("Invalid escape " + describe(escaped));
+                    }
+                    break;
+                default:
+                    if (c < ' ') {
+                        throw error("Unescaped control character in quoted string");
+                    }
+                    text.append((char) c);
+            }
+        }
+    }
+
+    private void readTripleQuoted(@NotNull final StringBuilder text)
+            throws IOException, InvalidConfigurationException {
+        read();
+        read();
+        read();
+        while (true) {
+            final int c = read();
+            if (c == EOF) {
+                throw error("Unterminated triple quoted string");
+            }
+            if (c == '"' && peek(0) == '"' && peek(1) == '"') {
+                // any further quotes belong to the string
+                while (peek(2) == '"') {
+                    text.append((char) read());
+                }
+                read();
+                read();
+                return;
+            }
+            text.append((char) c);
+        }
+    }
+
+    private static boolean isSpace(final int c) {
+        if (c < 128) {
+            return c != EOF && Character.isWhitespace(c);
+        }
+        return Character.isWhitespace(c) || Character.isSpaceChar(c) || c == '\uFEFF';
+    }
+
+    /**
+     * Returns whether a char can be part of an unquoted string no matter what follows it.
+     */
+    private static boolean isPlain(final char c) {
+        if (c < 128) {
+            return c > ' ' && !FORBIDDEN[c] && c != '/';
+        }
+        return !isSpace(c);
+    }
+
+    private static boolean isForbidden(final int c) {
+        return c >= 0 && c < 128 && FORBIDDEN[c];
+    }
+
+    private boolean isUnquotedStart(final int c) throws IOException {
+        return c != EOF && !isSpace(c) && !isForbidden(c) && !(c == '/' && peek(1) == '/');
+    }
+
+    @NotNull
+    private static String describe(final int c) {
+        return c == EOF ? "the end of the document" : c == '\n' ? "a new line" : "'" + (char) c + "'";
+    }
+
+    @NotNull
+    private InvalidConfigurationException error(@NotNull final String message) {
+        return new InvalidConfigurationException(description + ": " + line + ": " + message);
+    }
+
+    private int peek(final int ahead) throws IOException {
+        while (position + ahead >= limit) {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            final int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                return EOF;
+            }
+            limit += read;
+        }
+        return buffer[position + ahead];
+    }
+
+    private int read() throws IOException {
+        final int c = peek(0);
+        if (c != EOF) {
+            position++;
+            if (c == '\n') {
+                line++;
+                newlines++;
+            } else if (c > ' ') {
+                newlines = 0;
+            }
+        }
+        return c;
+    }
+}
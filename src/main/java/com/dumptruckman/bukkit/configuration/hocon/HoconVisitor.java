@@ -0,0 +1,99 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Receives the contents of a document streamed by {@link HoconStreamReader#accept(HoconVisitor)} in the order they
+ * appear in it. Every method does nothing unless overridden.
+ *
+ * Paths are the keys leading to a value joined by the path separator of the reader. The elements of a list share the
+ * path of the list, and the root has the empty path.
+ */
+public interface HoconVisitor {
+
+    /**
+     * What to do with the value of a key.
+     */
+    enum Action {
+        /**
+         * Stream the value through the other methods of the visitor.
+         */
+        VISIT,
+        /**
+         * Skip the value without building anything from it.
+         */
+        SKIP,
+        /**
+         * Build the whole value and pass it to {@link #section(String, HoconConfiguration)} if it is an object, or to
+         * {@link #value(String, Object)} otherwise.
+         */
+        MATERIALIZE
+    }
+
+    /**
+     * Called for every key, before its value.
+     *
+     * @param key The key.
+     * @param path The path of the key.
+     * @return What to do with the value of the key.
+     */
+    @NotNull
+    default Action key(@NotNull final String key, @NotNull final String path) {
+        return Action.VISIT;
+    }
+
+    /**
+     * Called when an object starts.
+     *
+     * @param path The path of the object.
+     */
+    default void startObject(@NotNull final String path) { }
+
+    /**
+     * Called when an object ends.
+     *
+     * @param path The path of the object.
+     */
+    default void endObject(@NotNull final String path) { }
+
+    /**
+     * Called when a list starts.
+     *
+     * @param path The path of the list.
+     */
+    default void startList(@NotNull final String path) { }
+
+    /**
+     * Called when a list ends.
+     *
+     * @param path The path of the list.
+     */
+    default void endList(@NotNull final String path) { }
+
+    /**
+     * Called for every string, number, boolean and null, and for materialized values that are not objects.
+     *
+     * @param path The path of the value.
+     * @param value The value, built the same way loading it into a {@link HoconConfiguration} would.
+     */
+    default void value(@NotNull final String path, @Nullable final Object value) { }
+
+    /**
+     * Called with a materialized object.
+     *
+     * @param path The path of the object.
+     * @param section A new configuration holding the contents and comments of the object.
+     */
+    default void section(@NotNull final String path, @NotNull final HoconConfiguration section) { }
+
+    /**
+     * Called for every comment.
+     *
+     * @param comment The text of the comment following the {@code #} or {@code //}.
+     */
+    default void comment(@NotNull final String comment) { }
+}
@@ -0,0 +1,678 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.NumericList;
+import com.dumptruckman.bukkit.configuration.util.SerializationHelper;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads strict json straight into sections, without the tokenizer, parsed tree and resolving of typesafe config.
+ *
+ * The text is read twice. The first pass only checks that it is a json object that loads the same no matter the order
+ * its keys are applied in, allocating nothing but a table of key hashes, and notes which objects are serialized. If it
+ * is not, nothing has been touched and the caller loads the text as hocon instead. The second pass builds the sections,
+ * maps and lists, taking key strings from a cache kept per thread so that files with the same keys share them.
+ *
+ * Values come out exactly as {@link SerializationHelper#deserializeHocon(com.typesafe.config.ConfigValue, boolean)}
+ * would give them for the same text parsed by typesafe config.
+ */
+final class JsonLoader {
+
+    private static final int KEY_CACHE_SIZE = 2048;
+    private static final int MAX_CACHED_KEY_LENGTH = 64;
+    private static final int FNV_OFFSET = 0x811c9dc5;
+    private static final int FNV_PRIME = 0x01000193;
+    /**
+     * Hash of the decoded chars of {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}.
+     */
+    private static final int TYPE_KEY_HASH = hash(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+
+    private static final ThreadLocal<String[]> KEYS = new ThreadLocal<String[]>() {
+        @Override
+        protected String[] initialValue() {
+            return new String[KEY_CACHE_SIZE];
+        }
+    };
+
+    private final char[] text;
+    private final int end;
+    private final char separator;
+    private int position;
+
+    /**
+     * Ordinals of the serialized objects, numbering objects from 1 in the order they start.
+     */
+    private final BitSet serialized = new BitSet();
+    private int objects;
+
+    // Scanning
+    private long[] keyTable = new long[256];
+    private int keyTableSize;
+    private int keyHash;
+    private int keyLength;
+    private boolean keyHasSeparator;
+    /**
+     * Set when the last object scanned holds a key containing the path separator that would be split into sections.
+     */
+    private boolean splitKey;
+
+    // Building
+    private final StringBuilder buffer = new StringBuilder();
+    private String[] keys;
+    private long values;
+
+    private JsonLoader(@NotNull final char[] text, final int start, final int end, final char separator) {
+        this.text = text;
+        this.position = start;
+        this.end = end;
+        this.separator = separator;
+    }
+
+    /**
+     * Returns whether the given text starts like a json object, which is cheap enough to check before copying it.
+     */
+    static boolean startsLikeJson(@NotNull final CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            final char c = text.charAt(i);
+            if (!isSpace(c)) {
+                return c == '{';
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Loads the given text into the configuration if it is strict json.
+     *
+     * @return false without touching the configuration if the text must be loaded as hocon instead.
+     */
+    static boolean load(@NotNull final HoconConfiguration config, @NotNull final char[] text, final int start,
+                        final int end, @Nullable final MetricsRecorder metrics) {
+        final JsonLoader loader = new JsonLoader(text, start, end, config.options().pathSeparator());
+        if (!loader.scanDocument()) {
+            return false;
+        }
+        loader.keyTable = null;
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.PARSE);
+        }
+
+        loader.position = start;
+        loader.objects = 0;
+        loader.keys = KEYS.get();
+        config.pathIndex();
+        final boolean paused = config.pauseJournal();
+        try {
+            loader.buildDocument(config, config.options().compactNumericLists());
+        } finally {
+            config.resumeJournal(paused);
+        }
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.BUILD);
+            metrics.addValues(loader.values);
+            metrics.finish();
+        }
+        config.refreshBindings();
+        return true;
+    }
+
+    // Scanning
+
+    private boolean scanDocument() {
+        skipSpace();
+        if (position >= end || text[position] != '{' || !scanObject()) {
+            return false;
+        }
+        skipSpace();
+        // a serialized root is set as a whole, which is left to the hocon path
+        return position == end && !splitKey && !serialized.get(1);
+    }
+
+    private boolean scanValue() {
+        if (position >= end) {
+            return false;
+        }
+        switch (text[position]) {
+            case '{':
+                return scanObject();
+            case '[':
+                return scanList();
+            case '"':
+                return scanString();
+            case 't':
+                return scanLiteral("true");
+            case 'f':
+                return scanLiteral("false");
+            case 'n':
+                return scanLiteral("null");
+            default:
+                return scanNumber();
+        }
+    }
+
+    private boolean scanObject() {
+        final int ordinal = ++objects;
+        position++;
+        boolean split = false;
+        skipSpace();
+        if (position < end && text[position] == '}') {
+            position++;
+            splitKey = false;
+            return true;
+        }
+        while (true) {
+            final int keyStart = position;
+            if (position >= end || text[position] != '"' || !scanString()) {
+                return false;
+            }
+            if (!addKey(ordinal, keyHash)) {
+                return false; // the same key twice is merged by typesafe config, left to the hocon path
+            }
+            if (keyLength == 2 && keyHash == TYPE_KEY_HASH) {
+                if (position - keyStart != 4 || text[keyStart + 1] != '=' || text[keyStart + 2] != '=') {
+                    return false; // an escaped or colliding type key is not worth telling apart
+                }
+                serialized.set(ordinal);
+            }
+            split |= keyHasSeparator;
+
+            skipSpace();
+            if (position >= end || text[position] != ':') {
+                return false;
+            }
+            position++;
+            skipSpace();
+            splitKey = false;
+            if (!scanValue()) {
+                return false;
+            }
+            split |= splitKey;
+
+            skipSpace();
+            if (position >= end) {
+                return false;
+            }
+            final char c = text[position++];
+            if (c == '}') {
+                // everything in a serialized object is kept in maps, where keys are never split
+                splitKey = split && !serialized.get(ordinal);
+                return true;
+            } else if (c != ',') {
+                return false;
+            }
+            skipSpace();
+        }
+    }
+
+    private boolean scanList() {
+        position++;
+        skipSpace();
+        if (position < end && text[position] == ']') {
+            position++;
+            splitKey = false;
+            return true;
+        }
+        while (true) {
+            if (!scanValue()) {
+                return false;
+            }
+            skipSpace();
+            if (position >= end) {
+                return false;
+            }
+            final char c = text[position++];
+            if (c == ']') {
+                // objects in lists are kept in maps, where keys are never split
+                splitKey = false;
+                return true;
+            } else if (c != ',') {
+                return false;
+            }
+            skipSpace();
+        }
+    }
+
+    /**
+     * Checks a string, leaving the hash and length of its decoded chars for keys.
+     */
+    private boolean scanString() {
+        position++;
+        int hash = FNV_OFFSET;
+        int length = 0;
+        boolean hasSeparator = false;
+        while (true) {
+            if (position >= end) {
+                return false;
+            }
+            char c = text[position++];
+            if (c == '"') {
+                break;
+            } else if (c < ' ') {
+                return false;
+            } else if (c == '\\') {
+                if (position >= end) {
+                    return false;
+                }
+                switch (text[position++]) {
+                    case '"':
+                        c = '"';
+                        break;
+                    case '\\':
+                        c = '\\';
+                        break;
+                    case '/':
+                        c = '/';
+                        break;
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        final int code = hex();
+                        if (code < 0) {
+                            return false;
+                        }
+                        c = (char) code;
+                        break;
+                    default:
+                        return false;
+                }
+            }
+            hash = (hash ^ c) * FNV_PRIME;
+            length++;
+            hasSeparator |= c == separator;
+        }
+        keyHash = hash;
+        keyLength = length;
+        keyHasSeparator = hasSeparator;
+        return true;
+    }
+
+    private boolean scanLiteral(@NotNull final String literal) {
+        final int length = literal.length();
+        if (end - position < length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (text[position + i] != literal.charAt(i)) {
+                return false;
+            }
+        }
+        position += length;
+        splitKey = false;
+        return true;
+    }
+
+    /**
+     * Checks a number: {@code -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?}.
+     */
+    private boolean scanNumber() {
+        if (position < end && text[position] == '-') {
+            position++;
+        }
+        if (position >= end || !isDigit(text[position])) {
+            return false;
+        }
+        if (text[position++] != '0') {
+            skipDigits();
+        }
+        if (position < end && text[position] == '.') {
+            position++;
+            if (!skipDigits()) {
+                return false;
+            }
+        }
+        if (position < end && (text[position] == 'e' || text[position] == 'E')) {
+            position++;
+            if (position < end && (text[position] == '+' || text[position] == '-')) {
+                position++;
+            }
+            if (!skipDigits()) {
+                return false;
+            }
+        }
+        splitKey = false;
+        return true;
+    }
+
+    private boolean skipDigits() {
+        final int start = position;
+        while (position < end && isDigit(text[position])) {
+            position++;
+        }
+        return position > start;
+    }
+
+    /**
+     * Adds a key to the keys seen in its object. Hashes are compared instead of the keys, so a rare collision makes a
+     * key look repeated, which only sends the text down the hocon path.
+     *
+     * @return false if the object already holds a key with the same hash.
+     */
+    private boolean addKey(final int ordinal, final int hash) {
+        if (keyTableSize * 2 >= keyTable.length) {
+            final long[] old = keyTable;
+            keyTable = new long[old.length * 2];
+            for (long entry : old) {
+                if (entry != 0) {
+                    insert(entry);
+                }
+            }
+        }
+        // ordinals start at 1, so no entry is 0
+        if (!insert(((long) ordinal << 32) | (hash & 0xffffffffL))) {
+            return false;
+        }
+        keyTableSize++;
+        return true;
+    }
+
+    private boolean insert(final long entry) {
+        final int mask = keyTable.length - 1;
+        int i = mix(entry) & mask;
+        while (keyTable[i] != 0) {
+            if (keyTable[i] == entry) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        keyTable[i] = entry;
+        return true;
+    }
+
+    private static int mix(final long entry) {
+        final long h = entry * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    // Building, which can no longer fail as the text was already checked
+
+    private void buildDocument(@NotNull final ConfigurationSection root, final boolean compact) {
+        skipSpace();
+        objects++;
+        values++;
+        buildSection(root, compact);
+    }
+
+    /**
+     * Builds the members of an object into a section, as {@link HoconConfiguration} does for a parsed object.
+     */
+    private void buildSection(@NotNull final ConfigurationSection section, final boolean compact) {
+        position++;
+        skipSpace();
+        if (text[position] == '}') {
+            position++;
+            return;
+        }
+        while (true) {
+            final String key = readKey();
+            skipSpace();
+            position++;
+            skipSpace();
+            if (text[position] == '{' && !serialized.get(objects + 1)) {
+                objects++;
+                values++;
+                buildSection(section.createSection(key), compact);
+            } else {
+                section.set(key, readValue(compact, false));
+            }
+            skipSpace();
+            if (text[position++] == '}') {
+                return;
+            }
+            skipSpace();
+        }
+    }
+
+    /**
+     * Reads a value as the plain object it loads as. Serialized objects are deserialized, innermost first, unless the
+     * value is raw because it is inside a serialized object that deserializes everything it holds.
+     */
+    @Nullable
+    private Object readValue(final boolean compact, final boolean raw) {
+        values++;
+        switch (text[position]) {
+            case '{':
+                return readMap(compact, raw);
+            case '[':
+                return readList(compact, raw);
+            case '"':
+                return readString();
+            case 't':
+                position += 4;
+                return Boolean.TRUE;
+            case 'f':
+                position += 5;
+                return Boolean.FALSE;
+            case 'n':
+                position += 4;
+                return null;
+            default:
+                return readNumber();
+        }
+    }
+
+    @NotNull
+    private Object readMap(final boolean compact, final boolean raw) {
+        final boolean isSerialized = serialized.get(++objects);
+        final Map<String, Object> map = new LinkedHashMap<>();
+        position++;
+        skipSpace();
+        if (text[position] == '}') {
+            position++;
+            return map;
+        }
+        while (true) {
+            final String key = readKey();
+            skipSpace();
+            position++;
+            skipSpace();
+            map.put(key, readValue(compact && !isSerialized, raw || isSerialized));
+            skipSpace();
+            if (text[position++] == '}') {
+                break;
+            }
+            skipSpace();
+        }
+        return isSerialized && !raw ? SerializationHelper.deserialize(map) : map;
+    }
+
+    @NotNull
+    private Object readList(final boolean compact, final boolean raw) {
+        final List<Object> list = new ArrayList<>();
+        position++;
+        skipSpace();
+        if (text[position] == ']') {
+            position++;
+        } else {
+            while (true) {
+                list.add(readValue(compact, raw));
+                skipSpace();
+                if (text[position++] == ']') {
+                    break;
+                }
+                skipSpace();
+            }
+        }
+        if (compact) {
+            final NumericList<?> numbers = NumericList.of(list);
+            if (numbers != null) {
+                return numbers;
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Reads a key, taking it from the key cache if it was read before.
+     */
+    @NotNull
+    private String readKey() {
+        final int start = position + 1;
+        int hash = FNV_OFFSET;
+        int i = start;
+        char c;
+        while ((c = text[i]) != '"' && c != '\\') {
+            hash = (hash ^ c) * FNV_PRIME;
+            i++;
+        }
+        final int length = i - start;
+        if (c == '\\' || length > MAX_CACHED_KEY_LENGTH) {
+            return readString();
+        }
+        position = i + 1;
+
+        final int slot = (hash ^ (hash >>> 16)) & (KEY_CACHE_SIZE - 1);
+        final String cached = keys[slot];
+        if (cached != null && cached.length() == length) {
+            int j = 0;
+            while (j < length && cached.charAt(j) == text[start + j]) {
+                j++;
+            }
+            if (j == length) {
+                return cached;
+            }
+        }
+        final String key = new String(text, start, length);
+        keys[slot] = key;
+        return key;
+    }
+
+    @NotNull
+    private String readString() {
+        final int start = ++position;
+        char c;
+        while ((c = text[position]) != '"' && c != '\\') {
+            position++;
+        }
+        if (c == '"') {
+            return new String(text, start, position++ - start);
+        }
+
+        buffer.setLength(0);
+        buffer.append(text, start, position - start);
+        while ((c = text[position++]) != '"') {
+            if (c == '\\') {
+                c = text[position++];
+                switch (c) {
+                    case 'b':
+                        c = '\b';
+                        break;
+                    case 'f':
+                        c = '\f';
+                        break;
+                    case 'n':
+                        c = '\n';
+                        break;
+                    case 'r':
+                        c = '\r';
+                        break;
+                    case 't':
+                        c = '\t';
+                        break;
+                    case 'u':
+                        c = (char) hex();
+                        break;
+                    default:
+                        break; // quote, backslash and slash stand for themselves
+                }
+            }
+            buffer.append(c);
+        }
+        return buffer.toString();
+    }
+
+    @NotNull
+    private Object readNumber() {
+        final int start = position;
+        final boolean negative = text[position] == '-';
+        if (negative) {
+            position++;
+        }
+        long number = 0;
+        final int digits = position;
+        while (position < end && isDigit(text[position])) {
+            number = number * 10 + (text[position++] - '0');
+        }
+        final boolean whole = position >= end
+                || (text[position] != '.' && text[position] != 'e' && text[position] != 'E');
+        // up to 18 digits always fit in a long, anything else goes the way typesafe config parses it
+        if (whole && position - digits <= 18) {
+            return HoconStreamReader.narrow(negative ? -number : number);
+        }
+        while (position < end && isNumberChar(text[position])) {
+            position++;
+        }
+        return HoconStreamReader.interpret(new String(text, start, position - start));
+    }
+
+    // Characters
+
+    private void skipSpace() {
+        while (position < end && isSpace(text[position])) {
+            position++;
+        }
+    }
+
+    /**
+     * Reads the four hex digits of a unicode escape.
+     *
+     * @return The char, or -1 if the digits are not hex.
+     */
+    private int hex() {
+        if (end - position < 4) {
+            return -1;
+        }
+        int code = 0;
+        for (int i = 0; i < 4; i++) {
+            final int digit = Character.digit(text[position++], 16);
+            if (digit < 0) {
+                return -1;
+            }
+            code = code << 4 | digit;
+        }
+        return code;
+    }
+
+    private static boolean isSpace(final char c) {
+        return c == ' ' || c == '\n' || c == '\r' || c == '\t';
+    }
+
+    private static boolean isDigit(final char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isNumberChar(final char c) {
+        return isDigit(c) || c == '.' || c == 'e' || c == 'E' || c == '+' || c == '-';
+    }
+
+    private static int hash(@NotNull final String text) {
+        int hash = FNV_OFFSET;
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
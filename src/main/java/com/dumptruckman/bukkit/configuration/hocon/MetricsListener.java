@@ -0,0 +1,23 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Receives the metrics of every load and save of a configuration, set through
+ * {@link HoconConfigurationOptions#metricsListener(MetricsListener)}.
+ *
+ * Called on the thread that did the work, right after it finished. Implementations should be quick and thread safe.
+ */
+@FunctionalInterface
+public interface MetricsListener {
+
+    /**
+     * Called after a load or save completed.
+     *
+     * @param metrics What the operation spent its time on.
+     */
+    void recorded(@NotNull OperationMetrics metrics);
+}
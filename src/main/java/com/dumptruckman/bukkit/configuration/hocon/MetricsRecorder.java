@@ -0,0 +1,255 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.hocon.OperationMetrics.Phase;
+import com.dumptruckman.bukkit.configuration.hocon.OperationMetrics.Type;
+import com.typesafe.config.ConfigList;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigValue;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FilterOutputStream;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Collects the metrics of one load or save while it runs.
+ *
+ * Only created when a {@link MetricsListener} is set, so operations without one do no more than a null check at each
+ * phase boundary.
+ */
+final class MetricsRecorder {
+
+    private static final Logger LOG = Logger.getLogger(HoconConfiguration.class.getName());
+
+    private final MetricsListener listener;
+    private final Type type;
+    @Nullable
+    private final Path path;
+    private final long startNanos;
+    private final long startAllocated;
+    private final long[] phaseNanos = new long[Phase.values().length];
+    private long markNanos;
+    private long unmarkedWriteNanos;
+    private long valueCount;
+    private long bytes;
+
+    private MetricsRecorder(@NotNull final MetricsListener listener, @NotNull final Type type,
+                            @Nullable final Path path) {
+        this.listener = listener;
+        this.type = type;
+        this.path = path;
+        this.startAllocated = Allocation.current();
+        this.startNanos = System.nanoTime();
+        this.markNanos = startNanos;
+    }
+
+    /**
+     * Starts recording an operation.
+     *
+     * @return The recorder, or null if there is no listener to report to.
+     */
+    @Nullable
+    static MetricsRecorder start(@Nullable final MetricsListener listener, @NotNull final Type type,
+                                 @Nullable final Path path) {
+        return listener != null ? new MetricsRecorder(listener, type, path) : null;
+    }
+
+    /**
+     * Ends a phase, adding the time since the previous phase ended to it. Time spent in a tracked writer or stream in
+     * the meantime goes to {@link Phase#WRITE} instead.
+     */
+    void mark(@NotNull final Phase phase) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()] += now - markNanos - unmarkedWriteNanos;
+        unmarkedWriteNanos = 0;
+        markNanos = now;
+    }
+
+    void addBytes(final long bytes) {
+        this.bytes += bytes;
+    }
+
+    /**
+     * Counts chars by the bytes they take in UTF-8, which configurations are read and written in.
+     */
+    void addChars(@NotNull final CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            bytes += utf8Length(chars.charAt(i));
+        }
+    }
+
+    void addValues(final long values) {
+        this.valueCount += values;
+    }
+
+    /**
+     * Counts the values of a parsed tree. The time taken is not added to any phase.
+     */
+    void addValues(@NotNull final ConfigValue value) {
+        addValues(count(value));
+        markNanos = System.nanoTime();
+    }
+
+    /**
+     * Wraps a writer so that the time spent in it counts as {@link Phase#WRITE} and the chars written are counted by
+     * the bytes they take in UTF-8.
+     */
+    @NotNull
+    Writer track(@NotNull final Writer writer) {
+        return new FilterWriter(writer) {
+            @Override
+            public void write(final int c) throws IOException {
+                long start = System.nanoTime();
+                out.write(c);
+                wrote(start, utf8Length((char) c));
+            }
+
+            @Override
+            public void write(@NotNull final char[] chars, final int offset, final int length) throws IOException {
+                long start = System.nanoTime();
+                out.write(chars, offset, length);
+                int bytes = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    bytes += utf8Length(chars[i]);
+                }
+                wrote(start, bytes);
+            }
+
+            @Override
+            public void write(@NotNull final String string, final int offset, final int length) throws IOException {
+                long start = System.nanoTime();
+                out.write(string, offset, length);
+                int bytes = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    bytes += utf8Length(string.charAt(i));
+                }
+                wrote(start, bytes);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                long start = System.nanoTime();
+                out.flush();
+                wrote(start, 0);
+            }
+        };
+    }
+
+    /**
+     * Wraps a stream so that the time spent in it counts as {@link Phase#WRITE} and the bytes written are counted.
+     */
+    @NotNull
+    OutputStream track(@NotNull final OutputStream stream) {
+        return new FilterOutputStream(stream) {
+            @Override
+            public void write(final int b) throws IOException {
+                long start = System.nanoTime();
+                out.write(b);
+                wrote(start, 1);
+            }
+
+            @Override
+            public void write(@NotNull final byte[] b, final int offset, final int length) throws IOException {
+                long start = System.nanoTime();
+                out.write(b, offset, length);
+                wrote(start, length);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                long start = System.nanoTime();
+                out.flush();
+                wrote(start, 0);
+            }
+
+            @Override
+            public void close() throws IOException {
+                long start = System.nanoTime();
+                out.close();
+                wrote(start, 0);
+            }
+        };
+    }
+
+    private void wrote(final long start, final int amount) {
+        long nanos = System.nanoTime() - start;
+        phaseNanos[Phase.WRITE.ordinal()] += nanos;
+        unmarkedWriteNanos += nanos;
+        bytes += amount;
+    }
+
+    /**
+     * Reports the operation to the listener. Exceptions thrown by the listener are logged, not passed on.
+     */
+    void finish() {
+        long totalNanos = System.nanoTime() - startNanos;
+        long allocated = Allocation.current();
+        OperationMetrics metrics = new OperationMetrics(type, path, totalNanos, phaseNanos, valueCount, bytes,
+                allocated >= 0 && startAllocated >= 0 ? allocated - startAllocated : -1);
+        try {
+            listener.recorded(metrics);
+        } catch (RuntimeException e) {
+            LOG.log(Level.WARNING, "Exception in metrics listener", e);
+        }
+    }
+
+    // each half of a surrogate pair counts for two of the four bytes of the pair
+    private static int utf8Length(final char c) {
+        return c < 0x80 ? 1 : c < 0x800 || Character.isSurrogate(c) ? 2 : 3;
+    }
+
+    private static long count(@NotNull final ConfigValue value) {
+        long count = 1;
+        if (value instanceof ConfigObject) {
+            for (ConfigValue child : ((ConfigObject) value).values()) {
+                count += count(child);
+            }
+        } else if (value instanceof ConfigList) {
+            for (ConfigValue child : (ConfigList) value) {
+                count += count(child);
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Reads the bytes allocated by the current thread, where the JVM supports it.
+     */
+    private static final class Allocation {
+
+        @Nullable
+        private static final com.sun.management.ThreadMXBean BEAN = findBean();
+
+        @Nullable
+        private static com.sun.management.ThreadMXBean findBean() {
+            try {
+                ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+                if (bean instanceof com.sun.management.ThreadMXBean
+                        && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+                    return (com.sun.management.ThreadMXBean) bean;
+                }
+            } catch (LinkageError | RuntimeException ignore) {
+                // not a JVM that can tell
+            }
+            return null;
+        }
+
+        static long current() {
+            if (BEAN == null || !BEAN.isThreadAllocatedMemoryEnabled()) {
+                return -1;
+            }
+            return BEAN.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+    }
+}
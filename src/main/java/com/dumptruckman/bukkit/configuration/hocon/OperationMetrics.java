@@ -0,0 +1,162 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.nio.file.Path;
+
+/**
+ * The metrics of a single load or save of a {@link HoconConfiguration}.
+ */
+public final class OperationMetrics {
+
+    /**
+     * The kind of operation.
+     */
+    public enum Type {
+        LOAD,
+        SAVE
+    }
+
+    /**
+     * The phases an operation spends its time in. A phase an operation does not go through takes no time.
+     */
+    public enum Phase {
+        /**
+         * Reading the file.
+         */
+        READ,
+        /**
+         * Decoding and parsing the contents.
+         */
+        PARSE,
+        /**
+         * Resolving substitutions in the parsed contents.
+         */
+        RESOLVE,
+        /**
+         * Building sections from the parsed contents, deserializing values and, with {@link CommentMode#EAGER},
+         * capturing comments along the way.
+         */
+        BUILD,
+        /**
+         * Capturing comments set aside by {@link CommentMode#LAZY}.
+         */
+        COMMENTS,
+        /**
+         * Rendering the configuration, including serializing values.
+         */
+        RENDER,
+        /**
+         * Writing the rendered text to the file or writer.
+         */
+        WRITE
+    }
+
+    private final Type type;
+    @Nullable
+    private final Path path;
+    private final long totalNanos;
+    private final long[] phaseNanos;
+    private final long valueCount;
+    private final long bytes;
+    private final long allocatedBytes;
+
+    OperationMetrics(@NotNull final Type type, @Nullable final Path path, final long totalNanos,
+                     @NotNull final long[] phaseNanos, final long valueCount, final long bytes,
+                     final long allocatedBytes) {
+        this.type = type;
+        this.path = path;
+        this.totalNanos = totalNanos;
+        this.phaseNanos = phaseNanos;
+        this.valueCount = valueCount;
+        this.bytes = bytes;
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * Returns whether this was a load or a save.
+     *
+     * @return The kind of operation.
+     */
+    @NotNull
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the file loaded or saved.
+     *
+     * @return The file, or null if a string, reader or writer was used.
+     */
+    @Nullable
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * Returns how long the whole operation took.
+     *
+     * @return The time taken, in nanoseconds.
+     */
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /**
+     * Returns how long the operation spent in a phase.
+     *
+     * @param phase The phase.
+     * @return The time spent, in nanoseconds.
+     */
+    public long getNanos(@NotNull final Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    /**
+     * Returns how many values were loaded or rendered, counting sections, lists and everything in them.
+     *
+     * @return The number of values.
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * Returns how many bytes were read or written. Strings and writers are counted by the bytes they take in UTF-8.
+     *
+     * @return The bytes read or written.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns how many bytes the thread allocated during the operation.
+     *
+     * @return The bytes allocated, or -1 if the JVM cannot tell.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder(type.name()).append(' ');
+        builder.append(path != null ? path.toString() : "<string>").append(": ").append(totalNanos / 1000).append("us");
+        for (Phase phase : Phase.values()) {
+            if (phaseNanos[phase.ordinal()] > 0) {
+                builder.append(' ').append(phase.name().toLowerCase()).append('=')
+                        .append(phaseNanos[phase.ordinal()] / 1000).append("us");
+            }
+        }
+        builder.append(", ").append(valueCount).append(" values, ").append(bytes).append(" bytes");
+        if (allocatedBytes >= 0) {
+            builder.append(", ").append(allocatedBytes).append(" bytes allocated");
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,37 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.file.Path;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Receives the configurations reloaded for a {@link ConfigWatch}.
+ *
+ * Both methods are called on the shared watcher thread. Listeners that touch anything not thread safe, such as the
+ * server itself, should hand the work over to the main thread.
+ */
+@FunctionalInterface
+public interface ReloadListener {
+
+    /**
+     * Called with a freshly loaded configuration after the watched file changed.
+     *
+     * @param config A new configuration holding the new contents of the file.
+     */
+    void reloaded(@NotNull HoconConfiguration config);
+
+    /**
+     * Called when the watched file changed but could not be loaded. Logs a warning unless overridden.
+     *
+     * @param path The watched file.
+     * @param e What went wrong.
+     */
+    default void reloadFailed(@NotNull final Path path, @NotNull final Exception e) {
+        Logger.getLogger(HoconConfiguration.class.getName()).log(Level.WARNING, "Cannot reload " + path, e);
+    }
+}
@@ -0,0 +1,275 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs background saves one file at a time.
+ *
+ * Each file gets a queue holding at most one waiting save. A save submitted while another one of the same file is
+ * waiting replaces it, so a burst of saves collapses into writing the latest state once, and everyone who asked for
+ * one of the collapsed saves is told when that write is done. Synchronous saves go through the same queue, so a
+ * background save that was requested earlier can never overwrite them with an older state.
+ */
+final class SaveQueue {
+
+    /**
+     * Writes a snapshot of a configuration.
+     */
+    interface Task {
+        void write(@NotNull OutputStream out) throws IOException;
+    }
+
+    private static final ConcurrentMap<Path, SaveQueue> QUEUES = new ConcurrentHashMap<>();
+
+    private final Path path;
+
+    @Nullable
+    private Task pending;
+    @Nullable
+    private CompletableFuture<Void> pendingFuture;
+    /**
+     * Whether a drain was handed to an executor or is running.
+     */
+    private boolean running;
+    /**
+     * Whether a thread is in the middle of draining.
+     */
+    private boolean draining;
+    private boolean retired;
+
+    private SaveQueue(@NotNull final Path path) {
+        this.path = path;
+    }
+
+    /**
+     * Returns the executor used when no other is given, which runs saves on daemon threads that are only kept around
+     * while there is something to save.
+     */
+    @NotNull
+    static Executor defaultExecutor() {
+        return DefaultExecutor.INSTANCE;
+    }
+
+    /**
+     * Queues a save of the given file.
+     *
+     * @param path The file to save to.
+     * @param task Writes the snapshot to save.
+     * @param executor Runs the save if no save of the same file is running already.
+     * @return A future completed once the file holds this snapshot or a later one.
+     */
+    @NotNull
+    static CompletableFuture<Void> submit(@NotNull final Path path, @NotNull final Task task,
+                                          @NotNull final Executor executor) {
+        final Path key = path.toAbsolutePath().normalize();
+        while (true) {
+            SaveQueue queue = QUEUES.computeIfAbsent(key, SaveQueue::new);
+            synchronized (queue) {
+                if (!queue.retired) {
+                    return queue.enqueue(task, executor);
+                }
+            }
+        }
+    }
+
+    /**
+     * Saves the given file and waits for it to be written.
+     *
+     * The save runs on the calling thread, along with any background save that is waiting for its executor, unless
+     * another thread is writing the same file right now. In that case it is queued behind that write and written by
+     * that thread.
+     *
+     * @param path The file to save to.
+     * @param task Writes the state to save.
+     * @throws IOException If the file cannot be written.
+     */
+    static void save(@NotNull final Path path, @NotNull final Task task) throws IOException {
+        final Path key = path.toAbsolutePath().normalize();
+        SaveQueue queue;
+        CompletableFuture<Void> future;
+        while (true) {
+            queue = QUEUES.computeIfAbsent(key, SaveQueue::new);
+            synchronized (queue) {
+                if (!queue.retired) {
+                    future = queue.enqueue(task, null);
+                    break;
+                }
+            }
+        }
+        queue.drain();
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Makes the given task the waiting one and hands a drain to the executor if none is running. Without an executor
+     * the caller drains itself.
+     */
+    @NotNull
+    private CompletableFuture<Void> enqueue(@NotNull final Task task, @Nullable final Executor executor) {
+        pending = task;
+        if (pendingFuture == null) {
+            pendingFuture = new CompletableFuture<>();
+        }
+        final CompletableFuture<Void> future = pendingFuture;
+        if (!running) {
+            running = true;
+            if (executor == null) {
+                return future;
+            }
+            try {
+                executor.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                running = false;
+                pending = null;
+                pendingFuture = null;
+                retire();
+                future.completeExceptionally(e);
+            }
+        }
+        return future;
+    }
+
+    /**
+     * Writes waiting saves until there are none left. Does nothing if another thread is draining already, as that
+     * thread picks up whatever is waiting.
+     */
+    private void drain() {
+        synchronized (this) {
+            if (draining) {
+                return;
+            }
+            draining = true;
+        }
+        while (true) {
+            final Task task;
+            final CompletableFuture<Void> future;
+            synchronized (this) {
+                task = pending;
+                future = pendingFuture;
+                pending = null;
+                pendingFuture = null;
+                if (task == null || future == null) {
+                    running = false;
+                    draining = false;
+                    retire();
+                    return;
+                }
+            }
+            try {
+                write(path, task);
+                future.complete(null);
+            } catch (Throwable t) {
+                future.completeExceptionally(t);
+            }
+        }
+    }
+
+    private void retire() {
+        retired = true;
+        QUEUES.remove(path, this);
+    }
+
+    /**
+     * Writes to a file next to the target, forces it to disk and moves it into place, so the target never holds a
+     * partial save.
+     */
+    private static void write(@NotNull final Path path, @NotNull final Task task) throws IOException {
+        Path temp = createTempFile(path);
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                task.write(out);
+            }
+            // the task closes the stream it is given, so the file is opened again to force it
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Creates an empty file next to the given one, along with any missing parent directories, to write to before
+     * moving it into place. Its name is unique, so different writers of the same file never share it, and it is given
+     * the permissions of the file it replaces if there is one. Otherwise it gets the default permissions of a new
+     * file, unlike {@link Files#createTempFile}, which only lets the owner read it.
+     */
+    @NotNull
+    static Path createTempFile(@NotNull final Path path) throws IOException {
+        final Path absolute = path.toAbsolutePath();
+        final Path parent = absolute.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        Path temp;
+        while (true) {
+            temp = absolute.resolveSibling(absolute.getFileName() + "."
+                    + Long.toUnsignedString(ThreadLocalRandom.current().nextLong(), 36) + ".tmp");
+            try {
+                Files.createFile(temp);
+                break;
+            } catch (FileAlreadyExistsException ignore) {
+                // taken by another writer, try another name
+            }
+        }
+        try {
+            Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(absolute));
+        } catch (NoSuchFileException | UnsupportedOperationException ignore) {
+            // nothing to copy the permissions from
+        }
+        return temp;
+    }
+
+    private static final class DefaultExecutor {
+
+        private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+        static final ExecutorService INSTANCE = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "HoconConfiguration-save-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
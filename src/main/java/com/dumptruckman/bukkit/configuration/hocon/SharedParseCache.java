@@ -0,0 +1,280 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.NioFiles;
+import com.typesafe.config.Config;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * A process wide cache of parsed configuration files, shared by every {@link HoconConfiguration} that loads a file
+ * through {@link HoconConfiguration#load(Path)}, {@link HoconConfiguration#load(java.io.File)} or
+ * {@link HoconConfiguration#loadConfiguration(java.io.File)}.
+ *
+ * The cache is disabled until given a capacity. Parsed and resolved trees are immutable, so every configuration
+ * loading a cached file builds its own sections from the same tree without reading, parsing or resolving the file
+ * again. The least recently used trees are evicted once the files they were parsed from add up to more than the
+ * capacity.
+ */
+public final class SharedParseCache {
+
+    /**
+     * How cached files are recognized as unchanged.
+     */
+    public enum KeyMode {
+        /**
+         * By path, last modified time and size. Costs a single file system lookup, but misses a change that keeps
+         * the size and lands within the resolution of the last modified time.
+         */
+        FILE_STATS,
+        /**
+         * By the SHA-256 hash of the contents. The file is read every time, but identical contents are shared even
+         * between different paths.
+         */
+        CONTENT_HASH
+    }
+
+    private static final SharedParseCache INSTANCE = new SharedParseCache();
+
+    /**
+     * Returns the cache shared by the whole process.
+     *
+     * @return The shared cache.
+     */
+    @NotNull
+    public static SharedParseCache getInstance() {
+        return INSTANCE;
+    }
+
+    private final LinkedHashMap<Object, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private KeyMode keyMode = KeyMode.FILE_STATS;
+    private long capacity;
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    private SharedParseCache() { }
+
+    /**
+     * Sets how many bytes of files may be cached, evicting what no longer fits.
+     *
+     * @param capacity The total size of the cached files in bytes, or 0 to disable the cache.
+     * @return This cache for chaining.
+     */
+    @NotNull
+    public synchronized SharedParseCache capacity(final long capacity) {
+        this.capacity = Math.max(0, capacity);
+        evict();
+        return this;
+    }
+
+    /**
+     * Returns how many bytes of files may be cached. Defaults to 0, which disables the cache.
+     *
+     * @return The total size of the cached files in bytes.
+     */
+    public synchronized long capacity() {
+        return capacity;
+    }
+
+    /**
+     * Sets how cached files are recognized as unchanged, clearing the cache if it changes.
+     *
+     * @param keyMode The new key mode.
+     * @return This cache for chaining.
+     */
+    @NotNull
+    public synchronized SharedParseCache keyMode(@NotNull final KeyMode keyMode) {
+        if (this.keyMode != keyMode) {
+            this.keyMode = keyMode;
+            clear();
+        }
+        return this;
+    }
+
+    /**
+     * Returns how cached files are recognized as unchanged. Defaults to {@link KeyMode#FILE_STATS}.
+     *
+     * @return The key mode.
+     */
+    @NotNull
+    public synchronized KeyMode keyMode() {
+        return keyMode;
+    }
+
+    /**
+     * Removes everything from the cache. The counters are left alone.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        weight = 0;
+    }
+
+    /**
+     * Returns how many loads were served from the cache.
+     *
+     * @return The number of hits.
+     */
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    /**
+     * Returns how many loads had to parse the file while the cache was enabled.
+     *
+     * @return The number of misses.
+     */
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    /**
+     * Returns how many parsed files were evicted to stay within the capacity.
+     *
+     * @return The number of evictions.
+     */
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Returns the total size in bytes of the files currently cached.
+     *
+     * @return The weight of the cache.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Returns the parsed and resolved contents of a file, from the cache if possible.
+     *
+     * @return The parsed contents, or null if the file is empty.
+     */
+    @Nullable
+    Config parse(@NotNull final Path path, @Nullable final MetricsRecorder metrics) throws IOException {
+        final KeyMode keyMode;
+        final boolean enabled;
+        synchronized (this) {
+            enabled = capacity > 0;
+            keyMode = this.keyMode;
+        }
+        if (!enabled) {
+            return parse(NioFiles.read(path), path, metrics);
+        }
+
+        final Object key;
+        final long size;
+        final long lastModified;
+        ByteBuffer bytes = null;
+        if (keyMode == KeyMode.FILE_STATS) {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            key = path.toAbsolutePath().normalize();
+            size = attributes.size();
+            lastModified = attributes.lastModifiedTime().toMillis();
+        } else {
+            bytes = NioFiles.read(path);
+            key = new HashKey(NioFiles.sha256(bytes));
+            size = bytes.remaining();
+            lastModified = 0;
+        }
+
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.READ);
+        }
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.weight == size && entry.lastModified == lastModified) {
+                hits++;
+                return entry.config;
+            }
+            misses++;
+        }
+
+        Config config = parse(bytes != null ? bytes : NioFiles.read(path), path, metrics);
+        if (config == null) {
+            return null;
+        }
+
+        synchronized (this) {
+            if (size <= capacity && this.keyMode == keyMode) {
+                Entry previous = entries.put(key, new Entry(config, size, lastModified));
+                weight += size - (previous != null ? previous.weight : 0);
+                evict();
+            }
+        }
+        return config;
+    }
+
+    @Nullable
+    private static Config parse(@NotNull final ByteBuffer bytes, @NotNull final Path path,
+                                @Nullable final MetricsRecorder metrics) {
+        if (metrics != null) {
+            metrics.addBytes(bytes.remaining());
+            metrics.mark(OperationMetrics.Phase.READ);
+        }
+        Config config = NioFiles.parse(bytes, path.toString());
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.PARSE);
+        }
+        if (config == null) {
+            return null;
+        }
+        config = config.resolve();
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.RESOLVE);
+        }
+        return config;
+    }
+
+    private void evict() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (weight > capacity && it.hasNext()) {
+            weight -= it.next().weight;
+            it.remove();
+            evictions++;
+        }
+    }
+
+    private static final class Entry {
+        final Config config;
+        final long weight;
+        final long lastModified;
+
+        Entry(@NotNull final Config config, final long weight, final long lastModified) {
+            this.config = config;
+            this.weight = weight;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private static final class HashKey {
+        private final byte[] hash;
+
+        HashKey(@NotNull final byte[] hash) {
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof HashKey && Arrays.equals(hash, ((HashKey) o).hash);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(hash);
+        }
+    }
+}
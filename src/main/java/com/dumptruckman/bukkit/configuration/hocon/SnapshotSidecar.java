@@ -0,0 +1,439 @@
+/* This Source Code Form is subject to the terms of the Mozilla Public
+ * License, v. 2.0. If a copy of the MPL was not distributed with this
+ * file, You can obtain one at http://mozilla.org/MPL/2.0/. */
+package com.dumptruckman.bukkit.configuration.hocon;
+
+import com.dumptruckman.bukkit.configuration.util.NioFiles;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigList;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOrigin;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueFactory;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Reads and writes the binary snapshot kept next to a configuration file when
+ * {@link HoconConfigurationOptions#snapshotSidecar()} is enabled.
+ *
+ * A snapshot holds the parsed tree of its file, with the comments of every value, and is only used while the size, last
+ * modified time and SHA-256 hash of the file are still those it was taken from. Files with substitutions, which can
+ * resolve to other values from one load to the next, are never snapshot. Its layout is:
+ *
+ * <pre>
+ * int     magic, "HCSN"
+ * int     format version
+ * long    size of the file
+ * long    last modified time of the file, in milliseconds
+ * byte[32] SHA-256 hash of the file
+ * int     length of the tree
+ * byte[]  the tree
+ * int     CRC-32 of everything before it
+ * </pre>
+ *
+ * The tree is a single value, written as a tag byte followed by what the tag calls for: nothing for null and the
+ * booleans, the number for ints, longs and doubles, a string for strings, and a count followed by that many values, or
+ * keys and values, for lists and objects. The high bit of the tag is set if a count and that many comment strings
+ * follow it. Strings are written as their length in UTF-8 bytes followed by the bytes.
+ *
+ * A snapshot that is of another version, does not match its file, fails its checksum or cannot be read in full is
+ * never used; the file is parsed instead and the snapshot taken again.
+ */
+final class SnapshotSidecar {
+
+    private static final Logger LOG = Logger.getLogger(HoconConfiguration.class.getName());
+
+    static final String SUFFIX = ".snapshot";
+
+    static final int MAGIC = 0x4843534E;
+    static final int VERSION = 2;
+
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 4 + 4 + 8 + 8 + HASH_LENGTH + 4;
+    private static final int CRC_LENGTH = 4;
+
+    private static final byte NULL = 0;
+    private static final byte TRUE = 1;
+    private static final byte FALSE = 2;
+    private static final byte INT = 3;
+    private static final byte LONG = 4;
+    private static final byte DOUBLE = 5;
+    private static final byte STRING = 6;
+    private static final byte LIST = 7;
+    private static final byte OBJECT = 8;
+    private static final int HAS_COMMENTS = 0x80;
+
+    private SnapshotSidecar() { }
+
+    /**
+     * Returns the path of the snapshot kept for a file.
+     */
+    @NotNull
+    static Path sidecarOf(@NotNull final Path path) {
+        return path.resolveSibling(path.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Returns the parsed and resolved contents of a file, from its snapshot if that still matches the file, taking a
+     * new snapshot otherwise unless the file has substitutions.
+     *
+     * @return The parsed contents, or null if the file is empty.
+     */
+    @Nullable
+    static Config parse(@NotNull final Path path, @Nullable final MetricsRecorder metrics) throws IOException {
+        final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        final long lastModified = attributes.lastModifiedTime().toMillis();
+        final ByteBuffer bytes = NioFiles.read(path);
+        final long size = bytes.remaining();
+        if (metrics != null) {
+            metrics.addBytes(size);
+            metrics.mark(OperationMetrics.Phase.READ);
+        }
+
+        final Path sidecar = sidecarOf(path);
+        final byte[] hash = NioFiles.sha256(bytes);
+        final ConfigObject snapshot = read(sidecar, size, lastModified, hash, path.toString());
+        if (snapshot != null) {
+            if (metrics != null) {
+                metrics.mark(OperationMetrics.Phase.PARSE);
+            }
+            return snapshot.toConfig();
+        }
+
+        Config config = NioFiles.parse(bytes, path.toString());
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.PARSE);
+        }
+        if (config == null) {
+            Files.deleteIfExists(sidecar);
+            return null;
+        }
+        // substitutions may resolve differently on the next load, so a file that has them is never snapshot
+        final boolean substitutions = !config.isResolved();
+        config = config.resolve();
+        if (metrics != null) {
+            metrics.mark(OperationMetrics.Phase.RESOLVE);
+        }
+        if (substitutions) {
+            Files.deleteIfExists(sidecar);
+        } else {
+            write(sidecar, config.root(), size, lastModified, hash);
+        }
+        return config;
+    }
+
+    /**
+     * Reads a snapshot, if it exists, is intact and was taken from a file with the given stats.
+     *
+     * @return The tree held by the snapshot, or null if it cannot be used.
+     */
+    @Nullable
+    static ConfigObject read(@NotNull final Path sidecar, final long size, final long lastModified,
+                             @NotNull final byte[] hash, @NotNull final String originDescription) {
+        final byte[] contents;
+        try {
+            contents = Files.readAllBytes(sidecar);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            LOG.log(Level.FINE, "Cannot read " + sidecar, e);
+            return null;
+        }
+        try {
+            return decode(contents, size, lastModified, hash, originDescription);
+        } catch (RuntimeException e) {
+            LOG.log(Level.FINE, "Ignoring unreadable snapshot " + sidecar, e);
+            return null;
+        }
+    }
+
+    /**
+     * Takes a snapshot of a tree, moving it into place once written in full. A snapshot that cannot be written is
+     * only logged, as the file it was taken from loaded fine.
+     */
+    static void write(@NotNull final Path sidecar, @NotNull final ConfigObject root, final long size,
+                      final long lastModified, @NotNull final byte[] hash) {
+        Path temp = null;
+        try {
+            final byte[] contents = encode(root, size, lastModified, hash);
+            temp = SaveQueue.createTempFile(sidecar);
+            Files.write(temp, contents);
+            try {
+                Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, sidecar, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException | RuntimeException e) {
+            LOG.log(Level.WARNING, "Cannot write snapshot " + sidecar, e);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException ignore) { }
+            }
+        }
+    }
+
+    @NotNull
+    static byte[] encode(@NotNull final ConfigObject root, final long size, final long lastModified,
+                         @NotNull final byte[] hash) throws IOException {
+        final ByteArrayOutputStream tree = new ByteArrayOutputStream();
+        writeValue(new DataOutputStream(tree), root);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream(HEADER_LENGTH + tree.size() + CRC_LENGTH);
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(size);
+        out.writeLong(lastModified);
+        out.write(hash);
+        out.writeInt(tree.size());
+        tree.writeTo(out);
+
+        final CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt((int) crc.getValue());
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes a snapshot, throwing a runtime exception if it is damaged.
+     *
+     * @return The tree held by the snapshot, or null if it is of another version or was taken from another file.
+     */
+    @Nullable
+    static ConfigObject decode(@NotNull final byte[] contents, final long size, final long lastModified,
+                               @NotNull final byte[] hash, @NotNull final String originDescription) {
+        if (contents.length < HEADER_LENGTH + CRC_LENGTH) {
+            throw new IllegalArgumentException("Snapshot is truncated");
+        }
+        final ByteBuffer in = ByteBuffer.wrap(contents);
+        if (in.getInt() != MAGIC) {
+            throw new IllegalArgumentException("Not a snapshot");
+        }
+        if (in.getInt() != VERSION) {
+            return null;
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(contents, 0, contents.length - CRC_LENGTH);
+        if ((int) crc.getValue() != in.getInt(contents.length - CRC_LENGTH)) {
+            throw new IllegalArgumentException("Snapshot checksum mismatch");
+        }
+
+        final long snapshotSize = in.getLong();
+        final long snapshotLastModified = in.getLong();
+        final byte[] snapshotHash = new byte[HASH_LENGTH];
+        in.get(snapshotHash);
+        if (snapshotSize != size || snapshotLastModified != lastModified || !Arrays.equals(snapshotHash, hash)) {
+            return null;
+        }
+        final int length = in.getInt();
+        if (length != in.remaining() - CRC_LENGTH) {
+            throw new IllegalArgumentException("Snapshot length mismatch");
+        }
+        in.limit(in.limit() - CRC_LENGTH);
+
+        final ConfigValue root = new Reader(in, ConfigOriginFactory.newSimple(originDescription)).readValue();
+        if (in.hasRemaining()) {
+            throw new IllegalArgumentException("Snapshot has trailing bytes");
+        }
+        if (!(root instanceof ConfigObject)) {
+            throw new IllegalArgumentException("Snapshot does not hold an object");
+        }
+        return (ConfigObject) root;
+    }
+
+    private static void writeValue(@NotNull final DataOutputStream out, @NotNull final ConfigValue value)
+            throws IOException {
+        final List<String> comments = value.origin().comments();
+        final int flags = comments.isEmpty() ? 0 : HAS_COMMENTS;
+        switch (value.valueType()) {
+            case OBJECT:
+                final ConfigObject object = (ConfigObject) value;
+                out.writeByte(OBJECT | flags);
+                writeComments(out, comments);
+                out.writeInt(object.size());
+                for (Map.Entry<String, ConfigValue> entry : object.entrySet()) {
+                    writeString(out, entry.getKey());
+                    writeValue(out, entry.getValue());
+                }
+                return;
+            case LIST:
+                final ConfigList list = (ConfigList) value;
+                out.writeByte(LIST | flags);
+                writeComments(out, comments);
+                out.writeInt(list.size());
+                for (ConfigValue element : list) {
+                    writeValue(out, element);
+                }
+                return;
+            default:
+                break;
+        }
+
+        final Object unwrapped = value.unwrapped();
+        if (unwrapped == null) {
+            out.writeByte(NULL | flags);
+            writeComments(out, comments);
+        } else if (unwrapped instanceof Boolean) {
+            out.writeByte(((Boolean) unwrapped ? TRUE : FALSE) | flags);
+            writeComments(out, comments);
+        } else if (unwrapped instanceof Integer) {
+            out.writeByte(INT | flags);
+            writeComments(out, comments);
+            out.writeInt((Integer) unwrapped);
+        } else if (unwrapped instanceof Long) {
+            out.writeByte(LONG | flags);
+            writeComments(out, comments);
+            out.writeLong((Long) unwrapped);
+        } else if (unwrapped instanceof Double) {
+            out.writeByte(DOUBLE | flags);
+            writeComments(out, comments);
+            out.writeDouble((Double) unwrapped);
+        } else if (unwrapped instanceof String) {
+            out.writeByte(STRING | flags);
+            writeComments(out, comments);
+            writeString(out, (String) unwrapped);
+        } else {
+            throw new IllegalArgumentException("Cannot snapshot a value of " + unwrapped.getClass());
+        }
+    }
+
+    private static void writeComments(@NotNull final DataOutputStream out, @NotNull final List<String> comments)
+            throws IOException {
+        if (!comments.isEmpty()) {
+            out.writeInt(comments.size());
+            for (String comment : comments) {
+                writeString(out, comment);
+            }
+        }
+    }
+
+    private static void writeString(@NotNull final DataOutputStream out, @NotNull final String string)
+            throws IOException {
+        final byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Rebuilds values from a snapshot, with every value given the same origin apart from its comments.
+     */
+    private static final class Reader {
+
+        private final ByteBuffer in;
+        private final ConfigOrigin origin;
+        private final String description;
+
+        Reader(@NotNull final ByteBuffer in, @NotNull final ConfigOrigin origin) {
+            this.in = in;
+            this.origin = origin;
+            this.description = origin.description();
+        }
+
+        @NotNull
+        ConfigValue readValue() {
+            final int tag = in.get() & 0xFF;
+            final List<String> comments = (tag & HAS_COMMENTS) != 0 ? readComments() : Collections.emptyList();
+            final ConfigValue value;
+            switch (tag & ~HAS_COMMENTS) {
+                case NULL:
+                    value = ConfigValueFactory.fromAnyRef(null, description);
+                    break;
+                case TRUE:
+                    value = ConfigValueFactory.fromAnyRef(true, description);
+                    break;
+                case FALSE:
+                    value = ConfigValueFactory.fromAnyRef(false, description);
+                    break;
+                case INT:
+                    value = ConfigValueFactory.fromAnyRef(in.getInt(), description);
+                    break;
+                case LONG:
+                    value = ConfigValueFactory.fromAnyRef(in.getLong(), description);
+                    break;
+                case DOUBLE:
+                    value = ConfigValueFactory.fromAnyRef(in.getDouble(), description);
+                    break;
+                case STRING:
+                    value = ConfigValueFactory.fromAnyRef(readString(), description);
+                    break;
+                case LIST:
+                    final int elements = readCount();
+                    final List<ConfigValue> list = new ArrayList<>(elements);
+                    for (int i = 0; i < elements; i++) {
+                        list.add(readValue());
+                    }
+                    value = ConfigValueFactory.fromIterable(list, description);
+                    break;
+                case OBJECT:
+                    final int entries = readCount();
+                    final Map<String, ConfigValue> map = new LinkedHashMap<>();
+                    for (int i = 0; i < entries; i++) {
+                        final String key = readString();
+                        if (map.put(key, readValue()) != null) {
+                            throw new IllegalArgumentException("Duplicate key " + key);
+                        }
+                    }
+                    value = ConfigValueFactory.fromMap(map, description);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown tag " + tag);
+            }
+            return comments.isEmpty() ? value : value.withOrigin(origin.withComments(comments));
+        }
+
+        @NotNull
+        private List<String> readComments() {
+            final int count = readCount();
+            final List<String> comments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                comments.add(readString());
+            }
+            return comments;
+        }
+
+        @NotNull
+        private String readString() {
+            final int length = readCount();
+            final String string = new String(in.array(), in.arrayOffset() + in.position(), length,
+                    StandardCharsets.UTF_8);
+            in.position(in.position() + length);
+            return string;
+        }
+
+        /**
+         * Reads a count of items that are each at least a byte long, so a damaged count cannot claim more than is left.
+         */
+        private int readCount() {
+            final int count = in.getInt();
+            if (count < 0 || count > in.remaining()) {
+                throw new IllegalArgumentException("Bad count " + count);
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,344 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Holds configuration comments in a tree keyed by path segment.
+ *
+ * Each node holds the comments for one path and the nodes for its children, so walking a configuration tree can
+ * follow along node by node instead of joining full path strings for every key. Nodes are only created for paths
+ * that have comments, or that lead to paths that have comments.
+ */
+public class CommentTree {
+
+    @Nullable
+    private List<String> comments;
+    @Nullable
+    private Map<String, CommentTree> children;
+
+    /**
+     * Returns the comments held directly by this node.
+     *
+     * @return The comments of this node, or an empty list if there are none.
+     */
+    @NotNull
+    public List<String> getComments() {
+        return comments != null ? comments : Collections.emptyList();
+    }
+
+    /**
+     * Sets the comments held directly by this node.
+     *
+     * @param comments The comments, one string per line. Null or empty removes the comments.
+     */
+    public void setComments(@Nullable List<String> comments) {
+        this.comments = comments == null || comments.isEmpty() ? null : comments;
+    }
+
+    /**
+     * Returns whether this node holds no comments and has no children.
+     *
+     * @return True if there is nothing in this node.
+     */
+    public boolean isEmpty() {
+        return comments == null && (children == null || children.isEmpty());
+    }
+
+    /**
+     * Returns the node for a key of the value this node represents.
+     *
+     * The key is split on the separator the same way a configuration path would be, so a map key that contains the
+     * separator finds the same comments as the equivalent nested path.
+     *
+     * @param key The key of the child.
+     * @param separator The path separator.
+     * @return The child node, or null if there are no comments at or below the key.
+     */
+    @Nullable
+    public CommentTree child(@NotNull String key, char separator) {
+        if (children == null) {
+            return null;
+        }
+        if (key.indexOf(separator) < 0) {
+            return children.get(key);
+        }
+        return find(key, separator);
+    }
+
+    /**
+     * Attaches a node under the given key, replacing whatever was there.
+     *
+     * @param key The key of the child, split on the separator like a configuration path.
+     * @param separator The path separator.
+     * @param child The node to attach.
+     */
+    public void putChild(@NotNull String key, char separator, @NotNull CommentTree child) {
+        int split = key.lastIndexOf(separator);
+        CommentTree parent = split < 0 ? this : getOrCreate(key.substring(0, split), separator);
+        if (parent.children == null) {
+            parent.children = new HashMap<>();
+        }
+        parent.children.put(split < 0 ? key : key.substring(split + 1), child);
+    }
+
+    /**
+     * Returns the comments for the given path relative to this node.
+     *
+     * @param path The path, with the empty path meaning this node.
+     * @param separator The path separator.
+     * @return The comments for the path, or an empty list if there are none.
+     */
+    @NotNull
+    public List<String> get(@NotNull String path, char separator) {
+        CommentTree node = find(path, separator);
+        return node != null ? node.getComments() : Collections.emptyList();
+    }
+
+    /**
+     * Sets the comments for the given path relative to this node.
+     *
+     * @param path The path, with the empty path meaning this node.
+     * @param separator The path separator.
+     * @param comments The comments, one string per line. Null or empty removes the comments.
+     */
+    public void set(@NotNull String path, char separator, @Nullable List<String> comments) {
+        if (comments == null || comments.isEmpty()) {
+            CommentTree node = find(path, separator);
+            if (node != null) {
+                node.setComments(null);
+            }
+        } else {
+            getOrCreate(path, separator).setComments(comments);
+        }
+    }
+
+    /**
+     * Returns a tree with the comments for the given path set, leaving this tree unchanged.
+     *
+     * Only the nodes on the way to the path are copied and all others are shared with this tree, so neither tree may
+     * be changed afterwards.
+     *
+     * @param path The path, with the empty path meaning this node.
+     * @param separator The path separator.
+     * @param comments The comments, one string per line. Null or empty removes the comments.
+     * @return The new tree, or this tree if there were no comments to remove.
+     */
+    @NotNull
+    public CommentTree with(@NotNull String path, char separator, @Nullable List<String> comments) {
+        List<String> value = comments == null || comments.isEmpty() ? null : comments;
+        return path.isEmpty() ? withComments(value) : with(path, 0, separator, value);
+    }
+
+    @NotNull
+    private CommentTree with(@NotNull String path, int start, char separator, @Nullable List<String> comments) {
+        int end = path.indexOf(separator, start);
+        String key = end < 0 ? path.substring(start) : path.substring(start, end);
+        CommentTree child = children != null ? children.get(key) : null;
+        if (child == null) {
+            if (comments == null) {
+                return this;
+            }
+            child = new CommentTree();
+        }
+        CommentTree changed = end < 0 ? child.withComments(comments) : child.with(path, end + 1, separator, comments);
+        if (changed == child) {
+            return this;
+        }
+        CommentTree copy = withComments(this.comments);
+        if (copy.children == null) {
+            copy.children = new HashMap<>();
+        }
+        copy.children.put(key, changed);
+        return copy;
+    }
+
+    // copies only this node, sharing its children
+    @NotNull
+    private CommentTree withComments(@Nullable List<String> comments) {
+        CommentTree copy = new CommentTree();
+        copy.comments = comments;
+        copy.children = children != null ? new HashMap<>(children) : null;
+        return copy;
+    }
+
+    /**
+     * Copies all the comments of the given tree into this one. Comments in the given tree replace the comments of
+     * the same path in this tree, all others are left alone.
+     *
+     * @param other The tree to merge into this one.
+     */
+    public void merge(@NotNull CommentTree other) {
+        if (other.comments != null) {
+            comments = other.comments;
+        }
+        if (other.children != null) {
+            for (Map.Entry<String, CommentTree> entry : other.children.entrySet()) {
+                CommentTree child = children != null ? children.get(entry.getKey()) : null;
+                if (child == null) {
+                    if (children == null) {
+                        children = new HashMap<>();
+                    }
+                    children.put(entry.getKey(), entry.getValue());
+                } else {
+                    child.merge(entry.getValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a deep copy of this tree that is unaffected by later changes to this one.
+     *
+     * @return A copy of this tree.
+     */
+    @NotNull
+    public CommentTree copy() {
+        CommentTree copy = new CommentTree();
+        copy.comments = comments;
+        if (children != null) {
+            copy.children = new HashMap<>(children.size());
+            for (Map.Entry<String, CommentTree> entry : children.entrySet()) {
+                copy.children.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        return copy;
+    }
+
+    /**
+     * Collects the paths whose comments differ between two trees.
+     *
+     * @param before The old comments, or null for none.
+     * @param after The new comments, or null for none.
+     * @param path The path both trees are for, with the empty path meaning the root.
+     * @param separator The path separator.
+     * @param changed Receives the paths with different comments.
+     */
+    public static void collectChanges(@Nullable final CommentTree before, @Nullable final CommentTree after,
+                                      @NotNull final String path, final char separator,
+                                      @NotNull final Collection<String> changed) {
+        if (before == after) {
+            return;
+        }
+        List<String> oldComments = before != null ? before.getComments() : Collections.<String>emptyList();
+        List<String> newComments = after != null ? after.getComments() : Collections.<String>emptyList();
+        if (!oldComments.equals(newComments)) {
+            changed.add(path);
+        }
+        Map<String, CommentTree> oldChildren = before != null ? before.children : null;
+        Map<String, CommentTree> newChildren = after != null ? after.children : null;
+        if (oldChildren != null) {
+            for (Map.Entry<String, CommentTree> entry : oldChildren.entrySet()) {
+                collectChanges(entry.getValue(), newChildren != null ? newChildren.get(entry.getKey()) : null,
+                        childPath(path, entry.getKey(), separator), separator, changed);
+            }
+        }
+        if (newChildren != null) {
+            for (Map.Entry<String, CommentTree> entry : newChildren.entrySet()) {
+                if (oldChildren == null || !oldChildren.containsKey(entry.getKey())) {
+                    collectChanges(null, entry.getValue(), childPath(path, entry.getKey(), separator), separator,
+                            changed);
+                }
+            }
+        }
+    }
+
+    @NotNull
+    private static String childPath(@NotNull final String path, @NotNull final String key, final char separator) {
+        return path.isEmpty() ? key : path + separator + key;
+    }
+
+    /**
+     * Removes all comments from this tree.
+     */
+    public void clear() {
+        comments = null;
+        children = null;
+    }
+
+    @Nullable
+    private CommentTree find(@NotNull String path, char separator) {
+        CommentTree node = this;
+        if (path.isEmpty()) {
+            return node;
+        }
+        int start = 0;
+        while (node != null) {
+            int end = path.indexOf(separator, start);
+            String key = end < 0 ? path.substring(start) : path.substring(start, end);
+            node = node.children != null ? node.children.get(key) : null;
+            if (end < 0) {
+                return node;
+            }
+            start = end + 1;
+        }
+        return null;
+    }
+
+    @NotNull
+    private CommentTree getOrCreate(@NotNull String path, char separator) {
+        CommentTree node = this;
+        if (path.isEmpty()) {
+            return node;
+        }
+        int start = 0;
+        while (true) {
+            int end = path.indexOf(separator, start);
+            String key = end < 0 ? path.substring(start) : path.substring(start, end);
+            if (node.children == null) {
+                node.children = new HashMap<>();
+            }
+            CommentTree child = node.children.get(key);
+            if (child == null) {
+                child = new CommentTree();
+                node.children.put(key, child);
+            }
+            node = child;
+            if (end < 0) {
+                return node;
+            }
+            start = end + 1;
+        }
+    }
+
+    /**
+     * Collects the comments of a parsed hocon value and all the objects nested in it.
+     *
+     * @param value The parsed value.
+     * @param separator The path separator used to split keys that contain it.
+     * @return The comments for the value, or null if neither it nor any nested object has comments.
+     */
+    @Nullable
+    public static CommentTree fromHocon(@NotNull ConfigValue value, char separator) {
+        CommentTree node = null;
+        if (value.valueType() == ConfigValueType.OBJECT) {
+            ConfigObject object = (ConfigObject) value;
+            for (String key : object.keySet()) {
+                CommentTree child = fromHocon(object.get(key), separator);
+                if (child != null) {
+                    if (node == null) {
+                        node = new CommentTree();
+                    }
+                    node.putChild(key, separator, child);
+                }
+            }
+        }
+        List<String> comments = value.origin().comments();
+        if (!comments.isEmpty()) {
+            if (node == null) {
+                node = new CommentTree();
+            }
+            node.setComments(comments);
+        }
+        return node;
+    }
+}
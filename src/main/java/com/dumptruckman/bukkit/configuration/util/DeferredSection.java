@@ -0,0 +1,20 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.typesafe.config.ConfigObject;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A configuration section that may still be waiting to be built from the parsed document it was loaded from.
+ *
+ * Writers can render such a section straight from the parsed document instead of building it first.
+ */
+public interface DeferredSection {
+
+    /**
+     * Returns the parsed object this section will be built from once it is used.
+     *
+     * @return The parsed object, or null if the section has been built already.
+     */
+    @Nullable
+    ConfigObject getDeferred();
+}
@@ -0,0 +1,223 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Deserializes {@link ConfigurationSerializable} objects without looking up their factory for every object.
+ *
+ * {@link ConfigurationSerialization#deserializeObject(Map)} searches the class for a {@code deserialize} or
+ * {@code valueOf} method or a map constructor each time it is called. This registry does that search once per class
+ * and keeps the factories it finds as {@link MethodHandle}s. The class is still looked up by alias through
+ * {@link ConfigurationSerialization#getClassByAlias(String)} every time, so classes registered again under the same
+ * alias are picked up. Classes can also be given an explicit {@link Deserializer} that is used instead.
+ *
+ * Factories are called the way {@link ConfigurationSerialization} calls them: if the method fails or returns null the
+ * constructor is tried, and failures are logged to the logger of {@link ConfigurationSerialization} before null is
+ * returned. Only unknown aliases and classes without a factory that can be called from here are left to
+ * {@link ConfigurationSerialization#deserializeObject(Map)}.
+ */
+public final class DeserializerRegistry {
+
+    /**
+     * Builds an object from its serialized form.
+     *
+     * @param <T> The type of object built.
+     */
+    @FunctionalInterface
+    public interface Deserializer<T extends ConfigurationSerializable> {
+
+        /**
+         * Builds an object from its serialized form.
+         *
+         * @param serialized The serialized form, including the {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}.
+         * @return The object, or null if it could not be built.
+         */
+        @Nullable
+        T deserialize(@NotNull Map<String, Object> serialized);
+    }
+
+    private static final Logger LOG = Logger.getLogger(ConfigurationSerialization.class.getName());
+
+    private static final MethodType FACTORY_TYPE = MethodType.methodType(Object.class, Map.class);
+
+    private static final ConcurrentMap<Class<?>, Deserializer<?>> EXPLICIT = new ConcurrentHashMap<>();
+
+    private static final ClassValue<Factory> FACTORIES = new ClassValue<Factory>() {
+        @Override
+        protected Factory computeValue(final Class<?> type) {
+            return findFactory(type);
+        }
+    };
+
+    private DeserializerRegistry() { }
+
+    /**
+     * Registers an explicit deserializer for a class, used for every alias the class is registered under with
+     * {@link ConfigurationSerialization}.
+     *
+     * @param type The class to deserialize.
+     * @param deserializer Builds objects of the class.
+     * @param <T> The type of object built.
+     */
+    public static <T extends ConfigurationSerializable> void register(@NotNull final Class<T> type,
+                                                                      @NotNull final Deserializer<? extends T> deserializer) {
+        EXPLICIT.put(type, deserializer);
+    }
+
+    /**
+     * Removes the explicit deserializer of a class, if any.
+     *
+     * @param type The class to remove the deserializer of.
+     */
+    public static void unregister(@NotNull final Class<? extends ConfigurationSerializable> type) {
+        EXPLICIT.remove(type);
+    }
+
+    /**
+     * Deserializes an object, like {@link ConfigurationSerialization#deserializeObject(Map)}.
+     *
+     * @param serialized The serialized form, including the {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}.
+     * @return The object, or null if it could not be built.
+     * @throws IllegalArgumentException If the serialized form has no known alias.
+     */
+    @Nullable
+    public static Object deserialize(@NotNull final Map<String, Object> serialized) {
+        final Object alias = serialized.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+        final Class<? extends ConfigurationSerializable> type = alias instanceof String
+                ? ConfigurationSerialization.getClassByAlias((String) alias) : null;
+        if (type == null) {
+            return ConfigurationSerialization.deserializeObject(serialized);
+        }
+        final Deserializer<?> deserializer = EXPLICIT.get(type);
+        if (deserializer != null) {
+            try {
+                final Object result = deserializer.deserialize(serialized);
+                if (result == null) {
+                    LOG.log(Level.SEVERE, "Could not deserialize " + type + ": deserializer returned null");
+                }
+                return result;
+            } catch (RuntimeException e) {
+                LOG.log(Level.SEVERE, "Could not deserialize " + type, e);
+                return null;
+            }
+        }
+        final Factory factory = FACTORIES.get(type);
+        if (factory == null) {
+            return ConfigurationSerialization.deserializeObject(serialized);
+        }
+        return factory.deserialize(type, serialized);
+    }
+
+    /**
+     * Finds the factories {@link ConfigurationSerialization} would try: a static {@code deserialize} method or else a
+     * static {@code valueOf} method, and a public map constructor.
+     *
+     * @return The factories, or null if there are none that can be called from here.
+     */
+    @Nullable
+    private static Factory findFactory(@NotNull final Class<?> type) {
+        final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+        try {
+            Method method = factoryMethod(type, "deserialize");
+            if (method == null) {
+                method = factoryMethod(type, "valueOf");
+            }
+            Constructor<?> constructor;
+            try {
+                constructor = type.getConstructor(Map.class);
+            } catch (NoSuchMethodException e) {
+                constructor = null;
+            }
+            if (method == null && constructor == null) {
+                return null;
+            }
+            return new Factory(method, method != null ? lookup.unreflect(method).asType(FACTORY_TYPE) : null,
+                    constructor,
+                    constructor != null ? lookup.unreflectConstructor(constructor).asType(FACTORY_TYPE) : null);
+        } catch (IllegalAccessException | SecurityException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Method factoryMethod(@NotNull final Class<?> type, @NotNull final String name) {
+        try {
+            final Method method = type.getDeclaredMethod(name, Map.class);
+            if (ConfigurationSerializable.class.isAssignableFrom(method.getReturnType())
+                    && Modifier.isStatic(method.getModifiers())) {
+                return method;
+            }
+        } catch (NoSuchMethodException | SecurityException ignore) {
+            // not a factory
+        }
+        return null;
+    }
+
+    /**
+     * The factory method and constructor of a class, either of which may be missing.
+     */
+    private static final class Factory {
+
+        @Nullable
+        private final Method method;
+        @Nullable
+        private final MethodHandle methodHandle;
+        @Nullable
+        private final Constructor<?> constructor;
+        @Nullable
+        private final MethodHandle constructorHandle;
+
+        Factory(@Nullable final Method method, @Nullable final MethodHandle methodHandle,
+                @Nullable final Constructor<?> constructor, @Nullable final MethodHandle constructorHandle) {
+            this.method = method;
+            this.methodHandle = methodHandle;
+            this.constructor = constructor;
+            this.constructorHandle = constructorHandle;
+        }
+
+        @Nullable
+        Object deserialize(@NotNull final Class<?> type, @NotNull final Map<String, Object> serialized) {
+            if (methodHandle != null) {
+                try {
+                    final Object result = (Object) methodHandle.invokeExact((Map) serialized);
+                    if (result != null) {
+                        return result;
+                    }
+                    LOG.log(Level.SEVERE, "Could not call method '" + method + "' of " + type
+                            + " for deserialization: method returned null");
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    LOG.log(Level.SEVERE, "Could not call method '" + method + "' of " + type
+                            + " for deserialization", t);
+                }
+            }
+            if (constructorHandle != null) {
+                try {
+                    return (Object) constructorHandle.invokeExact((Map) serialized);
+                } catch (Error e) {
+                    throw e;
+                } catch (Throwable t) {
+                    LOG.log(Level.SEVERE, "Could not call constructor '" + constructor + "' of " + type
+                            + " for deserialization", t);
+                }
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.ConfigurationSection;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Lets a {@link HoconWriter} reuse the rendered text of sections that have not changed since they were last written.
+ *
+ * The writer only asks about sections the cache reports as cacheable, and only where they are written under their own
+ * name by their parent. Whatever is returned by {@link #getRendered(ConfigurationSection, int)} is written out as is,
+ * so implementations must only return text that was given to {@link #putRendered(ConfigurationSection, int, String)}
+ * for an unchanged section with the same indent, render options and defaults.
+ */
+public interface FragmentCache {
+
+    /**
+     * Returns whether the rendered text of the given section should be kept.
+     *
+     * @param section The section about to be written.
+     * @return True if the writer should look up and store the rendered text of the section.
+     */
+    boolean isCacheable(@NotNull ConfigurationSection section);
+
+    /**
+     * Returns the text previously rendered for the given section.
+     *
+     * @param section The section about to be written.
+     * @param indent The indent the section is written at.
+     * @return The rendered text, or null if the section has to be rendered again.
+     */
+    @Nullable
+    String getRendered(@NotNull ConfigurationSection section, int indent);
+
+    /**
+     * Stores the text just rendered for the given section.
+     *
+     * @param section The section that was written.
+     * @param indent The indent the section was written at.
+     * @param rendered The text rendered for the section, from its opening to its closing brace.
+     */
+    void putRendered(@NotNull ConfigurationSection section, int indent, @NotNull String rendered);
+}
@@ -0,0 +1,661 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.dumptruckman.bukkit.configuration.SerializableSet;
+import com.typesafe.config.ConfigObject;
+import com.typesafe.config.ConfigOriginFactory;
+import com.typesafe.config.ConfigRenderOptions;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Renders a configuration tree as hocon straight to a {@link Writer}.
+ *
+ * The output is the same as rendering the tree built by {@link SerializationHelper#buildHoconConfig(Object)} with the
+ * same {@link ConfigRenderOptions}, but no intermediate {@link ConfigValue} tree or complete String is ever built.
+ * Memory use is bounded by the width and depth of the tree rather than its total size.
+ */
+public class HoconWriter {
+
+    private static final Logger LOG = Logger.getLogger(HoconWriter.class.getName());
+
+    private static final String INDENT = "    ";
+    private static final String ORIGIN_DESCRIPTION = ConfigOriginFactory.newSimple("HoconConfiguration").description();
+    private static final Comparator<Map.Entry> ENTRY_ORDER = new RenderComparator();
+
+    public static HoconWriter createHoconWriter(@NotNull Writer out, @NotNull ConfigRenderOptions options,
+                                                @NotNull CommentTree withComments, char pathSeparator) {
+        return new HoconWriter(out, options, withComments, pathSeparator, null);
+    }
+
+    public static HoconWriter createHoconWriter(@NotNull Writer out, @NotNull ConfigRenderOptions options,
+                                                @NotNull CommentTree withComments, char pathSeparator,
+                                                @Nullable FragmentCache fragmentCache) {
+        return new HoconWriter(out, options, withComments, pathSeparator, fragmentCache);
+    }
+
+    private final @NotNull Writer out;
+    private final @NotNull CommentTree allComments;
+    private final char pathSeparator;
+    private final @Nullable FragmentCache fragmentCache;
+    private final boolean json;
+    private final boolean formatted;
+    private final boolean renderComments;
+    private final boolean originComments;
+    private @Nullable ForkJoinPool pool;
+    private int parallelThreshold;
+    private long valueCount;
+
+    private HoconWriter(@NotNull Writer out, @NotNull ConfigRenderOptions options,
+                        @NotNull CommentTree withComments, char pathSeparator,
+                        @Nullable FragmentCache fragmentCache) {
+        this.out = out;
+        this.allComments = withComments;
+        this.pathSeparator = pathSeparator;
+        this.fragmentCache = fragmentCache;
+        this.json = options.getJson();
+        this.formatted = options.getFormatted();
+        this.renderComments = options.getComments();
+        this.originComments = options.getOriginComments();
+    }
+
+    /**
+     * Creates a writer with the same settings as the given one that writes to a different writer.
+     */
+    private HoconWriter(@NotNull Writer out, @NotNull HoconWriter settings) {
+        this.out = out;
+        this.allComments = settings.allComments;
+        this.pathSeparator = settings.pathSeparator;
+        this.fragmentCache = settings.fragmentCache;
+        this.json = settings.json;
+        this.formatted = settings.formatted;
+        this.renderComments = settings.renderComments;
+        this.originComments = settings.originComments;
+        this.pool = settings.pool;
+        this.parallelThreshold = settings.parallelThreshold;
+    }
+
+    /**
+     * Renders objects holding at least the given number of objects and lists on a fork join pool, each of those
+     * rendered by a task of its own. The output is the same as without.
+     *
+     * @param pool The pool to render on, or null to render everything on the calling thread.
+     * @param threshold How many objects and lists an object must directly hold to have them rendered in parallel.
+     * @return This writer for chaining.
+     */
+    @NotNull
+    public HoconWriter parallel(@Nullable ForkJoinPool pool, int threshold) {
+        this.pool = pool;
+        this.parallelThreshold = threshold;
+        return this;
+    }
+
+    /**
+     * Writes the given root value, usually a {@link ConfigurationSection} or {@link Map}, to the underlying writer.
+     *
+     * @param root The root of the tree to write.
+     * @throws IOException If the underlying writer fails.
+     */
+    public void write(@NotNull Object root) throws IOException {
+        writeValue(normalize(root), 0, true, allComments, false);
+        out.flush();
+    }
+
+    /**
+     * Writes the given values of a section, usually those it returns from {@code getValues(false)}, to the underlying
+     * writer. Unlike {@link #write(Object)}, sections among the values that the given section holds under their own
+     * name may be written from the {@link FragmentCache}.
+     *
+     * @param values The values to write.
+     * @param owner The section holding the values.
+     * @throws IOException If the underlying writer fails.
+     */
+    public void write(@NotNull Map<?, ?> values, @NotNull ConfigurationSection owner) throws IOException {
+        valueCount++;
+        writeObject(values, 0, true, allComments, owner);
+        out.flush();
+    }
+
+    /**
+     * Returns how many values this writer has rendered, not counting those written from the {@link FragmentCache}.
+     *
+     * @return The number of values rendered.
+     */
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    /**
+     * Writes a value. Only a section written in place, that is under its own name by its parent, may be written from
+     * the fragment cache, since its rendered text holds the comments and indent of that place.
+     */
+    private void writeValue(@Nullable Object value, int indent, boolean atRoot, @Nullable CommentTree comments,
+                            boolean inPlace) throws IOException {
+        valueCount++;
+        if (value instanceof ConfigurationSection) {
+            writeSection((ConfigurationSection) value, indent, atRoot, comments, inPlace);
+        } else if (value instanceof Map) {
+            writeObject((Map<?, ?>) value, indent, atRoot, comments, null);
+        } else if (value instanceof ConfigurationSerializable) {
+            writeSerializable((ConfigurationSerializable) value, indent, atRoot, comments);
+        } else if (value instanceof NumericList) {
+            writeNumericList((NumericList<?>) value, indent);
+        } else if (value instanceof Collection) {
+            writeList((Collection<?>) value, indent);
+        } else if (value instanceof ConfigValue) {
+            out.write(((ConfigValue) value).render(ConfigRenderOptions.concise().setJson(json)));
+        } else {
+            writeScalar(value);
+        }
+    }
+
+    private void writeSection(@NotNull ConfigurationSection section, int indent, boolean atRoot,
+                              @Nullable CommentTree comments, boolean inPlace) throws IOException {
+        if (fragmentCache == null || atRoot || !inPlace || !fragmentCache.isCacheable(section)) {
+            writeObject(valuesOf(section), indent, atRoot, comments, section);
+            return;
+        }
+
+        String rendered = fragmentCache.getRendered(section, indent);
+        if (rendered == null) {
+            StringWriter buffer = new StringWriter();
+            HoconWriter fragmentWriter = new HoconWriter(buffer, this);
+            fragmentWriter.writeObject(valuesOf(section), indent, false, comments, section);
+            valueCount += fragmentWriter.valueCount;
+            rendered = buffer.toString();
+            fragmentCache.putRendered(section, indent, rendered);
+        }
+        out.write(rendered);
+    }
+
+    /**
+     * Returns the values of a section, taking them straight from the parsed document if it was not built yet.
+     */
+    @NotNull
+    private static Map<?, ?> valuesOf(@NotNull ConfigurationSection section) {
+        if (section instanceof DeferredSection) {
+            ConfigObject deferred = ((DeferredSection) section).getDeferred();
+            if (deferred != null) {
+                return (Map<?, ?>) SerializationHelper.unwrappedView(deferred);
+            }
+        }
+        return section.getValues(false);
+    }
+
+    private void writeSerializable(@NotNull ConfigurationSerializable serializable, int indent, boolean atRoot,
+                                   @Nullable CommentTree comments) throws IOException {
+        List<Map.Entry> entries = new ArrayList<>();
+        SerializerRegistry.serialize(serializable,
+                (key, value) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(key, value)));
+        writeEntries(entries.toArray(new Map.Entry[entries.size()]), indent, atRoot, comments, null);
+    }
+
+    /**
+     * Writes the entries of a map, which are the values of the given owner section unless that is null.
+     */
+    private void writeObject(@NotNull Map<?, ?> map, int indent, boolean atRoot, @Nullable CommentTree comments,
+                             @Nullable ConfigurationSection owner) throws IOException {
+        writeEntries(map.entrySet().toArray(new Map.Entry[map.size()]), indent, atRoot, comments, owner);
+    }
+
+    private void writeEntries(@NotNull Map.Entry[] entries, int indent, boolean atRoot,
+                              @Nullable CommentTree comments, @Nullable ConfigurationSection owner)
+            throws IOException {
+        if (entries.length == 0) {
+            out.write("{}");
+            finishRoot(atRoot);
+            return;
+        }
+
+        Arrays.sort(entries, ENTRY_ORDER);
+
+        boolean outerBraces = json || !atRoot;
+        int innerIndent = outerBraces ? indent + 1 : indent;
+        if (outerBraces) {
+            out.write('{');
+            if (formatted) {
+                out.write('\n');
+            }
+        }
+
+        Object[] values = new Object[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            values[i] = normalize(entries[i].getValue());
+        }
+        String[] rendered = renderInParallel(entries, values, indent, innerIndent, comments, owner);
+
+        boolean first = true;
+        for (int i = 0; i < entries.length; i++) {
+            String key = entries[i].getKey().toString();
+            Object value = values[i];
+            if (!isWritable(value)) {
+                LOG.log(Level.WARNING, "Error while building configuration map.",
+                        new IllegalArgumentException("Cannot write value of " + value.getClass() + " at " + key));
+                continue;
+            }
+            if (!first) {
+                writeEntrySeparator();
+            }
+            first = false;
+
+            if (rendered != null && rendered[i] != null) {
+                out.write(rendered[i]);
+            } else {
+                writeEntry(key, value, indent, innerIndent, comments, owner);
+            }
+        }
+
+        if (outerBraces) {
+            if (formatted) {
+                out.write('\n');
+                writeIndent(indent);
+            }
+            out.write('}');
+        }
+        finishRoot(atRoot);
+    }
+
+    private void writeEntry(@NotNull String key, @Nullable Object value, int indent, int innerIndent,
+                            @Nullable CommentTree comments, @Nullable ConfigurationSection owner)
+            throws IOException {
+        CommentTree childComments = comments == null ? null : comments.child(key, pathSeparator);
+        writeOriginComments(value, indent + 1);
+        writeComments(childComments, innerIndent);
+        writeIndent(innerIndent);
+        writeKey(key, value);
+        boolean inPlace = owner != null && value instanceof ConfigurationSection
+                && ((ConfigurationSection) value).getParent() == owner
+                && key.equals(((ConfigurationSection) value).getName());
+        writeValue(value, innerIndent, false, childComments, inPlace);
+    }
+
+    /**
+     * Renders the entries holding objects or lists on the fork join pool, if there are enough of them.
+     *
+     * Every entry is rendered by its own writer into a string, which is exactly what writing it here would produce.
+     * The comment tree and fragment cache are only read from, or written for different sections, while rendering.
+     *
+     * @return The rendered entries, null for those that were not rendered, or null if nothing was rendered.
+     */
+    @Nullable
+    private String[] renderInParallel(@NotNull Map.Entry[] entries, @NotNull Object[] values, int indent,
+                                      int innerIndent, @Nullable CommentTree comments,
+                                      @Nullable ConfigurationSection owner) throws IOException {
+        if (pool == null || parallelThreshold <= 0 || entries.length < parallelThreshold) {
+            return null;
+        }
+        List<Integer> subtrees = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            if (isWritable(values[i]) && (isObject(values[i]) || values[i] instanceof Collection)) {
+                subtrees.add(i);
+            }
+        }
+        if (subtrees.size() < parallelThreshold) {
+            return null;
+        }
+
+        String[] rendered = new String[entries.length];
+        long[] counts = new long[entries.length];
+        List<RecursiveAction> tasks = new ArrayList<>(subtrees.size());
+        for (int index : subtrees) {
+            tasks.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    StringWriter buffer = new StringWriter();
+                    HoconWriter fragmentWriter = new HoconWriter(buffer, HoconWriter.this);
+                    try {
+                        fragmentWriter.writeEntry(entries[index].getKey().toString(), values[index], indent,
+                                innerIndent, comments, owner);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    rendered[index] = buffer.toString();
+                    counts[index] = fragmentWriter.valueCount;
+                }
+            });
+        }
+        try {
+            if (ForkJoinTask.getPool() == pool) {
+                ForkJoinTask.invokeAll(tasks);
+            } else {
+                pool.invoke(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        invokeAll(tasks);
+                    }
+                });
+            }
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        for (long count : counts) {
+            valueCount += count;
+        }
+        return rendered;
+    }
+
+    private void writeList(@NotNull Collection<?> collection, int indent) throws IOException {
+        if (collection.isEmpty()) {
+            out.write("[]");
+            return;
+        }
+
+        out.write('[');
+        if (formatted) {
+            out.write('\n');
+        }
+        boolean first = true;
+        for (Object o : collection) {
+            Object value = normalize(o);
+            if (!isWritable(value)) {
+                LOG.log(Level.WARNING, "Error while building configuration list.",
+                        new IllegalArgumentException("Cannot write value of " + value.getClass()));
+                continue;
+            }
+            if (!first) {
+                out.write(',');
+                if (formatted) {
+                    out.write('\n');
+                }
+            }
+            first = false;
+
+            writeOriginComments(value, indent + 1);
+            writeIndent(indent + 1);
+            writeValue(value, indent + 1, false, null, false);
+        }
+        if (formatted) {
+            out.write('\n');
+            writeIndent(indent);
+        }
+        out.write(']');
+    }
+
+    /**
+     * Writes a list of numbers the same way {@link #writeList(Collection, int)} would, without boxing them.
+     */
+    private void writeNumericList(@NotNull NumericList<?> list, int indent) throws IOException {
+        if (list.isEmpty()) {
+            out.write("[]");
+            return;
+        }
+
+        out.write('[');
+        if (formatted) {
+            out.write('\n');
+        }
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+                if (formatted) {
+                    out.write('\n');
+                }
+            }
+            writeOriginComments(null, indent + 1);
+            writeIndent(indent + 1);
+            out.write(list.toString(i));
+        }
+        valueCount += list.size();
+        if (formatted) {
+            out.write('\n');
+            writeIndent(indent);
+        }
+        out.write(']');
+    }
+
+    private void writeScalar(@Nullable Object value) throws IOException {
+        if (value == null) {
+            out.write("null");
+        } else if (value instanceof String) {
+            if (json) {
+                writeJsonString((String) value);
+            } else {
+                writeStringUnquotedIfPossible((String) value);
+            }
+        } else if (value instanceof Boolean) {
+            out.write(value.toString());
+        } else if (value instanceof Integer || value instanceof Long || value instanceof Double) {
+            out.write(value.toString());
+        } else {
+            // Same narrowing the hocon library applies to the other Number types.
+            double number = ((Number) value).doubleValue();
+            long asLong = (long) number;
+            out.write(asLong == number ? Long.toString(asLong) : Double.toString(number));
+        }
+    }
+
+    private void writeKey(@NotNull String key, @Nullable Object value) throws IOException {
+        if (json) {
+            writeJsonString(key);
+        } else {
+            writeStringUnquotedIfPossible(key);
+        }
+
+        if (!json && isObject(value)) {
+            // in non-JSON we can omit the colon or equals before an object
+            if (formatted) {
+                out.write(' ');
+            }
+        } else if (json) {
+            out.write(formatted ? " : " : ":");
+        } else {
+            out.write('=');
+        }
+    }
+
+    private void writeEntrySeparator() throws IOException {
+        if (formatted) {
+            if (json) {
+                out.write(',');
+            }
+            out.write('\n');
+        } else {
+            out.write(',');
+        }
+    }
+
+    private void writeComments(@Nullable CommentTree node, int indent) throws IOException {
+        if (!renderComments || node == null) {
+            return;
+        }
+        for (String comment : node.getComments()) {
+            writeIndent(indent);
+            out.write('#');
+            if (!comment.startsWith(" ")) {
+                out.write(' ');
+            }
+            out.write(comment);
+            out.write('\n');
+        }
+    }
+
+    private void writeOriginComments(@Nullable Object value, int indent) throws IOException {
+        if (!originComments) {
+            return;
+        }
+        String description = value instanceof ConfigValue
+                ? ((ConfigValue) value).origin().description() : ORIGIN_DESCRIPTION;
+        for (String line : description.split("\n")) {
+            writeIndent(indent);
+            out.write('#');
+            if (!line.isEmpty()) {
+                out.write(' ');
+            }
+            out.write(line);
+            out.write('\n');
+        }
+    }
+
+    private void writeIndent(int indent) throws IOException {
+        if (formatted) {
+            for (int i = 0; i < indent; i++) {
+                out.write(INDENT);
+            }
+        }
+    }
+
+    private void finishRoot(boolean atRoot) throws IOException {
+        if (atRoot && formatted) {
+            out.write('\n');
+        }
+    }
+
+    private void writeJsonString(@NotNull String s) throws IOException {
+        out.write('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            String escaped;
+            switch (c) {
+                case '"':
+                    escaped = "\\\"";
+                    break;
+                case '\\':
+                    escaped = "\\\\";
+                    break;
+                case '\n':
+                    escaped = "\\n";
+                    break;
+                case '\b':
+                    escaped = "\\b";
+                    break;
+                case '\f':
+                    escaped = "\\f";
+                    break;
+                case '\r':
+                    escaped = "\\r";
+                    break;
+                case '\t':
+                    escaped = "\\t";
+                    break;
+                default:
+                    escaped = Character.isISOControl(c) ? String.format("\\u%04x", (int) c) : null;
+            }
+            if (escaped != null) {
+                out.write(s, start, i - start);
+                out.write(escaped);
+                start = i + 1;
+            }
+        }
+        out.write(s, start, s.length() - start);
+        out.write('"');
+    }
+
+    private void writeStringUnquotedIfPossible(@NotNull String s) throws IOException {
+        if (needsQuotes(s)) {
+            writeJsonString(s);
+        } else {
+            out.write(s);
+        }
+    }
+
+    /**
+     * Mirrors the hocon library's rules for when a string may be rendered without quotes. This can quote
+     * unnecessarily as long as it never fails to quote when necessary.
+     */
+    private static boolean needsQuotes(@NotNull String s) {
+        if (s.length() == 0) {
+            return true;
+        }
+        int first = s.codePointAt(0);
+        if (Character.isDigit(first) || first == '-') {
+            return true;
+        }
+        if (s.startsWith("include") || s.startsWith("true") || s.startsWith("false")
+                || s.startsWith("null") || s.contains("//")) {
+            return true;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (!(Character.isLetter(c) || Character.isDigit(c) || c == '-')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Applies the same conversions {@link SerializationHelper#buildHoconConfig(Object)} does before rendering.
+     */
+    @Nullable
+    private static Object normalize(@Nullable Object value) {
+        if (value instanceof Object[]) {
+            return Arrays.asList((Object[]) value);
+        }
+        if (value instanceof Set && !(value instanceof SerializableSet)) {
+            return new SerializableSet((Set) value);
+        }
+        return value;
+    }
+
+    private static boolean isWritable(@Nullable Object value) {
+        return value == null || value instanceof String || value instanceof Boolean || value instanceof Number
+                || value instanceof ConfigurationSection || value instanceof Map || value instanceof Collection
+                || value instanceof ConfigurationSerializable || value instanceof ConfigValue;
+    }
+
+    private static boolean isObject(@Nullable Object value) {
+        return value instanceof ConfigurationSection || value instanceof Map
+                || value instanceof ConfigurationSerializable
+                || (value instanceof ConfigValue && ((ConfigValue) value).valueType() == ConfigValueType.OBJECT);
+    }
+
+    /**
+     * The key order used by the hocon library when rendering: numeric keys first in numeric order, then the rest
+     * alphabetically.
+     */
+    private static final class RenderComparator implements Comparator<Map.Entry> {
+
+        private static boolean isAllDigits(String s) {
+            int length = s.length();
+            if (length == 0) {
+                return false;
+            }
+            for (int i = 0; i < length; ++i) {
+                if (!Character.isDigit(s.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int compare(Map.Entry entryA, Map.Entry entryB) {
+            String a = entryA.getKey().toString();
+            String b = entryB.getKey().toString();
+            boolean aDigits = isAllDigits(a);
+            boolean bDigits = isAllDigits(b);
+            if (aDigits && bDigits) {
+                return new BigInteger(a).compareTo(new BigInteger(b));
+            } else if (aDigits) {
+                return -1;
+            } else if (bDigits) {
+                return 1;
+            } else {
+                return a.compareTo(b);
+            }
+        }
+    }
+}
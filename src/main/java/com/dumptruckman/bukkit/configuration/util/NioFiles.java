@@ -0,0 +1,239 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigParseOptions;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.Reader;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Reads configuration files through NIO without building a string of the whole file.
+ *
+ * Files are read through a {@link FileChannel} in chunks, those of at least {@link #REUSE_THRESHOLD} bytes into a heap
+ * buffer that is kept per thread and reused by later reads, and decoded as UTF-8 into a char buffer that is reused the
+ * same way. The parser reads straight from that buffer. Files are never memory-mapped, so a loaded file is not held
+ * open by a mapping and can be replaced or truncated right away.
+ */
+public final class NioFiles {
+
+    /**
+     * Files of at least this many bytes are read into a buffer reused by later reads on the same thread.
+     */
+    public static final int REUSE_THRESHOLD = 1 << 20;
+
+    /**
+     * How many bytes are read from the channel at a time, which keeps the temporary direct buffer the channel reads
+     * through small.
+     */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private static final ThreadLocal<SoftReference<ByteBuffer>> BYTE_BUFFER = new ThreadLocal<>();
+    private static final ThreadLocal<SoftReference<CharBuffer>> CHAR_BUFFER = new ThreadLocal<>();
+
+    private NioFiles() { }
+
+    /**
+     * Reads the contents of a file.
+     *
+     * The returned buffer of a file of at least {@link #REUSE_THRESHOLD} bytes is shared by all reads done on the
+     * calling thread, so it is only valid until the next call of this method on the same thread.
+     *
+     * @param path The file to read.
+     * @return The contents of the file, positioned at the start and backed by an accessible array.
+     * @throws IOException If the file cannot be read or is truncated while reading.
+     */
+    @NotNull
+    public static ByteBuffer read(@NotNull final Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return read(channel, channel.size(), path);
+        }
+    }
+
+    /**
+     * Reads the given number of bytes from a channel, see {@link #read(Path)}.
+     */
+    @NotNull
+    static ByteBuffer read(@NotNull final ReadableByteChannel channel, final long size, @NotNull final Object source)
+            throws IOException {
+        if (size > Integer.MAX_VALUE) {
+            throw new IOException(source + " is too large to load (" + size + " bytes)");
+        }
+        ByteBuffer buffer = size >= REUSE_THRESHOLD ? byteBuffer((int) size) : ByteBuffer.allocate((int) size);
+        buffer.limit(0);
+        while (buffer.limit() < size) {
+            buffer.limit((int) Math.min(size, buffer.limit() + (long) CHUNK_SIZE));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException(source + " was truncated while reading");
+                }
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Decodes UTF-8 bytes, replacing malformed input the same way a {@link java.io.InputStreamReader} would.
+     *
+     * The returned buffer is shared by all decoding done on the calling thread, so it is only valid until the next
+     * call of this method on the same thread.
+     *
+     * @param bytes The bytes to decode, which are consumed.
+     * @return The decoded chars, positioned at the start and backed by an accessible array.
+     */
+    @NotNull
+    public static CharBuffer decodeUtf8(@NotNull final ByteBuffer bytes) {
+        // UTF-8 never decodes to more chars than it has bytes
+        CharBuffer chars = charBuffer(bytes.remaining());
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CoderResult result = decoder.decode(bytes, chars, true);
+        if (result.isUnderflow()) {
+            result = decoder.flush(chars);
+        }
+        if (!result.isUnderflow()) {
+            try {
+                result.throwException();
+            } catch (CharacterCodingException e) {
+                throw new IllegalStateException(e); // not reachable while replacing and sized for the worst case
+            }
+        }
+        chars.flip();
+        return chars;
+    }
+
+    /**
+     * Reads and parses a hocon file without resolving it.
+     *
+     * @param path The file to parse.
+     * @return The parsed config, or null if the file is empty.
+     * @throws IOException If the file cannot be read.
+     */
+    @Nullable
+    public static Config parse(@NotNull final Path path) throws IOException {
+        return parse(read(path), path.toString());
+    }
+
+    /**
+     * Parses hocon from UTF-8 bytes without resolving it.
+     *
+     * @param bytes The bytes to parse, which are consumed.
+     * @param originDescription Describes where the bytes came from in error messages.
+     * @return The parsed config, or null if there are no bytes.
+     */
+    @Nullable
+    public static Config parse(@NotNull final ByteBuffer bytes, @NotNull final String originDescription) {
+        return parse(decodeUtf8(bytes), originDescription);
+    }
+
+    /**
+     * Parses hocon from decoded chars without resolving it.
+     *
+     * @param chars The chars to parse, which are consumed.
+     * @param originDescription Describes where the chars came from in error messages.
+     * @return The parsed config, or null if there are no chars.
+     */
+    @Nullable
+    public static Config parse(@NotNull final CharBuffer chars, @NotNull final String originDescription) {
+        if (!chars.hasRemaining()) {
+            return null;
+        }
+        return ConfigFactory.parseReader(new CharBufferReader(chars),
+                ConfigParseOptions.defaults().setOriginDescription(originDescription));
+    }
+
+    /**
+     * Computes the SHA-256 hash of the given bytes without consuming them.
+     *
+     * @param bytes The bytes to hash.
+     * @return The hash.
+     */
+    @NotNull
+    public static byte[] sha256(@NotNull final ByteBuffer bytes) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e); // every Java platform is required to support SHA-256
+        }
+        digest.update(bytes.duplicate());
+        return digest.digest();
+    }
+
+    /**
+     * Reads from a char buffer. The parser reads a char at a time, so unlike {@link java.io.CharArrayReader} this
+     * does not take a lock for every read.
+     */
+    private static final class CharBufferReader extends Reader {
+
+        private final CharBuffer chars;
+
+        CharBufferReader(@NotNull final CharBuffer chars) {
+            this.chars = chars;
+        }
+
+        @Override
+        public int read() {
+            return chars.hasRemaining() ? chars.get() : -1;
+        }
+
+        @Override
+        public int read(@NotNull final char[] buffer, final int offset, final int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!chars.hasRemaining()) {
+                return -1;
+            }
+            int count = Math.min(length, chars.remaining());
+            chars.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public void close() { }
+    }
+
+    @NotNull
+    private static ByteBuffer byteBuffer(final int capacity) {
+        SoftReference<ByteBuffer> ref = BYTE_BUFFER.get();
+        ByteBuffer buffer = ref != null ? ref.get() : null;
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+            BYTE_BUFFER.set(new SoftReference<>(buffer));
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    @NotNull
+    private static CharBuffer charBuffer(final int capacity) {
+        SoftReference<CharBuffer> ref = CHAR_BUFFER.get();
+        CharBuffer buffer = ref != null ? ref.get() : null;
+        if (buffer == null || buffer.capacity() < capacity) {
+            buffer = CharBuffer.allocate(capacity);
+            CHAR_BUFFER.set(new SoftReference<>(buffer));
+        }
+        buffer.clear();
+        return buffer;
+    }
+}
@@ -0,0 +1,343 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import com.typesafe.config.ConfigList;
+import com.typesafe.config.ConfigValue;
+import com.typesafe.config.ConfigValueType;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable list of numbers kept in a primitive array.
+ *
+ * Elements are handed out boxed as {@link Integer}s, {@link Long}s or {@link Double}s, whichever the list was made of,
+ * or widened to, and can be read unboxed with {@link #getInt(int)}, {@link #getLong(int)} and {@link #getDouble(int)}.
+ *
+ * @param <E> The boxed type of the elements.
+ */
+public abstract class NumericList<E extends Number> extends AbstractList<E> implements RandomAccess {
+
+    // the largest magnitude up to which every long is exactly a double
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    private NumericList() { }
+
+    /**
+     * Returns an immutable list holding a copy of the given numbers.
+     *
+     * @param values The numbers.
+     * @return The list.
+     */
+    @NotNull
+    public static NumericList<Integer> ofInts(@NotNull final int... values) {
+        return new Ints(values.clone());
+    }
+
+    /**
+     * Returns an immutable list holding a copy of the given numbers.
+     *
+     * @param values The numbers.
+     * @return The list.
+     */
+    @NotNull
+    public static NumericList<Long> ofLongs(@NotNull final long... values) {
+        return new Longs(values.clone());
+    }
+
+    /**
+     * Returns an immutable list holding a copy of the given numbers.
+     *
+     * @param values The numbers.
+     * @return The list.
+     */
+    @NotNull
+    public static NumericList<Double> ofDoubles(@NotNull final double... values) {
+        return new Doubles(values.clone());
+    }
+
+    /**
+     * Returns the numbers of a parsed list in a numeric list, if they all unwrap to {@link Integer}s, {@link Long}s or
+     * {@link Double}s. The list is of the widest type among them: any double makes a list of doubles, otherwise any
+     * long makes a list of longs.
+     *
+     * @param list The parsed list.
+     * @return The numeric list, or null if the list is empty, holds anything else or holds both doubles and longs that
+     *         a double cannot hold exactly.
+     */
+    @Nullable
+    public static NumericList<?> of(@NotNull final ConfigList list) {
+        return of(list, true);
+    }
+
+    /**
+     * Returns the numbers of a list of plain values in a numeric list, if they are all {@link Integer}s, {@link Long}s
+     * or {@link Double}s. The list is of the widest type among them: any double makes a list of doubles, otherwise any
+     * long makes a list of longs.
+     *
+     * @param list The values.
+     * @return The numeric list, or null if the list is empty, holds anything else or holds both doubles and longs that
+     *         a double cannot hold exactly.
+     */
+    @Nullable
+    public static NumericList<?> of(@NotNull final List<?> list) {
+        return of(list, false);
+    }
+
+    @Nullable
+    private static NumericList<?> of(@NotNull final List<?> list, final boolean parsed) {
+        final int size = list.size();
+        if (size == 0) {
+            return null;
+        }
+        boolean longs = false;
+        boolean doubles = false;
+        boolean inexact = false;
+        for (int i = 0; i < size; i++) {
+            final Object value = element(list, i, parsed);
+            if (value instanceof Long) {
+                longs = true;
+                final long l = (Long) value;
+                inexact |= l > MAX_EXACT_DOUBLE || l < -MAX_EXACT_DOUBLE;
+            } else if (value instanceof Double) {
+                doubles = true;
+            } else if (!(value instanceof Integer)) {
+                return null;
+            }
+        }
+        if (doubles) {
+            if (inexact) {
+                return null;
+            }
+            final double[] values = new double[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = ((Number) element(list, i, parsed)).doubleValue();
+            }
+            return new Doubles(values);
+        } else if (longs) {
+            final long[] values = new long[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = ((Number) element(list, i, parsed)).longValue();
+            }
+            return new Longs(values);
+        }
+        final int[] values = new int[size];
+        for (int i = 0; i < size; i++) {
+            values[i] = (Integer) element(list, i, parsed);
+        }
+        return new Ints(values);
+    }
+
+    @Nullable
+    private static Object element(@NotNull final List<?> list, final int index, final boolean parsed) {
+        if (!parsed) {
+            return list.get(index);
+        }
+        final ConfigValue value = (ConfigValue) list.get(index);
+        return value.valueType() == ConfigValueType.NUMBER ? value.unwrapped() : null;
+    }
+
+    public abstract int getInt(int index);
+
+    public abstract long getLong(int index);
+
+    public abstract double getDouble(int index);
+
+    /**
+     * Returns the elements as they would be written to a file.
+     */
+    @NotNull
+    abstract String toString(int index);
+
+    /**
+     * Returns a view of this list converting each element with {@link Number#intValue()}.
+     *
+     * @return This list if it holds {@link Integer}s, otherwise a read only view of it.
+     */
+    @NotNull
+    public List<Integer> asIntegerList() {
+        return new AbstractView<Integer>() {
+            @Override
+            public Integer get(final int index) {
+                return getInt(index);
+            }
+        };
+    }
+
+    /**
+     * Returns a view of this list converting each element with {@link Number#longValue()}.
+     *
+     * @return This list if it holds {@link Long}s, otherwise a read only view of it.
+     */
+    @NotNull
+    public List<Long> asLongList() {
+        return new AbstractView<Long>() {
+            @Override
+            public Long get(final int index) {
+                return getLong(index);
+            }
+        };
+    }
+
+    /**
+     * Returns a view of this list converting each element with {@link Number#doubleValue()}.
+     *
+     * @return This list if it holds {@link Double}s, otherwise a read only view of it.
+     */
+    @NotNull
+    public List<Double> asDoubleList() {
+        return new AbstractView<Double>() {
+            @Override
+            public Double get(final int index) {
+                return getDouble(index);
+            }
+        };
+    }
+
+    private abstract class AbstractView<T> extends AbstractList<T> implements RandomAccess {
+        @Override
+        public int size() {
+            return NumericList.this.size();
+        }
+    }
+
+    private static final class Ints extends NumericList<Integer> {
+
+        private final int[] values;
+
+        Ints(@NotNull final int[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Integer get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public int getInt(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public long getLong(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public double getDouble(final int index) {
+            return values[index];
+        }
+
+        @NotNull
+        @Override
+        String toString(final int index) {
+            return Integer.toString(values[index]);
+        }
+
+        @NotNull
+        @Override
+        public List<Integer> asIntegerList() {
+            return this;
+        }
+    }
+
+    private static final class Longs extends NumericList<Long> {
+
+        private final long[] values;
+
+        Longs(@NotNull final long[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Long get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public int getInt(final int index) {
+            return (int) values[index];
+        }
+
+        @Override
+        public long getLong(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public double getDouble(final int index) {
+            return values[index];
+        }
+
+        @NotNull
+        @Override
+        String toString(final int index) {
+            return Long.toString(values[index]);
+        }
+
+        @NotNull
+        @Override
+        public List<Long> asLongList() {
+            return this;
+        }
+    }
+
+    private static final class Doubles extends NumericList<Double> {
+
+        private final double[] values;
+
+        Doubles(@NotNull final double[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public Double get(final int index) {
+            return values[index];
+        }
+
+        @Override
+        public int size() {
+            return values.length;
+        }
+
+        @Override
+        public int getInt(final int index) {
+            return (int) values[index];
+        }
+
+        @Override
+        public long getLong(final int index) {
+            return (long) values[index];
+        }
+
+        @Override
+        public double getDouble(final int index) {
+            return values[index];
+        }
+
+        @NotNull
+        @Override
+        String toString(final int index) {
+            return Double.toString(values[index]);
+        }
+
+        @NotNull
+        @Override
+        public List<Double> asDoubleList() {
+            return this;
+        }
+    }
+}
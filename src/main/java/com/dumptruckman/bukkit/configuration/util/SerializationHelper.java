@@ -1,6 +1,8 @@
 package com.dumptruckman.bukkit.configuration.util;
 
 import com.dumptruckman.bukkit.configuration.SerializableSet;
+import com.typesafe.config.ConfigList;
+import com.typesafe.config.ConfigObject;
 import com.typesafe.config.ConfigOrigin;
 import com.typesafe.config.ConfigOriginFactory;
 import com.typesafe.config.ConfigValue;
@@ -14,9 +16,13 @@ import org.yaml.snakeyaml.error.YAMLException;
 
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -33,22 +39,30 @@ public class SerializationHelper {
     private static final Logger LOG = Logger.getLogger(SerializationHelper.class.getName());
 
     public static SerializationHelper createSerializationHelper(@NotNull Map<String, List<String>> withComments, char pathSeparator) {
+        CommentTree comments = new CommentTree();
+        for (Map.Entry<String, List<String>> entry : withComments.entrySet()) {
+            comments.set(entry.getKey(), pathSeparator, entry.getValue());
+        }
+        return new SerializationHelper(comments, pathSeparator);
+    }
+
+    public static SerializationHelper createSerializationHelper(@NotNull CommentTree withComments, char pathSeparator) {
         return new SerializationHelper(withComments, pathSeparator);
     }
 
-    private final @NotNull Map<String, List<String>> allComments;
+    private final @NotNull CommentTree allComments;
     private final char pathSeparator;
 
-    private SerializationHelper(@NotNull Map<String, List<String>> withComments, char pathSeparator) {
+    private SerializationHelper(@NotNull CommentTree withComments, char pathSeparator) {
         this.allComments = withComments;
         this.pathSeparator = pathSeparator;
     }
 
     public ConfigValue buildHoconConfig(@NotNull Object value) {
-        return buildHoconConfig(value, "");
+        return buildHoconConfig(value, allComments);
     }
 
-    private ConfigValue buildHoconConfig(@NotNull Object value, @Nullable String currentPath) {
+    private ConfigValue buildHoconConfig(@NotNull Object value, @Nullable CommentTree comments) {
         if (value instanceof Object[]) {
             value = new ArrayList<>(Arrays.asList((Object[]) value));
         }
@@ -56,19 +70,15 @@ public class SerializationHelper {
             value = new SerializableSet((Set) value);
         }
         if (value instanceof ConfigurationSection) {
-            return buildMap(((ConfigurationSection) value).getValues(false), currentPath);
+            return buildMap(((ConfigurationSection) value).getValues(false), comments);
         } else if (value instanceof Map) {
-            return buildMap((Map) value, currentPath);
+            return buildMap((Map) value, comments);
         } else if (value instanceof List) {
-            return buildList((List) value, currentPath);
+            return buildList((List) value, comments);
         } else if (value instanceof ConfigurationSerializable) {
-            ConfigurationSerializable serializable = (ConfigurationSerializable) value;
-            Map<String, Object> values = new LinkedHashMap<>();
-            values.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, ConfigurationSerialization.getAlias(serializable.getClass()));
-            values.putAll(serializable.serialize());
-            return buildMap(values, currentPath);
+            return buildSerializable((ConfigurationSerializable) value, comments);
         } else {
-            return applyComments(ConfigValueFactory.fromAnyRef(value, "HoconConfiguration"), currentPath);
+            return applyComments(ConfigValueFactory.fromAnyRef(value, "HoconConfiguration"), comments);
         }
     }
 
@@ -87,18 +97,37 @@ public class SerializationHelper {
      *   for Everything else: stores it as is in the returned Map.
      */
     @NotNull
-    private ConfigValue buildMap(@NotNull final Map<?, ?> map, @Nullable String currentPath) {
+    private ConfigValue buildMap(@NotNull final Map<?, ?> map, @Nullable CommentTree comments) {
         final Map<String, ConfigValue> result = new LinkedHashMap<>(map.size());
         try {
             for (final Map.Entry<?, ?> entry : map.entrySet()) {
                 String key = entry.getKey().toString();
-                String nextPath = currentPath == null ? null : currentPath.isEmpty() ? key : currentPath + pathSeparator + key;
-                result.put(key, buildHoconConfig(entry.getValue(), nextPath));
+                CommentTree childComments = comments == null ? null : comments.child(key, pathSeparator);
+                result.put(key, buildHoconConfig(entry.getValue(), childComments));
             }
         } catch (final Exception e) {
             LOG.log(Level.WARNING, "Error while building configuration map.", e);
         }
-        return applyComments(newConfigObject(result), currentPath);
+        return applyComments(newConfigObject(result), comments);
+    }
+
+    /**
+     * Works like {@link #buildMap(java.util.Map)} on the serialized form of the object, without building that form as
+     * a map first.
+     */
+    @NotNull
+    private ConfigValue buildSerializable(@NotNull final ConfigurationSerializable serializable,
+                                          @Nullable CommentTree comments) {
+        final Map<String, ConfigValue> result = new LinkedHashMap<>();
+        try {
+            SerializerRegistry.serialize(serializable, (key, value) -> {
+                CommentTree childComments = comments == null ? null : comments.child(key, pathSeparator);
+                result.put(key, buildHoconConfig(value, childComments));
+            });
+        } catch (final Exception e) {
+            LOG.log(Level.WARNING, "Error while building configuration map.", e);
+        }
+        return applyComments(newConfigObject(result), comments);
     }
 
     /**
@@ -115,7 +144,7 @@ public class SerializationHelper {
      *       and calls {@link #buildMap(java.util.Map)} on the new Map before adding to the returned list.
      *   for Everything else: stores it as is in the returned List.
      */
-    private ConfigValue buildList(@NotNull final Collection<?> collection, @Nullable String currentPath) {
+    private ConfigValue buildList(@NotNull final Collection<?> collection, @Nullable CommentTree comments) {
         final List<ConfigValue> result = new ArrayList<>(collection.size());
         try {
             for (Object o : collection) {
@@ -124,24 +153,67 @@ public class SerializationHelper {
         } catch (Exception e) {
             LOG.log(Level.WARNING, "Error while building configuration list.", e);
         }
-        return applyComments(newConfigList(result), currentPath);
+        return applyComments(newConfigList(result), comments);
     }
 
-    private ConfigValue applyComments(@NotNull ConfigValue value, @Nullable String currentPath) {
-        if (currentPath != null) {
-            List<String> comments = allComments.get(currentPath);
-            if (comments != null && !comments.isEmpty()) {
-                return value.withOrigin(value.origin().withComments(comments));
+    private ConfigValue applyComments(@NotNull ConfigValue value, @Nullable CommentTree comments) {
+        if (comments != null) {
+            List<String> lines = comments.getComments();
+            if (!lines.isEmpty()) {
+                return value.withOrigin(value.origin().withComments(lines));
             }
         }
         return value;
     }
 
+    /**
+     * Copies a configuration value into plain maps and lists that can be handed to another thread.
+     *
+     * Sections and maps become new maps, lists, arrays and collections become new lists and
+     * {@link ConfigurationSerializable}s are serialized right away into maps carrying the
+     * {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}. The copy renders the same as the original and is not
+     * affected by later changes to it.
+     */
+    public static Object snapshot(@Nullable Object value) {
+        if (value instanceof Set && !(value instanceof SerializableSet)) {
+            value = new SerializableSet((Set) value);
+        }
+        if (value instanceof DeferredSection && ((DeferredSection) value).getDeferred() != null) {
+            return unwrappedView(((DeferredSection) value).getDeferred()); // parsed trees are immutable
+        } else if (value instanceof ConfigurationSection) {
+            return snapshot(((ConfigurationSection) value).getValues(false));
+        } else if (value instanceof Map) {
+            final Map<?, ?> map = (Map<?, ?>) value;
+            final Map<Object, Object> copy = new LinkedHashMap<>(map.size());
+            for (final Map.Entry<?, ?> entry : map.entrySet()) {
+                copy.put(entry.getKey(), snapshot(entry.getValue()));
+            }
+            return copy;
+        } else if (value instanceof ConfigurationSerializable) {
+            final Map<Object, Object> copy = new LinkedHashMap<>();
+            SerializerRegistry.serialize((ConfigurationSerializable) value,
+                    (key, v) -> copy.put(key, snapshot(v)));
+            return copy;
+        } else if (value instanceof NumericList) {
+            return value; // immutable
+        } else if (value instanceof Object[]) {
+            return snapshot(Arrays.asList((Object[]) value));
+        } else if (value instanceof Collection) {
+            final Collection<?> collection = (Collection<?>) value;
+            final List<Object> copy = new ArrayList<>(collection.size());
+            for (final Object o : collection) {
+                copy.add(snapshot(o));
+            }
+            return copy;
+        }
+        return value;
+    }
+
     /**
      * Parses through the input map to deal with serialized objects a la {@link ConfigurationSerializable}.
      *
      * Called recursively first on Maps and Lists before passing the parsed input over to
-     * {@link ConfigurationSerialization#deserializeObject(java.util.Map)}.  Basically this means it will deserialize
+     * {@link DeserializerRegistry#deserialize(java.util.Map)}.  Basically this means it will deserialize
      * the most nested objects FIRST and the top level object LAST.
      */
     public static Object deserialize(@NotNull final Map<?, ?> input) {
@@ -155,9 +227,13 @@ public class SerializationHelper {
                 output.put(e.getKey().toString(), e.getValue());
             }
         }
+        return deserializeIfSerialized(output);
+    }
+
+    private static Object deserializeIfSerialized(@NotNull final Map<String, Object> output) {
         if (output.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY)) {
             try {
-                return ConfigurationSerialization.deserializeObject(output);
+                return DeserializerRegistry.deserialize(output);
             } catch (IllegalArgumentException ex) {
                 throw new YAMLException("Could not deserialize object", ex);
             }
@@ -185,6 +261,212 @@ public class SerializationHelper {
         return output;
     }
 
+    /**
+     * Converts a parsed hocon value into plain objects, dealing with serialized objects a la
+     * {@link ConfigurationSerializable} on the way.
+     *
+     * Works directly off the parsed tree instead of {@link ConfigValue#unwrapped()} so the values are only copied once.
+     * Like {@link #deserialize(java.util.Map)}, the most nested objects are deserialized FIRST.
+     */
+    public static Object deserializeHocon(@NotNull final ConfigValue value) {
+        return deserializeHocon(value, false);
+    }
+
+    /**
+     * Like {@link #deserializeHocon(ConfigValue)}, but optionally keeping lists of numbers in {@link NumericList}s.
+     * Lists inside serialized objects are always left as regular lists, as the objects may expect to modify them.
+     *
+     * @param compactNumericLists true to keep lists that only hold numbers in primitive arrays.
+     */
+    public static Object deserializeHocon(@NotNull final ConfigValue value, final boolean compactNumericLists) {
+        switch (value.valueType()) {
+            case OBJECT:
+                final ConfigObject object = (ConfigObject) value;
+                final boolean compactChildren = compactNumericLists
+                        && !object.containsKey(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+                final Map<String, Object> map = new LinkedHashMap<String, Object>(object.size());
+                for (final Map.Entry<String, ConfigValue> e : object.entrySet()) {
+                    map.put(e.getKey(), deserializeHocon(e.getValue(), compactChildren));
+                }
+                return deserializeIfSerialized(map);
+            case LIST:
+                final ConfigList list = (ConfigList) value;
+                if (compactNumericLists) {
+                    final NumericList<?> numbers = NumericList.of(list);
+                    if (numbers != null) {
+                        return numbers;
+                    }
+                }
+                final List<Object> output = new ArrayList<Object>(list.size());
+                for (final ConfigValue v : list) {
+                    output.add(deserializeHocon(v, compactNumericLists));
+                }
+                return output;
+            default:
+                return value.unwrapped();
+        }
+    }
+
+    /**
+     * Returns a read only view of a parsed hocon value as the plain maps, lists and scalars it would load as, without
+     * deserializing anything or copying the tree.
+     */
+    public static Object unwrappedView(@NotNull final ConfigValue value) {
+        switch (value.valueType()) {
+            case OBJECT:
+                return new UnwrappedObject((ConfigObject) value);
+            case LIST:
+                return new UnwrappedList((ConfigList) value);
+            default:
+                return value.unwrapped();
+        }
+    }
+
+    private static final class UnwrappedObject extends AbstractMap<String, Object> {
+
+        private final ConfigObject object;
+
+        UnwrappedObject(@NotNull final ConfigObject object) {
+            this.object = object;
+        }
+
+        @Override
+        public int size() {
+            return object.size();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return object.containsKey(key);
+        }
+
+        @Override
+        public Object get(final Object key) {
+            final ConfigValue value = object.get(key);
+            return value != null ? unwrappedView(value) : null;
+        }
+
+        @NotNull
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<Entry<String, Object>>() {
+                @Override
+                public int size() {
+                    return object.size();
+                }
+
+                @NotNull
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    final Iterator<Entry<String, ConfigValue>> entries = object.entrySet().iterator();
+                    return new Iterator<Entry<String, Object>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            final Entry<String, ConfigValue> entry = entries.next();
+                            return new SimpleImmutableEntry<>(entry.getKey(), unwrappedView(entry.getValue()));
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+    private static final class UnwrappedList extends AbstractList<Object> {
+
+        private final ConfigList list;
+
+        UnwrappedList(@NotNull final ConfigList list) {
+            this.list = list;
+        }
+
+        @Override
+        public Object get(final int index) {
+            return unwrappedView(list.get(index));
+        }
+
+        @Override
+        public int size() {
+            return list.size();
+        }
+    }
+
+    /**
+     * Returns whether a configuration value is the same as what {@link #deserializeHocon(ConfigValue)} would turn the
+     * parsed value into, without deserializing anything.
+     *
+     * {@link ConfigurationSerializable}s are compared through what they serialize to, so they do not need to
+     * implement {@link Object#equals(Object)}.
+     */
+    public static boolean isSame(@Nullable final Object existing, @NotNull final ConfigValue value) {
+        switch (value.valueType()) {
+            case OBJECT:
+                final ConfigObject object = (ConfigObject) value;
+                final ConfigValue type = object.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+                final Map<?, ?> map;
+                int size = object.size();
+                if (existing instanceof ConfigurationSerializable) {
+                    if (type == null || !SerializerRegistry.getAlias(
+                            ((ConfigurationSerializable) existing).getClass()).equals(type.unwrapped())) {
+                        return false;
+                    }
+                    map = ((ConfigurationSerializable) existing).serialize();
+                    size--;
+                } else if (existing instanceof Map && type == null) {
+                    map = (Map<?, ?>) existing;
+                } else {
+                    return false;
+                }
+                if (map.size() != size) {
+                    return false;
+                }
+                for (final Map.Entry<?, ?> e : map.entrySet()) {
+                    final ConfigValue v = object.get(String.valueOf(e.getKey()));
+                    if (v == null || !isSame(e.getValue(), v)) {
+                        return false;
+                    }
+                }
+                return true;
+            case LIST:
+                final ConfigList list = (ConfigList) value;
+                if (!(existing instanceof List) || ((List<?>) existing).size() != list.size()) {
+                    return false;
+                }
+                int i = 0;
+                for (final Object o : (List<?>) existing) {
+                    if (!isSame(o, list.get(i++))) {
+                        return false;
+                    }
+                }
+                return true;
+            default:
+                final Object unwrapped = value.unwrapped();
+                if (unwrapped instanceof Number && existing instanceof Number) {
+                    return isSameNumber((Number) unwrapped, (Number) existing);
+                }
+                return unwrapped == null ? existing == null : unwrapped.equals(existing);
+        }
+    }
+
+    /**
+     * Compares numbers by value, as longs if both are integral and as doubles otherwise, as a value parsed from a file
+     * may be of another type than the same value set in code.
+     */
+    private static boolean isSameNumber(@NotNull final Number a, @NotNull final Number b) {
+        if (isIntegral(a) && isIntegral(b)) {
+            return a.longValue() == b.longValue();
+        }
+        return a.doubleValue() == b.doubleValue();
+    }
+
+    private static boolean isIntegral(@NotNull final Number number) {
+        return number instanceof Integer || number instanceof Long || number instanceof Short || number instanceof Byte;
+    }
+
     static ConfigValue newConfigObject(Map<String, ConfigValue> vals) {
         try {
             return CONFIG_OBJECT_CONSTRUCTOR.newInstance(ORIGIN, vals);
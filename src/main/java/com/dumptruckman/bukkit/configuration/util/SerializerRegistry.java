@@ -0,0 +1,217 @@
+package com.dumptruckman.bukkit.configuration.util;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+
+/**
+ * Keeps what saving needs to know about each {@link ConfigurationSerializable} class.
+ *
+ * The alias of a class only depends on its annotations, so it is looked up once per class instead of once per object.
+ * Classes can also be given an explicit {@link Serializer} that hands over their values one by one instead of building
+ * the map returned by {@link ConfigurationSerializable#serialize()}.
+ *
+ * With timing enabled, the time spent serializing objects is added up per class, to help find slow
+ * {@link ConfigurationSerializable#serialize()} implementations.
+ */
+public final class SerializerRegistry {
+
+    /**
+     * Hands over the serialized values of an object without building a map.
+     *
+     * @param <T> The type of object serialized.
+     */
+    @FunctionalInterface
+    public interface Serializer<T extends ConfigurationSerializable> {
+
+        /**
+         * Passes each serialized value of an object to the given consumer, the same values as
+         * {@link ConfigurationSerializable#serialize()} would return, leaving out the
+         * {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}.
+         *
+         * @param object The object to serialize.
+         * @param out Receives each key and value.
+         */
+        void serialize(@NotNull T object, @NotNull BiConsumer<String, Object> out);
+    }
+
+    /**
+     * How much time was spent serializing objects of one class.
+     */
+    public static final class Timing {
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder nanos = new LongAdder();
+
+        private Timing() { }
+
+        /**
+         * Returns how many objects were serialized.
+         *
+         * @return The number of objects.
+         */
+        public long getCount() {
+            return count.sum();
+        }
+
+        /**
+         * Returns the total time spent serializing them.
+         *
+         * @return The time in nanoseconds.
+         */
+        public long getTotalNanos() {
+            return nanos.sum();
+        }
+
+        @Override
+        public String toString() {
+            return "Timing{count=" + getCount() + ", totalNanos=" + getTotalNanos() + '}';
+        }
+    }
+
+    private static final class Metadata {
+        final String alias;
+        @Nullable
+        volatile Serializer<ConfigurationSerializable> serializer;
+
+        Metadata(@NotNull final String alias) {
+            this.alias = alias;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static final ClassValue<Metadata> METADATA = new ClassValue<Metadata>() {
+        @Override
+        protected Metadata computeValue(final Class<?> type) {
+            return new Metadata(ConfigurationSerialization.getAlias(
+                    (Class<? extends ConfigurationSerializable>) type));
+        }
+    };
+
+    private static final ConcurrentMap<Class<?>, Timing> TIMINGS = new ConcurrentHashMap<>();
+
+    private static volatile boolean timingEnabled;
+
+    private SerializerRegistry() { }
+
+    /**
+     * Registers an explicit serializer for a class. It must hand over the same values as the
+     * {@link ConfigurationSerializable#serialize()} method of the class.
+     *
+     * @param type The class to serialize.
+     * @param serializer Hands over the values of objects of the class.
+     * @param <T> The type of object serialized.
+     */
+    @SuppressWarnings("unchecked")
+    public static <T extends ConfigurationSerializable> void register(@NotNull final Class<T> type,
+                                                                      @NotNull final Serializer<? super T> serializer) {
+        METADATA.get(type).serializer = (Serializer<ConfigurationSerializable>) serializer;
+    }
+
+    /**
+     * Removes the explicit serializer of a class, if any.
+     *
+     * @param type The class to remove the serializer of.
+     */
+    public static void unregister(@NotNull final Class<? extends ConfigurationSerializable> type) {
+        METADATA.get(type).serializer = null;
+    }
+
+    /**
+     * Returns the alias a class is serialized under, like {@link ConfigurationSerialization#getAlias(Class)}.
+     *
+     * @param type The class to get the alias of.
+     * @return The alias.
+     */
+    @NotNull
+    public static String getAlias(@NotNull final Class<? extends ConfigurationSerializable> type) {
+        return METADATA.get(type).alias;
+    }
+
+    /**
+     * Passes the serialized form of an object to the given consumer one entry at a time, starting with the
+     * {@link ConfigurationSerialization#SERIALIZED_TYPE_KEY}.
+     *
+     * @param serializable The object to serialize.
+     * @param out Receives each key and value.
+     */
+    public static void serialize(@NotNull final ConfigurationSerializable serializable,
+                                 @NotNull final BiConsumer<String, Object> out) {
+        final Class<? extends ConfigurationSerializable> type = serializable.getClass();
+        final Metadata metadata = METADATA.get(type);
+        final Serializer<ConfigurationSerializable> serializer = metadata.serializer;
+        final boolean timed = timingEnabled;
+        final long start = timed ? System.nanoTime() : 0;
+        if (serializer != null) {
+            out.accept(ConfigurationSerialization.SERIALIZED_TYPE_KEY, metadata.alias);
+            serializer.serialize(serializable, out);
+            if (timed) {
+                record(type, System.nanoTime() - start);
+            }
+            return;
+        }
+
+        final Map<String, Object> values = serializable.serialize();
+        if (timed) {
+            record(type, System.nanoTime() - start);
+        }
+        // a type key in the serialized values replaces the alias, as it would when copied after it into a map
+        final Object alias = values.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+        out.accept(ConfigurationSerialization.SERIALIZED_TYPE_KEY, alias != null ? alias : metadata.alias);
+        for (final Map.Entry<String, Object> entry : values.entrySet()) {
+            if (!ConfigurationSerialization.SERIALIZED_TYPE_KEY.equals(entry.getKey())) {
+                out.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void record(@NotNull final Class<?> type, final long nanos) {
+        final Timing timing = TIMINGS.computeIfAbsent(type, t -> new Timing());
+        timing.count.increment();
+        timing.nanos.add(nanos);
+    }
+
+    /**
+     * Sets whether the time spent serializing objects is recorded per class.
+     *
+     * @param enabled true to record timings.
+     */
+    public static void setTimingEnabled(final boolean enabled) {
+        timingEnabled = enabled;
+    }
+
+    /**
+     * Returns whether the time spent serializing objects is recorded per class. Defaults to false.
+     *
+     * @return true if timings are recorded.
+     */
+    public static boolean isTimingEnabled() {
+        return timingEnabled;
+    }
+
+    /**
+     * Returns the timings recorded so far. The time of a class with an explicit {@link Serializer} includes whatever
+     * was done with the values it handed over.
+     *
+     * @return The timing of each class serialized while timing was enabled.
+     */
+    @NotNull
+    public static Map<Class<?>, Timing> getTimings() {
+        return new HashMap<>(TIMINGS);
+    }
+
+    /**
+     * Forgets all timings recorded so far.
+     */
+    public static void resetTimings() {
+        TIMINGS.clear();
+    }
+}